@@ -0,0 +1,57 @@
+package org.example.tokenmanager.benchmark;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.example.tokenmanager.TokenManagerApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+
+/**
+ * Starts the service without a web server against a throwaway PostgreSQL. By default an embedded
+ * PostgreSQL is started (zonky embedded-postgres; it refuses to run as root). Pass
+ * {@code -Dbench.jdbc-url=...} (plus {@code bench.username}/{@code bench.password}) to use an
+ * existing database instead.
+ */
+final class BenchmarkDatabase implements AutoCloseable {
+
+    private final EmbeddedPostgres embeddedPostgres;
+    private final ConfigurableApplicationContext context;
+
+    BenchmarkDatabase() throws IOException {
+        String jdbcUrl = System.getProperty("bench.jdbc-url");
+        String username = System.getProperty("bench.username", "postgres");
+        String password = System.getProperty("bench.password", "postgres");
+        if (jdbcUrl == null) {
+            embeddedPostgres = EmbeddedPostgres.builder().start();
+            jdbcUrl = embeddedPostgres.getJdbcUrl("postgres", "postgres");
+        } else {
+            embeddedPostgres = null;
+        }
+        context = new SpringApplicationBuilder(TokenManagerApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=" + jdbcUrl + (jdbcUrl.contains("?") ? "&" : "?") + "reWriteBatchedInserts=true",
+                        "spring.datasource.username=" + username,
+                        "spring.datasource.password=" + password,
+                        "spring.jpa.show-sql=false",
+                        "spring.jpa.properties.hibernate.format_sql=false",
+                        "logging.level.root=WARN",
+                        "logging.level.org.hibernate.SQL=WARN",
+                        "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN")
+                .run();
+    }
+
+    <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    @Override
+    public void close() throws IOException {
+        context.close();
+        if (embeddedPostgres != null) {
+            embeddedPostgres.close();
+        }
+    }
+}
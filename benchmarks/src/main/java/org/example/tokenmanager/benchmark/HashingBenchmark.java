@@ -0,0 +1,53 @@
+package org.example.tokenmanager.benchmark;
+
+import org.example.tokenmanager.util.TokenGenerator;
+import org.example.tokenmanager.util.TokenHasher;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HashingBenchmark {
+
+    private String token;
+    private byte[] tokenBytes;
+    private final byte[] digest = new byte[TokenHasher.DIGEST_LENGTH];
+
+    @Setup
+    public void setup() {
+        token = TokenGenerator.generate();
+        tokenBytes = token.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Benchmark
+    public String hashToHex() {
+        return TokenHasher.hash(token);
+    }
+
+    @Benchmark
+    public byte[] digestIntoBuffer() {
+        TokenHasher.digest(tokenBytes, 0, tokenBytes.length, digest, 0);
+        return digest;
+    }
+
+    /**
+     * The original implementation: a new MessageDigest and String.format per byte on every call.
+     */
+    @Benchmark
+    public String baselineHash() throws Exception {
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        byte[] hash = md.digest(token.getBytes(StandardCharsets.UTF_8));
+        StringBuilder hexString = new StringBuilder();
+        for (byte b : hash) {
+            hexString.append(String.format("%02x", b));
+        }
+        return hexString.toString();
+    }
+}
@@ -0,0 +1,62 @@
+package org.example.tokenmanager.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.tokenmanager.model.Token;
+import org.example.tokenmanager.util.NdjsonWriter;
+import org.example.tokenmanager.util.TokenGenerator;
+import org.example.tokenmanager.util.TokenHasher;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON serialization of token listings, as done by GET /tokens (one array) and
+ * GET /tokens/stream (NDJSON).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SerializationBenchmark {
+
+    @Param({"10", "1000"})
+    public int size;
+
+    private ObjectMapper objectMapper;
+    private List<Token> tokens;
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(1 << 20);
+
+    @Setup
+    public void setup() {
+        // Same configuration Spring Boot applies to the MVC ObjectMapper
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        tokens = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Token token = new Token("bench-user", TokenHasher.hash(TokenGenerator.generate()));
+            token.setLastUsedAt(LocalDateTime.now());
+            tokens.add(token);
+        }
+    }
+
+    @Benchmark
+    public byte[] writeList() throws IOException {
+        return objectMapper.writeValueAsBytes(tokens);
+    }
+
+    @Benchmark
+    public int writeNdjson() throws IOException {
+        out.reset();
+        try (NdjsonWriter writer = new NdjsonWriter(objectMapper, out, 100)) {
+            tokens.forEach(writer::write);
+        }
+        return out.size();
+    }
+}
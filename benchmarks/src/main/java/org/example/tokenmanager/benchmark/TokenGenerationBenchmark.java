@@ -0,0 +1,43 @@
+package org.example.tokenmanager.benchmark;
+
+import org.example.tokenmanager.util.TokenGenerator;
+import org.example.tokenmanager.util.TokenHasher;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Thread)
+public class TokenGenerationBenchmark {
+
+    private final byte[] token = new byte[TokenGenerator.TOKEN_LENGTH];
+    private final byte[] digest = new byte[TokenHasher.DIGEST_LENGTH];
+
+    @Benchmark
+    public String generate() {
+        return TokenGenerator.generate();
+    }
+
+    @Benchmark
+    public byte[] generateWithDigestIntoBuffers() {
+        TokenGenerator.generate(token, 0, digest, 0);
+        return digest;
+    }
+
+    /**
+     * The original implementation: a new SecureRandom per token.
+     */
+    @Benchmark
+    public String baselineGenerate() {
+        byte[] randomBytes = new byte[32];
+        new SecureRandom().nextBytes(randomBytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(randomBytes);
+    }
+}
@@ -0,0 +1,89 @@
+package org.example.tokenmanager.benchmark;
+
+import org.example.tokenmanager.controller.dto.TokenResponse;
+import org.example.tokenmanager.controller.dto.TokenValidationResponse;
+import org.example.tokenmanager.service.TokenService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * End-to-end TokenService flows (hashing, JPA/JDBC, audit queue) against PostgreSQL.
+ * Sample mode reports latency percentiles as well as the mean.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenServiceBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Service {
+        BenchmarkDatabase database;
+        TokenService tokenService;
+        String validToken;
+
+        @Setup(Level.Trial)
+        public void start() throws IOException {
+            database = new BenchmarkDatabase();
+            tokenService = database.getBean(TokenService.class);
+            validToken = tokenService.generateToken("bench-validate").getToken();
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() throws IOException {
+            database.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class UserState {
+        private static final AtomicInteger THREADS = new AtomicInteger();
+
+        String userId;
+        String currentToken;
+
+        @Setup(Level.Iteration)
+        public void setup(Service service) {
+            userId = "bench-user-" + THREADS.incrementAndGet();
+            currentToken = service.tokenService.generateToken(userId).getToken();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class FreshToken {
+        String token;
+
+        // Not measured: every invalidation needs its own valid token.
+        @Setup(Level.Invocation)
+        public void setup(Service service, UserState user) {
+            token = service.tokenService.generateToken(user.userId).getToken();
+        }
+    }
+
+    @Benchmark
+    public TokenResponse generate(Service service, UserState user) {
+        return service.tokenService.generateToken(user.userId);
+    }
+
+    @Benchmark
+    public TokenResponse rotate(Service service, UserState user) {
+        TokenResponse response = service.tokenService.rotateToken(user.currentToken);
+        user.currentToken = response.getToken();
+        return response;
+    }
+
+    @Benchmark
+    public FreshToken invalidate(Service service, FreshToken fresh) {
+        service.tokenService.invalidateToken(fresh.token);
+        return fresh;
+    }
+
+    @Benchmark
+    public TokenValidationResponse validate(Service service) {
+        return service.tokenService.validateToken(service.validToken);
+    }
+}
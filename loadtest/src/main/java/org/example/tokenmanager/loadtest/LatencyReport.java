@@ -0,0 +1,233 @@
+package org.example.tokenmanager.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Latencies of a run per operation, in HdrHistogram, in microseconds.
+ * <p>
+ * Response time is measured from the moment the schedule says a request is due, not from when
+ * it was actually sent. When the service falls behind, later requests still fall due on
+ * schedule, and the time they wait for the backlog to clear is counted; a closed-loop client
+ * would instead pause and never see that wait (coordinated omission). Service time, from the
+ * actual send, is kept alongside. The gap between the two is time spent queueing.
+ * <p>
+ * Every {@code --report-interval} a progress line is printed and the interval's histograms are
+ * appended to {@code response-times.hlog}, tagged by operation, for HdrHistogram's log tools. At
+ * the end a summary of the measured period (after warmup) goes to stdout and
+ * {@code summary.txt}, with the full percentile distribution of each operation in
+ * {@code <operation>.hgrm}.
+ */
+final class LatencyReport {
+
+    private static final double MICROS_PER_MILLI = 1000.0;
+    // Above this, the harness itself did not keep to the schedule.
+    private static final long SEND_LAG_WARNING_MICROS = 10_000;
+
+    private final Path output;
+    private final long startNanos;
+    private final long measureFromNanos;
+    private final IntSupplier inFlight;
+
+    private final Map<Operation, Recorder> intervals = new EnumMap<>(Operation.class);
+    private final Map<Operation, Histogram> responseTimes = new EnumMap<>(Operation.class);
+    private final Map<Operation, Histogram> serviceTimes = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> substitutions = new EnumMap<>(Operation.class);
+    private final Map<String, LongAdder> outcomes = new ConcurrentSkipListMap<>();
+    private final Histogram sendLag = new ConcurrentHistogram(3);
+    private final LongAdder intervalCompleted = new LongAdder();
+    private final LongAdder intervalErrors = new LongAdder();
+
+    private final PrintStream logStream;
+    private final HistogramLogWriter log;
+    private final ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "load-report");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private long lastTickNanos;
+
+    LatencyReport(Path output, long startNanos, long measureFromNanos, IntSupplier inFlight) throws IOException {
+        this.output = output;
+        this.startNanos = startNanos;
+        this.measureFromNanos = measureFromNanos;
+        this.inFlight = inFlight;
+        for (Operation operation : Operation.values()) {
+            intervals.put(operation, new Recorder(3));
+            responseTimes.put(operation, new ConcurrentHistogram(3));
+            serviceTimes.put(operation, new ConcurrentHistogram(3));
+            errors.put(operation, new LongAdder());
+            substitutions.put(operation, new LongAdder());
+        }
+        long startMillis = System.currentTimeMillis();
+        logStream = new PrintStream(Files.newOutputStream(output.resolve("response-times.hlog")));
+        log = new HistogramLogWriter(logStream);
+        log.outputComment("Response times in microseconds from the intended send time, tagged by operation");
+        log.outputLogFormatVersion();
+        log.outputStartTime(startMillis);
+        log.setBaseTime(startMillis);
+        log.outputLegend();
+        lastTickNanos = startNanos;
+    }
+
+    void startProgress(Duration interval) {
+        progress.scheduleAtFixedRate(this::tick, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records a completed request; {@code response} is null if it failed without one.
+     */
+    void record(Operation operation, long intendedNanos, long sentNanos, long doneNanos,
+                HttpResponse<?> response, Throwable error) {
+        long responseMicros = (doneNanos - intendedNanos) / 1000;
+        boolean failed = response == null || response.statusCode() >= 400;
+        intervals.get(operation).recordValue(responseMicros);
+        intervalCompleted.increment();
+        if (failed) {
+            intervalErrors.increment();
+        }
+        if (intendedNanos < measureFromNanos) {
+            return;
+        }
+        responseTimes.get(operation).recordValue(responseMicros);
+        serviceTimes.get(operation).recordValue((doneNanos - sentNanos) / 1000);
+        sendLag.recordValue((sentNanos - intendedNanos) / 1000);
+        if (failed) {
+            errors.get(operation).increment();
+        }
+        String outcome = response != null ? String.valueOf(response.statusCode()) : cause(error).getClass().getSimpleName();
+        outcomes.computeIfAbsent(operation.key() + " " + outcome, key -> new LongAdder()).increment();
+    }
+
+    /**
+     * Counts a request of {@code operation} that was sent as a generate, because the drawn user
+     * had no token to use.
+     */
+    void substituted(Operation operation, boolean measured) {
+        if (measured) {
+            substitutions.get(operation).increment();
+        }
+    }
+
+    /**
+     * Stops the progress lines and writes the summary of the measured period.
+     */
+    void finish(Duration measured) throws IOException, InterruptedException {
+        progress.shutdown();
+        progress.awaitTermination(5, TimeUnit.SECONDS);
+        tick();
+        logStream.close();
+
+        Histogram all = new Histogram(3);
+        Histogram allService = new Histogram(3);
+        for (Operation operation : Operation.values()) {
+            all.add(responseTimes.get(operation));
+            allService.add(serviceTimes.get(operation));
+            writePercentiles(operation.key(), responseTimes.get(operation));
+        }
+        writePercentiles("all", all);
+
+        StringWriter text = new StringWriter();
+        PrintWriter out = new PrintWriter(text);
+        double seconds = measured.toMillis() / 1000.0;
+        long totalErrors = errors.values().stream().mapToLong(LongAdder::sum).sum();
+        out.printf("Measured %.0f s: %d requests, %.1f req/s, %d errors%n",
+                seconds, all.getTotalCount(), all.getTotalCount() / seconds, totalErrors);
+        out.println("Response time in ms from the intended send time; service time (svc) from the actual send");
+        out.printf("%-11s %9s %9s %7s %9s %9s %9s %9s %9s %9s%n",
+                "operation", "count", "req/s", "errors", "p50", "p90", "p99", "p99.9", "max", "svc p99");
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = responseTimes.get(operation);
+            if (histogram.getTotalCount() > 0) {
+                row(out, operation.key(), histogram, serviceTimes.get(operation), errors.get(operation).sum(), seconds);
+            }
+        }
+        row(out, "all", all, allService, totalErrors, seconds);
+
+        out.printf("Send lag (intended to actual send): p99 %.2f ms, max %.2f ms%n",
+                sendLag.getValueAtPercentile(99) / MICROS_PER_MILLI, sendLag.getMaxValue() / MICROS_PER_MILLI);
+        if (sendLag.getValueAtPercentile(99) > SEND_LAG_WARNING_MICROS) {
+            out.println("WARNING: the harness fell behind its schedule (CPU-starved, or --max-in-flight reached)."
+                    + " Response times include the wait, but the offered load was burstier than requested.");
+        }
+        for (Operation operation : Operation.values()) {
+            long count = substitutions.get(operation).sum();
+            if (count > 0) {
+                out.printf("%s: %d requests sent as generate, the drawn user had no token%n", operation.key(), count);
+            }
+        }
+        out.println("Outcomes:");
+        outcomes.forEach((outcome, count) -> out.printf("  %-28s %d%n", outcome, count.sum()));
+        out.flush();
+
+        System.out.print(text);
+        Files.writeString(output.resolve("summary.txt"), text.toString());
+        System.out.println("Histograms and summary written to " + output.toAbsolutePath());
+    }
+
+    private void tick() {
+        Histogram all = new Histogram(3);
+        for (Map.Entry<Operation, Recorder> entry : intervals.entrySet()) {
+            Histogram interval = entry.getValue().getIntervalHistogram();
+            if (interval.getTotalCount() > 0) {
+                interval.setTag(entry.getKey().key());
+                log.outputIntervalHistogram(interval);
+                all.add(interval);
+            }
+        }
+        long now = System.nanoTime();
+        double seconds = Math.max(now - lastTickNanos, 1) / 1e9;
+        boolean warmup = lastTickNanos < measureFromNanos;
+        lastTickNanos = now;
+        System.out.printf("[%5.0fs] %-9s %8.1f req/s  in flight %5d  p50 %8.2f ms  p99 %8.2f ms  max %8.2f ms  errors %d%n",
+                (now - startNanos) / 1e9, warmup ? "warmup" : "measuring",
+                intervalCompleted.sumThenReset() / seconds, inFlight.getAsInt(),
+                all.getValueAtPercentile(50) / MICROS_PER_MILLI, all.getValueAtPercentile(99) / MICROS_PER_MILLI,
+                all.getMaxValue() / MICROS_PER_MILLI, intervalErrors.sumThenReset());
+    }
+
+    private static void row(PrintWriter out, String name, Histogram histogram, Histogram service, long errors, double seconds) {
+        out.printf("%-11s %9d %9.1f %7d %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                name, histogram.getTotalCount(), histogram.getTotalCount() / seconds, errors,
+                histogram.getValueAtPercentile(50) / MICROS_PER_MILLI,
+                histogram.getValueAtPercentile(90) / MICROS_PER_MILLI,
+                histogram.getValueAtPercentile(99) / MICROS_PER_MILLI,
+                histogram.getValueAtPercentile(99.9) / MICROS_PER_MILLI,
+                histogram.getMaxValue() / MICROS_PER_MILLI,
+                service.getValueAtPercentile(99) / MICROS_PER_MILLI);
+    }
+
+    private static Throwable cause(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private void writePercentiles(String name, Histogram histogram) throws IOException {
+        if (histogram.getTotalCount() == 0) {
+            return;
+        }
+        try (PrintStream out = new PrintStream(Files.newOutputStream(output.resolve(name + ".hgrm")))) {
+            histogram.outputPercentileDistribution(out, MICROS_PER_MILLI);
+        }
+    }
+}
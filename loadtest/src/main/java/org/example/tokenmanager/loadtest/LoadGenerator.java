@@ -0,0 +1,156 @@
+package org.example.tokenmanager.loadtest;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends requests on an open-loop schedule: arrivals at {@code --rate} per second, with Poisson
+ * (exponential) or uniform gaps, fixed in advance and independent of how fast the service
+ * answers. A single thread dispatches every request asynchronously when it falls due; responses
+ * complete on the HTTP client's threads. Each request draws its operation from {@code --mix} and
+ * its user from a Zipf distribution over {@code --users}.
+ * <p>
+ * If {@code --max-in-flight} requests are outstanding, dispatching waits for one to finish.
+ * The schedule does not move, so that wait shows up as send lag and in the response times.
+ */
+final class LoadGenerator {
+
+    private static final int SEED_BATCH_SIZE = 1000;
+    private static final int SEED_CONCURRENCY = 16;
+
+    private final LoadTestConfig config;
+    private final TokenApi api;
+    private final ZipfDistribution users;
+    private final TokenPool tokens = new TokenPool();
+    private final SplittableRandom random;
+    private final Semaphore permits;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    LoadGenerator(LoadTestConfig config, TokenApi api) {
+        this.config = config;
+        this.api = api;
+        this.users = new ZipfDistribution(config.users, config.zipfExponent);
+        this.random = new SplittableRandom(config.randomSeed);
+        this.permits = new Semaphore(config.maxInFlight);
+    }
+
+    /**
+     * Issues {@code --seed-tokens} tokens up front, spread over the users by the same Zipf
+     * distribution, so rotations, invalidations and validations have tokens to work on from the
+     * first second and listings are not all empty.
+     */
+    void seed() throws InterruptedException {
+        if (config.seedTokens <= 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        Semaphore seeding = new Semaphore(SEED_CONCURRENCY);
+        AtomicLong issued = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        for (int user = 0; user < users.size(); user++) {
+            int count = (int) Math.round(config.seedTokens * users.probability(user));
+            if (count == 0) {
+                // Probabilities only decrease with rank.
+                break;
+            }
+            for (int remaining = count; remaining > 0; remaining -= SEED_BATCH_SIZE) {
+                int batch = Math.min(remaining, SEED_BATCH_SIZE);
+                int rank = user;
+                seeding.acquire();
+                api.generateBatch(userId(rank), batch).whenComplete((response, error) -> {
+                    try {
+                        if (response != null && response.statusCode() == 200) {
+                            TokenApi.tokens(response).forEach(token -> tokens.add(rank, token));
+                            issued.addAndGet(batch);
+                        } else if (failed.getAndAdd(batch) == 0) {
+                            System.out.println("Seeding failed: " + (response != null
+                                    ? response.statusCode() + " " + response.body() : error));
+                        }
+                    } finally {
+                        seeding.release();
+                    }
+                });
+            }
+        }
+        seeding.acquire(SEED_CONCURRENCY);
+        System.out.printf("Seeded %d tokens (%d failed) in %.1f s%n",
+                issued.get(), failed.get(), (System.nanoTime() - start) / 1e9);
+    }
+
+    void run() throws IOException, InterruptedException {
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        long measureFrom = start + config.warmup.toNanos();
+        long end = measureFrom + config.duration.toNanos();
+        LatencyReport report = new LatencyReport(config.output, start, measureFrom, inFlight::get);
+        report.startProgress(config.reportInterval);
+
+        double meanGapNanos = 1e9 / config.rate;
+        double offset = 0;
+        while (true) {
+            offset += config.poissonArrivals ? -Math.log(1 - random.nextDouble()) * meanGapNanos : meanGapNanos;
+            long intended = start + (long) offset;
+            if (intended >= end) {
+                break;
+            }
+            long wait;
+            while ((wait = intended - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            permits.acquire();
+            dispatch(config.mix.next(random), users.sample(random), intended, intended >= measureFrom, report);
+        }
+
+        // Let the last requests finish; stragglers beyond the request timeout are not waited for.
+        permits.tryAcquire(config.maxInFlight, config.timeout.toMillis() + 5_000, TimeUnit.MILLISECONDS);
+        report.finish(config.duration);
+    }
+
+    private void dispatch(Operation operation, int user, long intended, boolean measured, LatencyReport report) {
+        String token = switch (operation) {
+            case ROTATE, INVALIDATE -> tokens.take(user);
+            case VALIDATE -> tokens.peek(user);
+            default -> null;
+        };
+        if (operation.needsToken() && token == null) {
+            report.substituted(operation, measured);
+            operation = Operation.GENERATE;
+        }
+        String userId = userId(user);
+        inFlight.incrementAndGet();
+        long sent = System.nanoTime();
+        CompletableFuture<HttpResponse<String>> call = switch (operation) {
+            case GENERATE -> api.generate(userId);
+            case ROTATE -> api.rotate(token);
+            case INVALIDATE -> api.invalidate(token);
+            case VALIDATE -> api.validate(token);
+            case INVALID -> api.validate(TokenApi.unissuedToken(random));
+            case LIST -> api.listActive(userId);
+            case AUDIT -> api.auditLogs(userId);
+        };
+        Operation sentOperation = operation;
+        call.whenComplete((response, error) -> {
+            long done = System.nanoTime();
+            try {
+                if (response != null && response.statusCode() == 200
+                        && (sentOperation == Operation.GENERATE || sentOperation == Operation.ROTATE)) {
+                    tokens.add(user, TokenApi.token(response));
+                }
+            } finally {
+                report.record(sentOperation, intended, sent, done, response, error);
+                inFlight.decrementAndGet();
+                permits.release();
+            }
+        });
+    }
+
+    private static String userId(int rank) {
+        return "load-user-" + rank;
+    }
+}
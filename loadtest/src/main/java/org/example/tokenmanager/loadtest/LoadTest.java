@@ -0,0 +1,45 @@
+package org.example.tokenmanager.loadtest;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Entry point of the load test: starts (or finds) the service, seeds tokens, runs the schedule
+ * and reports. Options are {@code --name=value} arguments, see {@link LoadTestConfig}. After the
+ * run the service's Prometheus metrics are saved next to the report, so server-side timings
+ * (database calls, audit queue, pools) can be read against the client-side latencies.
+ */
+public final class LoadTest {
+
+    private LoadTest() {}
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.parse(args);
+        Files.createDirectories(config.output);
+        try (TargetApp app = TargetApp.start(config)) {
+            System.out.printf("Driving %s at %.0f req/s (%s arrivals), %d s warmup + %d s measured%n",
+                    app.baseUri(), config.rate, config.poissonArrivals ? "poisson" : "uniform",
+                    config.warmup.toSeconds(), config.duration.toSeconds());
+            System.out.printf("Mix: %s; %d users, Zipf exponent %.2f%n", config.mix, config.users, config.zipfExponent);
+
+            TokenApi api = new TokenApi(app.baseUri(), config.timeout);
+            LoadGenerator generator = new LoadGenerator(config, api);
+            generator.seed();
+            generator.run();
+            saveMetrics(api, config);
+        }
+    }
+
+    private static void saveMetrics(TokenApi api, LoadTestConfig config) throws InterruptedException {
+        try {
+            HttpResponse<String> response = api.get("/actuator/prometheus").get();
+            if (response.statusCode() == 200) {
+                Files.writeString(config.output.resolve("service-metrics.txt"), response.body());
+            }
+        } catch (ExecutionException | IOException e) {
+            System.out.println("Could not save the service metrics: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package org.example.tokenmanager.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Options of a run, given as {@code --name=value} arguments. Every option has a default, so a
+ * run without arguments drives a freshly started service at 200 requests per second for a
+ * minute. Values with spaces ({@code app-args}, {@code app-jvm-args}) need quoting.
+ */
+final class LoadTestConfig {
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        // Where to send the load: an already running instance, or null to start one
+        DEFAULTS.put("target", null);
+        DEFAULTS.put("jdbc-url", null);
+        DEFAULTS.put("username", "postgres");
+        DEFAULTS.put("password", "postgres");
+        DEFAULTS.put("app-jar", "../target/token-management-service-0.0.1-SNAPSHOT-exec.jar");
+        DEFAULTS.put("profiles", "prod");
+        DEFAULTS.put("app-args", "");
+        DEFAULTS.put("app-jvm-args", "");
+        // The schedule
+        DEFAULTS.put("rate", "200");
+        DEFAULTS.put("arrivals", "poisson");
+        DEFAULTS.put("warmup", "15");
+        DEFAULTS.put("duration", "60");
+        DEFAULTS.put("max-in-flight", "10000");
+        DEFAULTS.put("timeout-ms", "10000");
+        // The traffic
+        DEFAULTS.put("mix", "generate=10,rotate=10,invalidate=5,validate=40,invalid=10,list=20,audit=5");
+        DEFAULTS.put("users", "10000");
+        DEFAULTS.put("zipf-exponent", "1.0");
+        DEFAULTS.put("seed-tokens", "20000");
+        DEFAULTS.put("random-seed", "42");
+        // The report
+        DEFAULTS.put("report-interval", "5");
+        DEFAULTS.put("output", "target/loadtest");
+    }
+
+    final String target;
+    final String jdbcUrl;
+    final String username;
+    final String password;
+    final Path appJar;
+    final String profiles;
+    final List<String> appArgs;
+    final List<String> appJvmArgs;
+    final double rate;
+    final boolean poissonArrivals;
+    final Duration warmup;
+    final Duration duration;
+    final int maxInFlight;
+    final Duration timeout;
+    final OperationMix mix;
+    final int users;
+    final double zipfExponent;
+    final int seedTokens;
+    final long randomSeed;
+    final Duration reportInterval;
+    final Path output;
+
+    private LoadTestConfig(Map<String, String> values) {
+        target = values.get("target");
+        jdbcUrl = values.get("jdbc-url");
+        username = values.get("username");
+        password = values.get("password");
+        appJar = Path.of(values.get("app-jar"));
+        profiles = values.get("profiles");
+        appArgs = words(values.get("app-args"));
+        appJvmArgs = words(values.get("app-jvm-args"));
+        rate = Double.parseDouble(values.get("rate"));
+        poissonArrivals = switch (values.get("arrivals")) {
+            case "poisson" -> true;
+            case "uniform" -> false;
+            default -> throw new IllegalArgumentException("--arrivals must be poisson or uniform.");
+        };
+        warmup = Duration.ofSeconds(Long.parseLong(values.get("warmup")));
+        duration = Duration.ofSeconds(Long.parseLong(values.get("duration")));
+        maxInFlight = Integer.parseInt(values.get("max-in-flight"));
+        timeout = Duration.ofMillis(Long.parseLong(values.get("timeout-ms")));
+        mix = OperationMix.parse(values.get("mix"));
+        users = Integer.parseInt(values.get("users"));
+        zipfExponent = Double.parseDouble(values.get("zipf-exponent"));
+        seedTokens = Integer.parseInt(values.get("seed-tokens"));
+        randomSeed = Long.parseLong(values.get("random-seed"));
+        reportInterval = Duration.ofSeconds(Long.parseLong(values.get("report-interval")));
+        output = Path.of(values.get("output"));
+
+        if (rate <= 0) {
+            throw new IllegalArgumentException("--rate must be positive.");
+        }
+        if (duration.isZero() || duration.isNegative()) {
+            throw new IllegalArgumentException("--duration must be at least one second.");
+        }
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("--max-in-flight must be at least 1.");
+        }
+    }
+
+    static LoadTestConfig parse(String[] args) {
+        Map<String, String> values = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got '" + arg + "'");
+            }
+            String name = arg.substring(2, separator);
+            if (!values.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown option --" + name + "; options are " + DEFAULTS.keySet());
+            }
+            values.put(name, arg.substring(separator + 1));
+        }
+        return new LoadTestConfig(values);
+    }
+
+    private static List<String> words(String value) {
+        return Arrays.stream(value.trim().split("\\s+")).filter(word -> !word.isEmpty()).toList();
+    }
+}
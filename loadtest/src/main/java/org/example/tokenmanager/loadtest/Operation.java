@@ -0,0 +1,47 @@
+package org.example.tokenmanager.loadtest;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * The requests the load test sends. Each is named in {@code --mix} by its lower-case name.
+ */
+enum Operation {
+
+    /** {@code POST /tokens} for the drawn user. */
+    GENERATE,
+    /** {@code POST /tokens/rotate} with one of the drawn user's tokens. */
+    ROTATE,
+    /** {@code DELETE /tokens/{token}} with one of the drawn user's tokens. */
+    INVALIDATE,
+    /** {@code POST /tokens/validate} with the drawn user's newest token. */
+    VALIDATE,
+    /** {@code POST /tokens/validate} with a well-formed token that was never issued. */
+    INVALID,
+    /** {@code GET /tokens/active} for the drawn user. */
+    LIST,
+    /** {@code GET /auditlogs}, first page of 100, for the drawn user. */
+    AUDIT;
+
+    String key() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Whether the request needs a token the harness has been issued. Without one for the drawn
+     * user a {@link #GENERATE} is sent instead.
+     */
+    boolean needsToken() {
+        return this == ROTATE || this == INVALIDATE || this == VALIDATE;
+    }
+
+    static Operation fromKey(String key) {
+        for (Operation operation : values()) {
+            if (operation.key().equals(key)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operation '" + key + "'; expected one of "
+                + Arrays.stream(values()).map(Operation::key).toList());
+    }
+}
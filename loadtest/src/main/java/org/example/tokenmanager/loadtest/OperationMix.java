@@ -0,0 +1,67 @@
+package org.example.tokenmanager.loadtest;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Relative weights of the operations, e.g. {@code generate=10,rotate=5,validate=60}. Each
+ * request draws its operation independently, so over a run the shares converge on the weights.
+ */
+final class OperationMix {
+
+    private final Map<Operation, Double> weights;
+    private final Operation[] operations;
+    private final double[] cumulative;
+
+    private OperationMix(Map<Operation, Double> weights) {
+        this.weights = weights;
+        this.operations = weights.keySet().toArray(Operation[]::new);
+        this.cumulative = new double[operations.length];
+        double sum = 0;
+        for (int i = 0; i < operations.length; i++) {
+            sum += weights.get(operations[i]);
+            cumulative[i] = sum;
+        }
+    }
+
+    static OperationMix parse(String spec) {
+        Map<Operation, Double> weights = new EnumMap<>(Operation.class);
+        for (String part : spec.split(",")) {
+            String[] pair = part.trim().split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Expected operation=weight in --mix, got '" + part + "'");
+            }
+            double weight = Double.parseDouble(pair[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Weight of " + pair[0] + " must not be negative.");
+            }
+            if (weight > 0) {
+                weights.put(Operation.fromKey(pair[0].trim()), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("--mix must give at least one operation a positive weight.");
+        }
+        return new OperationMix(weights);
+    }
+
+    Operation next(SplittableRandom random) {
+        double point = random.nextDouble() * cumulative[cumulative.length - 1];
+        for (int i = 0; i < cumulative.length - 1; i++) {
+            if (point < cumulative[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    @Override
+    public String toString() {
+        double total = cumulative[cumulative.length - 1];
+        return weights.entrySet().stream()
+                .map(e -> String.format("%s %.0f%%", e.getKey().key(), 100 * e.getValue() / total))
+                .collect(Collectors.joining(", "));
+    }
+}
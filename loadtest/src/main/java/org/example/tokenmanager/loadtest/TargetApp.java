@@ -0,0 +1,149 @@
+package org.example.tokenmanager.loadtest;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The service under load. By default the service jar is started in a JVM of its own, so the
+ * harness and the service do not compete for heap and collector, against an embedded
+ * PostgreSQL (zonky embedded-postgres: real PostgreSQL binaries in a temporary directory, no
+ * Docker; it refuses to run as root). With {@code --jdbc-url} the service uses an existing
+ * database instead, and with {@code --target} nothing is started and a running instance is
+ * driven as it is.
+ * <p>
+ * A started service runs with the {@code --profiles} given (default {@code prod}) and with
+ * rate limiting off, since all load comes from one client address; its working directory,
+ * and so its logs and snapshot file, are under {@code <output>/app}.
+ */
+final class TargetApp implements AutoCloseable {
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(3);
+
+    private final URI baseUri;
+    private final EmbeddedPostgres embeddedPostgres;
+    private final Process process;
+
+    private TargetApp(URI baseUri, EmbeddedPostgres embeddedPostgres, Process process) {
+        this.baseUri = baseUri;
+        this.embeddedPostgres = embeddedPostgres;
+        this.process = process;
+    }
+
+    static TargetApp start(LoadTestConfig config) throws IOException, InterruptedException {
+        if (config.target != null) {
+            return new TargetApp(URI.create(config.target), null, null);
+        }
+        if (!Files.isRegularFile(config.appJar)) {
+            throw new IllegalArgumentException(config.appJar.toAbsolutePath()
+                    + " not found; build it with mvn package -DskipTests in the project root, or pass --app-jar");
+        }
+        EmbeddedPostgres embeddedPostgres = null;
+        String jdbcUrl = config.jdbcUrl;
+        if (jdbcUrl == null) {
+            embeddedPostgres = EmbeddedPostgres.builder().start();
+            jdbcUrl = embeddedPostgres.getJdbcUrl("postgres", "postgres");
+            System.out.println("Embedded PostgreSQL started on port " + embeddedPostgres.getPort());
+        }
+        int port = freePort();
+        Path workDir = config.output.resolve("app").toAbsolutePath();
+        Files.createDirectories(workDir);
+        Path log = workDir.resolve("stdout.log");
+
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        command.addAll(config.appJvmArgs);
+        command.add("-jar");
+        command.add(config.appJar.toAbsolutePath().toString());
+        command.add("--server.port=" + port);
+        command.add("--spring.profiles.active=" + config.profiles);
+        command.add("--spring.datasource.url=" + jdbcUrl);
+        command.add("--spring.datasource.username=" + config.username);
+        command.add("--spring.datasource.password=" + config.password);
+        // Only read with the reactive profile
+        command.add("--spring.r2dbc.url=" + r2dbcUrl(jdbcUrl));
+        command.add("--spring.r2dbc.username=" + config.username);
+        command.add("--spring.r2dbc.password=" + config.password);
+        command.add("--rate-limit.enabled=false");
+        command.addAll(config.appArgs);
+        Process process = new ProcessBuilder(command)
+                .directory(workDir.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+
+        TargetApp app = new TargetApp(URI.create("http://localhost:" + port), embeddedPostgres, process);
+        System.out.println("Service starting on port " + port + " (output in " + log + ")");
+        try {
+            app.awaitReady(config.timeout);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            app.close();
+            throw e;
+        }
+        return app;
+    }
+
+    URI baseUri() {
+        return baseUri;
+    }
+
+    /**
+     * Polls the readiness probe, which turns UP once the token state has been loaded.
+     */
+    private void awaitReady(Duration requestTimeout) throws IOException, InterruptedException {
+        TokenApi api = new TokenApi(baseUri, requestTimeout);
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (process != null && !process.isAlive()) {
+                throw new IllegalStateException("Service exited during startup with code " + process.exitValue());
+            }
+            try {
+                HttpResponse<String> response = api.get("/actuator/health/readiness").get();
+                if (response.statusCode() == 200) {
+                    return;
+                }
+            } catch (ExecutionException e) {
+                // Not listening yet
+            }
+            Thread.sleep(500);
+        }
+        throw new IOException("Service not ready after " + STARTUP_TIMEOUT.toSeconds() + " s");
+    }
+
+    /**
+     * Stops a started service gracefully, so queued audit entries and last-used times are written.
+     */
+    @Override
+    public void close() throws IOException, InterruptedException {
+        if (process != null) {
+            process.destroy();
+            if (!process.waitFor(60, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+        if (embeddedPostgres != null) {
+            embeddedPostgres.close();
+        }
+    }
+
+    private static String r2dbcUrl(String jdbcUrl) {
+        int query = jdbcUrl.indexOf('?');
+        return "r2dbc:" + (query < 0 ? jdbcUrl : jdbcUrl.substring(0, query)).substring("jdbc:".length());
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
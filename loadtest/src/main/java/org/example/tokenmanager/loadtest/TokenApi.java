@@ -0,0 +1,121 @@
+package org.example.tokenmanager.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The service's HTTP API as the load test uses it. Every call is asynchronous, so a slow
+ * response never delays the next request, and reads the whole response body before its future
+ * completes.
+ */
+final class TokenApi {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final HttpClient client;
+    private final URI baseUri;
+    private final Duration timeout;
+
+    TokenApi(URI baseUri, Duration timeout) {
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+        this.baseUri = baseUri;
+        this.timeout = timeout;
+    }
+
+    CompletableFuture<HttpResponse<String>> generate(String userId) {
+        return send("POST", "/tokens?userId=" + encode(userId));
+    }
+
+    CompletableFuture<HttpResponse<String>> generateBatch(String userId, int count) {
+        return send("POST", "/tokens/batch?userId=" + encode(userId) + "&count=" + count);
+    }
+
+    CompletableFuture<HttpResponse<String>> rotate(String token) {
+        return send("POST", "/tokens/rotate?oldToken=" + encode(token));
+    }
+
+    CompletableFuture<HttpResponse<String>> invalidate(String token) {
+        return send("DELETE", "/tokens/" + encode(token));
+    }
+
+    CompletableFuture<HttpResponse<String>> validate(String token) {
+        return send("POST", "/tokens/validate?token=" + encode(token));
+    }
+
+    CompletableFuture<HttpResponse<String>> listActive(String userId) {
+        return send("GET", "/tokens/active?userId=" + encode(userId));
+    }
+
+    CompletableFuture<HttpResponse<String>> auditLogs(String userId) {
+        return send("GET", "/auditlogs?userId=" + encode(userId) + "&limit=100");
+    }
+
+    CompletableFuture<HttpResponse<String>> get(String path) {
+        return send("GET", path);
+    }
+
+    /**
+     * The raw token of a generate or rotate response.
+     */
+    static String token(HttpResponse<String> response) {
+        return read(response).get("token").asText();
+    }
+
+    /**
+     * The raw tokens of a batch response.
+     */
+    static List<String> tokens(HttpResponse<String> response) {
+        List<String> tokens = new ArrayList<>();
+        for (JsonNode node : read(response)) {
+            tokens.add(node.get("token").asText());
+        }
+        return tokens;
+    }
+
+    /**
+     * A token in the format the service issues (32 random bytes, base64url) that it never issued.
+     */
+    static String unissuedToken(SplittableRandom random) {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private CompletableFuture<HttpResponse<String>> send(String method, String path) {
+        HttpRequest request = HttpRequest.newBuilder(baseUri.resolve(path))
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .timeout(timeout)
+                .build();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static JsonNode read(HttpResponse<String> response) {
+        try {
+            return MAPPER.readTree(response.body());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
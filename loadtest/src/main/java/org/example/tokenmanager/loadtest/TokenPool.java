@@ -0,0 +1,35 @@
+package org.example.tokenmanager.loadtest;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * The raw tokens the harness has been issued and not used up yet, per user rank. Rotations and
+ * invalidations take a token out, so no two requests ever spend the same token and a 409 in the
+ * report means the service got something wrong; validations only look at the newest one.
+ */
+final class TokenPool {
+
+    private final Map<Integer, ConcurrentLinkedDeque<String>> tokens = new ConcurrentHashMap<>();
+
+    void add(int user, String token) {
+        tokens.computeIfAbsent(user, u -> new ConcurrentLinkedDeque<>()).addLast(token);
+    }
+
+    /**
+     * Removes and returns the user's oldest token, or null if there is none.
+     */
+    String take(int user) {
+        ConcurrentLinkedDeque<String> deque = tokens.get(user);
+        return deque == null ? null : deque.pollFirst();
+    }
+
+    /**
+     * Returns the user's newest token without removing it, or null if there is none.
+     */
+    String peek(int user) {
+        ConcurrentLinkedDeque<String> deque = tokens.get(user);
+        return deque == null ? null : deque.peekLast();
+    }
+}
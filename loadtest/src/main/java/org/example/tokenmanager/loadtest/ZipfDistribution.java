@@ -0,0 +1,46 @@
+package org.example.tokenmanager.loadtest;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Zipf distribution over the ranks {@code 0..n-1}: rank {@code k} is drawn with probability
+ * proportional to {@code 1 / (k + 1)^exponent}. With the default exponent of 1 a few users send
+ * most of the requests and own most of the tokens, as in production; 0 makes all users equally
+ * likely. Sampling is a binary search over the precomputed cumulative distribution.
+ */
+final class ZipfDistribution {
+
+    private final double[] cumulative;
+
+    ZipfDistribution(int size, double exponent) {
+        if (size < 1) {
+            throw new IllegalArgumentException("--users must be at least 1.");
+        }
+        if (exponent < 0) {
+            throw new IllegalArgumentException("--zipf-exponent must not be negative.");
+        }
+        cumulative = new double[size];
+        double sum = 0;
+        for (int k = 0; k < size; k++) {
+            sum += 1 / Math.pow(k + 1, exponent);
+            cumulative[k] = sum;
+        }
+        for (int k = 0; k < size; k++) {
+            cumulative[k] /= sum;
+        }
+    }
+
+    int sample(SplittableRandom random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+    }
+
+    double probability(int rank) {
+        return rank == 0 ? cumulative[0] : cumulative[rank] - cumulative[rank - 1];
+    }
+
+    int size() {
+        return cumulative.length;
+    }
+}
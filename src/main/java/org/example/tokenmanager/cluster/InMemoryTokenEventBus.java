@@ -0,0 +1,42 @@
+package org.example.tokenmanager.cluster;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Delivers messages synchronously to subscribers in the same JVM. For tests, and for a
+ * single instance that has no peers ({@code tokens.events.bus=memory}).
+ */
+@Component
+@ConditionalOnProperty(name = "tokens.events.bus", havingValue = "memory")
+public class InMemoryTokenEventBus implements TokenEventBus {
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    @Override
+    public int maxMessageBytes() {
+        return 64 * 1024;
+    }
+
+    @Override
+    public void publish(String message) {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.onMessage(message);
+        }
+    }
+
+    @Override
+    public void subscribe(Subscriber subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    /**
+     * Simulates a dropped and restored connection.
+     */
+    public void reconnect() {
+        subscribers.forEach(Subscriber::onReconnect);
+    }
+}
@@ -0,0 +1,339 @@
+package org.example.tokenmanager.cluster;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.example.tokenmanager.cluster.TokenEventMessage.IssuedToken;
+import org.example.tokenmanager.service.ActiveTokenCache;
+import org.example.tokenmanager.service.IssuedTokenFilter;
+import org.example.tokenmanager.service.RevocationList;
+import org.example.tokenmanager.service.TokenIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the in-process token caches ({@link TokenIndex}, {@link IssuedTokenFilter},
+ * {@link RevocationList}, {@link ActiveTokenCache}) of all instances in step. Local changes are queued and sent by the {@code token-events-sender}
+ * thread, which coalesces bursts into few messages. Every message carries the sender's
+ * instance ID and a sequence number. A receiver that sees a gap in a peer's sequence, or
+ * whose transport reconnected, has missed changes and reloads the caches from the database.
+ */
+@Component
+public class TokenCacheReplicator implements TokenEventPublisher, TokenEventBus.Subscriber {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenCacheReplicator.class);
+    // Room for the message envelope (node ID, sequence, field names) in the size estimate.
+    private static final int ENVELOPE_BYTES = 200;
+    private static final int MAX_TOMBSTONES = 65_536;
+    private static final long POLL_INTERVAL_MS = 100;
+
+    private final TokenEventBus bus;
+    private final TokenIndex tokenIndex;
+    private final IssuedTokenFilter issuedTokens;
+    private final RevocationList revocations;
+    private final ActiveTokenCache activeTokens;
+    private final ObjectMapper objectMapper;
+    private final boolean async;
+    private final BlockingQueue<Event> queue;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    // The sequence is guarded by sendLock; this instance's own monitor serialises receiving.
+    private final Object sendLock = new Object();
+    private long sequence;
+    private final AtomicBoolean overflowed = new AtomicBoolean();
+
+    private final Map<String, Long> lastSeqByNode = new HashMap<>();
+    // Recently invalidated hashes. A peer's "issued" event can arrive after another peer's
+    // invalidation of the same token; it must not put the token back into the index.
+    private final Set<String> tombstones = Collections.newSetFromMap(Collections.synchronizedMap(
+            new LinkedHashMap<>(1024, 0.75f, false) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > MAX_TOMBSTONES;
+                }
+            }));
+
+    private final Counter published;
+    private final Counter received;
+    private final Counter resyncs;
+
+    private volatile boolean running;
+    private Thread senderThread;
+
+    public TokenCacheReplicator(TokenEventBus bus,
+                                TokenIndex tokenIndex,
+                                IssuedTokenFilter issuedTokens,
+                                RevocationList revocations,
+                                ActiveTokenCache activeTokens,
+                                ObjectMapper objectMapper,
+                                MeterRegistry meterRegistry,
+                                @Value("${tokens.events.async:true}") boolean async,
+                                @Value("${tokens.events.queue-capacity:10000}") int queueCapacity) {
+        this.bus = bus;
+        this.tokenIndex = tokenIndex;
+        this.issuedTokens = issuedTokens;
+        this.revocations = revocations;
+        this.activeTokens = activeTokens;
+        this.objectMapper = objectMapper;
+        this.async = async;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.published = Counter.builder("token.events.published")
+                .description("Token event messages sent")
+                .register(meterRegistry);
+        this.received = Counter.builder("token.events.received")
+                .description("Token event messages received from peers")
+                .register(meterRegistry);
+        this.resyncs = Counter.builder("token.events.resyncs")
+                .description("Full cache reloads after missed token events")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        bus.subscribe(this);
+        if (!async) {
+            return;
+        }
+        running = true;
+        senderThread = new Thread(this::sendLoop, "token-events-sender");
+        senderThread.setDaemon(true);
+        senderThread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (senderThread == null) {
+            return;
+        }
+        try {
+            senderThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Event> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        try {
+            send(remaining);
+        } catch (RuntimeException e) {
+            logger.warn("Could not publish {} token events on shutdown: {}", remaining.size(), e.getMessage());
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public void tokenIssued(String hashedToken, String userId, long expiresAt) {
+        submit(new Event(Event.Kind.ISSUED, hashedToken, userId, expiresAt));
+    }
+
+    @Override
+    public void tokenInvalidated(String hashedToken) {
+        tombstones.add(hashedToken);
+        submit(new Event(Event.Kind.INVALIDATED, hashedToken, null, 0));
+    }
+
+    @Override
+    public void signedTokenIssued(String hashedToken, String userId, long expiresAt) {
+        submit(new Event(Event.Kind.SIGNED_ISSUED, hashedToken, userId, expiresAt));
+    }
+
+    @Override
+    public void signedTokenRevoked(String hashedToken, String userId, long expiresAt) {
+        submit(new Event(Event.Kind.REVOKED, hashedToken, userId, expiresAt));
+    }
+
+    @Override
+    public synchronized void onMessage(String payload) {
+        TokenEventMessage message;
+        try {
+            message = objectMapper.readValue(payload, TokenEventMessage.class);
+        } catch (JsonProcessingException e) {
+            logger.warn("Ignoring malformed token event: {}", e.getOriginalMessage());
+            return;
+        }
+        if (nodeId.equals(message.getNode())) {
+            return;
+        }
+        received.increment();
+        Long last = lastSeqByNode.put(message.getNode(), message.getSeq());
+        if (message.isResync() || (last != null && message.getSeq() != last + 1)) {
+            // Changes are committed before they are published, so the reload includes this message too.
+            resync("missed events from " + message.getNode() + " (expected " + (last == null ? "-" : last + 1)
+                    + ", got " + message.getSeq() + ")");
+            return;
+        }
+        Set<String> users = new HashSet<>();
+        for (String hashedToken : message.getInvalidated()) {
+            tombstones.add(hashedToken);
+            // Invalidations carry no user; the index still knows the owner of a token it holds.
+            TokenIndex.Entry entry = tokenIndex.get(hashedToken);
+            if (entry != null) {
+                users.add(entry.getUserId());
+            }
+            tokenIndex.remove(hashedToken);
+        }
+        for (IssuedToken token : message.getIssued()) {
+            users.add(token.getUserId());
+            issuedTokens.put(token.getTokenValue());
+            if (!tombstones.contains(token.getTokenValue())) {
+                tokenIndex.put(token.getTokenValue(), token.getUserId(), token.getExpiresAt());
+            }
+        }
+        for (IssuedToken token : message.getSignedIssued()) {
+            users.add(token.getUserId());
+        }
+        for (IssuedToken token : message.getRevoked()) {
+            users.add(token.getUserId());
+            revocations.revoke(token.getTokenValue(), token.getExpiresAt());
+        }
+        activeTokens.evictAll(users);
+    }
+
+    @Override
+    public synchronized void onReconnect() {
+        resync("event bus reconnected");
+    }
+
+    private void resync(String reason) {
+        logger.warn("Reloading token caches: {}", reason);
+        resyncs.increment();
+        tokenIndex.load();
+        issuedTokens.load();
+        revocations.load();
+        activeTokens.clear();
+    }
+
+    private void submit(Event event) {
+        if (!running) {
+            try {
+                send(List.of(event));
+            } catch (RuntimeException e) {
+                logger.warn("Token event publish failed: {}", e.getMessage());
+            }
+            return;
+        }
+        if (!queue.offer(event)) {
+            // Peers will be told to reload instead.
+            overflowed.set(true);
+        }
+    }
+
+    private void sendLoop() {
+        List<Event> batch = new ArrayList<>();
+        while (running) {
+            try {
+                Event first = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch);
+                    send(batch);
+                    batch.clear();
+                }
+                if (overflowed.getAndSet(false)) {
+                    sendResync();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                // The sequence number was used up, so peers detect the loss and reload.
+                logger.warn("Token event publish failed: {}", e.getMessage());
+                batch.clear();
+            }
+        }
+    }
+
+    private void send(List<Event> events) {
+        TokenEventMessage message = new TokenEventMessage();
+        int size = ENVELOPE_BYTES;
+        for (Event event : events) {
+            int eventSize = event.estimatedBytes();
+            if (size + eventSize > bus.maxMessageBytes()) {
+                publish(message);
+                message = new TokenEventMessage();
+                size = ENVELOPE_BYTES;
+            }
+            switch (event.kind) {
+                case INVALIDATED -> message.getInvalidated().add(event.tokenValue);
+                case ISSUED -> message.getIssued().add(event.toIssuedToken());
+                case SIGNED_ISSUED -> message.getSignedIssued().add(event.toIssuedToken());
+                case REVOKED -> message.getRevoked().add(event.toIssuedToken());
+            }
+            size += eventSize;
+        }
+        if (!message.getInvalidated().isEmpty() || !message.getIssued().isEmpty()
+                || !message.getSignedIssued().isEmpty() || !message.getRevoked().isEmpty()) {
+            publish(message);
+        }
+    }
+
+    private void sendResync() {
+        TokenEventMessage message = new TokenEventMessage();
+        message.setResync(true);
+        publish(message);
+    }
+
+    private void publish(TokenEventMessage message) {
+        synchronized (sendLock) {
+            message.setNode(nodeId);
+            message.setSeq(++sequence);
+            String payload;
+            try {
+                payload = objectMapper.writeValueAsString(message);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Could not serialize token event", e);
+            }
+            bus.publish(payload);
+            published.increment();
+        }
+    }
+
+    private static final class Event {
+        enum Kind { ISSUED, INVALIDATED, SIGNED_ISSUED, REVOKED }
+
+        final Kind kind;
+        final String tokenValue;
+        // null for an invalidation
+        final String userId;
+        final long expiresAt;
+
+        Event(Kind kind, String tokenValue, String userId, long expiresAt) {
+            this.kind = kind;
+            this.tokenValue = tokenValue;
+            this.userId = userId;
+            this.expiresAt = expiresAt;
+        }
+
+        IssuedToken toIssuedToken() {
+            return new IssuedToken(tokenValue, userId, expiresAt);
+        }
+
+        int estimatedBytes() {
+            // Quoted hex digest plus separators; a user ID can take up to 3 bytes per char in UTF-8,
+            // the expiry up to 13 digits plus its field name
+            return 70 + (userId == null ? 0 : 60 + 3 * userId.length());
+        }
+    }
+}
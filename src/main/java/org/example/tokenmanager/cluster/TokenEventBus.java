@@ -0,0 +1,31 @@
+package org.example.tokenmanager.cluster;
+
+/**
+ * Transport that carries token events between service instances. Implementations only move
+ * opaque messages; ordering checks and cache updates are done by {@link TokenCacheReplicator}.
+ */
+public interface TokenEventBus {
+
+    /**
+     * Largest message, in bytes of UTF-8, that {@link #publish} accepts.
+     */
+    int maxMessageBytes();
+
+    /**
+     * Sends a message to every subscribed instance, including this one.
+     */
+    void publish(String message);
+
+    void subscribe(Subscriber subscriber);
+
+    interface Subscriber {
+
+        void onMessage(String message);
+
+        /**
+         * Called after the transport lost its connection and got it back; messages sent in
+         * between may never arrive.
+         */
+        void onReconnect();
+    }
+}
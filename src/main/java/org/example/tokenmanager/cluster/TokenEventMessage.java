@@ -0,0 +1,122 @@
+package org.example.tokenmanager.cluster;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wire format of one bus message: the changes one instance published, numbered per instance.
+ */
+public class TokenEventMessage {
+
+    private String node;
+    private long seq;
+    private boolean resync;
+    private List<String> invalidated = new ArrayList<>();
+    private List<IssuedToken> issued = new ArrayList<>();
+    private List<IssuedToken> signedIssued = new ArrayList<>();
+    private List<IssuedToken> revoked = new ArrayList<>();
+
+    public String getNode() {
+        return node;
+    }
+
+    public void setNode(String node) {
+        this.node = node;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(long seq) {
+        this.seq = seq;
+    }
+
+    /**
+     * Set when the sender dropped events locally; receivers must reload from the database.
+     */
+    public boolean isResync() {
+        return resync;
+    }
+
+    public void setResync(boolean resync) {
+        this.resync = resync;
+    }
+
+    public List<String> getInvalidated() {
+        return invalidated;
+    }
+
+    public void setInvalidated(List<String> invalidated) {
+        this.invalidated = invalidated;
+    }
+
+    public List<IssuedToken> getIssued() {
+        return issued;
+    }
+
+    public void setIssued(List<IssuedToken> issued) {
+        this.issued = issued;
+    }
+
+    /**
+     * Signed tokens issued by the sender; receivers only refresh the owners' listings.
+     */
+    public List<IssuedToken> getSignedIssued() {
+        return signedIssued;
+    }
+
+    public void setSignedIssued(List<IssuedToken> signedIssued) {
+        this.signedIssued = signedIssued;
+    }
+
+    /**
+     * Signed tokens the sender invalidated, each with the expiry until which it must be rejected.
+     */
+    public List<IssuedToken> getRevoked() {
+        return revoked;
+    }
+
+    public void setRevoked(List<IssuedToken> revoked) {
+        this.revoked = revoked;
+    }
+
+    public static class IssuedToken {
+        private String tokenValue;
+        private String userId;
+        // Epoch millis; 0 means the token never expires
+        private long expiresAt;
+
+        public IssuedToken() {}
+
+        public IssuedToken(String tokenValue, String userId, long expiresAt) {
+            this.tokenValue = tokenValue;
+            this.userId = userId;
+            this.expiresAt = expiresAt;
+        }
+
+        public String getTokenValue() {
+            return tokenValue;
+        }
+
+        public void setTokenValue(String tokenValue) {
+            this.tokenValue = tokenValue;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public void setUserId(String userId) {
+            this.userId = userId;
+        }
+
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+
+        public void setExpiresAt(long expiresAt) {
+            this.expiresAt = expiresAt;
+        }
+    }
+}
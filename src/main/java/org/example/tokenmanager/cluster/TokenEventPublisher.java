@@ -0,0 +1,25 @@
+package org.example.tokenmanager.cluster;
+
+/**
+ * Announces committed token changes to the other service instances. Call only after the
+ * change is committed: peers may reload from the database when they receive it.
+ */
+public interface TokenEventPublisher {
+
+    /**
+     * @param expiresAt epoch millis after which the token is no longer valid, or 0 if it never expires
+     */
+    void tokenIssued(String hashedToken, String userId, long expiresAt);
+
+    void tokenInvalidated(String hashedToken);
+
+    /**
+     * A signed token was issued. Peers verify it by its signature, so only their listings change.
+     */
+    void signedTokenIssued(String hashedToken, String userId, long expiresAt);
+
+    /**
+     * A signed token was invalidated; peers must reject it until {@code expiresAt} (epoch millis).
+     */
+    void signedTokenRevoked(String hashedToken, String userId, long expiresAt);
+}
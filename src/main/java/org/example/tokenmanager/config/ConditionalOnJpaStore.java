@@ -0,0 +1,20 @@
+package org.example.tokenmanager.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks beans that need PostgreSQL: they are left out when {@code tokens.store} selects the
+ * embedded store (see {@link MmapStoreConfiguration}). JPA is the default.
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@ConditionalOnProperty(name = "tokens.store", havingValue = "jpa", matchIfMissing = true)
+public @interface ConditionalOnJpaStore {
+}
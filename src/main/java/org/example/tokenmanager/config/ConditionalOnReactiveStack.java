@@ -0,0 +1,23 @@
+package org.example.tokenmanager.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the beans of the WebFlux + R2DBC stack, which serves the API when the application
+ * runs as a reactive web application (the {@code reactive} profile, see
+ * {@link ReactiveStackConfiguration}). It reads and writes the same PostgreSQL schema, so it
+ * needs the JPA store as well.
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@ConditionalOnJpaStore
+public @interface ConditionalOnReactiveStack {
+}
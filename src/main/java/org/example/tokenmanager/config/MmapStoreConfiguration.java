@@ -0,0 +1,63 @@
+package org.example.tokenmanager.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Wiring for the embedded store ({@code tokens.store=mmap}, see the {@code edge} profile). The
+ * store and its audit log are components of their own; what is left is a transaction manager.
+ * The store applies each write at once and has nothing to commit or roll back, so this one only
+ * drives transaction synchronization: {@code @Transactional} methods and {@code TransactionTemplate}
+ * keep working, and after-commit callbacks (index updates, audit entries, replicated events)
+ * still run only when the surrounding method completes normally.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "tokens.store", havingValue = "mmap")
+public class MmapStoreConfiguration {
+
+    @Bean
+    public PlatformTransactionManager transactionManager() {
+        return new SynchronizationOnlyTransactionManager();
+    }
+
+    static class SynchronizationOnlyTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected boolean isExistingTransaction(Object transaction) {
+            // Lets nested @Transactional methods join the caller's synchronization scope.
+            return TransactionSynchronizationManager.isActualTransactionActive();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected Object doSuspend(Object transaction) {
+            return null;
+        }
+
+        @Override
+        protected void doResume(Object transaction, Object suspendedResources) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package org.example.tokenmanager.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.web.embedded.netty.NettyRouteProvider;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionManager;
+
+/**
+ * Infrastructure of the reactive stack ({@code spring.profiles.active=reactive}). Requests are
+ * served by WebFlux on Netty and reach PostgreSQL through R2DBC, so no request ever holds a
+ * thread while it waits for the database; the R2DBC pool ({@code spring.r2dbc.pool.*}) is what
+ * bounds concurrency. Startup loads and background jobs (sweeper, last-used flushes, snapshots,
+ * token events) keep running on JDBC with a small Hikari pool.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnReactiveStack
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class ReactiveStackConfiguration {
+
+    // Tomcat is on the classpath for the servlet stack and would otherwise be picked for this one too.
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory(ObjectProvider<NettyRouteProvider> routes,
+                                                                       ObjectProvider<NettyServerCustomizer> customizers) {
+        NettyReactiveWebServerFactory factory = new NettyReactiveWebServerFactory();
+        routes.orderedStream().forEach(factory::addRouteProviders);
+        factory.getServerCustomizers().addAll(customizers.orderedStream().toList());
+        return factory;
+    }
+
+    /**
+     * The JDBC pool of the background jobs. Spring Boot configures no {@code DataSource} once an
+     * R2DBC {@code ConnectionFactory} exists, so it is built here from the usual
+     * {@code spring.datasource.*} properties, unless {@link ReadReplicaConfiguration} provides one.
+     */
+    @Bean
+    @ConditionalOnExpression("'${replica.datasource.url:}'.isEmpty()")
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * The JPA transaction manager, which Spring Boot leaves out once R2DBC has registered its
+     * own. Primary, so {@code @Transactional} keeps meaning JPA; the R2DBC one is only used
+     * through {@code TransactionalOperator}.
+     */
+    @Bean
+    @Primary
+    public PlatformTransactionManager transactionManager(EntityManagerFactory entityManagerFactory,
+                                                         ObjectProvider<TransactionManagerCustomizers> customizers) {
+        JpaTransactionManager transactionManager = new JpaTransactionManager(entityManagerFactory);
+        customizers.ifAvailable(c -> c.customize((TransactionManager) transactionManager));
+        return transactionManager;
+    }
+}
@@ -1,29 +1,97 @@
 package org.example.tokenmanager.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.tokenmanager.config.ConditionalOnJpaStore;
+import org.example.tokenmanager.controller.dto.AuditActionCount;
+import org.example.tokenmanager.controller.dto.CursorPage;
 import org.example.tokenmanager.model.AuditLog;
-import org.example.tokenmanager.repository.AuditLogRepository;
+import org.example.tokenmanager.repository.AuditCounterRepository.Checkpoint;
+import org.example.tokenmanager.service.AuditProjectionRebuilder;
+import org.example.tokenmanager.service.AuditQueryService;
+import org.example.tokenmanager.util.NdjsonWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
+import static org.springframework.format.annotation.DateTimeFormat.ISO.DATE_TIME;
+
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnJpaStore
 @RequestMapping("/auditlogs")
 public class AuditController {
 
-    private final AuditLogRepository auditLogRepository;
+    private final AuditQueryService auditQueryService;
+    private final AuditProjectionRebuilder projectionRebuilder;
+    private final ObjectMapper objectMapper;
     private static final Logger logger = LoggerFactory.getLogger(AuditController.class);
 
-    public AuditController(AuditLogRepository auditLogRepository) {
-        this.auditLogRepository = auditLogRepository;
+    public AuditController(AuditQueryService auditQueryService, AuditProjectionRebuilder projectionRebuilder,
+                           ObjectMapper objectMapper) {
+        this.auditQueryService = auditQueryService;
+        this.projectionRebuilder = projectionRebuilder;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping
-    public ResponseEntity<List<AuditLog>> getAuditLogsByUser(@RequestParam String userId) {
-        logger.info("Fetching audit logs for user '{}'", userId);
-        List<AuditLog> logs = auditLogRepository.findByUserId(userId);
+    public ResponseEntity<List<AuditLog>> getAuditLogsByUser(@RequestParam String userId,
+                                                             @RequestParam(required = false) @DateTimeFormat(iso = DATE_TIME) LocalDateTime from,
+                                                             @RequestParam(required = false) @DateTimeFormat(iso = DATE_TIME) LocalDateTime to) {
+        logger.debug("Fetching audit logs for user '{}'", userId);
+        List<AuditLog> logs = auditQueryService.findByUser(userId, from, to);
         return ResponseEntity.ok(logs);
     }
+
+    @GetMapping(params = "limit")
+    public ResponseEntity<CursorPage<AuditLog>> getAuditLogPageByUser(@RequestParam String userId,
+                                                                      @RequestParam(required = false) @DateTimeFormat(iso = DATE_TIME) LocalDateTime from,
+                                                                      @RequestParam(required = false) @DateTimeFormat(iso = DATE_TIME) LocalDateTime to,
+                                                                      @RequestParam(required = false) String cursor,
+                                                                      @RequestParam int limit) {
+        logger.debug("Fetching audit log page for user '{}'", userId);
+        return ResponseEntity.ok(auditQueryService.findPageByUser(userId, from, to, cursor, limit));
+    }
+
+    @GetMapping(value = "/stream", produces = NdjsonWriter.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> streamAuditLogsByUser(@RequestParam String userId,
+                                                                       @RequestParam(required = false) @DateTimeFormat(iso = DATE_TIME) LocalDateTime from,
+                                                                       @RequestParam(required = false) @DateTimeFormat(iso = DATE_TIME) LocalDateTime to) {
+        logger.debug("Streaming audit logs for user '{}'", userId);
+        StreamingResponseBody body = out -> {
+            try (NdjsonWriter writer = new NdjsonWriter(objectMapper, out, 100)) {
+                auditQueryService.streamByUser(userId, from, to, writer::write);
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NdjsonWriter.MEDIA_TYPE)).body(body);
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<List<AuditActionCount>> getAuditStats(@RequestParam(required = false) String userId,
+                                                                @RequestParam(required = false) String action,
+                                                                @RequestParam(required = false) @DateTimeFormat(iso = DATE_TIME) LocalDateTime from,
+                                                                @RequestParam(required = false) @DateTimeFormat(iso = DATE_TIME) LocalDateTime to,
+                                                                @RequestParam(defaultValue = "day") String granularity) {
+        logger.debug("Fetching audit stats for user '{}', action '{}'", userId, action);
+        return ResponseEntity.ok(auditQueryService.countByAction(userId, action, from, to, granularity));
+    }
+
+    @PostMapping("/stats/rebuild")
+    public ResponseEntity<Checkpoint> rebuildAuditStats(@RequestParam(required = false) @DateTimeFormat(iso = DATE_TIME) LocalDateTime from,
+                                                        @RequestParam(required = false) @DateTimeFormat(iso = DATE_TIME) LocalDateTime to) {
+        logger.info("Audit stats rebuild requested from {} to {}", from, to);
+        return ResponseEntity.accepted().body(projectionRebuilder.requestRebuild(from, to));
+    }
+
+    @GetMapping("/stats/rebuild")
+    public ResponseEntity<Checkpoint> getAuditStatsRebuild() {
+        return ResponseEntity.of(projectionRebuilder.status());
+    }
 }
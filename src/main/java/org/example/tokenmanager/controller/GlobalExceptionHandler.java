@@ -1,7 +1,12 @@
 package org.example.tokenmanager.controller;
 
+import org.example.tokenmanager.service.RateLimitExceededException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import jakarta.validation.ConstraintViolationException;
@@ -22,6 +27,21 @@ public class GlobalExceptionHandler {
         return buildResponse(HttpStatus.CONFLICT, ex.getMessage());
     }
 
+    // No database connection became free within the pool's connection-timeout (Hikari) or max-acquire-time (R2DBC).
+    @ExceptionHandler({CannotCreateTransactionException.class, TransientDataAccessResourceException.class,
+            DataAccessResourceFailureException.class})
+    public ResponseEntity<Map<String, Object>> handleDatabaseBusy(Exception ex) {
+        return buildResponse(HttpStatus.SERVICE_UNAVAILABLE, "Service is busy. Please try again shortly.");
+    }
+
+    @ExceptionHandler(RateLimitExceededException.class)
+    public ResponseEntity<Map<String, Object>> handleRateLimit(RateLimitExceededException ex) {
+        ResponseEntity<Map<String, Object>> response = buildResponse(HttpStatus.TOO_MANY_REQUESTS, ex.getMessage());
+        return ResponseEntity.status(response.getStatusCode())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(response.getBody());
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, Object>> handleUnexpected(Exception ex) {
         return buildResponse(
@@ -0,0 +1,92 @@
+package org.example.tokenmanager.controller;
+
+import org.example.tokenmanager.config.ConditionalOnReactiveStack;
+import org.example.tokenmanager.controller.dto.AuditActionCount;
+import org.example.tokenmanager.controller.dto.CursorPage;
+import org.example.tokenmanager.model.AuditLog;
+import org.example.tokenmanager.repository.AuditCounterRepository.Checkpoint;
+import org.example.tokenmanager.service.AuditProjectionRebuilder;
+import org.example.tokenmanager.service.ReactiveAuditQueryService;
+import org.example.tokenmanager.util.NdjsonWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDateTime;
+
+import static org.springframework.format.annotation.DateTimeFormat.ISO.DATE_TIME;
+
+/**
+ * {@link AuditController} on the reactive stack. The rebuild endpoints only read and write the
+ * rebuild checkpoint, through the JDBC {@link AuditProjectionRebuilder}, on a thread that may block.
+ */
+@RestController
+@ConditionalOnReactiveStack
+@RequestMapping("/auditlogs")
+public class ReactiveAuditController {
+
+    private final ReactiveAuditQueryService auditQueryService;
+    private final AuditProjectionRebuilder projectionRebuilder;
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveAuditController.class);
+
+    public ReactiveAuditController(ReactiveAuditQueryService auditQueryService,
+                                   AuditProjectionRebuilder projectionRebuilder) {
+        this.auditQueryService = auditQueryService;
+        this.projectionRebuilder = projectionRebuilder;
+    }
+
+    @GetMapping
+    public Flux<AuditLog> getAuditLogsByUser(@RequestParam String userId,
+                                             @RequestParam(required = false) @DateTimeFormat(iso = DATE_TIME) LocalDateTime from,
+                                             @RequestParam(required = false) @DateTimeFormat(iso = DATE_TIME) LocalDateTime to) {
+        logger.debug("Fetching audit logs for user '{}'", userId);
+        return auditQueryService.findByUser(userId, from, to);
+    }
+
+    @GetMapping(params = "limit")
+    public Mono<CursorPage<AuditLog>> getAuditLogPageByUser(@RequestParam String userId,
+                                                            @RequestParam(required = false) @DateTimeFormat(iso = DATE_TIME) LocalDateTime from,
+                                                            @RequestParam(required = false) @DateTimeFormat(iso = DATE_TIME) LocalDateTime to,
+                                                            @RequestParam(required = false) String cursor,
+                                                            @RequestParam int limit) {
+        logger.debug("Fetching audit log page for user '{}'", userId);
+        return auditQueryService.findPageByUser(userId, from, to, cursor, limit);
+    }
+
+    @GetMapping(value = "/stream", produces = NdjsonWriter.MEDIA_TYPE)
+    public Flux<AuditLog> streamAuditLogsByUser(@RequestParam String userId,
+                                                @RequestParam(required = false) @DateTimeFormat(iso = DATE_TIME) LocalDateTime from,
+                                                @RequestParam(required = false) @DateTimeFormat(iso = DATE_TIME) LocalDateTime to) {
+        logger.debug("Streaming audit logs for user '{}'", userId);
+        return auditQueryService.streamByUser(userId, from, to);
+    }
+
+    @GetMapping("/stats")
+    public Flux<AuditActionCount> getAuditStats(@RequestParam(required = false) String userId,
+                                                @RequestParam(required = false) String action,
+                                                @RequestParam(required = false) @DateTimeFormat(iso = DATE_TIME) LocalDateTime from,
+                                                @RequestParam(required = false) @DateTimeFormat(iso = DATE_TIME) LocalDateTime to,
+                                                @RequestParam(defaultValue = "day") String granularity) {
+        logger.debug("Fetching audit stats for user '{}', action '{}'", userId, action);
+        return auditQueryService.countByAction(userId, action, from, to, granularity);
+    }
+
+    @PostMapping("/stats/rebuild")
+    public Mono<ResponseEntity<Checkpoint>> rebuildAuditStats(@RequestParam(required = false) @DateTimeFormat(iso = DATE_TIME) LocalDateTime from,
+                                                              @RequestParam(required = false) @DateTimeFormat(iso = DATE_TIME) LocalDateTime to) {
+        logger.info("Audit stats rebuild requested from {} to {}", from, to);
+        return Mono.fromCallable(() -> ResponseEntity.accepted().body(projectionRebuilder.requestRebuild(from, to)))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @GetMapping("/stats/rebuild")
+    public Mono<ResponseEntity<Checkpoint>> getAuditStatsRebuild() {
+        return Mono.fromCallable(() -> ResponseEntity.of(projectionRebuilder.status()))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+}
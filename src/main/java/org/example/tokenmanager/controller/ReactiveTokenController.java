@@ -0,0 +1,146 @@
+package org.example.tokenmanager.controller;
+
+import org.example.tokenmanager.config.ConditionalOnReactiveStack;
+import org.example.tokenmanager.controller.dto.ActiveTokenSummary;
+import org.example.tokenmanager.controller.dto.CursorPage;
+import org.example.tokenmanager.controller.dto.InvalidationResponse;
+import org.example.tokenmanager.controller.dto.TokenResponse;
+import org.example.tokenmanager.controller.dto.TokenValidationResponse;
+import org.example.tokenmanager.model.Token;
+import org.example.tokenmanager.service.RateLimiter;
+import org.example.tokenmanager.service.ReactiveTokenService;
+import org.example.tokenmanager.util.NdjsonWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+
+/**
+ * {@link TokenController} on the reactive stack: the same endpoints and responses, served
+ * without blocking. Listings are {@link Flux} streams written as the rows arrive, at the pace
+ * the client reads them.
+ */
+@RestController
+@ConditionalOnReactiveStack
+@RequestMapping("/tokens")
+public class ReactiveTokenController {
+
+    private final ReactiveTokenService tokenService;
+    private final RateLimiter rateLimiter;
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveTokenController.class);
+
+    public ReactiveTokenController(ReactiveTokenService tokenService, RateLimiter rateLimiter) {
+        this.tokenService = tokenService;
+        this.rateLimiter = rateLimiter;
+    }
+
+    @PostMapping
+    public Mono<TokenResponse> generateToken(@RequestParam String userId,
+                                             @RequestParam(required = false) Long ttlSeconds,
+                                             @RequestParam(required = false) String policy,
+                                             ServerHttpRequest request) {
+        logger.debug("Received request: Generate token for user '{}'", userId);
+        rateLimiter.acquire(userId, remoteAddress(request));
+        return tokenService.generateToken(userId, ttlSeconds, policy);
+    }
+
+    @PostMapping("/batch")
+    public Mono<List<TokenResponse>> generateTokens(@RequestParam String userId, @RequestParam int count,
+                                                    @RequestParam(required = false) Long ttlSeconds,
+                                                    @RequestParam(required = false) String policy,
+                                                    ServerHttpRequest request) {
+        logger.debug("Received request: Generate {} tokens for user '{}'", count, userId);
+        rateLimiter.acquireBatch(userId, remoteAddress(request), count);
+        return tokenService.generateTokens(userId, count, ttlSeconds, policy);
+    }
+
+    @PostMapping("/rotate")
+    public Mono<TokenResponse> rotateToken(@RequestParam String oldToken, ServerHttpRequest request) {
+        logger.debug("Received request: Rotate token");
+        // The owner is only known once the token is looked up, so this is limited per client.
+        rateLimiter.acquire(null, remoteAddress(request));
+        return tokenService.rotateToken(oldToken);
+    }
+
+    @PostMapping("/validate")
+    public Mono<TokenValidationResponse> validateToken(@RequestParam String token) {
+        // Hottest endpoint: no per-request INFO logging here.
+        return tokenService.validateToken(token);
+    }
+
+    @GetMapping
+    public Flux<Token> listTokens(@RequestParam String userId) {
+        logger.debug("Received request: List tokens for user '{}'", userId);
+        return tokenService.listTokens(userId);
+    }
+
+    @GetMapping(params = "limit")
+    public Mono<CursorPage<Token>> listTokensPage(@RequestParam String userId,
+                                                  @RequestParam(required = false) String cursor,
+                                                  @RequestParam int limit) {
+        logger.debug("Received request: List tokens page for user '{}'", userId);
+        return tokenService.listTokens(userId, cursor, limit);
+    }
+
+    @GetMapping(value = "/stream", produces = NdjsonWriter.MEDIA_TYPE)
+    public Flux<Token> streamTokens(@RequestParam String userId,
+                                    @RequestParam(defaultValue = "false") boolean activeOnly) {
+        logger.debug("Received request: Stream tokens for user '{}'", userId);
+        return tokenService.streamTokens(userId, activeOnly);
+    }
+
+    @DeleteMapping("/{tokenValue}")
+    public Mono<ResponseEntity<Void>> invalidateToken(@PathVariable String tokenValue) {
+        logger.debug("Received request: Invalidate token");
+        return tokenService.invalidateToken(tokenValue).thenReturn(ResponseEntity.noContent().build());
+    }
+
+    @PostMapping("/invalidate")
+    public Mono<InvalidationResponse> invalidateTokens(@RequestBody List<String> tokens) {
+        logger.debug("Received request: Invalidate {} tokens", tokens.size());
+        return tokenService.invalidateTokens(tokens).map(InvalidationResponse::new);
+    }
+
+    @DeleteMapping
+    public Mono<InvalidationResponse> invalidateAllTokens(@RequestParam String userId) {
+        logger.debug("Received request: Invalidate all tokens for user '{}'", userId);
+        return tokenService.invalidateAllTokens(userId).map(InvalidationResponse::new);
+    }
+
+    /**
+     * Answers {@code If-None-Match} with 304 and no body when the user's active tokens are unchanged.
+     */
+    @GetMapping("/active")
+    public Mono<ResponseEntity<List<ActiveTokenSummary>>> listActiveTokens(@RequestParam String userId,
+                                                                           ServerWebExchange exchange) {
+        logger.debug("Received request: List ACTIVE tokens for user '{}'", userId);
+        return tokenService.listActiveTokens(userId).flatMap(tokens -> {
+            if (exchange.checkNotModified(tokens.getEtag())) {
+                return Mono.empty();
+            }
+            return Mono.just(ResponseEntity.ok().cacheControl(CacheControl.noCache()).eTag(tokens.getEtag())
+                    .body(tokens.getTokens()));
+        });
+    }
+
+    @GetMapping(value = "/active", params = "limit")
+    public Mono<CursorPage<Token>> listActiveTokensPage(@RequestParam String userId,
+                                                        @RequestParam(required = false) String cursor,
+                                                        @RequestParam int limit) {
+        logger.debug("Received request: List ACTIVE tokens page for user '{}'", userId);
+        return tokenService.listActiveTokens(userId, cursor, limit);
+    }
+
+    private static String remoteAddress(ServerHttpRequest request) {
+        InetSocketAddress address = request.getRemoteAddress();
+        return address == null || address.getAddress() == null ? null : address.getAddress().getHostAddress();
+    }
+}
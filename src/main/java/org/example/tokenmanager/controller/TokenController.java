@@ -1,55 +1,143 @@
 package org.example.tokenmanager.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import org.example.tokenmanager.controller.dto.ActiveTokenSummary;
+import org.example.tokenmanager.controller.dto.CursorPage;
+import org.example.tokenmanager.controller.dto.InvalidationResponse;
 import org.example.tokenmanager.controller.dto.TokenResponse;
+import org.example.tokenmanager.controller.dto.TokenValidationResponse;
 import org.example.tokenmanager.model.Token;
+import org.example.tokenmanager.service.ActiveTokenCache.ActiveTokens;
+import org.example.tokenmanager.service.RateLimiter;
 import org.example.tokenmanager.service.TokenService;
+import org.example.tokenmanager.util.NdjsonWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/tokens")
 public class TokenController {
 
     private final TokenService tokenService;
+    private final RateLimiter rateLimiter;
+    private final ObjectMapper objectMapper;
     private static final Logger logger = LoggerFactory.getLogger(TokenController.class);
 
-    public TokenController(TokenService tokenService) {
+    public TokenController(TokenService tokenService, RateLimiter rateLimiter, ObjectMapper objectMapper) {
         this.tokenService = tokenService;
+        this.rateLimiter = rateLimiter;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping
-    public ResponseEntity<TokenResponse> generateToken(@RequestParam String userId) {
-        logger.info("Received request: Generate token for user '{}'", userId);
-        return ResponseEntity.ok(tokenService.generateToken(userId));
+    public ResponseEntity<TokenResponse> generateToken(@RequestParam String userId,
+                                                       @RequestParam(required = false) Long ttlSeconds,
+                                                       @RequestParam(required = false) String policy,
+                                                       HttpServletRequest request) {
+        logger.debug("Received request: Generate token for user '{}'", userId);
+        rateLimiter.acquire(userId, request.getRemoteAddr());
+        return ResponseEntity.ok(tokenService.generateToken(userId, ttlSeconds, policy));
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<List<TokenResponse>> generateTokens(@RequestParam String userId, @RequestParam int count,
+                                                              @RequestParam(required = false) Long ttlSeconds,
+                                                              @RequestParam(required = false) String policy,
+                                                              HttpServletRequest request) {
+        logger.debug("Received request: Generate {} tokens for user '{}'", count, userId);
+        rateLimiter.acquireBatch(userId, request.getRemoteAddr(), count);
+        return ResponseEntity.ok(tokenService.generateTokens(userId, count, ttlSeconds, policy));
     }
 
     @PostMapping("/rotate")
-    public ResponseEntity<TokenResponse> rotateToken(@RequestParam String oldToken) {
-        logger.info("Received request: Rotate token '{}'", oldToken);
+    public ResponseEntity<TokenResponse> rotateToken(@RequestParam String oldToken, HttpServletRequest request) {
+        logger.debug("Received request: Rotate token");
+        // The owner is only known once the token is looked up, so this is limited per client.
+        rateLimiter.acquire(null, request.getRemoteAddr());
         return ResponseEntity.ok(tokenService.rotateToken(oldToken));
     }
 
+    @PostMapping("/validate")
+    public ResponseEntity<TokenValidationResponse> validateToken(@RequestParam String token) {
+        // Hottest endpoint: no per-request INFO logging here.
+        return ResponseEntity.ok(tokenService.validateToken(token));
+    }
+
     @GetMapping
     public ResponseEntity<List<Token>> listTokens(@RequestParam String userId) {
-        logger.info("Received request: List tokens for user '{}'", userId);
+        logger.debug("Received request: List tokens for user '{}'", userId);
         return ResponseEntity.ok(tokenService.listTokens(userId));
     }
 
+    @GetMapping(params = "limit")
+    public ResponseEntity<CursorPage<Token>> listTokensPage(@RequestParam String userId,
+                                                            @RequestParam(required = false) String cursor,
+                                                            @RequestParam int limit) {
+        logger.debug("Received request: List tokens page for user '{}'", userId);
+        return ResponseEntity.ok(tokenService.listTokens(userId, cursor, limit));
+    }
+
+    @GetMapping(value = "/stream", produces = NdjsonWriter.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> streamTokens(@RequestParam String userId,
+                                                              @RequestParam(defaultValue = "false") boolean activeOnly) {
+        logger.debug("Received request: Stream tokens for user '{}'", userId);
+        StreamingResponseBody body = out -> {
+            try (NdjsonWriter writer = new NdjsonWriter(objectMapper, out, 100)) {
+                tokenService.streamTokens(userId, activeOnly, writer::write);
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NdjsonWriter.MEDIA_TYPE)).body(body);
+    }
+
     @DeleteMapping("/{tokenValue}")
     public ResponseEntity<Void> invalidateToken(@PathVariable String tokenValue) {
-        logger.info("Received request: Invalidate token '{}'", tokenValue);
+        logger.debug("Received request: Invalidate token");
         tokenService.invalidateToken(tokenValue);
         return ResponseEntity.noContent().build();
     }
 
+    @PostMapping("/invalidate")
+    public ResponseEntity<InvalidationResponse> invalidateTokens(@RequestBody List<String> tokens) {
+        logger.debug("Received request: Invalidate {} tokens", tokens.size());
+        return ResponseEntity.ok(new InvalidationResponse(tokenService.invalidateTokens(tokens)));
+    }
+
+    @DeleteMapping
+    public ResponseEntity<InvalidationResponse> invalidateAllTokens(@RequestParam String userId) {
+        logger.debug("Received request: Invalidate all tokens for user '{}'", userId);
+        return ResponseEntity.ok(new InvalidationResponse(tokenService.invalidateAllTokens(userId)));
+    }
+
+    /**
+     * Answers {@code If-None-Match} with 304 and no body when the user's active tokens are unchanged.
+     */
     @GetMapping("/active")
-    public ResponseEntity<List<Token>> listActiveTokens(@RequestParam String userId) {
-        logger.info("Received request: List ACTIVE tokens for user '{}'", userId);
-        return ResponseEntity.ok(tokenService.listActiveTokens(userId));
+    public ResponseEntity<List<ActiveTokenSummary>> listActiveTokens(@RequestParam String userId, WebRequest webRequest) {
+        logger.debug("Received request: List ACTIVE tokens for user '{}'", userId);
+        ActiveTokens tokens = tokenService.listActiveTokens(userId);
+        if (webRequest.checkNotModified(tokens.getEtag())) {
+            return null;
+        }
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).eTag(tokens.getEtag()).body(tokens.getTokens());
+    }
+
+    @GetMapping(value = "/active", params = "limit")
+    public ResponseEntity<CursorPage<Token>> listActiveTokensPage(@RequestParam String userId,
+                                                                  @RequestParam(required = false) String cursor,
+                                                                  @RequestParam int limit) {
+        logger.debug("Received request: List ACTIVE tokens page for user '{}'", userId);
+        return ResponseEntity.ok(tokenService.listActiveTokens(userId, cursor, limit));
     }
 
 }
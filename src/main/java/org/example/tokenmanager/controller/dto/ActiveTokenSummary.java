@@ -0,0 +1,40 @@
+package org.example.tokenmanager.controller.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+
+/**
+ * What {@code GET /tokens/active} returns per token: only the fields that do not change while
+ * the token stays active, so a cached listing remains correct until the token set changes.
+ */
+public class ActiveTokenSummary {
+    private final long id;
+    private final String tokenValue;
+    private final LocalDateTime createdAt;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private final LocalDateTime expiresAt;
+
+    public ActiveTokenSummary(long id, String tokenValue, LocalDateTime createdAt, LocalDateTime expiresAt) {
+        this.id = id;
+        this.tokenValue = tokenValue;
+        this.createdAt = createdAt;
+        this.expiresAt = expiresAt;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getTokenValue() {
+        return tokenValue;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+}
@@ -0,0 +1,47 @@
+package org.example.tokenmanager.controller.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+
+/**
+ * Number of audit events of one action in one time bucket, for one user or (without
+ * {@code userId}) for all users. {@code shortLived} counts the INVALIDATE, ROTATE_OLD and
+ * EXPIRE events that ended a token at most one hour after it was issued.
+ */
+public class AuditActionCount {
+    private final LocalDateTime bucket;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private final String userId;
+    private final String action;
+    private final long count;
+    private final long shortLived;
+
+    public AuditActionCount(LocalDateTime bucket, String userId, String action, long count, long shortLived) {
+        this.bucket = bucket;
+        this.userId = userId;
+        this.action = action;
+        this.count = count;
+        this.shortLived = shortLived;
+    }
+
+    public LocalDateTime getBucket() {
+        return bucket;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getShortLived() {
+        return shortLived;
+    }
+}
@@ -0,0 +1,13 @@
+package org.example.tokenmanager.controller.dto;
+
+public class InvalidationResponse {
+    private final int invalidated;
+
+    public InvalidationResponse(int invalidated) {
+        this.invalidated = invalidated;
+    }
+
+    public int getInvalidated() {
+        return invalidated;
+    }
+}
@@ -1,12 +1,23 @@
 package org.example.tokenmanager.controller.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+
 public class TokenResponse {
     private final String token;
     private final String userId;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private final LocalDateTime expiresAt;
 
     public TokenResponse(String token, String userId) {
+        this(token, userId, null);
+    }
+
+    public TokenResponse(String token, String userId, LocalDateTime expiresAt) {
         this.token = token;
         this.userId = userId;
+        this.expiresAt = expiresAt;
     }
 
     public String getToken() {
@@ -16,4 +27,8 @@ public class TokenResponse {
     public String getUserId() {
         return userId;
     }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
 }
@@ -0,0 +1,29 @@
+package org.example.tokenmanager.controller.dto;
+
+public class TokenValidationResponse {
+    private static final TokenValidationResponse INVALID = new TokenValidationResponse(false, null);
+
+    private final boolean valid;
+    private final String userId;
+
+    public TokenValidationResponse(boolean valid, String userId) {
+        this.valid = valid;
+        this.userId = userId;
+    }
+
+    public static TokenValidationResponse valid(String userId) {
+        return new TokenValidationResponse(true, userId);
+    }
+
+    public static TokenValidationResponse invalid() {
+        return INVALID;
+    }
+
+    public boolean isValid() {
+        return valid;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+}
@@ -4,7 +4,9 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "audit_logs")
+@Table(name = "audit_logs", indexes = {
+        @Index(name = "idx_audit_logs_user_id_timestamp", columnList = "userId, timestamp, id")
+})
 public class AuditLog {
 
     @Id
@@ -13,6 +15,8 @@ public class AuditLog {
 
     private String action;
 
+    @Convert(converter = HexBytesConverter.class)
+    @Column(length = 32)
     private String tokenValue;
 
     private String userId;
@@ -33,6 +37,10 @@ public class AuditLog {
         return id;
     }
 
+    public void setId(Long id) {
+        this.id = id;
+    }
+
     public String getAction() {
         return action;
     }
@@ -0,0 +1,22 @@
+package org.example.tokenmanager.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import org.example.tokenmanager.util.TokenHasher;
+
+/**
+ * Maps hex-encoded digests in the domain model to raw {@code bytea} columns.
+ */
+@Converter
+public class HexBytesConverter implements AttributeConverter<String, byte[]> {
+
+    @Override
+    public byte[] convertToDatabaseColumn(String hex) {
+        return hex == null ? null : TokenHasher.fromHex(hex);
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] bytes) {
+        return bytes == null ? null : TokenHasher.toHex(bytes);
+    }
+}
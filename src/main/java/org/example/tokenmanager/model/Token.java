@@ -4,7 +4,9 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "tokens")
+@Table(name = "tokens", indexes = {
+        @Index(name = "idx_tokens_user_id_id", columnList = "userId, id")
+})
 public class Token {
 
     @Id
@@ -13,7 +15,9 @@ public class Token {
 
     private String userId;
 
-    @Column(nullable = false, unique = true)
+    // Hex in Java, 32 raw bytes in the database
+    @Convert(converter = HexBytesConverter.class)
+    @Column(nullable = false, unique = true, length = 32)
     private String tokenValue;
 
     private boolean validToken; //valid - true, invalid - false
@@ -24,6 +28,16 @@ public class Token {
 
     private LocalDateTime rotatedAt;
 
+    // null: never expires
+    private LocalDateTime expiresAt;
+
+    // HMAC-signed token, verified by its signature rather than by this row
+    private boolean signed;
+
+    // UTC; set by a database trigger (V11), only mapped so queries can filter on it
+    @Column(insertable = false, updatable = false)
+    private LocalDateTime stateChangedAt;
+
     public Token() {}
 
     public Token(String userId, String tokenValue) {
@@ -33,11 +47,20 @@ public class Token {
         this.createdAt = LocalDateTime.now();
     }
 
+    public Token(String userId, String tokenValue, LocalDateTime expiresAt) {
+        this(userId, tokenValue);
+        this.expiresAt = expiresAt;
+    }
+
 
     public Long getId() {
         return id;
     }
 
+    public void setId(Long id) {
+        this.id = id;
+    }
+
     public String getUserId() {
         return userId;
     }
@@ -85,4 +108,24 @@ public class Token {
     public void setRotatedAt(LocalDateTime rotatedAt) {
         this.rotatedAt = rotatedAt;
     }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public boolean isSigned() {
+        return signed;
+    }
+
+    public void setSigned(boolean signed) {
+        this.signed = signed;
+    }
+
+    public boolean isExpired(LocalDateTime now) {
+        return expiresAt != null && !now.isBefore(expiresAt);
+    }
 }
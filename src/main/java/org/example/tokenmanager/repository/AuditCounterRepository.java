@@ -0,0 +1,209 @@
+package org.example.tokenmanager.repository;
+
+import org.example.tokenmanager.config.ConditionalOnJpaStore;
+import org.example.tokenmanager.controller.dto.AuditActionCount;
+import org.example.tokenmanager.model.AuditLog;
+import org.example.tokenmanager.util.TokenHasher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The {@code audit_counters} read model: per-user, per-action event counts in hourly buckets.
+ * Counts are added for each audit batch as it is written ({@link #add}) and can be recomputed
+ * from {@code audit_logs} hour by hour ({@link #rebuild}). Both must run inside a transaction;
+ * writers hold a shared advisory lock and a rebuild step an exclusive one, so a rebuilt hour
+ * never misses or double-counts a batch written meanwhile.
+ */
+@Repository
+@ConditionalOnJpaStore
+public class AuditCounterRepository {
+
+    public static final String PROJECTION = "audit_counters";
+
+    static final long ADVISORY_LOCK_KEY = 7_004_002L;
+
+    // Source rows are aliased u(action, token_value, user_id, ts). The GENERATE / ROTATE_NEW
+    // lookup stays within one user's last hour of entries, so it is an index range scan.
+    private static final String COUNT_SQL =
+            "SELECT date_trunc('hour', u.ts), coalesce(u.user_id, ''), coalesce(u.action, ''), count(*), " +
+            "count(*) FILTER (WHERE u.action IN ('INVALIDATE', 'ROTATE_OLD', 'EXPIRE') AND EXISTS (" +
+            "  SELECT 1 FROM audit_logs g WHERE g.user_id = u.user_id " +
+            "  AND g.timestamp >= u.ts - INTERVAL '1 hour' AND g.timestamp <= u.ts " +
+            "  AND g.token_value = u.token_value AND g.action IN ('GENERATE', 'ROTATE_NEW'))) ";
+
+    private static final String ADD_SQL =
+            addSql("unnest(?::varchar[], ?::bytea[], ?::varchar[], ?::timestamp[]) AS u(action, token_value, user_id, ts)");
+
+    private static final String REBUILD_DELETE_SQL =
+            "DELETE FROM audit_counters WHERE bucket_start >= ? AND bucket_start < ?";
+
+    private static final String REBUILD_INSERT_SQL =
+            "INSERT INTO audit_counters (bucket_start, user_id, action, event_count, short_lived_count) " +
+            COUNT_SQL +
+            "FROM (SELECT action, token_value, user_id, timestamp AS ts FROM audit_logs " +
+            "      WHERE timestamp >= ? AND timestamp < ?) u " +
+            "GROUP BY 1, 2, 3";
+
+    private static final String CHECKPOINT_COLUMNS = "SELECT position, until, requested_at, updated_at " +
+            "FROM audit_projection_checkpoint WHERE projection = ?";
+
+    private static final String SAVE_CHECKPOINT_SQL =
+            "INSERT INTO audit_projection_checkpoint (projection, position, until, requested_at, updated_at) " +
+            "VALUES (?, ?, ?, localtimestamp, localtimestamp) " +
+            "ON CONFLICT (projection) DO UPDATE SET position = excluded.position, until = excluded.until, " +
+            "requested_at = excluded.requested_at, updated_at = excluded.updated_at";
+
+    private static final String ADVANCE_CHECKPOINT_SQL =
+            "UPDATE audit_projection_checkpoint SET position = ?, updated_at = localtimestamp WHERE projection = ?";
+
+    /**
+     * The statement that adds the counts of {@code source}, a FROM item aliased
+     * {@code u(action, token_value, user_id, ts)}; also used by {@link ReactiveAuditLogRepository}.
+     */
+    static String addSql(String source) {
+        return "INSERT INTO audit_counters AS c (bucket_start, user_id, action, event_count, short_lived_count) " +
+                COUNT_SQL +
+                "FROM " + source + " " +
+                // Sorted, so concurrent writers lock counter rows in the same order.
+                "GROUP BY 1, 2, 3 ORDER BY 1, 2, 3 " +
+                "ON CONFLICT (user_id, bucket_start, action) DO UPDATE " +
+                "SET event_count = c.event_count + excluded.event_count, " +
+                "short_lived_count = c.short_lived_count + excluded.short_lived_count";
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AuditCounterRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Adds the counts of a batch of audit entries that was just inserted in the current transaction.
+     */
+    public void add(List<AuditLog> logs) {
+        if (logs.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.queryForObject("SELECT pg_advisory_xact_lock_shared(?)", Object.class, ADVISORY_LOCK_KEY);
+        jdbcTemplate.execute((Connection con) -> {
+            try (PreparedStatement ps = con.prepareStatement(ADD_SQL)) {
+                ps.setArray(1, con.createArrayOf("varchar", logs.stream().map(AuditLog::getAction).toArray()));
+                ps.setArray(2, con.createArrayOf("bytea", logs.stream()
+                        .map(log -> log.getTokenValue() == null ? null : TokenHasher.fromHex(log.getTokenValue()))
+                        .toArray(byte[][]::new)));
+                ps.setArray(3, con.createArrayOf("varchar", logs.stream().map(AuditLog::getUserId).toArray()));
+                ps.setArray(4, con.createArrayOf("timestamp", logs.stream()
+                        .map(log -> Timestamp.valueOf(log.getTimestamp())).toArray(Timestamp[]::new)));
+                return ps.executeUpdate();
+            }
+        });
+    }
+
+    /**
+     * Recomputes the hourly buckets in {@code [from, to)} from {@code audit_logs}. Both ends must
+     * be whole hours. Blocks audit writers until the current transaction ends.
+     *
+     * @return the number of counter rows written
+     */
+    public int rebuild(LocalDateTime from, LocalDateTime to) {
+        jdbcTemplate.queryForObject("SELECT pg_advisory_xact_lock(?)", Object.class, ADVISORY_LOCK_KEY);
+        jdbcTemplate.update(REBUILD_DELETE_SQL, Timestamp.valueOf(from), Timestamp.valueOf(to));
+        return jdbcTemplate.update(REBUILD_INSERT_SQL, Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    /**
+     * Counts per bucket of {@code granularity} ({@code hour} or {@code day}) and action in
+     * {@code [from, to)}, for one user or, with a {@code null} user, summed over all users.
+     */
+    public List<AuditActionCount> findCounts(String userId, String action, LocalDateTime from, LocalDateTime to,
+                                             String granularity) {
+        StringBuilder sql = new StringBuilder("SELECT date_trunc(?, bucket_start) AS bucket, action, ")
+                .append("sum(event_count), sum(short_lived_count) FROM audit_counters ")
+                .append("WHERE bucket_start >= ? AND bucket_start < ?");
+        List<Object> args = new ArrayList<>(List.of(granularity, Timestamp.valueOf(from), Timestamp.valueOf(to)));
+        if (userId != null) {
+            sql.append(" AND user_id = ?");
+            args.add(userId);
+        }
+        if (action != null) {
+            sql.append(" AND action = ?");
+            args.add(action);
+        }
+        sql.append(" GROUP BY bucket, action ORDER BY bucket, action");
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> new AuditActionCount(
+                rs.getTimestamp(1).toLocalDateTime(), userId, rs.getString(2), rs.getLong(3), rs.getLong(4)), args.toArray());
+    }
+
+    public Optional<Checkpoint> findCheckpoint() {
+        return jdbcTemplate.query(CHECKPOINT_COLUMNS, AuditCounterRepository::checkpoint, PROJECTION).stream().findFirst();
+    }
+
+    /**
+     * Locks the checkpoint row for the current transaction, or returns empty if there is none or
+     * another instance holds it.
+     */
+    public Optional<Checkpoint> lockCheckpoint() {
+        return jdbcTemplate.query(CHECKPOINT_COLUMNS + " FOR UPDATE SKIP LOCKED", AuditCounterRepository::checkpoint, PROJECTION)
+                .stream().findFirst();
+    }
+
+    public void saveCheckpoint(LocalDateTime position, LocalDateTime until) {
+        jdbcTemplate.update(SAVE_CHECKPOINT_SQL, PROJECTION, Timestamp.valueOf(position), Timestamp.valueOf(until));
+    }
+
+    public void advanceCheckpoint(LocalDateTime position) {
+        jdbcTemplate.update(ADVANCE_CHECKPOINT_SQL, Timestamp.valueOf(position), PROJECTION);
+    }
+
+    private static Checkpoint checkpoint(ResultSet rs, int rowNum) throws SQLException {
+        return new Checkpoint(rs.getTimestamp(1).toLocalDateTime(), rs.getTimestamp(2).toLocalDateTime(),
+                rs.getTimestamp(3).toLocalDateTime(), rs.getTimestamp(4).toLocalDateTime());
+    }
+
+    /**
+     * Progress of a rebuild: hours before {@code position} are done, the range ends at {@code until}.
+     */
+    public static final class Checkpoint {
+        private final LocalDateTime position;
+        private final LocalDateTime until;
+        private final LocalDateTime requestedAt;
+        private final LocalDateTime updatedAt;
+
+        public Checkpoint(LocalDateTime position, LocalDateTime until, LocalDateTime requestedAt, LocalDateTime updatedAt) {
+            this.position = position;
+            this.until = until;
+            this.requestedAt = requestedAt;
+            this.updatedAt = updatedAt;
+        }
+
+        public LocalDateTime getPosition() {
+            return position;
+        }
+
+        public LocalDateTime getUntil() {
+            return until;
+        }
+
+        public LocalDateTime getRequestedAt() {
+            return requestedAt;
+        }
+
+        public LocalDateTime getUpdatedAt() {
+            return updatedAt;
+        }
+
+        public boolean isComplete() {
+            return !position.isBefore(until);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.tokenmanager.repository;
+
+import org.example.tokenmanager.config.ConditionalOnJpaStore;
+import org.example.tokenmanager.model.AuditLog;
+import org.example.tokenmanager.util.TokenHasher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Inserts audit rows with a single JDBC batch. {@code AuditLog} uses IDENTITY keys, which
+ * stops Hibernate from batching, so the write-behind pipeline bypasses JPA here. With
+ * {@code reWriteBatchedInserts=true} the PostgreSQL driver sends the batch as multi-row inserts.
+ * The batch's counts are added to {@code audit_counters} in the same transaction, so the
+ * read model neither misses nor double-counts a batch whose write is retried.
+ */
+@Repository
+@ConditionalOnJpaStore
+public class AuditLogBatchWriter implements AuditLogWriter {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO audit_logs (action, token_value, user_id, timestamp) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AuditCounterRepository counters;
+    private final boolean projectionEnabled;
+
+    public AuditLogBatchWriter(JdbcTemplate jdbcTemplate,
+                               TransactionTemplate transactionTemplate,
+                               AuditCounterRepository counters,
+                               @Value("${audit.projection.enabled:true}") boolean projectionEnabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        // Its own transaction even when called from a caller's afterCommit callback, where the
+        // finished transaction's resources are still bound to the thread.
+        this.transactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.counters = counters;
+        this.projectionEnabled = projectionEnabled;
+    }
+
+    @Override
+    public void insertAll(List<AuditLog> logs) {
+        if (logs.isEmpty()) {
+            return;
+        }
+        if (!projectionEnabled) {
+            insert(logs);
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            insert(logs);
+            counters.add(logs);
+        });
+    }
+
+    private void insert(List<AuditLog> logs) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, logs, logs.size(), (ps, log) -> {
+            ps.setString(1, log.getAction());
+            ps.setBytes(2, log.getTokenValue() == null ? null : TokenHasher.fromHex(log.getTokenValue()));
+            ps.setString(3, log.getUserId());
+            ps.setTimestamp(4, Timestamp.valueOf(log.getTimestamp()));
+        });
+    }
+}
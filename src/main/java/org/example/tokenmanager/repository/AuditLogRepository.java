@@ -1,11 +1,39 @@
 package org.example.tokenmanager.repository;
 
+import jakarta.persistence.QueryHint;
 import org.example.tokenmanager.model.AuditLog;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 public interface AuditLogRepository extends JpaRepository<AuditLog, Long> {
 
     List<AuditLog> findByUserId(String userId);
+
+    // Time-range queries bound the partition key, so only the partitions in [from, to) are scanned.
+    @Query("select a from AuditLog a where a.userId = :userId and a.timestamp >= :from and a.timestamp < :to " +
+            "order by a.timestamp asc, a.id asc")
+    List<AuditLog> findByUserIdInRange(String userId, LocalDateTime from, LocalDateTime to);
+
+    // Keyset pagination ordered by (timestamp, id). The redundant "timestamp >= :afterTimestamp"
+    // lets the planner prune partitions despite the OR.
+    @Query("select a from AuditLog a where a.userId = :userId " +
+            "and a.timestamp >= :afterTimestamp and a.timestamp < :to " +
+            "and (a.timestamp > :afterTimestamp or a.id > :afterId) " +
+            "order by a.timestamp asc, a.id asc")
+    List<AuditLog> findPageByUserId(String userId, LocalDateTime afterTimestamp, long afterId, LocalDateTime to, Limit limit);
+
+    // Must be consumed inside a transaction; rows are read with a server-side cursor.
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("select a from AuditLog a where a.userId = :userId and a.timestamp >= :from and a.timestamp < :to " +
+            "order by a.timestamp asc, a.id asc")
+    Stream<AuditLog> streamByUserIdInRange(String userId, LocalDateTime from, LocalDateTime to);
 }
@@ -0,0 +1,18 @@
+package org.example.tokenmanager.repository;
+
+import org.example.tokenmanager.model.AuditLog;
+
+import java.util.List;
+
+/**
+ * Where the audit write-behind pipeline ({@code AuditService}) puts its batches.
+ * {@link AuditLogBatchWriter} writes to PostgreSQL; with {@code tokens.store=mmap} the
+ * embedded store's audit log takes them instead.
+ */
+public interface AuditLogWriter {
+
+    /**
+     * Writes the batch; an exception means some or all of it may be missing, and the caller may retry.
+     */
+    void insertAll(List<AuditLog> logs);
+}
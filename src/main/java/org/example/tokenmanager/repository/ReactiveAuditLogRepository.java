@@ -0,0 +1,164 @@
+package org.example.tokenmanager.repository;
+
+import io.r2dbc.spi.Readable;
+import org.example.tokenmanager.config.ConditionalOnReactiveStack;
+import org.example.tokenmanager.controller.dto.AuditActionCount;
+import org.example.tokenmanager.model.AuditLog;
+import org.example.tokenmanager.util.TokenHasher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * The audit log over R2DBC, for the reactive stack: batched inserts that also add to the
+ * {@code audit_counters} read model in the same transaction (like {@link AuditLogBatchWriter}
+ * and {@link AuditCounterRepository#add}), and the listings of {@link AuditLogRepository}.
+ */
+@Repository
+@ConditionalOnReactiveStack
+public class ReactiveAuditLogRepository {
+
+    private static final String COLUMNS = "id, action, token_value, user_id, timestamp";
+
+    // The batch as rows aliased u(action, token_value, user_id, ts); hashes are passed as hex.
+    private static final String BATCH =
+            "(SELECT r.action, decode(r.token_hex, 'hex') AS token_value, r.user_id, r.ts " +
+            " FROM unnest(CAST(:actions AS varchar[]), CAST(:tokenValues AS text[]), CAST(:userIds AS varchar[]), " +
+            "             CAST(:timestamps AS timestamp[])) AS r(action, token_hex, user_id, ts)) AS u";
+
+    private static final String INSERT_SQL =
+            "INSERT INTO audit_logs (action, token_value, user_id, timestamp) " +
+            "SELECT u.action, u.token_value, u.user_id, u.ts FROM " + BATCH;
+
+    private static final String ADD_COUNTS_SQL = AuditCounterRepository.addSql(BATCH);
+
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+    private final boolean projectionEnabled;
+    private final int fetchSize;
+
+    public ReactiveAuditLogRepository(DatabaseClient databaseClient,
+                                      TransactionalOperator transactionalOperator,
+                                      @Value("${audit.projection.enabled:true}") boolean projectionEnabled,
+                                      @Value("${tokens.reactive.fetch-size:500}") int fetchSize) {
+        this.databaseClient = databaseClient;
+        this.transactionalOperator = transactionalOperator;
+        this.projectionEnabled = projectionEnabled;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Inserts the batch with one multi-row INSERT; an error means some or all of it may be missing.
+     */
+    public Mono<Void> insertAll(List<AuditLog> logs) {
+        if (logs.isEmpty()) {
+            return Mono.empty();
+        }
+        if (!projectionEnabled) {
+            return execute(INSERT_SQL, logs);
+        }
+        return databaseClient.sql("SELECT pg_advisory_xact_lock_shared(:key)")
+                .bind("key", AuditCounterRepository.ADVISORY_LOCK_KEY)
+                .then()
+                .then(execute(INSERT_SQL, logs))
+                .then(execute(ADD_COUNTS_SQL, logs))
+                .as(transactionalOperator::transactional);
+    }
+
+    public Flux<AuditLog> findByUserId(String userId) {
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM audit_logs WHERE user_id = :userId")
+                .filter(statement -> statement.fetchSize(fetchSize))
+                .bind("userId", userId)
+                .map(ReactiveAuditLogRepository::auditLog)
+                .all();
+    }
+
+    /**
+     * See {@link AuditLogRepository#streamByUserIdInRange}.
+     */
+    public Flux<AuditLog> findByUserIdInRange(String userId, LocalDateTime from, LocalDateTime to) {
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM audit_logs WHERE user_id = :userId " +
+                        "AND timestamp >= :from AND timestamp < :to ORDER BY timestamp, id")
+                .filter(statement -> statement.fetchSize(fetchSize))
+                .bind("userId", userId)
+                .bind("from", from)
+                .bind("to", to)
+                .map(ReactiveAuditLogRepository::auditLog)
+                .all();
+    }
+
+    /**
+     * See {@link AuditLogRepository#findPageByUserId}.
+     */
+    public Flux<AuditLog> findPageByUserId(String userId, LocalDateTime afterTimestamp, long afterId, LocalDateTime to,
+                                           int limit) {
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM audit_logs WHERE user_id = :userId " +
+                        "AND timestamp >= :afterTimestamp AND timestamp < :to " +
+                        "AND (timestamp > :afterTimestamp OR id > :afterId) " +
+                        "ORDER BY timestamp, id LIMIT :limit")
+                .bind("userId", userId)
+                .bind("afterTimestamp", afterTimestamp)
+                .bind("afterId", afterId)
+                .bind("to", to)
+                .bind("limit", limit)
+                .map(ReactiveAuditLogRepository::auditLog)
+                .all();
+    }
+
+    /**
+     * See {@link AuditCounterRepository#findCounts}.
+     */
+    public Flux<AuditActionCount> findCounts(String userId, String action, LocalDateTime from, LocalDateTime to,
+                                             String granularity) {
+        StringBuilder sql = new StringBuilder("SELECT date_trunc(:granularity, bucket_start) AS bucket, action, ")
+                .append("CAST(sum(event_count) AS bigint) AS events, CAST(sum(short_lived_count) AS bigint) AS short_lived ")
+                .append("FROM audit_counters ")
+                .append("WHERE bucket_start >= :from AND bucket_start < :to");
+        if (userId != null) {
+            sql.append(" AND user_id = :userId");
+        }
+        if (action != null) {
+            sql.append(" AND action = :action");
+        }
+        sql.append(" GROUP BY bucket, action ORDER BY bucket, action");
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString())
+                .bind("granularity", granularity)
+                .bind("from", from)
+                .bind("to", to);
+        if (userId != null) {
+            spec = spec.bind("userId", userId);
+        }
+        if (action != null) {
+            spec = spec.bind("action", action);
+        }
+        return spec.map(row -> new AuditActionCount(row.get("bucket", LocalDateTime.class), userId,
+                        row.get("action", String.class), row.get("events", Long.class), row.get("short_lived", Long.class)))
+                .all();
+    }
+
+    private Mono<Void> execute(String sql, List<AuditLog> logs) {
+        return databaseClient.sql(sql)
+                .bind("actions", logs.stream().map(AuditLog::getAction).toArray(String[]::new))
+                .bind("tokenValues", logs.stream().map(AuditLog::getTokenValue).toArray(String[]::new))
+                .bind("userIds", logs.stream().map(AuditLog::getUserId).toArray(String[]::new))
+                .bind("timestamps", logs.stream().map(AuditLog::getTimestamp).toArray(LocalDateTime[]::new))
+                .then();
+    }
+
+    private static AuditLog auditLog(Readable row) {
+        AuditLog log = new AuditLog();
+        log.setId(row.get("id", Long.class));
+        log.setAction(row.get("action", String.class));
+        byte[] tokenValue = row.get("token_value", byte[].class);
+        log.setTokenValue(tokenValue == null ? null : TokenHasher.toHex(tokenValue));
+        log.setUserId(row.get("user_id", String.class));
+        log.setTimestamp(row.get("timestamp", LocalDateTime.class));
+        return log;
+    }
+}
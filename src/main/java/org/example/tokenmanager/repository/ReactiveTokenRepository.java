@@ -0,0 +1,202 @@
+package org.example.tokenmanager.repository;
+
+import io.r2dbc.spi.Readable;
+import org.example.tokenmanager.config.ConditionalOnReactiveStack;
+import org.example.tokenmanager.controller.dto.ActiveTokenSummary;
+import org.example.tokenmanager.model.Token;
+import org.example.tokenmanager.repository.TokenBulkOperations.InvalidatedToken;
+import org.example.tokenmanager.util.TokenHasher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The token queries of the reactive stack, as SQL over R2DBC. They mirror {@link TokenRepository}
+ * and {@link TokenBulkOperationsImpl} statement for statement, so both stacks put the same load on
+ * the database. Listings are read from a cursor {@code tokens.reactive.fetch-size} rows at a time,
+ * only as fast as the subscriber requests them. Token hashes are hex in Java and bytea in the
+ * database; arrays of them are passed as hex and decoded in SQL.
+ */
+@Repository
+@ConditionalOnReactiveStack
+public class ReactiveTokenRepository {
+
+    private static final String COLUMNS =
+            "id, user_id, token_value, valid_token, created_at, last_used_at, rotated_at, expires_at, signed";
+
+    private static final String ACTIVE = "valid_token AND (expires_at IS NULL OR expires_at > :now)";
+
+    private static final String INSERT_SQL =
+            "INSERT INTO tokens (user_id, token_value, valid_token, created_at, expires_at, signed) " +
+            "SELECT u.user_id, decode(u.token_hex, 'hex'), u.valid_token, u.created_at, u.expires_at, u.signed " +
+            "FROM unnest(CAST(:userIds AS varchar[]), CAST(:tokenValues AS text[]), CAST(:validTokens AS boolean[]), " +
+            "            CAST(:createdAts AS timestamp[]), CAST(:expiresAts AS timestamp[]), CAST(:signed AS boolean[])) " +
+            "AS u(user_id, token_hex, valid_token, created_at, expires_at, signed)";
+
+    private static final String INVALIDATE_IF_VALID_SQL =
+            "UPDATE tokens SET valid_token = false, rotated_at = coalesce(:rotatedAt, rotated_at) " +
+            "WHERE token_value = :tokenValue AND valid_token AND (expires_at IS NULL OR expires_at > :now) " +
+            "RETURNING user_id, extract(epoch FROM expires_at - created_at)::bigint AS ttl_seconds, signed, expires_at";
+
+    private static final String INVALIDATE_BY_VALUES_SQL =
+            "UPDATE tokens SET valid_token = false WHERE valid_token " +
+            "AND token_value = ANY (SELECT decode(h, 'hex') FROM unnest(CAST(:tokenValues AS text[])) AS h) " +
+            "RETURNING token_value, user_id, signed, expires_at";
+
+    private static final String INVALIDATE_BY_USER_SQL =
+            "UPDATE tokens SET valid_token = false WHERE valid_token AND user_id = :userId " +
+            "RETURNING token_value, user_id, signed, expires_at";
+
+    private final DatabaseClient databaseClient;
+    private final int fetchSize;
+
+    public ReactiveTokenRepository(DatabaseClient databaseClient,
+                                   @Value("${tokens.reactive.fetch-size:500}") int fetchSize) {
+        this.databaseClient = databaseClient;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Inserts all tokens with a single multi-row INSERT.
+     */
+    public Mono<Void> insertAll(List<Token> tokens) {
+        if (tokens.isEmpty()) {
+            return Mono.empty();
+        }
+        return databaseClient.sql(INSERT_SQL)
+                .bind("userIds", tokens.stream().map(Token::getUserId).toArray(String[]::new))
+                .bind("tokenValues", tokens.stream().map(Token::getTokenValue).toArray(String[]::new))
+                .bind("validTokens", tokens.stream().map(Token::isValidToken).toArray(Boolean[]::new))
+                .bind("createdAts", tokens.stream().map(Token::getCreatedAt).toArray(LocalDateTime[]::new))
+                .bind("expiresAts", tokens.stream().map(Token::getExpiresAt).toArray(LocalDateTime[]::new))
+                .bind("signed", tokens.stream().map(Token::isSigned).toArray(Boolean[]::new))
+                .then();
+    }
+
+    /**
+     * See {@link TokenBulkOperations#invalidateIfValid}; empty if no active token has this hash.
+     */
+    public Mono<InvalidatedToken> invalidateIfValid(String tokenValue, LocalDateTime now, LocalDateTime rotatedAt) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(INVALIDATE_IF_VALID_SQL)
+                .bind("tokenValue", TokenHasher.fromHex(tokenValue))
+                .bind("now", now);
+        spec = rotatedAt == null ? spec.bindNull("rotatedAt", LocalDateTime.class) : spec.bind("rotatedAt", rotatedAt);
+        return spec.map(row -> {
+            Long ttlSeconds = row.get("ttl_seconds", Long.class);
+            return new InvalidatedToken(tokenValue, row.get("user_id", String.class),
+                    ttlSeconds == null ? null : Duration.ofSeconds(ttlSeconds),
+                    Boolean.TRUE.equals(row.get("signed", Boolean.class)), row.get("expires_at", LocalDateTime.class));
+        }).one();
+    }
+
+    /**
+     * See {@link TokenBulkOperations#invalidateAll}.
+     */
+    public Flux<InvalidatedToken> invalidateAll(Collection<String> tokenValues) {
+        if (tokenValues.isEmpty()) {
+            return Flux.empty();
+        }
+        return databaseClient.sql(INVALIDATE_BY_VALUES_SQL)
+                .bind("tokenValues", tokenValues.toArray(String[]::new))
+                .map(ReactiveTokenRepository::invalidatedToken)
+                .all();
+    }
+
+    /**
+     * See {@link TokenBulkOperations#invalidateAllByUserId}.
+     */
+    public Flux<InvalidatedToken> invalidateAllByUserId(String userId) {
+        return databaseClient.sql(INVALIDATE_BY_USER_SQL)
+                .bind("userId", userId)
+                .map(ReactiveTokenRepository::invalidatedToken)
+                .all();
+    }
+
+    public Mono<Boolean> existsByTokenValue(String tokenValue) {
+        return databaseClient.sql("SELECT EXISTS (SELECT 1 FROM tokens WHERE token_value = :tokenValue)")
+                .bind("tokenValue", TokenHasher.fromHex(tokenValue))
+                .map(row -> Boolean.TRUE.equals(row.get(0, Boolean.class)))
+                .one();
+    }
+
+    public Flux<Token> findByUserId(String userId) {
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM tokens WHERE user_id = :userId ORDER BY id")
+                .filter(statement -> statement.fetchSize(fetchSize))
+                .bind("userId", userId)
+                .map(ReactiveTokenRepository::token)
+                .all();
+    }
+
+    public Flux<Token> findActiveByUserId(String userId, LocalDateTime now) {
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM tokens WHERE user_id = :userId AND " + ACTIVE + " ORDER BY id")
+                .filter(statement -> statement.fetchSize(fetchSize))
+                .bind("userId", userId)
+                .bind("now", now)
+                .map(ReactiveTokenRepository::token)
+                .all();
+    }
+
+    /**
+     * Only the columns of an active-token summary, like {@link TokenRepository#findActiveRowsByUserId}.
+     */
+    public Flux<ActiveTokenSummary> findActiveSummariesByUserId(String userId, LocalDateTime now) {
+        return databaseClient.sql("SELECT id, token_value, created_at, expires_at FROM tokens " +
+                        "WHERE user_id = :userId AND " + ACTIVE + " ORDER BY id")
+                .bind("userId", userId)
+                .bind("now", now)
+                .map(row -> new ActiveTokenSummary(row.get("id", Long.class), hex(row),
+                        row.get("created_at", LocalDateTime.class), row.get("expires_at", LocalDateTime.class)))
+                .all();
+    }
+
+    public Flux<Token> findPageByUserId(String userId, long afterId, int limit) {
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM tokens WHERE user_id = :userId AND id > :afterId " +
+                        "ORDER BY id LIMIT :limit")
+                .bind("userId", userId)
+                .bind("afterId", afterId)
+                .bind("limit", limit)
+                .map(ReactiveTokenRepository::token)
+                .all();
+    }
+
+    public Flux<Token> findActivePageByUserId(String userId, long afterId, LocalDateTime now, int limit) {
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM tokens WHERE user_id = :userId AND " + ACTIVE +
+                        " AND id > :afterId ORDER BY id LIMIT :limit")
+                .bind("userId", userId)
+                .bind("now", now)
+                .bind("afterId", afterId)
+                .bind("limit", limit)
+                .map(ReactiveTokenRepository::token)
+                .all();
+    }
+
+    private static Token token(Readable row) {
+        Token token = new Token();
+        token.setId(row.get("id", Long.class));
+        token.setUserId(row.get("user_id", String.class));
+        token.setTokenValue(hex(row));
+        token.setValidToken(Boolean.TRUE.equals(row.get("valid_token", Boolean.class)));
+        token.setCreatedAt(row.get("created_at", LocalDateTime.class));
+        token.setLastUsedAt(row.get("last_used_at", LocalDateTime.class));
+        token.setRotatedAt(row.get("rotated_at", LocalDateTime.class));
+        token.setExpiresAt(row.get("expires_at", LocalDateTime.class));
+        token.setSigned(Boolean.TRUE.equals(row.get("signed", Boolean.class)));
+        return token;
+    }
+
+    private static InvalidatedToken invalidatedToken(Readable row) {
+        return new InvalidatedToken(hex(row), row.get("user_id", String.class), null,
+                Boolean.TRUE.equals(row.get("signed", Boolean.class)), row.get("expires_at", LocalDateTime.class));
+    }
+
+    private static String hex(Readable row) {
+        return TokenHasher.toHex(row.get("token_value", byte[].class));
+    }
+}
@@ -0,0 +1,153 @@
+package org.example.tokenmanager.repository;
+
+import org.example.tokenmanager.model.Token;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Set-based token writes that bypass per-entity JPA handling. Implemented with plain JDBC
+ * in {@link TokenBulkOperationsImpl} and exposed through {@link TokenRepository}.
+ */
+public interface TokenBulkOperations {
+
+    /**
+     * Inserts all tokens with a single JDBC batch.
+     */
+    void insertAll(List<Token> tokens);
+
+    /**
+     * Marks one token invalid if, and only if, it is still valid and not expired at {@code now}.
+     * This is a single conditional UPDATE, so when callers race on the same token exactly one
+     * of them gets the token back.
+     *
+     * @param rotatedAt stored as the rotation time, or {@code null} to leave it unset
+     * @return the token's owner and TTL, or empty if no active token has this hash
+     */
+    Optional<InvalidatedToken> invalidateIfValid(String tokenValue, LocalDateTime now, LocalDateTime rotatedAt);
+
+    /**
+     * Marks every still-valid token among the given hashes as invalid in one statement.
+     *
+     * @return the tokens that were actually invalidated by this call
+     */
+    List<InvalidatedToken> invalidateAll(Collection<String> tokenValues);
+
+    /**
+     * Marks every valid token of a user as invalid in one statement.
+     *
+     * @return the tokens that were invalidated by this call
+     */
+    List<InvalidatedToken> invalidateAllByUserId(String userId);
+
+    /**
+     * Sets {@code last_used_at} for many tokens with a single UPDATE. A stored time that is
+     * already later (written by another instance) is kept.
+     *
+     * @param lastUsed epoch millis of the latest use, keyed by token hash
+     * @return the number of rows updated
+     */
+    int updateLastUsed(Map<String, Long> lastUsed);
+
+    /**
+     * Moves up to {@code limit} tokens that expired at or before {@code now} into
+     * {@code tokens_archive}, oldest expiry first. Rows locked by a concurrent sweep are
+     * skipped, so sweepers on several instances never wait on each other.
+     *
+     * @return every archived token; fewer than {@code limit} means nothing else is due
+     */
+    List<ExpiredToken> archiveExpired(LocalDateTime now, int limit);
+
+    /**
+     * Counts the active tokens of each of the given users in one query.
+     *
+     * @return counts by user; users without active tokens are left out
+     */
+    Map<String, Long> countActiveByUser(Collection<String> userIds, LocalDateTime now);
+
+    /**
+     * Releases a token read from a stream once the caller is done with it, so a long stream
+     * keeps memory flat.
+     */
+    void detach(Token token);
+
+    class InvalidatedToken {
+        private final String tokenValue;
+        private final String userId;
+        // Lifetime the token was issued with; null if it never expires
+        private final Duration ttl;
+        private final boolean signed;
+        private final LocalDateTime expiresAt;
+
+        public InvalidatedToken(String tokenValue, String userId) {
+            this(tokenValue, userId, null);
+        }
+
+        public InvalidatedToken(String tokenValue, String userId, Duration ttl) {
+            this(tokenValue, userId, ttl, false, null);
+        }
+
+        public InvalidatedToken(String tokenValue, String userId, Duration ttl, boolean signed, LocalDateTime expiresAt) {
+            this.tokenValue = tokenValue;
+            this.userId = userId;
+            this.ttl = ttl;
+            this.signed = signed;
+            this.expiresAt = expiresAt;
+        }
+
+        public String getTokenValue() {
+            return tokenValue;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        /**
+         * Whether this is a signed token, which stays verifiable until {@link #getExpiresAt()}
+         * and so must be put on the revocation list.
+         */
+        public boolean isSigned() {
+            return signed;
+        }
+
+        public LocalDateTime getExpiresAt() {
+            return expiresAt;
+        }
+    }
+
+    class ExpiredToken {
+        private final String tokenValue;
+        private final String userId;
+        private final boolean valid;
+
+        public ExpiredToken(String tokenValue, String userId, boolean valid) {
+            this.tokenValue = tokenValue;
+            this.userId = userId;
+            this.valid = valid;
+        }
+
+        public String getTokenValue() {
+            return tokenValue;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        /**
+         * Whether the token was still valid when it was archived, i.e. expired rather than revoked.
+         */
+        public boolean isValid() {
+            return valid;
+        }
+    }
+}
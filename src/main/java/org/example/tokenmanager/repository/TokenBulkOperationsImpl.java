@@ -0,0 +1,176 @@
+package org.example.tokenmanager.repository;
+
+import jakarta.persistence.EntityManager;
+import org.example.tokenmanager.model.Token;
+import org.example.tokenmanager.util.TokenHasher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+class TokenBulkOperationsImpl implements TokenBulkOperations {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO tokens (user_id, token_value, valid_token, created_at, expires_at, signed) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String INVALIDATE_IF_VALID_SQL =
+            "UPDATE tokens SET valid_token = false, rotated_at = coalesce(?, rotated_at) " +
+            "WHERE token_value = ? AND valid_token AND (expires_at IS NULL OR expires_at > ?) " +
+            "RETURNING user_id, extract(epoch FROM expires_at - created_at)::bigint AS ttl_seconds, signed, expires_at";
+
+    private static final String INVALIDATE_BY_VALUES_SQL =
+            "UPDATE tokens SET valid_token = false WHERE valid_token AND token_value = ANY (?) " +
+            "RETURNING token_value, user_id, signed, expires_at";
+
+    private static final String INVALIDATE_BY_USER_SQL =
+            "UPDATE tokens SET valid_token = false WHERE valid_token AND user_id = ? " +
+            "RETURNING token_value, user_id, signed, expires_at";
+
+    private static final String UPDATE_LAST_USED_SQL =
+            "UPDATE tokens t SET last_used_at = u.used_at " +
+            "FROM unnest(?::bytea[], ?::timestamp[]) AS u(token_value, used_at) " +
+            "WHERE t.token_value = u.token_value AND (t.last_used_at IS NULL OR t.last_used_at < u.used_at)";
+
+    // Lock a bounded slice through idx_tokens_expires_at, move it to the archive.
+    private static final String ARCHIVE_EXPIRED_SQL =
+            "WITH expired AS (" +
+            "  SELECT id FROM tokens WHERE expires_at <= ? ORDER BY expires_at LIMIT ? FOR UPDATE SKIP LOCKED" +
+            "), moved AS (" +
+            "  DELETE FROM tokens t USING expired e WHERE t.id = e.id " +
+            "  RETURNING t.id, t.user_id, t.token_value, t.valid_token, t.created_at, t.last_used_at, t.rotated_at, t.expires_at, t.signed" +
+            "), archived AS (" +
+            "  INSERT INTO tokens_archive " +
+            "  (id, user_id, token_value, valid_token, created_at, last_used_at, rotated_at, expires_at, signed, archived_at) " +
+            "  SELECT id, user_id, token_value, valid_token, created_at, last_used_at, rotated_at, expires_at, signed, ? FROM moved" +
+            ") SELECT token_value, user_id, valid_token FROM moved";
+
+    private static final String COUNT_ACTIVE_BY_USER_SQL =
+            "SELECT user_id, count(*) FROM tokens WHERE valid_token AND (expires_at IS NULL OR expires_at > ?) " +
+            "AND user_id = ANY (?) GROUP BY user_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+
+    TokenBulkOperationsImpl(JdbcTemplate jdbcTemplate, EntityManager entityManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public void insertAll(List<Token> tokens) {
+        if (tokens.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, tokens, tokens.size(), (ps, token) -> {
+            ps.setString(1, token.getUserId());
+            ps.setBytes(2, TokenHasher.fromHex(token.getTokenValue()));
+            ps.setBoolean(3, token.isValidToken());
+            ps.setTimestamp(4, Timestamp.valueOf(token.getCreatedAt()));
+            ps.setObject(5, token.getExpiresAt() == null ? null : Timestamp.valueOf(token.getExpiresAt()), Types.TIMESTAMP);
+            ps.setBoolean(6, token.isSigned());
+        });
+    }
+
+    @Override
+    public Optional<InvalidatedToken> invalidateIfValid(String tokenValue, LocalDateTime now, LocalDateTime rotatedAt) {
+        List<InvalidatedToken> tokens = jdbcTemplate.query(INVALIDATE_IF_VALID_SQL, ps -> {
+            ps.setObject(1, rotatedAt == null ? null : Timestamp.valueOf(rotatedAt), Types.TIMESTAMP);
+            ps.setBytes(2, TokenHasher.fromHex(tokenValue));
+            ps.setTimestamp(3, Timestamp.valueOf(now));
+        }, (rs, rowNum) -> {
+            long ttlSeconds = rs.getLong("ttl_seconds");
+            Duration ttl = rs.wasNull() ? null : Duration.ofSeconds(ttlSeconds);
+            return new InvalidatedToken(tokenValue, rs.getString("user_id"), ttl,
+                    rs.getBoolean("signed"), toLocalDateTime(rs.getTimestamp("expires_at")));
+        });
+        return tokens.stream().findFirst();
+    }
+
+    @Override
+    public List<InvalidatedToken> invalidateAll(Collection<String> tokenValues) {
+        if (tokenValues.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(INVALIDATE_BY_VALUES_SQL);
+            Array values = con.createArrayOf("bytea", tokenValues.stream().map(TokenHasher::fromHex).toArray(byte[][]::new));
+            ps.setArray(1, values);
+            return ps;
+        }, TokenBulkOperationsImpl::invalidatedToken);
+    }
+
+    @Override
+    public List<InvalidatedToken> invalidateAllByUserId(String userId) {
+        return jdbcTemplate.query(INVALIDATE_BY_USER_SQL, TokenBulkOperationsImpl::invalidatedToken, userId);
+    }
+
+    @Override
+    public int updateLastUsed(Map<String, Long> lastUsed) {
+        if (lastUsed.isEmpty()) {
+            return 0;
+        }
+        // Sorted, so concurrent flushes from several instances lock rows in the same order.
+        List<Map.Entry<String, Long>> entries = lastUsed.entrySet().stream().sorted(Map.Entry.comparingByKey()).toList();
+        return jdbcTemplate.execute((Connection con) -> {
+            try (PreparedStatement ps = con.prepareStatement(UPDATE_LAST_USED_SQL)) {
+                ps.setArray(1, con.createArrayOf("bytea",
+                        entries.stream().map(entry -> TokenHasher.fromHex(entry.getKey())).toArray(byte[][]::new)));
+                ps.setArray(2, con.createArrayOf("timestamp",
+                        entries.stream().map(entry -> new Timestamp(entry.getValue())).toArray(Timestamp[]::new)));
+                return ps.executeUpdate();
+            }
+        });
+    }
+
+    @Override
+    public List<ExpiredToken> archiveExpired(LocalDateTime now, int limit) {
+        return jdbcTemplate.query(ARCHIVE_EXPIRED_SQL, ps -> {
+            ps.setTimestamp(1, Timestamp.valueOf(now));
+            ps.setInt(2, limit);
+            ps.setTimestamp(3, Timestamp.valueOf(now));
+        }, (rs, rowNum) -> new ExpiredToken(
+                TokenHasher.toHex(rs.getBytes("token_value")), rs.getString("user_id"), rs.getBoolean("valid_token")));
+    }
+
+    @Override
+    public Map<String, Long> countActiveByUser(Collection<String> userIds, LocalDateTime now) {
+        Map<String, Long> counts = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return counts;
+        }
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(COUNT_ACTIVE_BY_USER_SQL);
+            ps.setTimestamp(1, Timestamp.valueOf(now));
+            ps.setArray(2, con.createArrayOf("varchar", userIds.toArray()));
+            return ps;
+        }, (RowCallbackHandler) rs -> counts.put(rs.getString(1), rs.getLong(2)));
+        return counts;
+    }
+
+    @Override
+    public void detach(Token token) {
+        entityManager.detach(token);
+    }
+
+    private static InvalidatedToken invalidatedToken(ResultSet rs, int rowNum) throws SQLException {
+        return new InvalidatedToken(TokenHasher.toHex(rs.getBytes("token_value")), rs.getString("user_id"), null,
+                rs.getBoolean("signed"), toLocalDateTime(rs.getTimestamp("expires_at")));
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime();
+    }
+}
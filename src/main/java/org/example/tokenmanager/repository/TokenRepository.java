@@ -1,16 +1,78 @@
 package org.example.tokenmanager.repository;
 
+import jakarta.persistence.QueryHint;
 import org.example.tokenmanager.model.Token;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface TokenRepository extends JpaRepository<Token, Long> {
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
+public interface TokenRepository extends JpaRepository<Token, Long>, TokenBulkOperations, TokenStore {
+
+    // Inherited from both CrudRepository and TokenStore; declared once here so calls resolve.
+    @Override
+    <S extends Token> S save(S token);
 
     Optional<Token> findByTokenValue(String tokenValue);
 
+    boolean existsByTokenValue(String tokenValue);
+
     List<Token> findByUserId(String userId);
 
-    List<Token> findByUserIdAndValidTokenTrue(String userId);
+    // Active: valid and not yet expired at :now. Only the columns of an active-token summary, no entities.
+    @Query("select t.id as id, t.tokenValue as tokenValue, t.createdAt as createdAt, t.expiresAt as expiresAt " +
+            "from Token t where t.userId = :userId and t.validToken = true " +
+            "and (t.expiresAt is null or t.expiresAt > :now) order by t.id asc")
+    List<ActiveTokenRow> findActiveRowsByUserId(String userId, LocalDateTime now);
+
+    List<Token> findByUserIdAndIdGreaterThanOrderByIdAsc(String userId, long afterId, Limit limit);
+
+    @Query("select t from Token t where t.userId = :userId and t.validToken = true " +
+            "and (t.expiresAt is null or t.expiresAt > :now) and t.id > :afterId order by t.id asc")
+    List<Token> findActivePageByUserId(String userId, long afterId, LocalDateTime now, Limit limit);
+
+    // Stream methods must be consumed inside a transaction; rows are read with a server-side cursor.
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    Stream<Token> streamByUserIdOrderByIdAsc(String userId);
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("select t from Token t where t.userId = :userId and t.validToken = true " +
+            "and (t.expiresAt is null or t.expiresAt > :now) order by t.id asc")
+    Stream<Token> streamActiveByUserId(String userId, LocalDateTime now);
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("select t.tokenValue as tokenValue, t.userId as userId, t.expiresAt as expiresAt " +
+            "from Token t where t.validToken = true and t.signed = false")
+    Stream<ValidTokenRow> streamValidTokens();
+
+    // Signed tokens that were invalidated before their expiry; they pass signature checks until then.
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("select t.tokenValue as tokenValue, t.expiresAt as expiresAt " +
+            "from Token t where t.signed = true and t.validToken = false and t.expiresAt > :now")
+    Stream<RevokedTokenRow> streamRevokedSignedTokens(LocalDateTime now);
+
+    // Every issued opaque token, valid or not. Signed tokens are recognised by their signature instead.
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("select t.tokenValue from Token t where t.signed = false")
+    Stream<String> streamAllTokenValues();
+
+    // Every opaque token, for a snapshot of the token index and issued-token filter.
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("select t.tokenValue as tokenValue, t.userId as userId, t.validToken as validToken, t.expiresAt as expiresAt " +
+            "from Token t where t.signed = false")
+    Stream<TokenStateRow> streamTokenStates();
+
+    // Opaque tokens created, invalidated or given a new expiry after :since (UTC), via idx_tokens_state_changed_at.
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("select t.tokenValue as tokenValue, t.userId as userId, t.validToken as validToken, t.expiresAt as expiresAt " +
+            "from Token t where t.signed = false and t.stateChangedAt > :since")
+    Stream<TokenStateRow> streamTokenStatesChangedSince(LocalDateTime since);
 }
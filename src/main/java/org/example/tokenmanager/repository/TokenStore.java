@@ -0,0 +1,94 @@
+package org.example.tokenmanager.repository;
+
+import org.example.tokenmanager.model.Token;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Token storage as the service layer sees it. {@link TokenRepository} implements it on
+ * PostgreSQL through JPA and {@link TokenBulkOperationsImpl}; with {@code tokens.store=mmap}
+ * the embedded {@link org.example.tokenmanager.repository.mmap.MmapTokenStore} does.
+ * <p>
+ * "Active" means valid and not expired at the given time. Listings are ordered by id.
+ */
+public interface TokenStore extends TokenBulkOperations {
+
+    /**
+     * Stores a new token and assigns its id.
+     */
+    <S extends Token> S save(S token);
+
+    long count();
+
+    Optional<Token> findByTokenValue(String tokenValue);
+
+    boolean existsByTokenValue(String tokenValue);
+
+    List<Token> findByUserId(String userId);
+
+    List<ActiveTokenRow> findActiveRowsByUserId(String userId, LocalDateTime now);
+
+    /**
+     * Keyset pagination: pass the id of the last row of the previous page (0 for the first page).
+     */
+    List<Token> findByUserIdAndIdGreaterThanOrderByIdAsc(String userId, long afterId, Limit limit);
+
+    List<Token> findActivePageByUserId(String userId, long afterId, LocalDateTime now, Limit limit);
+
+    /**
+     * Stream methods must be consumed inside a transaction and closed afterwards.
+     */
+    Stream<Token> streamByUserIdOrderByIdAsc(String userId);
+
+    Stream<Token> streamActiveByUserId(String userId, LocalDateTime now);
+
+    /**
+     * Every valid opaque token, expired or not.
+     */
+    Stream<ValidTokenRow> streamValidTokens();
+
+    /**
+     * Signed tokens that were invalidated and have not expired at {@code now}.
+     */
+    Stream<RevokedTokenRow> streamRevokedSignedTokens(LocalDateTime now);
+
+    /**
+     * Hashes of every opaque token still stored, valid or not.
+     */
+    Stream<String> streamAllTokenValues();
+
+    interface ActiveTokenRow {
+        Long getId();
+
+        String getTokenValue();
+
+        LocalDateTime getCreatedAt();
+
+        LocalDateTime getExpiresAt();
+    }
+
+    interface ValidTokenRow {
+        String getTokenValue();
+
+        String getUserId();
+
+        LocalDateTime getExpiresAt();
+    }
+
+    /**
+     * An opaque token as the in-memory index and issued-token filter see it.
+     */
+    interface TokenStateRow extends ValidTokenRow {
+        boolean isValidToken();
+    }
+
+    interface RevokedTokenRow {
+        String getTokenValue();
+
+        LocalDateTime getExpiresAt();
+    }
+}
@@ -0,0 +1,55 @@
+package org.example.tokenmanager.repository.mmap;
+
+import jakarta.annotation.PreDestroy;
+import org.example.tokenmanager.model.AuditLog;
+import org.example.tokenmanager.repository.AuditLogWriter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Audit entries of the embedded store ({@code tokens.store=mmap}), appended to their own
+ * {@link MmapLog} next to the token log. The audit log is never compacted: every entry is kept.
+ */
+@Component
+@ConditionalOnProperty(name = "tokens.store", havingValue = "mmap")
+public class MmapAuditLogWriter implements AuditLogWriter {
+
+    private static final String NAME = "audit";
+
+    private final MmapLog log;
+    private final boolean sync;
+
+    public MmapAuditLogWriter(@Value("${tokens.store.mmap.dir:data}") Path dir,
+                              @Value("${tokens.store.mmap.segment-bytes:67108864}") int segmentBytes,
+                              @Value("${tokens.store.mmap.sync:false}") boolean sync) {
+        this.log = MmapLog.open(dir, NAME, 0, segmentBytes);
+        this.sync = sync;
+    }
+
+    @Override
+    public synchronized void insertAll(List<AuditLog> logs) {
+        for (AuditLog entry : logs) {
+            log.append(Records.audit(entry));
+        }
+        if (sync) {
+            log.sync();
+        }
+    }
+
+    /**
+     * Hands every stored entry to {@code consumer}, oldest first.
+     */
+    public synchronized void forEach(Consumer<AuditLog> consumer) {
+        log.forEach((offset, body) -> consumer.accept(Records.toAuditLog(body)));
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        log.sync();
+    }
+}
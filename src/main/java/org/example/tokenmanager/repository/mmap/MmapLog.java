@@ -0,0 +1,359 @@
+package org.example.tokenmanager.repository.mmap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only record log over memory-mapped segment files {@code <name>-<generation>-<seq>.log}.
+ * Segments are created at full size and mapped read-write; a record is
+ * {@code [int length][int crc32c][body]}, and the body and checksum are written before the
+ * length, so a record whose length is visible was written completely. A zero length marks the
+ * end of a segment's records.
+ * <p>
+ * Opening a log checks every record. A torn record at the end of the last segment (the process
+ * died mid-write) is cut off and zeroed; a bad record anywhere else means the files were damaged
+ * and fails the open. Records are addressed by {@code (segment << 32) | position} and never move, so
+ * a body read from a log stays valid after later appends, and even after the log has been
+ * replaced by a compacted generation.
+ * <p>
+ * Generations: a compacting owner writes the live records into a fresh generation, then
+ * {@link #commitGeneration commits} it by atomically replacing the {@code <name>.generation}
+ * file. Whatever generation that file does not name is left over and deleted on open.
+ * <p>
+ * Not thread-safe for appends; reads may run concurrently with each other and with appends.
+ */
+final class MmapLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(MmapLog.class);
+
+    static final int HEADER_BYTES = 8;
+    // Generous bound on one record; also how far past a torn record recovery zeroes.
+    static final int MAX_RECORD_BYTES = 64 * 1024;
+
+    private final Path dir;
+    private final String name;
+    private final long generation;
+    private final int segmentBytes;
+    private final Pattern segmentPattern;
+
+    // Replaced, never mutated, so readers need no lock to look up a segment.
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+    private int appendPosition;
+    private long bytes;
+    private int unsyncedSegment;
+    private int unsyncedPosition;
+
+    private MmapLog(Path dir, String name, long generation, int segmentBytes) {
+        if (segmentBytes < HEADER_BYTES + MAX_RECORD_BYTES) {
+            throw new IllegalArgumentException("Segments must be at least " + (HEADER_BYTES + MAX_RECORD_BYTES) + " bytes.");
+        }
+        this.dir = dir;
+        this.name = name;
+        this.generation = generation;
+        this.segmentBytes = segmentBytes;
+        this.segmentPattern = Pattern.compile(Pattern.quote(name) + "-(\\d+)-(\\d+)\\.log");
+    }
+
+    /**
+     * Opens (or starts) the given generation, cutting off a torn tail.
+     */
+    static MmapLog open(Path dir, String name, long generation, int segmentBytes) {
+        MmapLog log = new MmapLog(dir, name, generation, segmentBytes);
+        try {
+            Files.createDirectories(dir);
+            log.recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open " + name + " log in " + dir, e);
+        }
+        return log;
+    }
+
+    /**
+     * Starts an empty generation, discarding any files a failed compaction left under its number.
+     */
+    static MmapLog create(Path dir, String name, long generation, int segmentBytes) {
+        MmapLog log = new MmapLog(dir, name, generation, segmentBytes);
+        log.deleteFiles(generation);
+        return open(dir, name, generation, segmentBytes);
+    }
+
+    /**
+     * The generation named by the {@code <name>.generation} file, or 0 if there is none yet.
+     */
+    static long currentGeneration(Path dir, String name) {
+        Path file = dir.resolve(name + ".generation");
+        try {
+            return Files.exists(file) ? Long.parseLong(Files.readString(file, StandardCharsets.US_ASCII).trim()) : 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + file, e);
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Corrupt generation file " + file, e);
+        }
+    }
+
+    static void commitGeneration(Path dir, String name, long generation) {
+        Path file = dir.resolve(name + ".generation");
+        Path temp = dir.resolve(name + ".generation.tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.wrap(Long.toString(generation).getBytes(StandardCharsets.US_ASCII)));
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write " + temp, e);
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot commit generation " + generation + " of " + name, e);
+        }
+    }
+
+    long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Appends the remaining bytes of {@code body} as one record.
+     *
+     * @return the record's offset
+     */
+    long append(ByteBuffer body) {
+        int length = body.remaining();
+        if (length == 0 || length > MAX_RECORD_BYTES) {
+            throw new IllegalArgumentException("Record of " + length + " bytes is out of range.");
+        }
+        MappedByteBuffer[] current = segments;
+        if (current.length == 0 || appendPosition + HEADER_BYTES + length > current[current.length - 1].capacity()) {
+            addSegment();
+        }
+        int segment = segments.length - 1;
+        MappedByteBuffer buffer = segments[segment];
+        int position = appendPosition;
+        CRC32C crc = new CRC32C();
+        crc.update(body.duplicate());
+        buffer.put(position + HEADER_BYTES, body, body.position(), length);
+        buffer.putInt(position + 4, (int) crc.getValue());
+        // Last: from here on the record counts as written.
+        buffer.putInt(position, length);
+        appendPosition = position + HEADER_BYTES + length;
+        bytes += HEADER_BYTES + length;
+        return ((long) segment << 32) | position;
+    }
+
+    /**
+     * The body of the record at {@code offset}, as a read-only buffer of its own.
+     */
+    ByteBuffer read(long offset) {
+        MappedByteBuffer buffer = segments[(int) (offset >>> 32)];
+        int position = (int) offset;
+        return buffer.slice(position + HEADER_BYTES, buffer.getInt(position)).asReadOnlyBuffer();
+    }
+
+    /**
+     * Hands every record to {@code visitor} in write order. Must not run concurrently with appends.
+     */
+    void forEach(RecordVisitor visitor) {
+        MappedByteBuffer[] current = segments;
+        for (int segment = 0; segment < current.length; segment++) {
+            MappedByteBuffer buffer = current[segment];
+            int position = 0;
+            int length;
+            while (position + HEADER_BYTES <= buffer.capacity() && (length = buffer.getInt(position)) != 0) {
+                visitor.visit(((long) segment << 32) | position, buffer.slice(position + HEADER_BYTES, length).asReadOnlyBuffer());
+                position += HEADER_BYTES + length;
+            }
+        }
+    }
+
+    /**
+     * Bytes taken up by the record at {@code offset}, header included.
+     */
+    int recordBytes(long offset) {
+        return HEADER_BYTES + segments[(int) (offset >>> 32)].getInt((int) offset);
+    }
+
+    /**
+     * Bytes of all records in this generation, headers included.
+     */
+    long size() {
+        return bytes;
+    }
+
+    /**
+     * Forces records appended since the last sync to the storage device.
+     */
+    void sync() {
+        MappedByteBuffer[] current = segments;
+        for (int segment = unsyncedSegment; segment < current.length; segment++) {
+            int from = segment == unsyncedSegment ? unsyncedPosition : 0;
+            int to = segment == current.length - 1 ? appendPosition : current[segment].capacity();
+            if (to > from) {
+                current[segment].force(from, to - from);
+            }
+        }
+        unsyncedSegment = Math.max(0, current.length - 1);
+        unsyncedPosition = appendPosition;
+    }
+
+    /**
+     * Deletes this generation's files. Buffers already mapped stay readable.
+     */
+    void delete() {
+        deleteFiles(generation);
+    }
+
+    private void recover() throws IOException {
+        List<Path> files = segmentFiles();
+        List<MappedByteBuffer> mapped = new ArrayList<>(files.size());
+        for (int segment = 0; segment < files.size(); segment++) {
+            MappedByteBuffer buffer = map(files.get(segment), -1);
+            boolean last = segment == files.size() - 1;
+            int position = 0;
+            while (position + HEADER_BYTES <= buffer.capacity()) {
+                int length = buffer.getInt(position);
+                if (length == 0) {
+                    break;
+                }
+                if (!intact(buffer, position, length)) {
+                    if (!last) {
+                        throw new IllegalStateException("Corrupt record in " + files.get(segment) + " at " + position);
+                    }
+                    logger.warn("Discarding a torn record at the end of {} (position {})", files.get(segment), position);
+                    break;
+                }
+                position += HEADER_BYTES + length;
+                bytes += HEADER_BYTES + length;
+            }
+            if (last) {
+                // Zero whatever an interrupted append left behind, so it cannot be mistaken for a record later.
+                int end = (int) Math.min(buffer.capacity(), (long) position + HEADER_BYTES + MAX_RECORD_BYTES);
+                for (int i = position; i < end; i++) {
+                    buffer.put(i, (byte) 0);
+                }
+                appendPosition = position;
+            }
+            mapped.add(buffer);
+        }
+        segments = mapped.toArray(new MappedByteBuffer[0]);
+        unsyncedSegment = Math.max(0, segments.length - 1);
+        unsyncedPosition = appendPosition;
+    }
+
+    private static boolean intact(MappedByteBuffer buffer, int position, int length) {
+        if (length < 0 || length > MAX_RECORD_BYTES || length > buffer.capacity() - position - HEADER_BYTES) {
+            return false;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(position + HEADER_BYTES, length));
+        return (int) crc.getValue() == buffer.getInt(position + 4);
+    }
+
+    private void addSegment() {
+        MappedByteBuffer[] current = segments;
+        Path file = dir.resolve(String.format("%s-%d-%06d.log", name, generation, current.length));
+        try {
+            MappedByteBuffer buffer = map(file, segmentBytes);
+            MappedByteBuffer[] grown = Arrays.copyOf(current, current.length + 1);
+            grown[current.length] = buffer;
+            segments = grown;
+            appendPosition = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create " + file, e);
+        }
+    }
+
+    private static MappedByteBuffer map(Path file, int size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            // An existing segment keeps the size it was created with.
+            long length = size < 0 ? channel.size() : size;
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+        }
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> paths = Files.list(dir)) {
+            paths.forEach(path -> {
+                Matcher matcher = segmentPattern.matcher(path.getFileName().toString());
+                if (matcher.matches() && Long.parseLong(matcher.group(1)) == generation) {
+                    files.add(path);
+                }
+            });
+        }
+        files.sort(null);
+        for (int i = 0; i < files.size(); i++) {
+            Matcher matcher = segmentPattern.matcher(files.get(i).getFileName().toString());
+            if (!matcher.matches() || Integer.parseInt(matcher.group(2)) != i) {
+                throw new IllegalStateException("Segment " + i + " of the " + name + " log is missing in " + dir);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Deletes the files of every generation but this one.
+     */
+    void deleteOtherGenerations() {
+        try (Stream<Path> paths = Files.list(dir)) {
+            paths.forEach(path -> {
+                Matcher matcher = segmentPattern.matcher(path.getFileName().toString());
+                if (matcher.matches() && Long.parseLong(matcher.group(1)) != generation) {
+                    deleteQuietly(path);
+                }
+            });
+        } catch (IOException e) {
+            logger.warn("Cannot list {} to remove old {} segments: {}", dir, name, e.getMessage());
+        }
+    }
+
+    private void deleteFiles(long generationToDelete) {
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.list(dir)) {
+            paths.forEach(path -> {
+                Matcher matcher = segmentPattern.matcher(path.getFileName().toString());
+                if (matcher.matches() && Long.parseLong(matcher.group(1)) == generationToDelete) {
+                    deleteQuietly(path);
+                }
+            });
+        } catch (IOException e) {
+            logger.warn("Cannot list {} to remove {} segments: {}", dir, name, e.getMessage());
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Cannot delete {}: {}", path, e.getMessage());
+        }
+    }
+
+    @FunctionalInterface
+    interface RecordVisitor {
+        /**
+         * @param body the record's body; valid for as long as the log's files are mapped
+         */
+        void visit(long offset, ByteBuffer body);
+    }
+}
@@ -0,0 +1,636 @@
+package org.example.tokenmanager.repository.mmap;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.example.tokenmanager.model.Token;
+import org.example.tokenmanager.repository.TokenStore;
+import org.example.tokenmanager.util.TokenHasher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Embedded token store for deployments without PostgreSQL ({@code tokens.store=mmap}). Every
+ * change appends a record with the token's full state to an {@link MmapLog} under
+ * {@code tokens.store.mmap.dir}; an {@link OffHeapHashIndex} maps each token hash to its latest
+ * record, and per-user and expiry indexes live on the heap. Opening the store replays the log,
+ * so a restart costs one sequential read of the live data.
+ * <p>
+ * Superseded records are dead weight until compaction copies the live ones into a new log
+ * generation, once dead bytes pass both {@code compaction.min-dead-bytes} and
+ * {@code compaction.dead-ratio} of the log. Compaction blocks writers, not readers.
+ * <p>
+ * Writes are applied immediately: there is no rollback, so a failure in the middle of a
+ * multi-step operation such as a rotation leaves the steps before it in place. Records survive
+ * a crash of the process; with {@code tokens.store.mmap.sync=false} the last writes before a
+ * power loss may not. Streams read an immutable snapshot and need no transaction.
+ */
+@Component
+@ConditionalOnProperty(name = "tokens.store", havingValue = "mmap")
+public class MmapTokenStore implements TokenStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(MmapTokenStore.class);
+    private static final String NAME = "tokens";
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final boolean sync;
+    private final long compactionMinDeadBytes;
+    private final double compactionDeadRatio;
+    private final Counter compactions;
+
+    // Mutations and compaction take the writer lock first, then the write lock for the
+    // moment they change what readers see.
+    private final ReentrantLock writer = new ReentrantLock();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile MmapLog log;
+    private volatile OffHeapHashIndex index;
+    // userId -> token id -> record offset
+    private Map<String, TreeMap<Long, Long>> byUser = new HashMap<>();
+    // Tokens that expire, soonest first
+    private final TreeSet<Expiry> expiries = new TreeSet<>();
+    private long nextId = 1;
+    private volatile long liveBytes;
+
+    public MmapTokenStore(@Value("${tokens.store.mmap.dir:data}") Path dir,
+                          @Value("${tokens.store.mmap.segment-bytes:67108864}") int segmentBytes,
+                          @Value("${tokens.store.mmap.sync:false}") boolean sync,
+                          @Value("${tokens.store.mmap.compaction.min-dead-bytes:67108864}") long compactionMinDeadBytes,
+                          @Value("${tokens.store.mmap.compaction.dead-ratio:0.5}") double compactionDeadRatio,
+                          MeterRegistry meterRegistry) {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.sync = sync;
+        this.compactionMinDeadBytes = compactionMinDeadBytes;
+        this.compactionDeadRatio = compactionDeadRatio;
+        open();
+        Gauge.builder("tokens.store.log.size", this, store -> store.log.size())
+                .description("Bytes in the current generation of the token log")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("tokens.store.live.size", this, store -> store.liveBytes)
+                .description("Bytes of the token log that hold current token state")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("tokens.store.index.memory", this, store -> store.index.memoryBytes())
+                .description("Off-heap memory of the token hash index")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.compactions = Counter.builder("tokens.store.compactions")
+                .description("Compactions of the token log")
+                .register(meterRegistry);
+    }
+
+    private void open() {
+        long start = System.currentTimeMillis();
+        long generation = MmapLog.currentGeneration(dir, NAME);
+        log = MmapLog.open(dir, NAME, generation, segmentBytes);
+        // Left over from a compaction that crashed, or finished without cleaning up.
+        log.deleteOtherGenerations();
+        index = new OffHeapHashIndex(0);
+        log.forEach(this::replay);
+        long[] live = {0};
+        index.forEachValue(offset -> live[0] += log.recordBytes(offset));
+        liveBytes = live[0];
+        logger.info("Token store opened with {} tokens ({} KiB live of {} KiB, generation {}) in {} ms",
+                index.size(), liveBytes / 1024, log.size() / 1024, generation, System.currentTimeMillis() - start);
+    }
+
+    private void replay(long offset, ByteBuffer body) {
+        switch (Records.type(body)) {
+            case Records.TOKEN -> {
+                long id = Records.id(body);
+                if (index.put(Records.hash(body), offset) < 0) {
+                    long expiresAt = Records.expiresAt(body);
+                    if (expiresAt != Records.NULL_TIME) {
+                        expiries.add(new Expiry(expiresAt, id, Records.hash(body)));
+                    }
+                }
+                byUser.computeIfAbsent(Records.userId(body), user -> new TreeMap<>()).put(id, offset);
+                nextId = Math.max(nextId, id + 1);
+            }
+            case Records.REMOVED -> {
+                long previous = index.remove(Records.hash(body));
+                if (previous >= 0) {
+                    ByteBuffer token = log.read(previous);
+                    removeFromUser(token);
+                    expiries.remove(new Expiry(Records.expiresAt(token), Records.id(token), null));
+                }
+            }
+            case Records.NEXT_ID -> nextId = Math.max(nextId, Records.nextIdOf(body));
+            default -> throw new IllegalStateException("Unknown record type " + Records.type(body) + " in the token log");
+        }
+    }
+
+    @Override
+    public <S extends Token> S save(S token) {
+        insertAll(List.of(token));
+        return token;
+    }
+
+    @Override
+    public void insertAll(List<Token> tokens) {
+        if (tokens.isEmpty()) {
+            return;
+        }
+        mutate(() -> {
+            Set<String> batch = new HashSet<>();
+            for (Token token : tokens) {
+                if (!batch.add(token.getTokenValue()) || index.get(TokenHasher.fromHex(token.getTokenValue())) >= 0) {
+                    throw new DataIntegrityViolationException("Duplicate token value");
+                }
+            }
+            for (Token token : tokens) {
+                if (token.getId() == null) {
+                    token.setId(nextId++);
+                } else {
+                    nextId = Math.max(nextId, token.getId() + 1);
+                }
+                write(token);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public long count() {
+        return read(() -> (long) index.size());
+    }
+
+    @Override
+    public Optional<Token> findByTokenValue(String tokenValue) {
+        byte[] hash = TokenHasher.fromHex(tokenValue);
+        return read(() -> {
+            long offset = index.get(hash);
+            return offset < 0 ? Optional.empty() : Optional.of(Records.toToken(log.read(offset)));
+        });
+    }
+
+    @Override
+    public boolean existsByTokenValue(String tokenValue) {
+        byte[] hash = TokenHasher.fromHex(tokenValue);
+        return read(() -> index.get(hash) >= 0);
+    }
+
+    @Override
+    public List<Token> findByUserId(String userId) {
+        return read(() -> {
+            List<Token> tokens = new ArrayList<>();
+            for (long offset : userTokens(userId).values()) {
+                tokens.add(Records.toToken(log.read(offset)));
+            }
+            return tokens;
+        });
+    }
+
+    @Override
+    public List<ActiveTokenRow> findActiveRowsByUserId(String userId, LocalDateTime now) {
+        return read(() -> {
+            List<ActiveTokenRow> rows = new ArrayList<>();
+            for (Token token : activeTokens(userId, 0, Records.toMicros(now), Integer.MAX_VALUE)) {
+                rows.add(new Row(token));
+            }
+            return rows;
+        });
+    }
+
+    @Override
+    public List<Token> findByUserIdAndIdGreaterThanOrderByIdAsc(String userId, long afterId, Limit limit) {
+        int max = limit.isLimited() ? limit.max() : Integer.MAX_VALUE;
+        return read(() -> {
+            List<Token> tokens = new ArrayList<>();
+            for (long offset : userTokens(userId).tailMap(afterId, false).values()) {
+                if (tokens.size() == max) {
+                    break;
+                }
+                tokens.add(Records.toToken(log.read(offset)));
+            }
+            return tokens;
+        });
+    }
+
+    @Override
+    public List<Token> findActivePageByUserId(String userId, long afterId, LocalDateTime now, Limit limit) {
+        int max = limit.isLimited() ? limit.max() : Integer.MAX_VALUE;
+        return read(() -> activeTokens(userId, afterId, Records.toMicros(now), max));
+    }
+
+    @Override
+    public Stream<Token> streamByUserIdOrderByIdAsc(String userId) {
+        return read(() -> {
+            MmapLog snapshot = log;
+            return Arrays.stream(offsets(userTokens(userId).values()))
+                    .mapToObj(offset -> Records.toToken(snapshot.read(offset)));
+        });
+    }
+
+    @Override
+    public Stream<Token> streamActiveByUserId(String userId, LocalDateTime now) {
+        long nowMicros = Records.toMicros(now);
+        return read(() -> {
+            MmapLog snapshot = log;
+            return Arrays.stream(offsets(userTokens(userId).values()))
+                    .mapToObj(snapshot::read)
+                    .filter(body -> Records.isActive(body, nowMicros))
+                    .map(Records::toToken);
+        });
+    }
+
+    @Override
+    public Stream<ValidTokenRow> streamValidTokens() {
+        return streamAll()
+                .filter(body -> Records.isValid(body) && !Records.isSigned(body))
+                .map(body -> new Row(Records.toToken(body)));
+    }
+
+    @Override
+    public Stream<RevokedTokenRow> streamRevokedSignedTokens(LocalDateTime now) {
+        long nowMicros = Records.toMicros(now);
+        return streamAll()
+                .filter(body -> Records.isSigned(body) && !Records.isValid(body) && Records.expiresAt(body) > nowMicros)
+                .map(body -> new Row(Records.toToken(body)));
+    }
+
+    @Override
+    public Stream<String> streamAllTokenValues() {
+        return streamAll()
+                .filter(body -> !Records.isSigned(body))
+                .map(body -> TokenHasher.toHex(Records.hash(body)));
+    }
+
+    @Override
+    public Optional<InvalidatedToken> invalidateIfValid(String tokenValue, LocalDateTime now, LocalDateTime rotatedAt) {
+        byte[] hash = TokenHasher.fromHex(tokenValue);
+        return mutate(() -> {
+            long offset = index.get(hash);
+            ByteBuffer body = offset < 0 ? null : log.read(offset);
+            if (body == null || !Records.isActive(body, Records.toMicros(now))) {
+                return Optional.empty();
+            }
+            Token token = Records.toToken(body);
+            token.setValidToken(false);
+            if (rotatedAt != null) {
+                token.setRotatedAt(rotatedAt);
+            }
+            write(token);
+            Duration ttl = token.getExpiresAt() == null ? null
+                    : Duration.ofSeconds(Math.round(Duration.between(token.getCreatedAt(), token.getExpiresAt()).toMillis() / 1000.0));
+            return Optional.of(new InvalidatedToken(tokenValue, token.getUserId(), ttl, token.isSigned(), token.getExpiresAt()));
+        });
+    }
+
+    @Override
+    public List<InvalidatedToken> invalidateAll(Collection<String> tokenValues) {
+        return mutate(() -> {
+            List<InvalidatedToken> invalidated = new ArrayList<>();
+            for (String tokenValue : new HashSet<>(tokenValues)) {
+                long offset = index.get(TokenHasher.fromHex(tokenValue));
+                if (offset >= 0) {
+                    invalidate(offset, invalidated);
+                }
+            }
+            return invalidated;
+        });
+    }
+
+    @Override
+    public List<InvalidatedToken> invalidateAllByUserId(String userId) {
+        return mutate(() -> {
+            List<InvalidatedToken> invalidated = new ArrayList<>();
+            for (long offset : offsets(userTokens(userId).values())) {
+                invalidate(offset, invalidated);
+            }
+            return invalidated;
+        });
+    }
+
+    @Override
+    public int updateLastUsed(Map<String, Long> lastUsed) {
+        if (lastUsed.isEmpty()) {
+            return 0;
+        }
+        return mutate(() -> {
+            int updated = 0;
+            for (Map.Entry<String, Long> entry : lastUsed.entrySet()) {
+                long offset = index.get(TokenHasher.fromHex(entry.getKey()));
+                if (offset < 0) {
+                    continue;
+                }
+                Token token = Records.toToken(log.read(offset));
+                LocalDateTime usedAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(entry.getValue()), ZoneId.systemDefault());
+                // A later time already stored wins, as in the JPA store.
+                if (token.getLastUsedAt() == null || token.getLastUsedAt().isBefore(usedAt)) {
+                    token.setLastUsedAt(usedAt);
+                    write(token);
+                    updated++;
+                }
+            }
+            return updated;
+        });
+    }
+
+    /**
+     * Removes up to {@code limit} tokens that expired at or before {@code now}, oldest expiry
+     * first. There is no archive: the audit log keeps their history.
+     */
+    @Override
+    public List<ExpiredToken> archiveExpired(LocalDateTime now, int limit) {
+        long nowMicros = Records.toMicros(now);
+        return mutate(() -> {
+            List<ExpiredToken> expired = new ArrayList<>();
+            Iterator<Expiry> due = expiries.iterator();
+            while (expired.size() < limit && due.hasNext()) {
+                Expiry expiry = due.next();
+                if (expiry.expiresAt > nowMicros) {
+                    break;
+                }
+                due.remove();
+                long offset = index.remove(expiry.hash);
+                if (offset < 0) {
+                    continue;
+                }
+                ByteBuffer token = log.read(offset);
+                expired.add(new ExpiredToken(TokenHasher.toHex(expiry.hash), Records.userId(token), Records.isValid(token)));
+                log.append(Records.removed(expiry.hash));
+                removeFromUser(token);
+                liveBytes -= log.recordBytes(offset);
+            }
+            return expired;
+        });
+    }
+
+    @Override
+    public Map<String, Long> countActiveByUser(Collection<String> userIds, LocalDateTime now) {
+        long nowMicros = Records.toMicros(now);
+        return read(() -> {
+            Map<String, Long> counts = new HashMap<>();
+            for (String userId : userIds) {
+                long count = userTokens(userId).values().stream()
+                        .filter(offset -> Records.isActive(log.read(offset), nowMicros))
+                        .count();
+                if (count > 0) {
+                    counts.put(userId, count);
+                }
+            }
+            return counts;
+        });
+    }
+
+    /**
+     * Tokens read from this store are plain objects; there is nothing to release.
+     */
+    @Override
+    public void detach(Token token) {
+    }
+
+    @Scheduled(fixedDelayString = "${tokens.store.mmap.compaction.check-ms:60000}",
+            initialDelayString = "${tokens.store.mmap.compaction.check-ms:60000}")
+    public void compactIfNeeded() {
+        try {
+            if (needsCompaction()) {
+                compact();
+            }
+        } catch (RuntimeException e) {
+            logger.error("Token log compaction failed; retrying next run", e);
+        }
+    }
+
+    boolean needsCompaction() {
+        return read(() -> {
+            long dead = log.size() - liveBytes;
+            return dead >= compactionMinDeadBytes && dead >= log.size() * compactionDeadRatio;
+        });
+    }
+
+    /**
+     * Copies the current record of every token into a new log generation and switches to it.
+     * Writers wait until it is done; readers keep using the old generation meanwhile.
+     */
+    public void compact() {
+        writer.lock();
+        try {
+            long start = System.currentTimeMillis();
+            MmapLog source = log;
+            MmapLog target = MmapLog.create(dir, NAME, source.getGeneration() + 1, segmentBytes);
+            target.append(Records.nextId(nextId));
+            OffHeapHashIndex compactedIndex = new OffHeapHashIndex(index.size());
+            Map<String, TreeMap<Long, Long>> compactedByUser = new HashMap<>();
+            long[] live = {0};
+            index.forEachValue(offset -> {
+                ByteBuffer body = source.read(offset);
+                long copied = target.append(body);
+                compactedIndex.put(Records.hash(body), copied);
+                compactedByUser.computeIfAbsent(Records.userId(body), user -> new TreeMap<>()).put(Records.id(body), copied);
+                live[0] += target.recordBytes(copied);
+            });
+            target.sync();
+            MmapLog.commitGeneration(dir, NAME, target.getGeneration());
+            lock.writeLock().lock();
+            try {
+                log = target;
+                index = compactedIndex;
+                byUser = compactedByUser;
+                liveBytes = live[0];
+            } finally {
+                lock.writeLock().unlock();
+            }
+            source.delete();
+            compactions.increment();
+            logger.info("Token log compacted from {} KiB to {} KiB (generation {}) in {} ms",
+                    source.size() / 1024, target.size() / 1024, target.getGeneration(), System.currentTimeMillis() - start);
+        } finally {
+            writer.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        mutate(() -> {
+            log.sync();
+            return null;
+        });
+    }
+
+    private void write(Token token) {
+        byte[] hash = TokenHasher.fromHex(token.getTokenValue());
+        long offset = log.append(Records.token(token));
+        long previous = index.put(hash, offset);
+        if (previous >= 0) {
+            liveBytes -= log.recordBytes(previous);
+        } else if (token.getExpiresAt() != null) {
+            expiries.add(new Expiry(Records.toMicros(token.getExpiresAt()), token.getId(), hash));
+        }
+        byUser.computeIfAbsent(token.getUserId(), user -> new TreeMap<>()).put(token.getId(), offset);
+        liveBytes += log.recordBytes(offset);
+    }
+
+    private void invalidate(long offset, List<InvalidatedToken> invalidated) {
+        ByteBuffer body = log.read(offset);
+        if (!Records.isValid(body)) {
+            return;
+        }
+        Token token = Records.toToken(body);
+        token.setValidToken(false);
+        write(token);
+        invalidated.add(new InvalidatedToken(token.getTokenValue(), token.getUserId(), null, token.isSigned(), token.getExpiresAt()));
+    }
+
+    private List<Token> activeTokens(String userId, long afterId, long now, int max) {
+        List<Token> tokens = new ArrayList<>();
+        for (long offset : userTokens(userId).tailMap(afterId, false).values()) {
+            if (tokens.size() == max) {
+                break;
+            }
+            ByteBuffer body = log.read(offset);
+            if (Records.isActive(body, now)) {
+                tokens.add(Records.toToken(body));
+            }
+        }
+        return tokens;
+    }
+
+    private TreeMap<Long, Long> userTokens(String userId) {
+        TreeMap<Long, Long> tokens = byUser.get(userId);
+        return tokens == null ? new TreeMap<>() : tokens;
+    }
+
+    private void removeFromUser(ByteBuffer token) {
+        String userId = Records.userId(token);
+        TreeMap<Long, Long> tokens = byUser.get(userId);
+        if (tokens != null) {
+            tokens.remove(Records.id(token));
+            if (tokens.isEmpty()) {
+                byUser.remove(userId);
+            }
+        }
+    }
+
+    /**
+     * The current record of every token, read lazily from a snapshot of the index.
+     */
+    private Stream<ByteBuffer> streamAll() {
+        return read(() -> {
+            MmapLog snapshot = log;
+            long[] offsets = new long[index.size()];
+            int[] next = {0};
+            index.forEachValue(offset -> offsets[next[0]++] = offset);
+            return Arrays.stream(offsets).mapToObj(snapshot::read);
+        });
+    }
+
+    private static long[] offsets(Collection<Long> offsets) {
+        return offsets.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private <T> T read(Supplier<T> action) {
+        lock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private <T> T mutate(Supplier<T> action) {
+        writer.lock();
+        lock.writeLock().lock();
+        try {
+            T result = action.get();
+            if (sync) {
+                log.sync();
+            }
+            return result;
+        } finally {
+            lock.writeLock().unlock();
+            writer.unlock();
+        }
+    }
+
+    /**
+     * Position in the expiry order; {@code hash} does not take part in comparisons.
+     */
+    private static final class Expiry implements Comparable<Expiry> {
+        private final long expiresAt;
+        private final long id;
+        private final byte[] hash;
+
+        Expiry(long expiresAt, long id, byte[] hash) {
+            this.expiresAt = expiresAt;
+            this.id = id;
+            this.hash = hash;
+        }
+
+        @Override
+        public int compareTo(Expiry other) {
+            int byTime = Long.compare(expiresAt, other.expiresAt);
+            return byTime != 0 ? byTime : Long.compare(id, other.id);
+        }
+    }
+
+    /**
+     * Projection rows backed by a decoded token.
+     */
+    private static final class Row implements ActiveTokenRow, ValidTokenRow, RevokedTokenRow {
+        private final Token token;
+
+        Row(Token token) {
+            this.token = token;
+        }
+
+        @Override
+        public Long getId() {
+            return token.getId();
+        }
+
+        @Override
+        public String getTokenValue() {
+            return token.getTokenValue();
+        }
+
+        @Override
+        public String getUserId() {
+            return token.getUserId();
+        }
+
+        @Override
+        public LocalDateTime getCreatedAt() {
+            return token.getCreatedAt();
+        }
+
+        @Override
+        public LocalDateTime getExpiresAt() {
+            return token.getExpiresAt();
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package org.example.tokenmanager.repository.mmap;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.function.LongConsumer;
+
+/**
+ * Open-addressing hash table from 32-byte token hashes to non-negative {@code long} values,
+ * held in a direct buffer so millions of entries add nothing to the Java heap or to GC work.
+ * Each slot is the key followed by {@code value + 1}; a zero there marks an empty slot.
+ * Linear probing from the slot picked by the key's first eight bytes (SHA-256 output is
+ * uniform already), backward-shift deletion so no tombstones pile up, and doubling at 70% load.
+ * <p>
+ * Not thread-safe: concurrent {@link #get} calls are fine, anything else needs the caller's lock.
+ */
+final class OffHeapHashIndex {
+
+    static final int KEY_BYTES = 32;
+
+    private static final int SLOT_BYTES = KEY_BYTES + Long.BYTES;
+    private static final int MAX_CAPACITY = Integer.highestOneBit(Integer.MAX_VALUE / SLOT_BYTES);
+    private static final double MAX_LOAD = 0.7;
+    private static final int MIN_CAPACITY = 1024;
+
+    private ByteBuffer slots;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    OffHeapHashIndex(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < MAX_CAPACITY && capacity * MAX_LOAD < expectedSize) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * @return the value stored for {@code key}, or -1
+     */
+    long get(byte[] key) {
+        for (int slot = home(key); ; slot = (slot + 1) & mask) {
+            long stored = storedValue(slot);
+            if (stored == 0) {
+                return -1;
+            }
+            if (keyEquals(slot, key)) {
+                return stored - 1;
+            }
+        }
+    }
+
+    /**
+     * @param value must not be negative
+     * @return the value replaced, or -1 if the key is new
+     */
+    long put(byte[] key, long value) {
+        if (key.length != KEY_BYTES) {
+            throw new IllegalArgumentException("Keys must be " + KEY_BYTES + " bytes.");
+        }
+        if (value < 0 || value == Long.MAX_VALUE) {
+            throw new IllegalArgumentException("Value out of range: " + value);
+        }
+        if (size >= resizeAt) {
+            grow();
+        }
+        for (int slot = home(key); ; slot = (slot + 1) & mask) {
+            long stored = storedValue(slot);
+            if (stored == 0) {
+                slots.put(offset(slot), key);
+                slots.putLong(offset(slot) + KEY_BYTES, value + 1);
+                size++;
+                return -1;
+            }
+            if (keyEquals(slot, key)) {
+                slots.putLong(offset(slot) + KEY_BYTES, value + 1);
+                return stored - 1;
+            }
+        }
+    }
+
+    /**
+     * @return the value removed, or -1 if the key was not present
+     */
+    long remove(byte[] key) {
+        int slot = home(key);
+        long stored;
+        while ((stored = storedValue(slot)) != 0 && !keyEquals(slot, key)) {
+            slot = (slot + 1) & mask;
+        }
+        if (stored == 0) {
+            return -1;
+        }
+        // Pull later entries of the probe run back into the gap, so lookups never stop early.
+        int gap = slot;
+        for (int next = (gap + 1) & mask; storedValue(next) != 0; next = (next + 1) & mask) {
+            int nextHome = homeOfSlot(next);
+            if (((next - nextHome) & mask) >= ((next - gap) & mask)) {
+                copySlot(next, gap);
+                gap = next;
+            }
+        }
+        slots.putLong(offset(gap) + KEY_BYTES, 0);
+        size--;
+        return stored - 1;
+    }
+
+    void forEachValue(LongConsumer consumer) {
+        for (int slot = 0; slot <= mask; slot++) {
+            long stored = storedValue(slot);
+            if (stored != 0) {
+                consumer.accept(stored - 1);
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    long memoryBytes() {
+        return slots.capacity();
+    }
+
+    private void allocate(int capacity) {
+        slots = ByteBuffer.allocateDirect(capacity * SLOT_BYTES).order(ByteOrder.nativeOrder());
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * MAX_LOAD);
+    }
+
+    private void grow() {
+        int capacity = mask + 1;
+        if (capacity >= MAX_CAPACITY) {
+            throw new IllegalStateException("Token index is full at " + size + " entries.");
+        }
+        ByteBuffer old = slots;
+        int oldSlots = capacity;
+        allocate(capacity << 1);
+        byte[] key = new byte[KEY_BYTES];
+        for (int slot = 0; slot < oldSlots; slot++) {
+            long stored = old.getLong(slot * SLOT_BYTES + KEY_BYTES);
+            if (stored != 0) {
+                old.get(slot * SLOT_BYTES, key);
+                int target = home(key);
+                while (storedValue(target) != 0) {
+                    target = (target + 1) & mask;
+                }
+                slots.put(offset(target), key);
+                slots.putLong(offset(target) + KEY_BYTES, stored);
+            }
+        }
+    }
+
+    private int home(byte[] key) {
+        long h = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            h = (h << 8) | (key[i] & 0xFF);
+        }
+        return (int) h & mask;
+    }
+
+    private int homeOfSlot(int slot) {
+        int base = offset(slot);
+        long h = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            h = (h << 8) | (slots.get(base + i) & 0xFF);
+        }
+        return (int) h & mask;
+    }
+
+    private boolean keyEquals(int slot, byte[] key) {
+        int base = offset(slot);
+        for (int i = 0; i < KEY_BYTES; i++) {
+            if (slots.get(base + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void copySlot(int from, int to) {
+        int source = offset(from);
+        int target = offset(to);
+        for (int i = 0; i < SLOT_BYTES; i += Long.BYTES) {
+            slots.putLong(target + i, slots.getLong(source + i));
+        }
+    }
+
+    private long storedValue(int slot) {
+        return slots.getLong(offset(slot) + KEY_BYTES);
+    }
+
+    private static int offset(int slot) {
+        return slot * SLOT_BYTES;
+    }
+}
@@ -0,0 +1,190 @@
+package org.example.tokenmanager.repository.mmap;
+
+import org.example.tokenmanager.model.AuditLog;
+import org.example.tokenmanager.model.Token;
+import org.example.tokenmanager.util.TokenHasher;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Binary layout of the records in the token and audit logs. Every body starts with a type byte.
+ * <pre>
+ * TOKEN    type id:long flags:byte createdAt lastUsedAt rotatedAt expiresAt hash:32 userId
+ * REMOVED  type hash:32
+ * NEXT_ID  type id:long
+ * AUDIT    type timestamp hasHash:byte hash:32 action userId
+ * </pre>
+ * Times are {@code LocalDateTime} values as microseconds since 1970-01-01T00:00 (no zone, like
+ * the {@code timestamp} columns), {@link #NULL_TIME} for none. Strings are a 2-byte length and
+ * UTF-8. A TOKEN record always holds the token's full state, so the latest one for a hash wins.
+ */
+final class Records {
+
+    static final byte TOKEN = 1;
+    static final byte REMOVED = 2;
+    static final byte NEXT_ID = 3;
+    static final byte AUDIT = 4;
+
+    static final long NULL_TIME = Long.MIN_VALUE;
+
+    private static final byte VALID = 1;
+    private static final byte SIGNED = 2;
+
+    private static final int ID = 1;
+    private static final int FLAGS = ID + Long.BYTES;
+    private static final int CREATED_AT = FLAGS + 1;
+    private static final int LAST_USED_AT = CREATED_AT + Long.BYTES;
+    private static final int ROTATED_AT = LAST_USED_AT + Long.BYTES;
+    private static final int EXPIRES_AT = ROTATED_AT + Long.BYTES;
+    private static final int HASH = EXPIRES_AT + Long.BYTES;
+    private static final int USER_ID = HASH + TokenHasher.DIGEST_LENGTH;
+
+    private Records() {
+    }
+
+    static byte type(ByteBuffer body) {
+        return body.get(0);
+    }
+
+    static ByteBuffer token(Token token) {
+        byte[] userId = utf8(token.getUserId());
+        ByteBuffer body = ByteBuffer.allocate(USER_ID + 2 + userId.length)
+                .put(TOKEN)
+                .putLong(token.getId())
+                .put((byte) ((token.isValidToken() ? VALID : 0) | (token.isSigned() ? SIGNED : 0)))
+                .putLong(toMicros(token.getCreatedAt()))
+                .putLong(toMicros(token.getLastUsedAt()))
+                .putLong(toMicros(token.getRotatedAt()))
+                .putLong(toMicros(token.getExpiresAt()))
+                .put(TokenHasher.fromHex(token.getTokenValue()))
+                .putShort((short) userId.length)
+                .put(userId);
+        return body.flip();
+    }
+
+    static Token toToken(ByteBuffer body) {
+        Token token = new Token();
+        token.setId(id(body));
+        token.setValidToken(isValid(body));
+        token.setSigned(isSigned(body));
+        token.setCreatedAt(toLocalDateTime(body.getLong(CREATED_AT)));
+        token.setLastUsedAt(toLocalDateTime(body.getLong(LAST_USED_AT)));
+        token.setRotatedAt(toLocalDateTime(body.getLong(ROTATED_AT)));
+        token.setExpiresAt(toLocalDateTime(body.getLong(EXPIRES_AT)));
+        token.setTokenValue(TokenHasher.toHex(hash(body)));
+        token.setUserId(userId(body));
+        return token;
+    }
+
+    static long id(ByteBuffer token) {
+        return token.getLong(ID);
+    }
+
+    static boolean isValid(ByteBuffer token) {
+        return (token.get(FLAGS) & VALID) != 0;
+    }
+
+    static boolean isSigned(ByteBuffer token) {
+        return (token.get(FLAGS) & SIGNED) != 0;
+    }
+
+    static long expiresAt(ByteBuffer token) {
+        return token.getLong(EXPIRES_AT);
+    }
+
+    /**
+     * Valid and not expired at {@code now} (microseconds).
+     */
+    static boolean isActive(ByteBuffer token, long now) {
+        long expiresAt = expiresAt(token);
+        return isValid(token) && (expiresAt == NULL_TIME || expiresAt > now);
+    }
+
+    /**
+     * The token hash of a TOKEN or REMOVED record.
+     */
+    static byte[] hash(ByteBuffer body) {
+        byte[] hash = new byte[TokenHasher.DIGEST_LENGTH];
+        body.get(type(body) == TOKEN ? HASH : 1, hash);
+        return hash;
+    }
+
+    static String userId(ByteBuffer token) {
+        return string(token, USER_ID);
+    }
+
+    static ByteBuffer removed(byte[] hash) {
+        return ByteBuffer.allocate(1 + hash.length).put(REMOVED).put(hash).flip();
+    }
+
+    static ByteBuffer nextId(long id) {
+        return ByteBuffer.allocate(1 + Long.BYTES).put(NEXT_ID).putLong(id).flip();
+    }
+
+    static long nextIdOf(ByteBuffer body) {
+        return body.getLong(1);
+    }
+
+    static ByteBuffer audit(AuditLog log) {
+        byte[] action = utf8(log.getAction());
+        byte[] userId = utf8(log.getUserId());
+        ByteBuffer body = ByteBuffer.allocate(1 + Long.BYTES + 1 + TokenHasher.DIGEST_LENGTH + 2 + action.length + 2 + userId.length)
+                .put(AUDIT)
+                .putLong(toMicros(log.getTimestamp()))
+                .put((byte) (log.getTokenValue() == null ? 0 : 1))
+                .put(log.getTokenValue() == null ? new byte[TokenHasher.DIGEST_LENGTH] : TokenHasher.fromHex(log.getTokenValue()))
+                .putShort((short) action.length)
+                .put(action)
+                .putShort((short) userId.length)
+                .put(userId);
+        return body.flip();
+    }
+
+    static AuditLog toAuditLog(ByteBuffer body) {
+        int hashAt = 1 + Long.BYTES + 1;
+        int actionAt = hashAt + TokenHasher.DIGEST_LENGTH;
+        AuditLog log = new AuditLog();
+        log.setTimestamp(toLocalDateTime(body.getLong(1)));
+        if (body.get(1 + Long.BYTES) != 0) {
+            byte[] hash = new byte[TokenHasher.DIGEST_LENGTH];
+            body.get(hashAt, hash);
+            log.setTokenValue(TokenHasher.toHex(hash));
+        }
+        log.setAction(string(body, actionAt));
+        log.setUserId(string(body, actionAt + 2 + (body.getShort(actionAt) & 0xFFFF)));
+        return log;
+    }
+
+    static long toMicros(LocalDateTime time) {
+        if (time == null) {
+            return NULL_TIME;
+        }
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + time.getNano() / 1_000;
+    }
+
+    static LocalDateTime toLocalDateTime(long micros) {
+        if (micros == NULL_TIME) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    private static byte[] utf8(String value) {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("Value is too long to store: " + bytes.length + " bytes.");
+        }
+        return bytes;
+    }
+
+    private static String string(ByteBuffer body, int at) {
+        int length = body.getShort(at) & 0xFFFF;
+        byte[] bytes = new byte[length];
+        body.get(at + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
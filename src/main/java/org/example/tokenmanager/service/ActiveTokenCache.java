@@ -0,0 +1,183 @@
+package org.example.tokenmanager.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.example.tokenmanager.controller.dto.ActiveTokenSummary;
+import org.example.tokenmanager.repository.TokenStore;
+import org.example.tokenmanager.repository.TokenStore.ActiveTokenRow;
+import org.example.tokenmanager.util.TokenHasher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Per-user cache of active-token listings for {@code GET /tokens/active}. Each entry holds
+ * the summaries and an ETag derived from their content, so an unchanged listing can be
+ * answered with 304 without touching the database.
+ * <p>
+ * {@link TokenService} evicts a user's entry after every committed change to their tokens;
+ * peer instances do the same on replicated events. Entries are bounded by
+ * {@code tokens.active-cache.max-users} and expire after {@code tokens.active-cache.ttl-ms},
+ * which also caps staleness if an eviction is ever missed. An entry is dropped once its
+ * earliest token expires, so expired tokens are never listed.
+ * <p>
+ * Entries are futures, so the reactive stack can share the cache with a non-blocking loader
+ * ({@link #getAsync}).
+ */
+@Component
+public class ActiveTokenCache {
+
+    private final TokenStore tokenStore;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final AsyncCache<String, ActiveTokens> cache;
+
+    public ActiveTokenCache(TokenStore tokenStore,
+                            TransactionTemplate transactionTemplate,
+                            MeterRegistry meterRegistry,
+                            @Value("${tokens.active-cache.enabled:true}") boolean enabled,
+                            @Value("${tokens.active-cache.max-users:10000}") long maxUsers,
+                            @Value("${tokens.active-cache.ttl-ms:60000}") long ttlMs) {
+        this.tokenStore = tokenStore;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "active-tokens");
+    }
+
+    /**
+     * Returns the active tokens of {@code userId} at {@code now}, from the cache if possible.
+     */
+    public ActiveTokens get(String userId, LocalDateTime now) {
+        if (!enabled) {
+            return load(userId, now);
+        }
+        ActiveTokens cached = getOrLoad(userId, now);
+        if (cached.isStale(now)) {
+            // A listed token has expired since the entry was loaded.
+            cache.synchronous().asMap().remove(userId, cached);
+            cached = getOrLoad(userId, now);
+        }
+        return cached;
+    }
+
+    /**
+     * Like {@link #get(String, LocalDateTime)}, but a miss is loaded by {@code loader}, which
+     * must not block.
+     */
+    public CompletableFuture<ActiveTokens> getAsync(String userId, LocalDateTime now,
+                                                    Function<String, CompletableFuture<ActiveTokens>> loader) {
+        if (!enabled) {
+            return loader.apply(userId);
+        }
+        CompletableFuture<ActiveTokens> cached = cache.get(userId, (id, executor) -> loader.apply(id));
+        return cached.thenCompose(tokens -> {
+            if (!tokens.isStale(now)) {
+                return CompletableFuture.completedFuture(tokens);
+            }
+            cache.asMap().remove(userId, cached);
+            return cache.get(userId, (id, executor) -> loader.apply(id));
+        });
+    }
+
+    /**
+     * Drops the entry of {@code userId}. Call it after the change is committed: a load that
+     * is still in flight is dropped with the entry, whatever it read.
+     */
+    public void evict(String userId) {
+        cache.synchronous().invalidate(userId);
+    }
+
+    public void evictAll(Iterable<String> userIds) {
+        cache.synchronous().invalidateAll(userIds);
+    }
+
+    public void clear() {
+        cache.synchronous().invalidateAll();
+    }
+
+    /**
+     * Loads a miss on the caller's thread, outside the cache's lock: the entry is claimed with
+     * an empty future, which concurrent callers for the same user wait on. Loading inside the
+     * lock would pin a virtual thread to its carrier while it waits for a connection; once
+     * every carrier is pinned, the threads holding connections can no longer run to return them.
+     */
+    private ActiveTokens getOrLoad(String userId, LocalDateTime now) {
+        CompletableFuture<ActiveTokens> loading = new CompletableFuture<>();
+        CompletableFuture<ActiveTokens> entry = cache.get(userId, (id, executor) -> loading);
+        if (entry == loading) {
+            try {
+                loading.complete(load(userId, now));
+            } catch (RuntimeException | Error e) {
+                // The cache drops an entry that completes exceptionally.
+                loading.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return entry.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private ActiveTokens load(String userId, LocalDateTime now) {
+        // A read-write transaction reads the primary: an entry loaded from a lagging replica
+        // could outlive the eviction that was meant to replace it.
+        List<ActiveTokenRow> rows = transactionTemplate.execute(status -> tokenStore.findActiveRowsByUserId(userId, now));
+        List<ActiveTokenSummary> tokens = new ArrayList<>(rows.size());
+        for (ActiveTokenRow row : rows) {
+            tokens.add(new ActiveTokenSummary(row.getId(), row.getTokenValue(), row.getCreatedAt(), row.getExpiresAt()));
+        }
+        return new ActiveTokens(tokens);
+    }
+
+    public static final class ActiveTokens {
+        private final List<ActiveTokenSummary> tokens;
+        private final String etag;
+        // Earliest expiry among the tokens, or null if none expires
+        private final LocalDateTime staleAt;
+
+        public ActiveTokens(List<ActiveTokenSummary> tokens) {
+            this.tokens = List.copyOf(tokens);
+            StringBuilder content = new StringBuilder(tokens.size() * 100);
+            LocalDateTime earliest = null;
+            for (ActiveTokenSummary token : tokens) {
+                content.append(token.getId()).append(':').append(token.getTokenValue()).append(':')
+                        .append(token.getCreatedAt()).append(':').append(token.getExpiresAt()).append('\n');
+                if (token.getExpiresAt() != null && (earliest == null || token.getExpiresAt().isBefore(earliest))) {
+                    earliest = token.getExpiresAt();
+                }
+            }
+            // Content-based, so every instance and every reload produce the same tag for the same listing.
+            this.etag = '"' + TokenHasher.hash(content.toString()).substring(0, 32) + '"';
+            this.staleAt = earliest;
+        }
+
+        public List<ActiveTokenSummary> getTokens() {
+            return tokens;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        boolean isStale(LocalDateTime now) {
+            return staleAt != null && !now.isBefore(staleAt);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package org.example.tokenmanager.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.tokenmanager.repository.TokenStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Active-token gauges. {@code tokens.active} is read straight from the {@link TokenIndex}.
+ * {@code tokens.active.by.user} is registered only for the users listed in
+ * {@code metrics.active-tokens.users}, which keeps tag cardinality bounded; those counts
+ * come from one grouped store query per refresh rather than from the request path.
+ */
+@Component
+public class ActiveTokenGauges {
+
+    private final TokenStore tokenStore;
+    private final Map<String, AtomicLong> countsByUser = new LinkedHashMap<>();
+
+    public ActiveTokenGauges(TokenIndex tokenIndex,
+                             TokenStore tokenStore,
+                             MeterRegistry meterRegistry,
+                             @Value("${metrics.active-tokens.users:}") List<String> users) {
+        this.tokenStore = tokenStore;
+        Gauge.builder("tokens.active", tokenIndex, TokenIndex::size)
+                .description("Valid tokens held in the in-memory index")
+                .register(meterRegistry);
+        for (String user : users) {
+            AtomicLong count = new AtomicLong();
+            countsByUser.put(user, count);
+            Gauge.builder("tokens.active.by.user", count, AtomicLong::get)
+                    .description("Valid tokens per configured user")
+                    .tag("user", user)
+                    .register(meterRegistry);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${metrics.active-tokens.refresh-ms:60000}")
+    public void refresh() {
+        if (countsByUser.isEmpty()) {
+            return;
+        }
+        Map<String, Long> counts = tokenStore.countActiveByUser(countsByUser.keySet(), LocalDateTime.now());
+        countsByUser.forEach((user, count) -> count.set(counts.getOrDefault(user, 0L)));
+    }
+}
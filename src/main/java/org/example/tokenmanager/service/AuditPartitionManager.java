@@ -0,0 +1,111 @@
+package org.example.tokenmanager.service;
+
+import org.example.tokenmanager.config.ConditionalOnJpaStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the monthly partitions of {@code audit_logs} in shape: creates partitions a few months
+ * ahead so inserts never fall into the default partition, and drops whole partitions once they
+ * are older than the retention period. Runs at startup and daily; an advisory lock makes sure
+ * only one replica does the work.
+ */
+@Component
+@ConditionalOnJpaStore
+@ConditionalOnProperty(name = "audit.partitions.enabled", havingValue = "true", matchIfMissing = true)
+public class AuditPartitionManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditPartitionManager.class);
+    private static final long ADVISORY_LOCK_KEY = 7_004_001L;
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+    private static final Pattern PARTITION_NAME = Pattern.compile("audit_logs_(\\d{4})_(\\d{2})");
+
+    static final String LIST_PARTITIONS_SQL =
+            "SELECT c.relname FROM pg_inherits i " +
+            "JOIN pg_class c ON c.oid = i.inhrelid " +
+            "JOIN pg_class p ON p.oid = i.inhparent " +
+            "WHERE p.relname = 'audit_logs'";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int monthsAhead;
+    private final int retentionMonths;
+
+    public AuditPartitionManager(JdbcTemplate jdbcTemplate,
+                                 TransactionTemplate transactionTemplate,
+                                 @Value("${audit.partitions.months-ahead:3}") int monthsAhead,
+                                 @Value("${audit.partitions.retention-months:0}") int retentionMonths) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${audit.partitions.cron:0 15 0 * * *}")
+    public void maintainPartitions() {
+        try {
+            maintainPartitions(YearMonth.now());
+        } catch (RuntimeException e) {
+            logger.error("Audit partition maintenance failed", e);
+        }
+    }
+
+    void maintainPartitions(YearMonth currentMonth) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Boolean locked = jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class, ADVISORY_LOCK_KEY);
+            if (!Boolean.TRUE.equals(locked)) {
+                logger.debug("Audit partition maintenance is running elsewhere; skipping.");
+                return;
+            }
+            List<String> existing = jdbcTemplate.queryForList(LIST_PARTITIONS_SQL, String.class);
+            for (int i = 0; i <= monthsAhead; i++) {
+                YearMonth month = currentMonth.plusMonths(i);
+                String name = partitionName(month);
+                if (!existing.contains(name)) {
+                    jdbcTemplate.execute(String.format(
+                            "CREATE TABLE %s PARTITION OF audit_logs FOR VALUES FROM ('%s') TO ('%s')",
+                            name, month.atDay(1), month.plusMonths(1).atDay(1)));
+                    logger.info("Created audit log partition {}", name);
+                }
+            }
+            if (retentionMonths > 0) {
+                YearMonth oldestKept = currentMonth.minusMonths(retentionMonths);
+                for (String name : existing) {
+                    YearMonth month = partitionMonth(name);
+                    if (month != null && month.isBefore(oldestKept)) {
+                        jdbcTemplate.execute("ALTER TABLE audit_logs DETACH PARTITION " + name);
+                        jdbcTemplate.execute("DROP TABLE " + name);
+                        logger.info("Dropped audit log partition {} (retention {} months)", name, retentionMonths);
+                    }
+                }
+            }
+        });
+    }
+
+    static String partitionName(YearMonth month) {
+        return "audit_logs_" + month.format(SUFFIX);
+    }
+
+    static YearMonth partitionMonth(String partitionName) {
+        Matcher matcher = PARTITION_NAME.matcher(partitionName);
+        if (!matcher.matches()) {
+            return null;
+        }
+        return YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+    }
+}
@@ -0,0 +1,172 @@
+package org.example.tokenmanager.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.tokenmanager.config.ConditionalOnJpaStore;
+import org.example.tokenmanager.repository.AuditCounterRepository;
+import org.example.tokenmanager.repository.AuditCounterRepository.Checkpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Rebuilds the {@code audit_counters} read model from {@code audit_logs}. A rebuild request
+ * only records a checkpoint; every {@code audit.projection.rebuild.poll-ms} the scheduled run
+ * recomputes up to {@code max-steps-per-run} hours, each in its own transaction that also
+ * advances the checkpoint. A rebuild therefore survives restarts and continues where it
+ * stopped, and instances sharing the database take turns on it.
+ * <p>
+ * On first start, when no checkpoint exists yet, the whole retained audit log is rebuilt.
+ */
+@Component
+@ConditionalOnJpaStore
+public class AuditProjectionRebuilder {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditProjectionRebuilder.class);
+
+    private final AuditCounterRepository counters;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final boolean rebuildOnFirstStart;
+    private final int maxStepsPerRun;
+    private final Counter rebuiltHours;
+
+    public AuditProjectionRebuilder(AuditCounterRepository counters,
+                                    JdbcTemplate jdbcTemplate,
+                                    TransactionTemplate transactionTemplate,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${audit.projection.enabled:true}") boolean enabled,
+                                    @Value("${audit.projection.rebuild.on-first-start:true}") boolean rebuildOnFirstStart,
+                                    @Value("${audit.projection.rebuild.max-steps-per-run:24}") int maxStepsPerRun) {
+        this.counters = counters;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.rebuildOnFirstStart = rebuildOnFirstStart;
+        this.maxStepsPerRun = maxStepsPerRun;
+        this.rebuiltHours = Counter.builder("audit.projection.rebuilt.hours")
+                .description("Hourly buckets of audit_counters recomputed from audit_logs")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if (!enabled || !rebuildOnFirstStart) {
+            return;
+        }
+        try {
+            if (counters.findCheckpoint().isEmpty()) {
+                // First start with the read model: fill it from the retained audit log.
+                requestRebuild(null, null);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Could not schedule the initial audit projection rebuild", e);
+        }
+    }
+
+    /**
+     * Schedules a rebuild of the hours covering {@code [from, to)}, replacing any rebuild in
+     * progress. Without {@code from} the rebuild starts at the oldest audit partition, without
+     * {@code to} it runs up to the current hour inclusive.
+     */
+    public Checkpoint requestRebuild(LocalDateTime from, LocalDateTime to) {
+        if (!enabled) {
+            throw new IllegalStateException("Audit projection is disabled.");
+        }
+        LocalDateTime start = (from == null ? oldestPartitionStart() : from).truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime end = to == null ? LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).plusHours(1) : ceilHour(to);
+        if (!start.isBefore(end)) {
+            throw new IllegalArgumentException("from must be before to.");
+        }
+        counters.saveCheckpoint(start, end);
+        logger.info("Audit projection rebuild requested for {} to {}", start, end);
+        return counters.findCheckpoint().orElseThrow();
+    }
+
+    public Optional<Checkpoint> status() {
+        return counters.findCheckpoint();
+    }
+
+    @Scheduled(fixedDelayString = "${audit.projection.rebuild.poll-ms:10000}",
+            initialDelayString = "${audit.projection.rebuild.poll-ms:10000}")
+    public void resume() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            runSteps();
+        } catch (RuntimeException e) {
+            logger.error("Audit projection rebuild step failed; retrying next run", e);
+        }
+    }
+
+    /**
+     * Recomputes up to {@code max-steps-per-run} hours of a pending rebuild.
+     *
+     * @return the number of hours recomputed
+     */
+    int runSteps() {
+        int steps = 0;
+        while (steps < maxStepsPerRun) {
+            Checkpoint done = transactionTemplate.execute(status -> step());
+            if (done == null) {
+                break;
+            }
+            steps++;
+            if (done.isComplete()) {
+                logger.info("Audit projection rebuilt up to {}", done.getUntil());
+                break;
+            }
+        }
+        rebuiltHours.increment(steps);
+        return steps;
+    }
+
+    /**
+     * One hour of a rebuild, in the caller's transaction.
+     *
+     * @return the advanced checkpoint, or {@code null} if there was nothing to do here
+     */
+    private Checkpoint step() {
+        Optional<Checkpoint> locked = counters.lockCheckpoint();
+        if (locked.isEmpty() || locked.get().isComplete()) {
+            // Nothing pending, or another instance is on it.
+            return null;
+        }
+        Checkpoint checkpoint = locked.get();
+        LocalDateTime next = checkpoint.getPosition().plusHours(1);
+        if (next.isAfter(checkpoint.getUntil())) {
+            next = checkpoint.getUntil();
+        }
+        counters.rebuild(checkpoint.getPosition(), next);
+        counters.advanceCheckpoint(next);
+        return new Checkpoint(next, checkpoint.getUntil(), checkpoint.getRequestedAt(), LocalDateTime.now());
+    }
+
+    private LocalDateTime oldestPartitionStart() {
+        return jdbcTemplate.queryForList(AuditPartitionManager.LIST_PARTITIONS_SQL, String.class).stream()
+                .map(AuditPartitionManager::partitionMonth)
+                .filter(Objects::nonNull)
+                .min(YearMonth::compareTo)
+                .map(month -> month.atDay(1).atStartOfDay())
+                .orElseGet(() -> LocalDateTime.now().truncatedTo(ChronoUnit.HOURS));
+    }
+
+    private static LocalDateTime ceilHour(LocalDateTime time) {
+        LocalDateTime hour = time.truncatedTo(ChronoUnit.HOURS);
+        return hour.equals(time) ? hour : hour.plusHours(1);
+    }
+}
@@ -0,0 +1,103 @@
+package org.example.tokenmanager.service;
+
+import jakarta.persistence.EntityManager;
+import org.example.tokenmanager.config.ConditionalOnJpaStore;
+import org.example.tokenmanager.controller.dto.AuditActionCount;
+import org.example.tokenmanager.controller.dto.CursorPage;
+import org.example.tokenmanager.model.AuditLog;
+import org.example.tokenmanager.repository.AuditCounterRepository;
+import org.example.tokenmanager.repository.AuditLogRepository;
+import org.example.tokenmanager.util.KeysetCursor;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Read side of the audit log: full, keyset-paginated and streamed listings per user, optionally
+ * restricted to a {@code [from, to)} time range so that only the matching monthly partitions are read,
+ * and pre-aggregated counts from the {@code audit_counters} read model.
+ */
+@Service
+@ConditionalOnJpaStore
+public class AuditQueryService {
+
+    // Open ends of a time range; both fit in a PostgreSQL timestamp.
+    static final LocalDateTime RANGE_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+    static final LocalDateTime RANGE_END = LocalDateTime.of(9999, 1, 1, 0, 0);
+
+    private static final Set<String> GRANULARITIES = Set.of("hour", "day");
+
+    private final AuditLogRepository auditLogRepository;
+    private final AuditCounterRepository auditCounters;
+    private final EntityManager entityManager;
+
+    public AuditQueryService(AuditLogRepository auditLogRepository, AuditCounterRepository auditCounters,
+                             EntityManager entityManager) {
+        this.auditLogRepository = auditLogRepository;
+        this.auditCounters = auditCounters;
+        this.entityManager = entityManager;
+    }
+
+    @Transactional(readOnly = true)
+    public List<AuditLog> findByUser(String userId, LocalDateTime from, LocalDateTime to) {
+        if (from == null && to == null) {
+            return auditLogRepository.findByUserId(userId);
+        }
+        return auditLogRepository.findByUserIdInRange(userId, start(from), end(to));
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<AuditLog> findPageByUser(String userId, LocalDateTime from, LocalDateTime to, String cursor, int limit) {
+        TokenService.checkPageSize(limit);
+        LocalDateTime afterTimestamp = start(from);
+        long afterId = Long.MIN_VALUE;
+        if (cursor != null) {
+            KeysetCursor after = KeysetCursor.decode(cursor);
+            afterTimestamp = after.getTimestamp();
+            afterId = after.getId();
+        }
+        List<AuditLog> rows = auditLogRepository.findPageByUserId(userId, afterTimestamp, afterId, end(to), Limit.of(limit + 1));
+        return CursorPage.of(rows, limit, log -> KeysetCursor.of(log.getTimestamp(), log.getId()).encode());
+    }
+
+    /**
+     * Hands every audit entry of a user in the range to {@code consumer} as it is read from a database cursor.
+     */
+    @Transactional(readOnly = true)
+    public void streamByUser(String userId, LocalDateTime from, LocalDateTime to, Consumer<AuditLog> consumer) {
+        try (Stream<AuditLog> logs = auditLogRepository.streamByUserIdInRange(userId, start(from), end(to))) {
+            logs.forEach(log -> {
+                consumer.accept(log);
+                entityManager.detach(log);
+            });
+        }
+    }
+
+    /**
+     * Event counts per {@code granularity} bucket and action in {@code [from, to)}, for one user
+     * or, when {@code userId} is {@code null}, over all users. Reads only {@code audit_counters};
+     * buckets are whole hours, so {@code from} and {@code to} are effectively rounded up to the hour.
+     */
+    @Transactional(readOnly = true)
+    public List<AuditActionCount> countByAction(String userId, String action, LocalDateTime from, LocalDateTime to,
+                                                String granularity) {
+        if (!GRANULARITIES.contains(granularity)) {
+            throw new IllegalArgumentException("Granularity must be one of " + GRANULARITIES.stream().sorted().toList() + ".");
+        }
+        return auditCounters.findCounts(userId, action, start(from), end(to), granularity);
+    }
+
+    private static LocalDateTime start(LocalDateTime from) {
+        return from == null ? RANGE_START : from;
+    }
+
+    private static LocalDateTime end(LocalDateTime to) {
+        return to == null ? RANGE_END : to;
+    }
+}
@@ -1,25 +1,262 @@
 package org.example.tokenmanager.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.example.tokenmanager.model.AuditLog;
-import org.example.tokenmanager.repository.AuditLogRepository;
+import org.example.tokenmanager.repository.AuditLogWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Records audit entries through a write-behind pipeline: callers enqueue into a bounded
+ * queue and a single writer thread flushes batches to the {@link AuditLogWriter}. When the queue
+ * is full the caller waits briefly and then writes its own entry, which pushes back on
+ * producers instead of dropping audit records. The queue is drained on shutdown.
+ */
 @Service
 public class AuditService {
 
-    private final AuditLogRepository auditLogRepository;
     private static final Logger logger = LoggerFactory.getLogger(AuditService.class);
+    private static final int MAX_WRITE_ATTEMPTS = 3;
+
+    private final AuditLogWriter batchWriter;
+    private final boolean writeBehind;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long offerTimeoutMs;
+    private final BlockingQueue<AuditLog> queue;
+
+    private final Timer logTimer;
+    private final Timer flushTimer;
+    private final DistributionSummary batchSizes;
+    private final Counter callerWrites;
+    private final Counter droppedEntries;
+
+    // Producers check running and enqueue under the read lock; stop() clears running under the
+    // write lock, so once it has, no entry can reach the queue behind the final drain.
+    private final ReadWriteLock shutdownLock = new ReentrantReadWriteLock();
+    private volatile boolean running;
+    private Thread writerThread;
 
+    public AuditService(AuditLogWriter batchWriter,
+                        MeterRegistry meterRegistry,
+                        @Value("${audit.write-behind.enabled:true}") boolean writeBehind,
+                        @Value("${audit.write-behind.queue-capacity:10000}") int queueCapacity,
+                        @Value("${audit.write-behind.batch-size:500}") int batchSize,
+                        @Value("${audit.write-behind.flush-interval-ms:200}") long flushIntervalMs,
+                        @Value("${audit.write-behind.offer-timeout-ms:50}") long offerTimeoutMs) {
+        this.batchWriter = batchWriter;
+        this.writeBehind = writeBehind;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
 
-    public AuditService(AuditLogRepository auditLogRepository) {
-        this.auditLogRepository = auditLogRepository;
+        Gauge.builder("audit.queue.depth", queue, BlockingQueue::size)
+                .description("Audit entries waiting to be written")
+                .register(meterRegistry);
+        Gauge.builder("audit.queue.lag", this, AuditService::oldestPendingAgeMillis)
+                .description("Age of the oldest audit entry waiting to be written")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        this.logTimer = Timer.builder("audit.log")
+                .description("Time callers spend handing audit entries over, including caller-run writes")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("audit.flush").description("Time spent writing one audit batch").register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("audit.flush.batch.size").register(meterRegistry);
+        this.callerWrites = Counter.builder("audit.queue.full")
+                .description("Audit entries written by the caller because the queue was full")
+                .register(meterRegistry);
+        this.droppedEntries = Counter.builder("audit.write.dropped")
+                .description("Audit entries lost after repeated write failures")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!writeBehind) {
+            return;
+        }
+        running = true;
+        writerThread = new Thread(this::drainLoop, "audit-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        shutdownLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            shutdownLock.writeLock().unlock();
+        }
+        if (writerThread == null) {
+            return;
+        }
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Anything still queued if the writer did not finish in time is written here.
+        flushRemaining();
     }
 
     public void logAction(String action, String tokenValue, String userId) {
-        AuditLog log = new AuditLog(action, tokenValue, userId);
-        auditLogRepository.save(log);
-        logger.debug("Audit log created: action='{}', token='{}', user='{}'", action, tokenValue, userId);
+        logAll(List.of(new AuditLog(action, tokenValue, userId)));
+        logger.debug("Audit log queued: action='{}', token='{}', user='{}'", action, tokenValue, userId);
+    }
+
+    /**
+     * Records several entries at once. Inside a transaction the entries are only queued
+     * once it commits, so rolled-back changes leave no audit trail.
+     */
+    public void logAll(List<AuditLog> logs) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(logs);
+                }
+            });
+            return;
+        }
+        enqueue(logs);
+    }
+
+    public int pendingCount() {
+        return queue.size();
+    }
+
+    private void enqueue(List<AuditLog> logs) {
+        long start = System.nanoTime();
+        try {
+            offerAll(logs);
+        } finally {
+            logTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void offerAll(List<AuditLog> logs) {
+        if (!writeBehind) {
+            write(logs);
+            return;
+        }
+        List<AuditLog> overflow = null;
+        shutdownLock.readLock().lock();
+        try {
+            if (!running) {
+                // Shutting down: the writer may already have drained the queue for the last time.
+                overflow = logs;
+            } else {
+                for (AuditLog log : logs) {
+                    boolean queued;
+                    try {
+                        queued = queue.offer(log, offerTimeoutMs, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        queued = false;
+                    }
+                    if (!queued) {
+                        if (overflow == null) {
+                            overflow = new ArrayList<>();
+                        }
+                        overflow.add(log);
+                    }
+                }
+                if (overflow != null) {
+                    callerWrites.increment(overflow.size());
+                }
+            }
+        } finally {
+            shutdownLock.readLock().unlock();
+        }
+        if (overflow != null && !overflow.isEmpty()) {
+            write(overflow);
+        }
+    }
+
+    private void drainLoop() {
+        List<AuditLog> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                AuditLog first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        flushRemaining();
+    }
+
+    private void flushRemaining() {
+        List<AuditLog> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private void write(List<AuditLog> batch) {
+        for (int attempt = 1; attempt <= MAX_WRITE_ATTEMPTS; attempt++) {
+            long start = System.nanoTime();
+            try {
+                batchWriter.insertAll(batch);
+                flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                batchSizes.record(batch.size());
+                return;
+            } catch (RuntimeException e) {
+                logger.warn("Audit batch write failed (attempt {}/{}): {}", attempt, MAX_WRITE_ATTEMPTS, e.getMessage());
+                if (attempt < MAX_WRITE_ATTEMPTS) {
+                    sleepQuietly(100L * attempt);
+                }
+            }
+        }
+        droppedEntries.increment(batch.size());
+        for (AuditLog log : batch) {
+            logger.error("Audit entry lost: action='{}', token='{}', user='{}', timestamp='{}'",
+                    log.getAction(), log.getTokenValue(), log.getUserId(), log.getTimestamp());
+        }
+    }
+
+    private double oldestPendingAgeMillis() {
+        AuditLog head = queue.peek();
+        return head == null ? 0 : Duration.between(head.getTimestamp(), LocalDateTime.now()).toMillis();
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 }
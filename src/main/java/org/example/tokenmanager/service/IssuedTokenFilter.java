@@ -0,0 +1,151 @@
+package org.example.tokenmanager.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.tokenmanager.repository.TokenStore;
+import org.example.tokenmanager.util.BloomFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.stream.Stream;
+
+/**
+ * Bloom filter over the hashes of every token ever issued, valid or not. A negative answer
+ * means the token never existed, so lookups of unknown or garbage tokens can be rejected
+ * without touching the database. The filter is rebuilt from the tokens table at startup and
+ * sized from the row count at that time; hashes issued meanwhile are added as they are minted.
+ * Until the rebuild has finished every hash is reported as possibly issued. A filter saved in
+ * a snapshot can stand in for the startup rebuild (see {@link TokenSnapshots}).
+ */
+@Component
+public class IssuedTokenFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(IssuedTokenFilter.class);
+
+    private final TokenStore tokenStore;
+    private final boolean enabled;
+    private final double falsePositiveRate;
+    private final long minCapacity;
+    private final double headroom;
+    private final Counter rejections;
+
+    private volatile BloomFilter filter;
+    private volatile BloomFilter pending;
+
+    public IssuedTokenFilter(TokenStore tokenStore,
+                             MeterRegistry meterRegistry,
+                             @Value("${tokens.filter.enabled:true}") boolean enabled,
+                             @Value("${tokens.filter.false-positive-rate:0.01}") double falsePositiveRate,
+                             @Value("${tokens.filter.min-capacity:1000000}") long minCapacity,
+                             @Value("${tokens.filter.headroom:2.0}") double headroom) {
+        this.tokenStore = tokenStore;
+        this.enabled = enabled;
+        this.falsePositiveRate = falsePositiveRate;
+        this.minCapacity = minCapacity;
+        this.headroom = headroom;
+        Gauge.builder("token.filter.memory", this, f -> f.filter == null ? 0 : f.filter.memoryBytes())
+                .description("Size of the issued-token Bloom filter")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("token.filter.false.positive.rate", this, f -> f.filter == null ? 0 : f.filter.expectedFalsePositiveRate())
+                .description("Expected false-positive rate at the current number of issued tokens")
+                .register(meterRegistry);
+        this.rejections = Counter.builder("token.filter.rejections")
+                .description("Lookups answered as unknown by the filter without a database query")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs after {@link TokenSnapshots#restore()}; rebuilds only if that did not install a filter.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void loadOnStartup() {
+        if (filter == null) {
+            load();
+        }
+    }
+
+    // Not read-only, so it runs on the primary: a lagging replica would miss the newest tokens.
+    @Transactional
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        BloomFilter building = newFilter(tokenStore.count());
+        // Hashes minted while the table is being scanned go into the new filter as well.
+        pending = building;
+        try (Stream<String> hashes = tokenStore.streamAllTokenValues()) {
+            hashes.forEach(building::put);
+        }
+        filter = building;
+        pending = null;
+        logger.info("Issued-token filter built with {} tokens ({} KiB, {} hash functions) in {} ms",
+                building.insertions(), building.memoryBytes() / 1024, building.hashCount(),
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Startup alternative to {@link #load()}: installs {@code restored}, e.g. read from a
+     * snapshot, once {@code catchUp} has {@link #put} the hashes issued since it was saved.
+     * Hashes minted meanwhile go into it as well. Without a filter to restore, only runs
+     * {@code catchUp}.
+     */
+    public void restore(BloomFilter restored, Runnable catchUp) {
+        if (!enabled || restored == null) {
+            catchUp.run();
+            return;
+        }
+        pending = restored;
+        try {
+            catchUp.run();
+            filter = restored;
+        } finally {
+            pending = null;
+        }
+    }
+
+    /**
+     * An empty filter sized for {@code tokenCount} tokens plus the configured headroom.
+     */
+    public BloomFilter newFilter(long tokenCount) {
+        return new BloomFilter(Math.max(minCapacity, (long) (tokenCount * headroom)), falsePositiveRate);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void put(String hashedToken) {
+        // Read in the reverse order of the writes in load() and restore(), which install the
+        // new filter before clearing pending: a put that finds pending already cleared is then
+        // sure to see the new filter.
+        BloomFilter building = pending;
+        BloomFilter current = filter;
+        if (building != null) {
+            building.put(hashedToken);
+        }
+        if (current != null && current != building) {
+            current.put(hashedToken);
+        }
+    }
+
+    /**
+     * Returns {@code false} only if the hash definitely belongs to no issued token.
+     */
+    public boolean mightBeIssued(String hashedToken) {
+        BloomFilter current = filter;
+        if (current == null || current.mightContain(hashedToken)) {
+            return true;
+        }
+        rejections.increment();
+        return false;
+    }
+}
@@ -0,0 +1,145 @@
+package org.example.tokenmanager.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.example.tokenmanager.repository.TokenStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records when tokens were last used without writing a row per validation. Uses are kept
+ * in memory, one timestamp per token (the latest wins), and written every
+ * {@code tokens.last-used.flush-interval-ms} with one batched UPDATE per
+ * {@code tokens.last-used.batch-size} tokens. A token validated thousands of times between
+ * flushes costs one row update. Pending uses are flushed on shutdown; a failed flush keeps
+ * them for the next attempt. While the database is slow or down, at most
+ * {@code tokens.last-used.max-pending} tokens are held: beyond that, uses of tokens not already
+ * pending are dropped (and counted), so their {@code last_used_at} stays at an earlier use.
+ */
+@Component
+public class LastUsedTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(LastUsedTracker.class);
+
+    private final TokenStore tokenStore;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int maxPending;
+    private final ConcurrentHashMap<String, Long> pending = new ConcurrentHashMap<>();
+    private final Counter flushed;
+    private final Counter dropped;
+
+    public LastUsedTracker(TokenStore tokenStore,
+                           MeterRegistry meterRegistry,
+                           @Value("${tokens.last-used.enabled:true}") boolean enabled,
+                           @Value("${tokens.last-used.batch-size:5000}") int batchSize,
+                           @Value("${tokens.last-used.max-pending:1000000}") int maxPending) {
+        this.tokenStore = tokenStore;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+        Gauge.builder("tokens.last.used.pending", pending, Map::size)
+                .description("Tokens used since the last flush of last_used_at")
+                .register(meterRegistry);
+        this.flushed = Counter.builder("tokens.last.used.flushed")
+                .description("Rows whose last_used_at was updated")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("tokens.last.used.dropped")
+                .description("Uses not recorded because max-pending tokens were already waiting for a flush")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Notes that a token was used at {@code now} (epoch millis).
+     */
+    public void record(String hashedToken, long now) {
+        if (!enabled) {
+            return;
+        }
+        Long previous = pending.get(hashedToken);
+        if (previous == null && pending.size() >= maxPending) {
+            // Flushes are failing or falling behind; concurrent callers may overshoot by a few.
+            dropped.increment();
+            return;
+        }
+        // Usually the same or an older value: skip the write and keep the hot path read-only.
+        if (previous == null || previous < now) {
+            pending.merge(hashedToken, now, Math::max);
+        }
+    }
+
+    /**
+     * Epoch millis of the latest use not yet written to the database, or {@code null}.
+     */
+    public Long pendingLastUsed(String hashedToken) {
+        return pending.get(hashedToken);
+    }
+
+    @Scheduled(fixedDelayString = "${tokens.last-used.flush-interval-ms:10000}")
+    public void scheduledFlush() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.warn("Flushing last-used times failed, retrying next interval: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        try {
+            int written = flush();
+            logger.info("Flushed last-used times of {} tokens on shutdown", written);
+        } catch (RuntimeException e) {
+            logger.warn("Could not flush {} last-used times on shutdown: {}", pending.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Writes all pending uses to the database.
+     *
+     * @return the number of rows updated
+     */
+    public synchronized int flush() {
+        int written = 0;
+        Map<String, Long> batch;
+        do {
+            batch = drain();
+            if (batch.isEmpty()) {
+                break;
+            }
+            try {
+                written += tokenStore.updateLastUsed(batch);
+            } catch (RuntimeException e) {
+                // Put them back; a newer use recorded meanwhile wins.
+                batch.forEach((hash, usedAt) -> pending.merge(hash, usedAt, Math::max));
+                flushed.increment(written);
+                throw e;
+            }
+        } while (batch.size() == batchSize);
+        flushed.increment(written);
+        return written;
+    }
+
+    private Map<String, Long> drain() {
+        Map<String, Long> batch = new HashMap<>();
+        for (Map.Entry<String, Long> entry : pending.entrySet()) {
+            // Only take the value we read; a concurrent newer use stays pending for the next batch.
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                batch.put(entry.getKey(), entry.getValue());
+                if (batch.size() == batchSize) {
+                    break;
+                }
+            }
+        }
+        return batch;
+    }
+}
@@ -0,0 +1,21 @@
+package org.example.tokenmanager.service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thrown when a caller has used up its request budget; mapped to 429 with a Retry-After header.
+ */
+public class RateLimitExceededException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public RateLimitExceededException(long waitNanos) {
+        super("Too many requests. Please try again later.");
+        // Retry-After is in whole seconds; round up so the retry is not rejected again.
+        this.retryAfterSeconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
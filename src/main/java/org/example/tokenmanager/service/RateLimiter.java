@@ -0,0 +1,207 @@
+package org.example.tokenmanager.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throttles token-minting requests per user and per client address. Each key has a token
+ * bucket of {@code burst} requests refilled at {@code per-minute}. Batches draw on buckets of
+ * their own, sized in tokens ({@code rate-limit.batch.*}), and are charged one per token. A bucket is a single
+ * {@link AtomicLong} holding the time at which it will be full again (the GCRA form of a
+ * token bucket), so admitting a request is one CAS and never takes a lock.
+ * <p>
+ * A full bucket is indistinguishable from a new one, so idle keys are simply dropped by
+ * {@link #evictIdle()}. At most {@code max-keys} keys are tracked; beyond that, new keys
+ * share one of a fixed set of overflow buckets, which keeps memory bounded while still
+ * limiting them.
+ */
+@Component
+public class RateLimiter {
+
+    private static final int OVERFLOW_STRIPES = 64;
+
+    private final boolean enabled;
+    private final Limit userLimit;
+    private final Limit clientLimit;
+    private final Limit batchLimit;
+    private final int maxKeys;
+    private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final Bucket[] overflow = new Bucket[OVERFLOW_STRIPES];
+    private final Counter userRejections;
+    private final Counter clientRejections;
+
+    public RateLimiter(MeterRegistry meterRegistry,
+                       @Value("${rate-limit.enabled:true}") boolean enabled,
+                       @Value("${rate-limit.user.per-minute:60}") int userPerMinute,
+                       @Value("${rate-limit.user.burst:20}") int userBurst,
+                       @Value("${rate-limit.client.per-minute:300}") int clientPerMinute,
+                       @Value("${rate-limit.client.burst:50}") int clientBurst,
+                       @Value("${rate-limit.batch.per-minute:1000}") int batchPerMinute,
+                       @Value("${rate-limit.batch.burst:1000}") int batchBurst,
+                       @Value("${rate-limit.max-keys:100000}") int maxKeys) {
+        this.enabled = enabled;
+        this.userLimit = new Limit(userPerMinute, userBurst);
+        this.clientLimit = new Limit(clientPerMinute, clientBurst);
+        this.batchLimit = new Limit(batchPerMinute, batchBurst);
+        this.maxKeys = maxKeys;
+        long now = System.nanoTime();
+        for (int i = 0; i < OVERFLOW_STRIPES; i++) {
+            overflow[i] = new Bucket(now);
+        }
+        Gauge.builder("rate.limit.keys", buckets, Map::size)
+                .description("Users and clients with a rate-limit bucket in memory")
+                .register(meterRegistry);
+        this.userRejections = rejections(meterRegistry, "user");
+        this.clientRejections = rejections(meterRegistry, "client");
+    }
+
+    /**
+     * Charges one request by {@code clientAddress} on behalf of {@code userId} (may be
+     * {@code null} when the user is not known up front).
+     *
+     * @throws RateLimitExceededException if either bucket is empty; nothing is charged then
+     */
+    public void acquire(String userId, String clientAddress) {
+        if (enabled) {
+            acquire(userId, clientAddress, System.nanoTime());
+        }
+    }
+
+    /**
+     * Charges a batch of {@code count} tokens by {@code clientAddress} for {@code userId} to
+     * the batch buckets, one per token.
+     *
+     * @throws IllegalArgumentException if the batch is larger than a full batch bucket, so
+     *                                  could never be admitted
+     * @throws RateLimitExceededException if either bucket holds fewer than {@code count}
+     *                                    tokens; nothing is charged then
+     */
+    public void acquireBatch(String userId, String clientAddress, int count) {
+        if (enabled) {
+            acquireBatch(userId, clientAddress, count, System.nanoTime());
+        }
+    }
+
+    void acquire(String userId, String clientAddress, long now) {
+        charge("", userLimit, clientLimit, userId, clientAddress, 1, now);
+    }
+
+    void acquireBatch(String userId, String clientAddress, int count, long now) {
+        if (count > batchLimit.burst) {
+            throw new IllegalArgumentException("At most " + batchLimit.burst + " tokens can be generated per batch.");
+        }
+        charge("batch:", batchLimit, batchLimit, userId, clientAddress, Math.max(count, 1), now);
+    }
+
+    private void charge(String prefix, Limit user, Limit client, String userId, String clientAddress, int tokens, long now) {
+        Bucket clientBucket = bucket(prefix + "client:" + clientAddress, now);
+        long wait = clientBucket.tryAcquire(client, tokens, now);
+        if (wait > 0) {
+            clientRejections.increment();
+            throw new RateLimitExceededException(wait);
+        }
+        if (userId == null) {
+            return;
+        }
+        wait = bucket(prefix + "user:" + userId, now).tryAcquire(user, tokens, now);
+        if (wait > 0) {
+            // Refund the client charge: this request does no work.
+            clientBucket.refund(client, tokens);
+            userRejections.increment();
+            throw new RateLimitExceededException(wait);
+        }
+    }
+
+    /**
+     * Drops buckets that have refilled completely; recreating one later gives the same result.
+     */
+    @Scheduled(fixedDelayString = "${rate-limit.idle-eviction-ms:60000}")
+    public void evictIdle() {
+        evictIdle(System.nanoTime());
+    }
+
+    void evictIdle(long now) {
+        buckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    int size() {
+        return buckets.size();
+    }
+
+    private Bucket bucket(String key, long now) {
+        Bucket bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxKeys) {
+            return overflow[Math.floorMod(key.hashCode(), OVERFLOW_STRIPES)];
+        }
+        return buckets.computeIfAbsent(key, k -> new Bucket(now));
+    }
+
+    private static Counter rejections(MeterRegistry meterRegistry, String scope) {
+        return Counter.builder("rate.limit.rejections")
+                .description("Requests answered with 429")
+                .tag("scope", scope)
+                .register(meterRegistry);
+    }
+
+    static final class Limit {
+        final int burst;
+        // Time to earn back one request
+        final long intervalNanos;
+
+        Limit(int perMinute, int burst) {
+            if (perMinute < 1 || burst < 1) {
+                throw new IllegalArgumentException("Rate limits must be positive.");
+            }
+            this.burst = burst;
+            this.intervalNanos = TimeUnit.MINUTES.toNanos(1) / perMinute;
+        }
+    }
+
+    static final class Bucket {
+        // The time at which the bucket is full again; at or before now means full.
+        private final AtomicLong fullAt;
+
+        Bucket(long now) {
+            this.fullAt = new AtomicLong(now);
+        }
+
+        /**
+         * @return 0 if the tokens were taken, otherwise nanos until they would be available
+         */
+        long tryAcquire(Limit limit, int tokens, long now) {
+            long cost = limit.intervalNanos * tokens;
+            long capacity = limit.intervalNanos * limit.burst;
+            while (true) {
+                long current = fullAt.get();
+                long next = Math.max(current, now) + cost;
+                long wait = next - now - capacity;
+                if (wait > 0) {
+                    return wait;
+                }
+                if (fullAt.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+
+        void refund(Limit limit, int tokens) {
+            fullAt.addAndGet(-limit.intervalNanos * tokens);
+        }
+
+        boolean isFull(long now) {
+            return fullAt.get() <= now;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.example.tokenmanager.service;
+
+import org.example.tokenmanager.config.ConditionalOnReactiveStack;
+import org.example.tokenmanager.controller.dto.AuditActionCount;
+import org.example.tokenmanager.controller.dto.CursorPage;
+import org.example.tokenmanager.model.AuditLog;
+import org.example.tokenmanager.repository.ReactiveAuditLogRepository;
+import org.example.tokenmanager.util.KeysetCursor;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * {@link AuditQueryService} for the reactive stack: the same listings and counts over R2DBC,
+ * with full listings as {@link Flux} streams read from a cursor as they are consumed.
+ */
+@Service
+@ConditionalOnReactiveStack
+public class ReactiveAuditQueryService {
+
+    private static final Set<String> GRANULARITIES = Set.of("hour", "day");
+
+    private final ReactiveAuditLogRepository auditLogRepository;
+
+    public ReactiveAuditQueryService(ReactiveAuditLogRepository auditLogRepository) {
+        this.auditLogRepository = auditLogRepository;
+    }
+
+    public Flux<AuditLog> findByUser(String userId, LocalDateTime from, LocalDateTime to) {
+        if (from == null && to == null) {
+            return auditLogRepository.findByUserId(userId);
+        }
+        return auditLogRepository.findByUserIdInRange(userId, start(from), end(to));
+    }
+
+    public Mono<CursorPage<AuditLog>> findPageByUser(String userId, LocalDateTime from, LocalDateTime to,
+                                                     String cursor, int limit) {
+        return Mono.defer(() -> {
+            TokenService.checkPageSize(limit);
+            LocalDateTime afterTimestamp = start(from);
+            long afterId = Long.MIN_VALUE;
+            if (cursor != null) {
+                KeysetCursor after = KeysetCursor.decode(cursor);
+                afterTimestamp = after.getTimestamp();
+                afterId = after.getId();
+            }
+            return auditLogRepository.findPageByUserId(userId, afterTimestamp, afterId, end(to), limit + 1).collectList()
+                    .map(rows -> CursorPage.of(rows, limit, log -> KeysetCursor.of(log.getTimestamp(), log.getId()).encode()));
+        });
+    }
+
+    public Flux<AuditLog> streamByUser(String userId, LocalDateTime from, LocalDateTime to) {
+        return auditLogRepository.findByUserIdInRange(userId, start(from), end(to));
+    }
+
+    /**
+     * See {@link AuditQueryService#countByAction}.
+     */
+    public Flux<AuditActionCount> countByAction(String userId, String action, LocalDateTime from, LocalDateTime to,
+                                                String granularity) {
+        if (!GRANULARITIES.contains(granularity)) {
+            return Flux.error(new IllegalArgumentException(
+                    "Granularity must be one of " + GRANULARITIES.stream().sorted().toList() + "."));
+        }
+        return auditLogRepository.findCounts(userId, action, start(from), end(to), granularity);
+    }
+
+    private static LocalDateTime start(LocalDateTime from) {
+        return from == null ? AuditQueryService.RANGE_START : from;
+    }
+
+    private static LocalDateTime end(LocalDateTime to) {
+        return to == null ? AuditQueryService.RANGE_END : to;
+    }
+}
@@ -0,0 +1,181 @@
+package org.example.tokenmanager.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.example.tokenmanager.config.ConditionalOnReactiveStack;
+import org.example.tokenmanager.model.AuditLog;
+import org.example.tokenmanager.repository.ReactiveAuditLogRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.Scannable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Audit entries of the reactive stack, written by a non-blocking pipeline. Callers emit into a
+ * bounded buffer and return at once; a single subscriber takes batches of up to
+ * {@code audit.reactive.batch-size} entries, or whatever arrived within
+ * {@code audit.reactive.flush-interval-ms}, and writes one batch at a time through
+ * {@link ReactiveAuditLogRepository}, requesting more only when the previous write is done.
+ * When the buffer is full the entries are written on their own instead, so callers never wait;
+ * at most {@code audit.reactive.max-overflow-writes} such writes run at a time, so an overload
+ * cannot take the connection pool from requests, and entries beyond that are dropped and
+ * counted. A batch that fails three times is logged and counted as lost, as in
+ * {@link AuditService}. The buffer is drained on shutdown.
+ */
+@Service
+@ConditionalOnReactiveStack
+public class ReactiveAuditService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveAuditService.class);
+    private static final int MAX_WRITE_ATTEMPTS = 3;
+
+    private final ReactiveAuditLogRepository auditLogRepository;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final Sinks.Many<AuditLog> sink;
+    private final Semaphore overflowWrites;
+    private final CountDownLatch drained = new CountDownLatch(1);
+
+    private final Timer flushTimer;
+    private final DistributionSummary batchSizes;
+    private final Counter separateWrites;
+    private final Counter droppedEntries;
+    private final Counter overflowDropped;
+
+    private Disposable pipeline;
+
+    public ReactiveAuditService(ReactiveAuditLogRepository auditLogRepository,
+                                MeterRegistry meterRegistry,
+                                @Value("${audit.reactive.buffer-capacity:10000}") int bufferCapacity,
+                                @Value("${audit.reactive.batch-size:500}") int batchSize,
+                                @Value("${audit.reactive.flush-interval-ms:200}") long flushIntervalMs,
+                                @Value("${audit.reactive.max-overflow-writes:4}") int maxOverflowWrites) {
+        this.auditLogRepository = auditLogRepository;
+        this.batchSize = batchSize;
+        this.flushInterval = Duration.ofMillis(flushIntervalMs);
+        this.sink = Sinks.many().unicast().onBackpressureBuffer(Queues.<AuditLog>get(bufferCapacity).get());
+        this.overflowWrites = new Semaphore(maxOverflowWrites);
+
+        Gauge.builder("audit.reactive.buffer.depth", sink, ReactiveAuditService::buffered)
+                .description("Audit entries waiting to be written by the reactive pipeline")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("audit.flush").description("Time spent writing one audit batch").register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("audit.flush.batch.size").register(meterRegistry);
+        this.separateWrites = Counter.builder("audit.queue.full")
+                .description("Audit entries written by the caller because the queue was full")
+                .register(meterRegistry);
+        this.droppedEntries = Counter.builder("audit.write.dropped")
+                .description("Audit entries lost after repeated write failures")
+                .register(meterRegistry);
+        this.overflowDropped = Counter.builder("audit.reactive.overflow.dropped")
+                .description("Audit entries dropped because the buffer was full and max-overflow-writes were in flight")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        pipeline = sink.asFlux()
+                // Fair: a batch that is due while the previous one is still being written waits in the buffer.
+                .bufferTimeout(batchSize, flushInterval, true)
+                .concatMap(this::write)
+                .doFinally(signal -> drained.countDown())
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        synchronized (sink) {
+            sink.tryEmitComplete();
+        }
+        try {
+            if (!drained.await(30, TimeUnit.SECONDS)) {
+                logger.warn("Audit pipeline did not drain within 30 s; {} entries still buffered", buffered(sink));
+                pipeline.dispose();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public void logAction(String action, String tokenValue, String userId) {
+        logAll(List.of(new AuditLog(action, tokenValue, userId)));
+        logger.debug("Audit log queued: action='{}', token='{}', user='{}'", action, tokenValue, userId);
+    }
+
+    /**
+     * Hands the entries to the pipeline without waiting. Call it once the change they record
+     * has been committed.
+     */
+    public void logAll(List<AuditLog> logs) {
+        List<AuditLog> overflow = null;
+        // Emissions into a sink must not overlap; this only guards a queue offer.
+        synchronized (sink) {
+            for (AuditLog log : logs) {
+                if (sink.tryEmitNext(log).isFailure()) {
+                    if (overflow == null) {
+                        overflow = new ArrayList<>();
+                    }
+                    overflow.add(log);
+                }
+            }
+        }
+        if (overflow != null) {
+            // Buffer full, or the pipeline is already shut down.
+            if (!overflowWrites.tryAcquire()) {
+                overflowDropped.increment(overflow.size());
+                logger.debug("Audit buffer full and max-overflow-writes in flight; {} entries dropped", overflow.size());
+                return;
+            }
+            separateWrites.increment(overflow.size());
+            write(overflow).doFinally(signal -> overflowWrites.release()).subscribe();
+        }
+    }
+
+    public int pendingCount() {
+        return buffered(sink);
+    }
+
+    private Mono<Void> write(List<AuditLog> batch) {
+        return Mono.defer(() -> {
+                    long start = System.nanoTime();
+                    return auditLogRepository.insertAll(batch)
+                            .doOnSuccess(done -> {
+                                flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                                batchSizes.record(batch.size());
+                            });
+                })
+                .doOnError(e -> logger.warn("Audit batch write failed: {}", e.getMessage()))
+                .retryWhen(Retry.backoff(MAX_WRITE_ATTEMPTS - 1, Duration.ofMillis(100)))
+                .onErrorResume(e -> {
+                    droppedEntries.increment(batch.size());
+                    for (AuditLog log : batch) {
+                        logger.error("Audit entry lost: action='{}', token='{}', user='{}', timestamp='{}'",
+                                log.getAction(), log.getTokenValue(), log.getUserId(), log.getTimestamp());
+                    }
+                    return Mono.empty();
+                });
+    }
+
+    private static int buffered(Sinks.Many<AuditLog> sink) {
+        Integer buffered = Scannable.from(sink).scan(Scannable.Attr.BUFFERED);
+        return buffered == null ? 0 : buffered;
+    }
+}
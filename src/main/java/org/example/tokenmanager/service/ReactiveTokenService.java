@@ -0,0 +1,328 @@
+package org.example.tokenmanager.service;
+
+import org.example.tokenmanager.config.ConditionalOnReactiveStack;
+import org.example.tokenmanager.controller.dto.CursorPage;
+import org.example.tokenmanager.controller.dto.TokenResponse;
+import org.example.tokenmanager.controller.dto.TokenValidationResponse;
+import org.example.tokenmanager.model.AuditLog;
+import org.example.tokenmanager.model.Token;
+import org.example.tokenmanager.repository.ReactiveTokenRepository;
+import org.example.tokenmanager.repository.TokenBulkOperations.InvalidatedToken;
+import org.example.tokenmanager.service.TokenMetrics.Operation;
+import org.example.tokenmanager.service.TokenMetrics.Outcome;
+import org.example.tokenmanager.util.KeysetCursor;
+import org.example.tokenmanager.util.TokenHasher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * {@link TokenService} for the reactive stack: the same operations with the same rules,
+ * outcomes and metrics, but every database call goes through {@link ReactiveTokenRepository}
+ * and nothing blocks. The in-memory state is shared with {@link TokenService}, whose helpers
+ * hash, issue and revoke tokens here as well; what {@code TokenService} does after commit
+ * happens here once the statement or {@link TransactionalOperator} transaction has completed.
+ * Audit entries go to {@link ReactiveAuditService}.
+ */
+@Service
+@ConditionalOnReactiveStack
+public class ReactiveTokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveTokenService.class);
+
+    private final TokenService tokenService;
+    private final ReactiveTokenRepository tokenRepository;
+    private final ReactiveAuditService auditService;
+    private final TransactionalOperator transactionalOperator;
+    private final TokenIndex tokenIndex;
+    private final RevocationList revocations;
+    private final TokenTtlPolicies ttlPolicies;
+    private final ActiveTokenCache activeTokens;
+    private final TokenMetrics metrics;
+
+    public ReactiveTokenService(TokenService tokenService, ReactiveTokenRepository tokenRepository,
+                                ReactiveAuditService auditService, TransactionalOperator transactionalOperator,
+                                TokenIndex tokenIndex, RevocationList revocations, TokenTtlPolicies ttlPolicies,
+                                ActiveTokenCache activeTokens, TokenMetrics metrics) {
+        this.tokenService = tokenService;
+        this.tokenRepository = tokenRepository;
+        this.auditService = auditService;
+        this.transactionalOperator = transactionalOperator;
+        this.tokenIndex = tokenIndex;
+        this.revocations = revocations;
+        this.ttlPolicies = ttlPolicies;
+        this.activeTokens = activeTokens;
+        this.metrics = metrics;
+    }
+
+    public Mono<TokenResponse> generateToken(String userId, Long ttlSeconds, String policy) {
+        return timed(Operation.GENERATE, outcome -> {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime expiresAt = tokenService.expiresAt(now, ttlPolicies.expiresAt(now, ttlSeconds, policy));
+            String rawToken = tokenService.newRawToken(userId, now, expiresAt);
+            String hashed = tokenService.hash(rawToken);
+            Token token = tokenService.newToken(userId, hashed, expiresAt);
+            return tokenRepository.insertAll(List.of(token)).then(Mono.fromSupplier(() -> {
+                tokenService.issued(token);
+                activeTokens.evict(userId);
+                auditService.logAction("GENERATE", hashed, userId);
+                logger.debug("op=generate user={} token={}", userId, TokenHasher.fingerprint(hashed));
+                return new TokenResponse(rawToken, userId, expiresAt);
+            }));
+        });
+    }
+
+    /**
+     * See {@link TokenService#rotateToken}: the conditional UPDATE and the INSERT run in one
+     * R2DBC transaction.
+     */
+    public Mono<TokenResponse> rotateToken(String oldTokenValue) {
+        return timed(Operation.ROTATE, outcome -> {
+            String hashedOld = tokenService.hash(oldTokenValue);
+            if (!tokenService.mightBeIssued(oldTokenValue, hashedOld)) {
+                return notFound(outcome, "rotate", hashedOld);
+            }
+            LocalDateTime now = LocalDateTime.now();
+            return tokenRepository.invalidateIfValid(hashedOld, now, now)
+                    .switchIfEmpty(Mono.defer(() -> tokenRepository.existsByTokenValue(hashedOld).flatMap(exists -> {
+                        if (exists) {
+                            outcome.set(Outcome.ALREADY_INVALID);
+                            logger.debug("op=rotate outcome=already_invalid token={}", TokenHasher.fingerprint(hashedOld));
+                            return Mono.error(new IllegalStateException("Token is already invalid."));
+                        }
+                        return notFound(outcome, "rotate", hashedOld);
+                    })))
+                    .flatMap(old -> {
+                        String userId = old.getUserId();
+                        LocalDateTime expiresAt = tokenService.expiresAt(now, old.getTtl() == null ? null : now.plus(old.getTtl()));
+                        tokenService.revoke(old);
+                        String newRawToken = tokenService.newRawToken(userId, now, expiresAt);
+                        Token successor = tokenService.newToken(userId, tokenService.hash(newRawToken), expiresAt);
+                        return tokenRepository.insertAll(List.of(successor))
+                                .thenReturn(new Rotation(old, successor, new TokenResponse(newRawToken, userId, expiresAt)));
+                    })
+                    .as(transactionalOperator::transactional)
+                    .map(rotation -> {
+                        String userId = rotation.old.getUserId();
+                        tokenService.issued(rotation.successor);
+                        activeTokens.evict(userId);
+                        tokenService.publishInvalidated(rotation.old);
+                        logger.debug("op=rotate user={} token={} successor={}", userId, TokenHasher.fingerprint(hashedOld),
+                                TokenHasher.fingerprint(rotation.successor.getTokenValue()));
+                        auditService.logAction("ROTATE_OLD", hashedOld, userId);
+                        auditService.logAction("ROTATE_NEW", rotation.successor.getTokenValue(), userId);
+                        return rotation.response;
+                    });
+        });
+    }
+
+    /**
+     * See {@link TokenService#invalidateToken}.
+     */
+    public Mono<Void> invalidateToken(String tokenValue) {
+        return timed(Operation.INVALIDATE, outcome -> {
+            String hashed = tokenService.hash(tokenValue);
+            if (!tokenService.mightBeIssued(tokenValue, hashed)) {
+                return notFound(outcome, "invalidate", hashed);
+            }
+            return tokenRepository.invalidateIfValid(hashed, LocalDateTime.now(), null)
+                    .doOnNext(token -> {
+                        String userId = token.getUserId();
+                        tokenService.revoke(token);
+                        activeTokens.evict(userId);
+                        tokenService.publishInvalidated(token);
+                        logger.debug("op=invalidate user={} token={}", userId, TokenHasher.fingerprint(hashed));
+                        auditService.logAction("INVALIDATE", hashed, userId);
+                    })
+                    .switchIfEmpty(Mono.defer(() -> tokenRepository.existsByTokenValue(hashed).flatMap(exists -> {
+                        if (exists) {
+                            tokenIndex.remove(hashed);
+                            logger.debug("op=invalidate outcome=already_invalid token={}", TokenHasher.fingerprint(hashed));
+                            outcome.set(Outcome.ALREADY_INVALID);
+                            return Mono.empty();
+                        }
+                        return notFound(outcome, "invalidate", hashed);
+                    })))
+                    .then();
+        });
+    }
+
+    public Mono<List<TokenResponse>> generateTokens(String userId, int count, Long ttlSeconds, String policy) {
+        return timed(Operation.GENERATE_BATCH, outcome -> {
+            if (count < 1 || count > TokenService.MAX_BATCH_SIZE) {
+                return Mono.error(new IllegalArgumentException("Count must be between 1 and " + TokenService.MAX_BATCH_SIZE + "."));
+            }
+            logger.debug("op=generate_batch user={} count={}", userId, count);
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime expiresAt = tokenService.expiresAt(now, ttlPolicies.expiresAt(now, ttlSeconds, policy));
+            List<Token> tokens = new ArrayList<>(count);
+            List<TokenResponse> responses = new ArrayList<>(count);
+            List<AuditLog> auditLogs = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String rawToken = tokenService.newRawToken(userId, now, expiresAt);
+                String hashed = tokenService.hash(rawToken);
+                tokens.add(tokenService.newToken(userId, hashed, expiresAt));
+                responses.add(new TokenResponse(rawToken, userId, expiresAt));
+                auditLogs.add(new AuditLog("GENERATE", hashed, userId));
+            }
+            return tokenRepository.insertAll(tokens).then(Mono.fromSupplier(() -> {
+                tokens.forEach(tokenService::issued);
+                activeTokens.evict(userId);
+                auditService.logAll(auditLogs);
+                return responses;
+            }));
+        });
+    }
+
+    public Mono<Integer> invalidateTokens(List<String> tokenValues) {
+        return timed(Operation.INVALIDATE_BATCH, outcome -> {
+            if (tokenValues.size() > TokenService.MAX_BATCH_SIZE) {
+                return Mono.error(new IllegalArgumentException(
+                        "At most " + TokenService.MAX_BATCH_SIZE + " tokens can be invalidated per request."));
+            }
+            List<String> distinct = tokenValues.stream().distinct().toList();
+            List<String> candidates = new ArrayList<>(distinct.size());
+            for (String tokenValue : distinct) {
+                String hashed = tokenService.hash(tokenValue);
+                if (tokenService.mightBeIssued(tokenValue, hashed)) {
+                    candidates.add(hashed);
+                }
+            }
+            return tokenRepository.invalidateAll(candidates).collectList().map(invalidated -> {
+                invalidated(invalidated);
+                logger.info("op=invalidate_batch invalidated={} requested={}", invalidated.size(), distinct.size());
+                return invalidated.size();
+            });
+        });
+    }
+
+    public Mono<Integer> invalidateAllTokens(String userId) {
+        return timed(Operation.INVALIDATE_USER, outcome -> tokenRepository.invalidateAllByUserId(userId).collectList()
+                .map(invalidated -> {
+                    invalidated(invalidated);
+                    logger.info("op=invalidate_user user={} invalidated={}", userId, invalidated.size());
+                    return invalidated.size();
+                }));
+    }
+
+    /**
+     * Validation reads only in-memory state once it is loaded, so it is answered on the calling
+     * thread. While the state is still loading after startup, {@link TokenService} asks the
+     * database over JDBC; those few calls run on a thread that may block.
+     */
+    public Mono<TokenValidationResponse> validateToken(String tokenValue) {
+        if (tokenIndex.isLoaded() && revocations.isLoaded()) {
+            return Mono.fromSupplier(() -> tokenService.validateToken(tokenValue));
+        }
+        return Mono.fromCallable(() -> tokenService.validateToken(tokenValue)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Every token of a user, read from the database only as fast as the subscriber consumes them.
+     */
+    public Flux<Token> listTokens(String userId) {
+        return timedMany(Operation.LIST, () -> tokenRepository.findByUserId(userId));
+    }
+
+    public Flux<Token> streamTokens(String userId, boolean activeOnly) {
+        return timedMany(Operation.STREAM, () -> activeOnly
+                ? tokenRepository.findActiveByUserId(userId, LocalDateTime.now())
+                : tokenRepository.findByUserId(userId));
+    }
+
+    /**
+     * See {@link TokenService#listActiveTokens(String)}; a cache miss is loaded over R2DBC.
+     */
+    public Mono<ActiveTokenCache.ActiveTokens> listActiveTokens(String userId) {
+        return timed(Operation.LIST, outcome -> {
+            LocalDateTime now = LocalDateTime.now();
+            return Mono.fromFuture(() -> activeTokens.getAsync(userId, now, id -> tokenRepository
+                    .findActiveSummariesByUserId(id, now)
+                    .collectList()
+                    .map(ActiveTokenCache.ActiveTokens::new)
+                    .toFuture()));
+        });
+    }
+
+    public Mono<CursorPage<Token>> listTokens(String userId, String cursor, int limit) {
+        return timed(Operation.LIST, outcome -> {
+            TokenService.checkPageSize(limit);
+            long afterId = cursor == null ? 0 : KeysetCursor.decode(cursor).getId();
+            return tokenRepository.findPageByUserId(userId, afterId, limit + 1).collectList()
+                    .map(rows -> CursorPage.of(rows, limit, token -> KeysetCursor.of(token.getId()).encode()));
+        });
+    }
+
+    public Mono<CursorPage<Token>> listActiveTokens(String userId, String cursor, int limit) {
+        return timed(Operation.LIST, outcome -> {
+            TokenService.checkPageSize(limit);
+            long afterId = cursor == null ? 0 : KeysetCursor.decode(cursor).getId();
+            return tokenRepository.findActivePageByUserId(userId, afterId, LocalDateTime.now(), limit + 1).collectList()
+                    .map(rows -> CursorPage.of(rows, limit, token -> KeysetCursor.of(token.getId()).encode()));
+        });
+    }
+
+    private void invalidated(List<InvalidatedToken> invalidated) {
+        List<AuditLog> auditLogs = new ArrayList<>(invalidated.size());
+        for (InvalidatedToken token : invalidated) {
+            tokenService.revoke(token);
+            tokenService.publishInvalidated(token);
+            auditLogs.add(new AuditLog("INVALIDATE", token.getTokenValue(), token.getUserId()));
+        }
+        activeTokens.evictAll(invalidated.stream().map(InvalidatedToken::getUserId).distinct().toList());
+        auditService.logAll(auditLogs);
+    }
+
+    private static <T> Mono<T> notFound(AtomicReference<Outcome> outcome, String operation, String hashed) {
+        outcome.set(Outcome.NOT_FOUND);
+        logger.debug("op={} outcome=not_found token={}", operation, TokenHasher.fingerprint(hashed));
+        return Mono.error(new IllegalArgumentException("Token not found."));
+    }
+
+    /**
+     * Runs {@code body} per subscription and records it like {@link TokenService} does: success
+     * unless the body set another outcome, error if it failed without setting one, or was cancelled.
+     */
+    private <T> Mono<T> timed(Operation operation, Function<AtomicReference<Outcome>, Mono<T>> body) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            AtomicReference<Outcome> outcome = new AtomicReference<>(Outcome.ERROR);
+            return body.apply(outcome)
+                    .doOnSuccess(result -> outcome.compareAndSet(Outcome.ERROR, Outcome.SUCCESS))
+                    .doFinally(signal -> metrics.record(operation, outcome.get(), start));
+        });
+    }
+
+    private <T> Flux<T> timedMany(Operation operation, Supplier<Flux<T>> body) {
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            AtomicReference<Outcome> outcome = new AtomicReference<>(Outcome.ERROR);
+            return body.get()
+                    .doOnComplete(() -> outcome.set(Outcome.SUCCESS))
+                    .doFinally(signal -> metrics.record(operation, outcome.get(), start));
+        });
+    }
+
+    private static final class Rotation {
+        private final InvalidatedToken old;
+        private final Token successor;
+        private final TokenResponse response;
+
+        Rotation(InvalidatedToken old, Token successor, TokenResponse response) {
+            this.old = old;
+            this.successor = successor;
+            this.response = response;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package org.example.tokenmanager.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.tokenmanager.repository.TokenStore;
+import org.example.tokenmanager.repository.TokenStore.RevokedTokenRow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Hashes of signed tokens that were invalidated before they expired. A signed token carries
+ * its own proof of validity, so this list is the only thing that can turn it down early.
+ * Entries are needed only until the token's own expiry and are purged after it, which keeps
+ * the list as small as the number of recently revoked signed tokens.
+ * <p>
+ * Filled from the database at startup ({@link #load()}), by local invalidations and by
+ * replicated events from peers. Loading only adds entries, so it can run again at any time.
+ */
+@Component
+public class RevocationList {
+
+    private static final Logger logger = LoggerFactory.getLogger(RevocationList.class);
+
+    private final TokenStore tokenStore;
+    // Token hash -> epoch millis at which the token expires anyway
+    private final ConcurrentHashMap<String, Long> revoked = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    public RevocationList(TokenStore tokenStore, MeterRegistry meterRegistry) {
+        this.tokenStore = tokenStore;
+        Gauge.builder("tokens.signed.revoked", revoked, Map::size)
+                .description("Revoked signed tokens that have not expired yet")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    // Not read-only, so it runs on the primary: a lagging replica would miss the newest revocations.
+    @Transactional
+    public void load() {
+        long start = System.currentTimeMillis();
+        try (Stream<RevokedTokenRow> rows = tokenStore.streamRevokedSignedTokens(LocalDateTime.now())) {
+            rows.forEach(row -> revoke(row.getTokenValue(), TokenIndex.toEpochMillis(row.getExpiresAt())));
+        }
+        loaded = true;
+        logger.info("Revocation list loaded with {} signed tokens in {} ms", revoked.size(), System.currentTimeMillis() - start);
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @param expiresAt epoch millis at which the token expires
+     */
+    public void revoke(String hashedToken, long expiresAt) {
+        if (expiresAt > System.currentTimeMillis()) {
+            revoked.put(hashedToken, expiresAt);
+        }
+    }
+
+    public boolean isRevoked(String hashedToken) {
+        return revoked.containsKey(hashedToken);
+    }
+
+    /**
+     * Drops entries for tokens that have expired; their expiry alone rejects them now.
+     */
+    @Scheduled(fixedDelayString = "${tokens.signed.revocation-purge-ms:60000}")
+    public void purgeExpired() {
+        purgeExpired(System.currentTimeMillis());
+    }
+
+    void purgeExpired(long now) {
+        revoked.values().removeIf(expiresAt -> expiresAt <= now);
+    }
+
+    int size() {
+        return revoked.size();
+    }
+}
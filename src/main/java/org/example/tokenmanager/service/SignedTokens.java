@@ -0,0 +1,81 @@
+package org.example.tokenmanager.service;
+
+import org.example.tokenmanager.util.TokenSigner;
+import org.example.tokenmanager.util.TokenSigner.Claims;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Token format configuration. With {@code tokens.format=signed}, new tokens are HMAC-signed
+ * (see {@link TokenSigner}) and are validated by their signature, expiry and the
+ * {@link RevocationList} without a database read. Signed tokens always expire: without a
+ * requested TTL they get {@code tokens.signed.default-ttl}.
+ * <p>
+ * Tokens signed with any key in {@code tokens.signed.keys} verify, whichever format is
+ * issued now. To rotate keys, add the new key everywhere, then make it the
+ * {@code signing-key}, and drop the old key once the longest-lived token it signed has expired.
+ */
+@Component
+public class SignedTokens {
+
+    private static final Logger logger = LoggerFactory.getLogger(SignedTokens.class);
+
+    private final boolean issuing;
+    private final Duration defaultTtl;
+    // null when no keys are configured: nothing verifies
+    private final TokenSigner signer;
+
+    public SignedTokens(@Value("${tokens.format:opaque}") String format,
+                        @Value("${tokens.signed.keys:}") String keys,
+                        @Value("${tokens.signed.signing-key:}") String signingKey,
+                        @Value("${tokens.signed.default-ttl:PT1H}") String defaultTtl) {
+        if (!format.equals("opaque") && !format.equals("signed")) {
+            throw new IllegalArgumentException("Token format must be opaque or signed: " + format);
+        }
+        this.issuing = format.equals("signed");
+        this.defaultTtl = Duration.parse(defaultTtl.trim());
+        if (this.defaultTtl.isNegative() || this.defaultTtl.isZero()) {
+            throw new IllegalArgumentException("Signed token TTL must be positive: " + defaultTtl.trim());
+        }
+        Map<String, byte[]> parsed = TokenSigner.parseKeys(keys);
+        if (issuing && signingKey.isBlank()) {
+            throw new IllegalArgumentException("Signed tokens need tokens.signed.signing-key.");
+        }
+        this.signer = parsed.isEmpty() ? null : new TokenSigner(parsed, signingKey.isBlank() ? null : signingKey.trim());
+        if (signer != null) {
+            logger.info("Signed tokens: {}, verifying keys {}",
+                    issuing ? "issuing with key " + signer.getSigningKeyId() : "not issuing", signer.getKeyIds());
+        }
+    }
+
+    /**
+     * Whether new tokens are signed.
+     */
+    public boolean isIssuing() {
+        return issuing;
+    }
+
+    /**
+     * The expiry of a signed token issued at {@code now}: {@code requested}, or the default TTL if none was asked for.
+     */
+    public LocalDateTime expiresAt(LocalDateTime now, LocalDateTime requested) {
+        return requested != null ? requested : now.plus(defaultTtl);
+    }
+
+    public String issue(String userId, LocalDateTime issuedAt, LocalDateTime expiresAt) {
+        return signer.sign(userId, TokenIndex.toEpochMillis(issuedAt), TokenIndex.toEpochMillis(expiresAt));
+    }
+
+    /**
+     * @return the claims of a correctly signed token, or {@code null}; expiry is not checked
+     */
+    public Claims verify(String token) {
+        return signer == null ? null : signer.verify(token);
+    }
+}
@@ -0,0 +1,116 @@
+package org.example.tokenmanager.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.tokenmanager.cluster.TokenEventPublisher;
+import org.example.tokenmanager.model.AuditLog;
+import org.example.tokenmanager.repository.TokenBulkOperations.ExpiredToken;
+import org.example.tokenmanager.repository.TokenStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Moves expired tokens out of {@code tokens} into {@code tokens_archive}. Expired tokens are
+ * already rejected on lookup; the sweep keeps the table, its indexes and the in-process caches
+ * from growing with them. Each batch is its own short transaction over at most
+ * {@code batch-size} rows taken from the expiry index, so no sweep holds locks for long.
+ * Tokens that were still valid when they expired get an EXPIRE audit entry.
+ */
+@Component
+@ConditionalOnProperty(name = "tokens.expiry.sweeper.enabled", havingValue = "true", matchIfMissing = true)
+public class TokenExpirySweeper {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenExpirySweeper.class);
+
+    private final TokenStore tokenStore;
+    private final TransactionTemplate transactionTemplate;
+    private final TokenIndex tokenIndex;
+    private final ActiveTokenCache activeTokens;
+    private final TokenEventPublisher events;
+    private final AuditService auditService;
+    private final int batchSize;
+    private final int maxBatches;
+    private final Counter archived;
+
+    public TokenExpirySweeper(TokenStore tokenStore,
+                              TransactionTemplate transactionTemplate,
+                              TokenIndex tokenIndex,
+                              ActiveTokenCache activeTokens,
+                              TokenEventPublisher events,
+                              AuditService auditService,
+                              MeterRegistry meterRegistry,
+                              @Value("${tokens.expiry.batch-size:1000}") int batchSize,
+                              @Value("${tokens.expiry.max-batches-per-sweep:100}") int maxBatches) {
+        this.tokenStore = tokenStore;
+        this.transactionTemplate = transactionTemplate;
+        this.tokenIndex = tokenIndex;
+        this.activeTokens = activeTokens;
+        this.events = events;
+        this.auditService = auditService;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.archived = Counter.builder("tokens.expired.archived")
+                .description("Expired tokens moved to tokens_archive")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${tokens.expiry.sweep-interval-ms:60000}",
+            initialDelayString = "${tokens.expiry.sweep-interval-ms:60000}")
+    public void sweep() {
+        try {
+            int total = sweep(LocalDateTime.now());
+            if (total > 0) {
+                logger.info("Archived {} expired tokens", total);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Token expiry sweep failed", e);
+        }
+    }
+
+    /**
+     * Archives tokens expired at {@code now}, batch by batch, until none are left or
+     * {@code max-batches-per-sweep} is reached; the rest waits for the next run.
+     *
+     * @return the number of tokens archived
+     */
+    int sweep(LocalDateTime now) {
+        int total = 0;
+        for (int i = 0; i < maxBatches; i++) {
+            List<ExpiredToken> batch = transactionTemplate.execute(status -> tokenStore.archiveExpired(now, batchSize));
+            if (batch == null || batch.isEmpty()) {
+                break;
+            }
+            List<AuditLog> auditLogs = new ArrayList<>(batch.size());
+            Set<String> users = new HashSet<>();
+            for (ExpiredToken token : batch) {
+                if (token.isValid()) {
+                    tokenIndex.remove(token.getTokenValue());
+                    users.add(token.getUserId());
+                    events.tokenInvalidated(token.getTokenValue());
+                    auditLogs.add(new AuditLog("EXPIRE", token.getTokenValue(), token.getUserId()));
+                }
+            }
+            activeTokens.evictAll(users);
+            if (!auditLogs.isEmpty()) {
+                auditService.logAll(auditLogs);
+            }
+            archived.increment(batch.size());
+            total += batch.size();
+            if (batch.size() < batchSize) {
+                break;
+            }
+        }
+        return total;
+    }
+}
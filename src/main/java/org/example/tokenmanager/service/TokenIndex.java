@@ -0,0 +1,172 @@
+package org.example.tokenmanager.service;
+
+import org.example.tokenmanager.repository.TokenStore;
+import org.example.tokenmanager.repository.TokenStore.TokenStateRow;
+import org.example.tokenmanager.repository.TokenStore.ValidTokenRow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * In-process index of all valid tokens, keyed by their SHA-256 hex digest.
+ * Lets the validation path answer without a database round trip. Only valid
+ * tokens are held, so a miss means the token is unknown or no longer valid. Entries carry
+ * their expiry; an entry past it must be treated as a miss (see {@link Entry#isExpired}).
+ * {@link #load()} can run again at any time to resynchronise with the database.
+ * At startup a snapshot may fill the index instead (see {@link #restore}).
+ */
+@Component
+public class TokenIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenIndex.class);
+
+    private final TokenStore tokenStore;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    // Hashes removed while the initial load is running, so the loader does not resurrect them.
+    private final Set<String> removedWhileLoading = ConcurrentHashMap.newKeySet();
+    private volatile boolean loading;
+    private volatile boolean loaded;
+    // Bumped by every load; entries neither seen by the load nor added meanwhile are stale.
+    private volatile int epoch;
+
+    public TokenIndex(TokenStore tokenStore) {
+        this.tokenStore = tokenStore;
+    }
+
+    /**
+     * Runs after {@link TokenSnapshots#restore()}; scans the table only if that did not fill the index.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public synchronized void loadOnStartup() {
+        if (!loaded) {
+            load();
+        }
+    }
+
+    // Not read-only, so it runs on the primary: a lagging replica would miss the newest tokens.
+    @Transactional
+    public synchronized void load() {
+        int current = ++epoch;
+        loading = true;
+        long start = System.currentTimeMillis();
+        try (Stream<ValidTokenRow> rows = tokenStore.streamValidTokens()) {
+            rows.forEach(row -> {
+                long expiresAt = toEpochMillis(row.getExpiresAt());
+                // Expired but not yet swept: leave it out, it only takes up room.
+                if (!removedWhileLoading.contains(row.getTokenValue()) && (expiresAt == 0 || expiresAt > start)) {
+                    entries.computeIfAbsent(row.getTokenValue(), hash -> new Entry(row.getUserId(), expiresAt, current)).epoch = current;
+                }
+            });
+            // Valid when last loaded but not anymore: invalidated by something this node never heard of.
+            entries.values().removeIf(entry -> entry.epoch < current);
+        } finally {
+            loading = false;
+            removedWhileLoading.clear();
+        }
+        loaded = true;
+        logger.info("Token index loaded with {} valid tokens in {} ms", entries.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Startup alternative to {@link #load()}: applies {@code states}, a snapshot followed by the
+     * rows changed since it was taken, so later rows win. As during a load, tokens removed
+     * meanwhile are not brought back.
+     */
+    public synchronized void restore(Stream<TokenStateRow> states) {
+        int current = epoch;
+        loading = true;
+        long start = System.currentTimeMillis();
+        try {
+            states.forEach(row -> {
+                long expiresAt = toEpochMillis(row.getExpiresAt());
+                if (!row.isValidToken() || (expiresAt != 0 && expiresAt <= start)) {
+                    entries.remove(row.getTokenValue());
+                } else if (!removedWhileLoading.contains(row.getTokenValue())) {
+                    entries.put(row.getTokenValue(), new Entry(row.getUserId(), expiresAt, current));
+                }
+            });
+        } finally {
+            loading = false;
+            removedWhileLoading.clear();
+        }
+        loaded = true;
+        logger.info("Token index restored with {} valid tokens in {} ms", entries.size(), System.currentTimeMillis() - start);
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Returns the entry for a valid token, or {@code null} if the hash is not a valid token.
+     */
+    public Entry get(String hashedToken) {
+        return entries.get(hashedToken);
+    }
+
+    public void put(String hashedToken, String userId) {
+        put(hashedToken, userId, 0);
+    }
+
+    /**
+     * @param expiresAt epoch millis after which the token is no longer valid, or 0 if it never expires
+     */
+    public void put(String hashedToken, String userId, long expiresAt) {
+        entries.put(hashedToken, new Entry(userId, expiresAt, epoch));
+    }
+
+    public void remove(String hashedToken) {
+        if (loading) {
+            removedWhileLoading.add(hashedToken);
+        }
+        entries.remove(hashedToken);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Converts an expiry to the epoch millis kept in the index; {@code null} (never expires) becomes 0.
+     */
+    public static long toEpochMillis(LocalDateTime expiresAt) {
+        return expiresAt == null ? 0 : expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    public static final class Entry {
+        private final String userId;
+        private final long expiresAt;
+        private volatile int epoch;
+
+        Entry(String userId, long expiresAt, int epoch) {
+            this.userId = userId;
+            this.expiresAt = expiresAt;
+            this.epoch = epoch;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        /**
+         * Epoch millis after which the token is no longer valid, or 0 if it never expires.
+         */
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+
+        public boolean isExpired(long now) {
+            return expiresAt != 0 && expiresAt <= now;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.example.tokenmanager.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters for {@link TokenService}. Every timer and counter is registered up front and
+ * looked up by enum ordinal, so recording on the hot path is an array read plus the
+ * meter update itself, with no tag or map allocation per call.
+ * <ul>
+ *   <li>{@code token.operation} (timer, tag {@code operation}): end-to-end latency with a percentile histogram</li>
+ *   <li>{@code token.operation.outcome} (counter, tags {@code operation}, {@code outcome})</li>
+ *   <li>{@code token.hash} (timer): time spent hashing, to tell it apart from database and audit time
+ *       ({@code spring.data.repository.invocations} and {@code audit.log})</li>
+ * </ul>
+ */
+@Component
+public class TokenMetrics {
+
+    public enum Operation {
+        GENERATE, GENERATE_BATCH, ROTATE, INVALIDATE, INVALIDATE_BATCH, INVALIDATE_USER, VALIDATE, LIST, STREAM;
+
+        final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    public enum Outcome {
+        SUCCESS, NOT_FOUND, ALREADY_INVALID, INVALID, EXPIRED, ERROR;
+
+        final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    private final Timer[] timers;
+    private final Counter[][] outcomes;
+    private final Timer hashTimer;
+
+    public TokenMetrics(MeterRegistry meterRegistry) {
+        Operation[] operations = Operation.values();
+        Outcome[] outcomeValues = Outcome.values();
+        this.timers = new Timer[operations.length];
+        this.outcomes = new Counter[operations.length][outcomeValues.length];
+        for (Operation operation : operations) {
+            timers[operation.ordinal()] = Timer.builder("token.operation")
+                    .description("Latency of token operations")
+                    .tag("operation", operation.tag)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            for (Outcome outcome : outcomeValues) {
+                outcomes[operation.ordinal()][outcome.ordinal()] = Counter.builder("token.operation.outcome")
+                        .description("Token operations by outcome")
+                        .tag("operation", operation.tag)
+                        .tag("outcome", outcome.tag)
+                        .register(meterRegistry);
+            }
+        }
+        this.hashTimer = Timer.builder("token.hash")
+                .description("Time spent hashing token values")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Records one finished operation that started at {@code startNanos} ({@link System#nanoTime()}).
+     */
+    public void record(Operation operation, Outcome outcome, long startNanos) {
+        timers[operation.ordinal()].record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        outcomes[operation.ordinal()][outcome.ordinal()].increment();
+    }
+
+    public void recordHash(long startNanos) {
+        hashTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+}
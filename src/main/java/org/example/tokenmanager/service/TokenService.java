@@ -1,96 +1,518 @@
 package org.example.tokenmanager.service;
 
+import org.example.tokenmanager.cluster.TokenEventPublisher;
+import org.example.tokenmanager.controller.dto.CursorPage;
 import org.example.tokenmanager.controller.dto.TokenResponse;
+import org.example.tokenmanager.controller.dto.TokenValidationResponse;
+import org.example.tokenmanager.model.AuditLog;
 import org.example.tokenmanager.model.Token;
-import org.example.tokenmanager.repository.TokenRepository;
+import org.example.tokenmanager.repository.TokenBulkOperations.InvalidatedToken;
+import org.example.tokenmanager.repository.TokenStore;
+import org.example.tokenmanager.service.TokenMetrics.Operation;
+import org.example.tokenmanager.service.TokenMetrics.Outcome;
+import org.example.tokenmanager.util.KeysetCursor;
+import org.example.tokenmanager.util.TokenGenerator;
 import org.example.tokenmanager.util.TokenHasher;
+import org.example.tokenmanager.util.TokenSigner;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.security.SecureRandom;
 import java.time.LocalDateTime;
-import java.util.Base64;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class TokenService {
 
-    private final TokenRepository tokenRepository;
+    static final int MAX_BATCH_SIZE = 1000;
+    static final int MAX_PAGE_SIZE = 1000;
+
+    private final TokenStore tokenStore;
     private final AuditService auditService;
+    private final TokenIndex tokenIndex;
+    private final IssuedTokenFilter issuedTokens;
+    private final SignedTokens signedTokens;
+    private final RevocationList revocations;
+    private final TokenTtlPolicies ttlPolicies;
+    private final LastUsedTracker lastUsed;
+    private final ActiveTokenCache activeTokens;
+    private final TokenEventPublisher events;
+    private final TokenMetrics metrics;
     private static final Logger logger = LoggerFactory.getLogger(TokenService.class);
 
-    public TokenService(TokenRepository tokenRepository, AuditService auditService) {
-        this.tokenRepository = tokenRepository;
+    public TokenService(TokenStore tokenStore, AuditService auditService, TokenIndex tokenIndex,
+                        IssuedTokenFilter issuedTokens, SignedTokens signedTokens, RevocationList revocations,
+                        TokenTtlPolicies ttlPolicies, LastUsedTracker lastUsed, ActiveTokenCache activeTokens,
+                        TokenEventPublisher events, TokenMetrics metrics) {
+        this.tokenStore = tokenStore;
         this.auditService = auditService;
+        this.tokenIndex = tokenIndex;
+        this.issuedTokens = issuedTokens;
+        this.signedTokens = signedTokens;
+        this.revocations = revocations;
+        this.ttlPolicies = ttlPolicies;
+        this.lastUsed = lastUsed;
+        this.activeTokens = activeTokens;
+        this.events = events;
+        this.metrics = metrics;
     }
 
     public TokenResponse generateToken(String userId) {
-        logger.info("Generating token for user '{}'", userId);
-        String rawToken = generateSecureToken();
-        String hashed = TokenHasher.hash(rawToken);
-        Token token = new Token(userId, hashed);
-        tokenRepository.save(token);
-        auditService.logAction("GENERATE", hashed, userId);
-        logger.debug("Generated token (raw): {}", rawToken);
-        return new TokenResponse(rawToken, userId);
+        return generateToken(userId, null, null);
+    }
+
+    /**
+     * Issues a token that expires after {@code ttlSeconds}, or after the TTL of the named
+     * {@code policy}; with neither, the configured default TTL applies (see {@link TokenTtlPolicies}).
+     * In signed mode the token is HMAC-signed (see {@link SignedTokens}).
+     */
+    public TokenResponse generateToken(String userId, Long ttlSeconds, String policy) {
+        long start = System.nanoTime();
+        Outcome outcome = Outcome.ERROR;
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime expiresAt = expiresAt(now, ttlPolicies.expiresAt(now, ttlSeconds, policy));
+            String rawToken = newRawToken(userId, now, expiresAt);
+            String hashed = hash(rawToken);
+            Token token = newToken(userId, hashed, expiresAt);
+            tokenStore.save(token);
+            issued(token);
+            activeTokens.evict(userId);
+            auditService.logAction("GENERATE", hashed, userId);
+            logger.debug("op=generate user={} token={}", userId, TokenHasher.fingerprint(hashed));
+            outcome = Outcome.SUCCESS;
+            return new TokenResponse(rawToken, userId, expiresAt);
+        } finally {
+            metrics.record(Operation.GENERATE, outcome, start);
+        }
     }
 
+    /**
+     * Invalidates the old token and issues its replacement in one short transaction: a
+     * conditional UPDATE followed by an INSERT. The UPDATE's row count decides concurrent
+     * rotations of the same token, so only one of them can mint a successor. An expired token
+     * cannot be rotated; the successor gets the same TTL the old token was issued with.
+     */
+    @Transactional
     public TokenResponse rotateToken(String oldTokenValue) {
-        String hashedOld = TokenHasher.hash(oldTokenValue);
-        Optional<Token> existingTokenOpt = tokenRepository.findByTokenValue(hashedOld);
-        if (existingTokenOpt.isEmpty()) {
-            logger.error("Token rotation failed: token not found - {}", oldTokenValue);
-            throw new IllegalArgumentException("Token not found.");
-        }
-        Token oldToken = existingTokenOpt.get();
-        if (!oldToken.isValidToken()) {
-            logger.warn("Token already invalid: {}", oldTokenValue);
-            throw new IllegalStateException("Token is already invalid.");
-        }
-        oldToken.setValidToken(false);
-        oldToken.setRotatedAt(LocalDateTime.now());
-        tokenRepository.save(oldToken);
-        String newRawToken = generateSecureToken();
-        String newHashedToken = TokenHasher.hash(newRawToken);
-        Token newToken = new Token(oldToken.getUserId(), newHashedToken);
-        tokenRepository.save(newToken);
-        logger.info("Token rotated for user '{}'.", oldToken.getUserId());
-        auditService.logAction("ROTATE_OLD", hashedOld, oldToken.getUserId());
-        auditService.logAction("ROTATE_NEW", newHashedToken, oldToken.getUserId());
-        return new TokenResponse(newRawToken, oldToken.getUserId());
+        long start = System.nanoTime();
+        Outcome outcome = Outcome.ERROR;
+        try {
+            String hashedOld = hash(oldTokenValue);
+            if (!mightBeIssued(oldTokenValue, hashedOld)) {
+                outcome = Outcome.NOT_FOUND;
+                logger.debug("op=rotate outcome=not_found token={}", TokenHasher.fingerprint(hashedOld));
+                throw new IllegalArgumentException("Token not found.");
+            }
+            LocalDateTime now = LocalDateTime.now();
+            Optional<InvalidatedToken> old = tokenStore.invalidateIfValid(hashedOld, now, now);
+            if (old.isEmpty()) {
+                // Off the hot path: only a failed rotation pays for telling the two cases apart.
+                if (tokenStore.existsByTokenValue(hashedOld)) {
+                    outcome = Outcome.ALREADY_INVALID;
+                    logger.debug("op=rotate outcome=already_invalid token={}", TokenHasher.fingerprint(hashedOld));
+                    throw new IllegalStateException("Token is already invalid.");
+                }
+                outcome = Outcome.NOT_FOUND;
+                logger.debug("op=rotate outcome=not_found token={}", TokenHasher.fingerprint(hashedOld));
+                throw new IllegalArgumentException("Token not found.");
+            }
+            String userId = old.get().getUserId();
+            LocalDateTime expiresAt = expiresAt(now, old.get().getTtl() == null ? null : now.plus(old.get().getTtl()));
+            revoke(old.get());
+            String newRawToken = newRawToken(userId, now, expiresAt);
+            String newHashedToken = hash(newRawToken);
+            Token successor = newToken(userId, newHashedToken, expiresAt);
+            tokenStore.insertAll(List.of(successor));
+            afterCommit(() -> {
+                issued(successor);
+                activeTokens.evict(userId);
+                publishInvalidated(old.get());
+            });
+            logger.debug("op=rotate user={} token={} successor={}", userId,
+                    TokenHasher.fingerprint(hashedOld), TokenHasher.fingerprint(newHashedToken));
+            auditService.logAction("ROTATE_OLD", hashedOld, userId);
+            auditService.logAction("ROTATE_NEW", newHashedToken, userId);
+            outcome = Outcome.SUCCESS;
+            return new TokenResponse(newRawToken, userId, expiresAt);
+        } finally {
+            metrics.record(Operation.ROTATE, outcome, start);
+        }
     }
 
+    /**
+     * Invalidates a token with a single conditional UPDATE. Invalidating a token that is
+     * already invalid or expired is a no-op rather than an error.
+     */
     public void invalidateToken(String tokenValue) {
-        String hashed = TokenHasher.hash(tokenValue);
-        logger.info("Attempting to invalidate token: {}", tokenValue);
-        Optional<Token> tokenOpt = tokenRepository.findByTokenValue(hashed);
-        if (tokenOpt.isPresent()) {
-            Token token = tokenOpt.get();
-            token.setValidToken(false);
-            tokenRepository.save(token);
-            logger.info("Token invalidated for user '{}'.", token.getUserId());
-            auditService.logAction("INVALIDATE", hashed, token.getUserId());
-        } else {
-            logger.error("Token invalidation failed: token not found - {}", tokenValue);
-            throw new IllegalArgumentException("Token not found.");
+        long start = System.nanoTime();
+        Outcome outcome = Outcome.ERROR;
+        try {
+            String hashed = hash(tokenValue);
+            if (!mightBeIssued(tokenValue, hashed)) {
+                outcome = Outcome.NOT_FOUND;
+                logger.debug("op=invalidate outcome=not_found token={}", TokenHasher.fingerprint(hashed));
+                throw new IllegalArgumentException("Token not found.");
+            }
+            Optional<InvalidatedToken> token = tokenStore.invalidateIfValid(hashed, LocalDateTime.now(), null);
+            if (token.isPresent()) {
+                String userId = token.get().getUserId();
+                revoke(token.get());
+                activeTokens.evict(userId);
+                publishInvalidated(token.get());
+                logger.debug("op=invalidate user={} token={}", userId, TokenHasher.fingerprint(hashed));
+                auditService.logAction("INVALIDATE", hashed, userId);
+                outcome = Outcome.SUCCESS;
+            } else if (tokenStore.existsByTokenValue(hashed)) {
+                tokenIndex.remove(hashed);
+                logger.debug("op=invalidate outcome=already_invalid token={}", TokenHasher.fingerprint(hashed));
+                outcome = Outcome.ALREADY_INVALID;
+            } else {
+                outcome = Outcome.NOT_FOUND;
+                logger.debug("op=invalidate outcome=not_found token={}", TokenHasher.fingerprint(hashed));
+                throw new IllegalArgumentException("Token not found.");
+            }
+        } finally {
+            metrics.record(Operation.INVALIDATE, outcome, start);
+        }
+    }
+
+    public List<TokenResponse> generateTokens(String userId, int count) {
+        return generateTokens(userId, count, null, null);
+    }
+
+    @Transactional
+    public List<TokenResponse> generateTokens(String userId, int count, Long ttlSeconds, String policy) {
+        long start = System.nanoTime();
+        Outcome outcome = Outcome.ERROR;
+        try {
+            if (count < 1 || count > MAX_BATCH_SIZE) {
+                throw new IllegalArgumentException("Count must be between 1 and " + MAX_BATCH_SIZE + ".");
+            }
+            logger.debug("op=generate_batch user={} count={}", userId, count);
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime expiresAt = expiresAt(now, ttlPolicies.expiresAt(now, ttlSeconds, policy));
+            List<Token> tokens = new ArrayList<>(count);
+            List<TokenResponse> responses = new ArrayList<>(count);
+            List<AuditLog> auditLogs = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String rawToken = newRawToken(userId, now, expiresAt);
+                String hashed = hash(rawToken);
+                tokens.add(newToken(userId, hashed, expiresAt));
+                responses.add(new TokenResponse(rawToken, userId, expiresAt));
+                auditLogs.add(new AuditLog("GENERATE", hashed, userId));
+            }
+            tokenStore.insertAll(tokens);
+            afterCommit(() -> {
+                tokens.forEach(this::issued);
+                activeTokens.evict(userId);
+            });
+            auditService.logAll(auditLogs);
+            outcome = Outcome.SUCCESS;
+            return responses;
+        } finally {
+            metrics.record(Operation.GENERATE_BATCH, outcome, start);
+        }
+    }
+
+    @Transactional
+    public int invalidateTokens(List<String> tokenValues) {
+        long start = System.nanoTime();
+        Outcome outcome = Outcome.ERROR;
+        try {
+            if (tokenValues.size() > MAX_BATCH_SIZE) {
+                throw new IllegalArgumentException("At most " + MAX_BATCH_SIZE + " tokens can be invalidated per request.");
+            }
+            List<String> distinct = tokenValues.stream().distinct().toList();
+            List<String> candidates = new ArrayList<>(distinct.size());
+            for (String tokenValue : distinct) {
+                String hashed = hash(tokenValue);
+                if (mightBeIssued(tokenValue, hashed)) {
+                    candidates.add(hashed);
+                }
+            }
+            List<InvalidatedToken> invalidated = tokenStore.invalidateAll(candidates);
+            List<AuditLog> auditLogs = new ArrayList<>(invalidated.size());
+            for (InvalidatedToken token : invalidated) {
+                // Evict right away rather than after commit: failing closed is the safe direction.
+                revoke(token);
+                auditLogs.add(new AuditLog("INVALIDATE", token.getTokenValue(), token.getUserId()));
+            }
+            afterCommit(() -> {
+                invalidated.forEach(this::publishInvalidated);
+                activeTokens.evictAll(invalidated.stream().map(InvalidatedToken::getUserId).distinct().toList());
+            });
+            auditService.logAll(auditLogs);
+            logger.info("op=invalidate_batch invalidated={} requested={}", invalidated.size(), distinct.size());
+            outcome = Outcome.SUCCESS;
+            return invalidated.size();
+        } finally {
+            metrics.record(Operation.INVALIDATE_BATCH, outcome, start);
+        }
+    }
+
+    @Transactional
+    public int invalidateAllTokens(String userId) {
+        long start = System.nanoTime();
+        Outcome outcome = Outcome.ERROR;
+        try {
+            List<InvalidatedToken> invalidated = tokenStore.invalidateAllByUserId(userId);
+            List<AuditLog> auditLogs = new ArrayList<>(invalidated.size());
+            for (InvalidatedToken token : invalidated) {
+                revoke(token);
+                auditLogs.add(new AuditLog("INVALIDATE", token.getTokenValue(), userId));
+            }
+            afterCommit(() -> {
+                invalidated.forEach(this::publishInvalidated);
+                activeTokens.evict(userId);
+            });
+            auditService.logAll(auditLogs);
+            logger.info("op=invalidate_user user={} invalidated={}", userId, invalidated.size());
+            outcome = Outcome.SUCCESS;
+            return invalidated.size();
+        } finally {
+            metrics.record(Operation.INVALIDATE_USER, outcome, start);
         }
     }
 
+    public TokenValidationResponse validateToken(String tokenValue) {
+        long start = System.nanoTime();
+        TokenValidationResponse response = null;
+        try {
+            response = TokenSigner.isSigned(tokenValue) ? verifySigned(tokenValue) : lookup(hash(tokenValue));
+            return response;
+        } finally {
+            Outcome outcome = response == null ? Outcome.ERROR
+                    : response.isValid() ? Outcome.SUCCESS
+                    : response == EXPIRED ? Outcome.EXPIRED : Outcome.INVALID;
+            metrics.record(Operation.VALIDATE, outcome, start);
+        }
+    }
+
+    // Same body as TokenValidationResponse.invalid(); the distinct instance only tells the metrics why.
+    private static final TokenValidationResponse EXPIRED = new TokenValidationResponse(false, null);
+
+    private TokenValidationResponse lookup(String hashed) {
+        if (!tokenIndex.isLoaded()) {
+            // Index is still warming up after startup; answer from the database meanwhile.
+            if (!issuedTokens.mightBeIssued(hashed)) {
+                return TokenValidationResponse.invalid();
+            }
+            Optional<Token> token = tokenStore.findByTokenValue(hashed).filter(Token::isValidToken);
+            if (token.isEmpty()) {
+                return TokenValidationResponse.invalid();
+            }
+            if (token.get().isExpired(LocalDateTime.now())) {
+                return EXPIRED;
+            }
+            lastUsed.record(hashed, System.currentTimeMillis());
+            return TokenValidationResponse.valid(token.get().getUserId());
+        }
+        TokenIndex.Entry entry = tokenIndex.get(hashed);
+        if (entry == null) {
+            return TokenValidationResponse.invalid();
+        }
+        long now = System.currentTimeMillis();
+        if (entry.isExpired(now)) {
+            // Invalid from its expiry on, whether or not the sweeper has archived it yet.
+            tokenIndex.remove(hashed);
+            return EXPIRED;
+        }
+        lastUsed.record(hashed, now);
+        return TokenValidationResponse.valid(entry.getUserId());
+    }
+
+    /**
+     * Validates a signed token from its signature and expiry alone; the only state consulted
+     * is the in-memory revocation list.
+     */
+    private TokenValidationResponse verifySigned(String tokenValue) {
+        TokenSigner.Claims claims = signedTokens.verify(tokenValue);
+        if (claims == null) {
+            return TokenValidationResponse.invalid();
+        }
+        long now = System.currentTimeMillis();
+        if (claims.isExpired(now)) {
+            return EXPIRED;
+        }
+        String hashed = hash(tokenValue);
+        if (!revocations.isLoaded()) {
+            // Revocations are still loading after startup; ask the database meanwhile.
+            if (tokenStore.findByTokenValue(hashed).filter(Token::isValidToken).isEmpty()) {
+                return TokenValidationResponse.invalid();
+            }
+        } else if (revocations.isRevoked(hashed)) {
+            return TokenValidationResponse.invalid();
+        }
+        lastUsed.record(hashed, now);
+        return TokenValidationResponse.valid(claims.getUserId());
+    }
+
+    @Transactional(readOnly = true)
     public List<Token> listTokens(String userId) {
-        logger.info("Listing tokens for user '{}'", userId);
-        return tokenRepository.findByUserId(userId);
+        long start = System.nanoTime();
+        Outcome outcome = Outcome.ERROR;
+        try {
+            List<Token> tokens = tokenStore.findByUserId(userId);
+            outcome = Outcome.SUCCESS;
+            return tokens;
+        } finally {
+            metrics.record(Operation.LIST, outcome, start);
+        }
     }
 
-    public List<Token> listActiveTokens(String userId) {
-        logger.info("Listing active tokens for user '{}'", userId);
-        return tokenRepository.findByUserIdAndValidTokenTrue(userId);
+    /**
+     * Summaries of the active tokens of a user, served from {@link ActiveTokenCache}. Not
+     * transactional: a cache hit needs no connection, a miss loads in its own transaction.
+     */
+    public ActiveTokenCache.ActiveTokens listActiveTokens(String userId) {
+        long start = System.nanoTime();
+        Outcome outcome = Outcome.ERROR;
+        try {
+            ActiveTokenCache.ActiveTokens tokens = activeTokens.get(userId, LocalDateTime.now());
+            outcome = Outcome.SUCCESS;
+            return tokens;
+        } finally {
+            metrics.record(Operation.LIST, outcome, start);
+        }
     }
 
-    private String generateSecureToken() {
-        byte[] randomBytes = new byte[32];
-        new SecureRandom().nextBytes(randomBytes);
-        return Base64.getUrlEncoder().withoutPadding().encodeToString(randomBytes);
+    @Transactional(readOnly = true)
+    public CursorPage<Token> listTokens(String userId, String cursor, int limit) {
+        long start = System.nanoTime();
+        Outcome outcome = Outcome.ERROR;
+        try {
+            checkPageSize(limit);
+            long afterId = cursor == null ? 0 : KeysetCursor.decode(cursor).getId();
+            List<Token> rows = tokenStore.findByUserIdAndIdGreaterThanOrderByIdAsc(userId, afterId, Limit.of(limit + 1));
+            outcome = Outcome.SUCCESS;
+            return CursorPage.of(rows, limit, token -> KeysetCursor.of(token.getId()).encode());
+        } finally {
+            metrics.record(Operation.LIST, outcome, start);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<Token> listActiveTokens(String userId, String cursor, int limit) {
+        long start = System.nanoTime();
+        Outcome outcome = Outcome.ERROR;
+        try {
+            checkPageSize(limit);
+            long afterId = cursor == null ? 0 : KeysetCursor.decode(cursor).getId();
+            List<Token> rows = tokenStore.findActivePageByUserId(userId, afterId, LocalDateTime.now(), Limit.of(limit + 1));
+            outcome = Outcome.SUCCESS;
+            return CursorPage.of(rows, limit, token -> KeysetCursor.of(token.getId()).encode());
+        } finally {
+            metrics.record(Operation.LIST, outcome, start);
+        }
+    }
+
+    /**
+     * Hands every token of a user to {@code consumer} as it is read from a store cursor.
+     * Each entity is detached after use, so memory stays flat regardless of result size.
+     */
+    @Transactional(readOnly = true)
+    public void streamTokens(String userId, boolean activeOnly, Consumer<Token> consumer) {
+        long start = System.nanoTime();
+        Outcome outcome = Outcome.ERROR;
+        try (Stream<Token> tokens = activeOnly
+                ? tokenStore.streamActiveByUserId(userId, LocalDateTime.now())
+                : tokenStore.streamByUserIdOrderByIdAsc(userId)) {
+            tokens.forEach(token -> {
+                consumer.accept(token);
+                tokenStore.detach(token);
+            });
+            outcome = Outcome.SUCCESS;
+        } finally {
+            metrics.record(Operation.STREAM, outcome, start);
+        }
+    }
+
+    static void checkPageSize(int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+    }
+
+    // The helpers from here on are shared with ReactiveTokenService, which keeps the same in-memory state.
+
+    /**
+     * Signed tokens always expire; opaque ones keep the expiry the TTL policies gave them.
+     */
+    LocalDateTime expiresAt(LocalDateTime now, LocalDateTime requested) {
+        return signedTokens.isIssuing() ? signedTokens.expiresAt(now, requested) : requested;
+    }
+
+    String newRawToken(String userId, LocalDateTime now, LocalDateTime expiresAt) {
+        return signedTokens.isIssuing() ? signedTokens.issue(userId, now, expiresAt) : TokenGenerator.generate();
+    }
+
+    Token newToken(String userId, String hashed, LocalDateTime expiresAt) {
+        Token token = new Token(userId, hashed, expiresAt);
+        token.setSigned(signedTokens.isIssuing());
+        return token;
+    }
+
+    /**
+     * Signed tokens prove themselves; opaque ones must have passed through the issued-token filter.
+     */
+    boolean mightBeIssued(String rawToken, String hashed) {
+        return TokenSigner.isSigned(rawToken) ? signedTokens.verify(rawToken) != null : issuedTokens.mightBeIssued(hashed);
+    }
+
+    void issued(Token token) {
+        long expiresAtMillis = TokenIndex.toEpochMillis(token.getExpiresAt());
+        if (token.isSigned()) {
+            events.signedTokenIssued(token.getTokenValue(), token.getUserId(), expiresAtMillis);
+            return;
+        }
+        issuedTokens.put(token.getTokenValue());
+        tokenIndex.put(token.getTokenValue(), token.getUserId(), expiresAtMillis);
+        events.tokenIssued(token.getTokenValue(), token.getUserId(), expiresAtMillis);
+    }
+
+    void revoke(InvalidatedToken token) {
+        if (token.isSigned()) {
+            revocations.revoke(token.getTokenValue(), TokenIndex.toEpochMillis(token.getExpiresAt()));
+        } else {
+            tokenIndex.remove(token.getTokenValue());
+        }
+    }
+
+    void publishInvalidated(InvalidatedToken token) {
+        if (token.isSigned()) {
+            events.signedTokenRevoked(token.getTokenValue(), token.getUserId(),
+                    TokenIndex.toEpochMillis(token.getExpiresAt()));
+        } else {
+            events.tokenInvalidated(token.getTokenValue());
+        }
+    }
+
+    String hash(String rawToken) {
+        long start = System.nanoTime();
+        String hashed = TokenHasher.hash(rawToken);
+        metrics.recordHash(start);
+        return hashed;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
     }
 }
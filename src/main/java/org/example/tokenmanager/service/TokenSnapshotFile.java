@@ -0,0 +1,306 @@
+package org.example.tokenmanager.service;
+
+import org.example.tokenmanager.repository.TokenStore.TokenStateRow;
+import org.example.tokenmanager.util.BloomFilter;
+import org.example.tokenmanager.util.TokenHasher;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary snapshot of the valid opaque tokens and the issued-token filter, written by
+ * {@link TokenSnapshots}. Big-endian:
+ * <pre>
+ * magic:int version:int watermark:long
+ * token*      hash:32 expiresAt:long userIdLength:short userId
+ * filter      words:int hashCount:int insertions:long word:long * words   (words 0: no filter)
+ * tokenCount:long crc32c:int
+ * </pre>
+ * Times are {@code LocalDateTime} values as microseconds since 1970-01-01T00:00;
+ * {@code expiresAt} is {@link Long#MIN_VALUE} for none and a null userId has length -1.
+ * The checksum covers everything before it. Files are written under a temporary name and
+ * moved into place when complete, and read through a read-only memory mapping.
+ */
+final class TokenSnapshotFile {
+
+    private static final int MAGIC = 0x544B534E; // "TKSN"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int TRAILER_BYTES = 12;
+    private static final long NO_EXPIRY = Long.MIN_VALUE;
+
+    private final LocalDateTime watermark;
+    private final long tokenCount;
+    private final ByteBuffer tokens;
+    private final BloomFilter filter;
+
+    private TokenSnapshotFile(LocalDateTime watermark, long tokenCount, ByteBuffer tokens, BloomFilter filter) {
+        this.watermark = watermark;
+        this.tokenCount = tokenCount;
+        this.tokens = tokens;
+        this.filter = filter;
+    }
+
+    /**
+     * Starts a snapshot of the state as of {@code watermark}; nothing is visible at {@code file}
+     * until {@link Writer#commit} succeeds.
+     */
+    static Writer create(Path file, LocalDateTime watermark) throws IOException {
+        return new Writer(file, watermark);
+    }
+
+    /**
+     * Maps and verifies {@code file}.
+     *
+     * @throws IOException if the file cannot be read or is not a complete snapshot of this version
+     */
+    static TokenSnapshotFile read(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + TRAILER_BYTES + 16 || size > Integer.MAX_VALUE) {
+                throw new IOException("Unexpected snapshot size " + size);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        int checked = buffer.capacity() - Integer.BYTES;
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(0, checked));
+        if ((int) crc.getValue() != buffer.getInt(checked)) {
+            throw new IOException("Snapshot checksum mismatch");
+        }
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a version " + VERSION + " token snapshot");
+        }
+        LocalDateTime watermark = fromMicros(buffer.getLong(8));
+        long tokenCount = buffer.getLong(buffer.capacity() - TRAILER_BYTES);
+
+        // Skip over the tokens to find the filter that follows them.
+        int position = HEADER_BYTES;
+        for (long i = 0; i < tokenCount; i++) {
+            position = nextEntry(buffer, position);
+        }
+        ByteBuffer tokens = buffer.slice(HEADER_BYTES, position - HEADER_BYTES);
+        int words = buffer.getInt(position);
+        if (words < 0 || position + 16 + (long) words * Long.BYTES != buffer.capacity() - TRAILER_BYTES) {
+            throw new IOException("Snapshot layout does not add up");
+        }
+        BloomFilter filter = null;
+        if (words > 0) {
+            int hashCount = buffer.getInt(position + 4);
+            long insertions = buffer.getLong(position + 8);
+            long[] bits = new long[words];
+            buffer.slice(position + 16, words * Long.BYTES).asLongBuffer().get(bits);
+            filter = BloomFilter.fromWords(bits, hashCount, insertions);
+        }
+        return new TokenSnapshotFile(watermark, tokenCount, tokens, filter);
+    }
+
+    /**
+     * Database time (UTC) up to which the snapshot is known to be complete.
+     */
+    LocalDateTime getWatermark() {
+        return watermark;
+    }
+
+    long getTokenCount() {
+        return tokenCount;
+    }
+
+    /**
+     * The saved issued-token filter, or {@code null} if none was saved.
+     */
+    BloomFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * The saved tokens, decoded lazily from the mapping; all of them were valid at the watermark.
+     */
+    Stream<TokenStateRow> tokens() {
+        ByteBuffer entries = tokens.duplicate();
+        Iterator<TokenStateRow> iterator = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return entries.hasRemaining();
+            }
+
+            @Override
+            public TokenStateRow next() {
+                if (!entries.hasRemaining()) {
+                    throw new NoSuchElementException();
+                }
+                byte[] hash = new byte[TokenHasher.DIGEST_LENGTH];
+                entries.get(hash);
+                LocalDateTime expiresAt = fromMicros(entries.getLong());
+                int length = entries.getShort();
+                String userId = null;
+                if (length >= 0) {
+                    byte[] utf8 = new byte[length];
+                    entries.get(utf8);
+                    userId = new String(utf8, StandardCharsets.UTF_8);
+                }
+                return new Entry(TokenHasher.toHex(hash), userId, expiresAt);
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliterator(iterator, tokenCount,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    private static int nextEntry(ByteBuffer buffer, int position) throws IOException {
+        int userIdAt = position + TokenHasher.DIGEST_LENGTH + Long.BYTES;
+        if (userIdAt + Short.BYTES > buffer.capacity() - TRAILER_BYTES) {
+            throw new IOException("Snapshot ends inside a token entry");
+        }
+        return userIdAt + Short.BYTES + Math.max(0, buffer.getShort(userIdAt));
+    }
+
+    private static long toMicros(LocalDateTime time) {
+        if (time == null) {
+            return NO_EXPIRY;
+        }
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + time.getNano() / 1_000;
+    }
+
+    private static LocalDateTime fromMicros(long micros) {
+        if (micros == NO_EXPIRY) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    static final class Writer implements Closeable {
+
+        private final Path file;
+        private final Path temporary;
+        private final FileChannel channel;
+        private final CRC32C crc = new CRC32C();
+        private final DataOutputStream out;
+        private long tokenCount;
+        private boolean committed;
+
+        private Writer(Path file, LocalDateTime watermark) throws IOException {
+            this.file = file;
+            this.temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            this.channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.out = new DataOutputStream(new BufferedOutputStream(
+                    new CheckedOutputStream(Channels.newOutputStream(channel), crc), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(toMicros(watermark));
+        }
+
+        void add(String tokenValue, String userId, LocalDateTime expiresAt) throws IOException {
+            out.write(TokenHasher.fromHex(tokenValue));
+            out.writeLong(toMicros(expiresAt));
+            if (userId == null) {
+                out.writeShort(-1);
+            } else {
+                byte[] utf8 = userId.getBytes(StandardCharsets.UTF_8);
+                if (utf8.length > Short.MAX_VALUE) {
+                    throw new IOException("User ID too long for a snapshot: " + utf8.length + " bytes");
+                }
+                out.writeShort(utf8.length);
+                out.write(utf8);
+            }
+            tokenCount++;
+        }
+
+        /**
+         * Appends the filter ({@code null} for none), forces the file to disk and moves it into place.
+         */
+        void commit(BloomFilter filter) throws IOException {
+            if (filter == null) {
+                out.writeInt(0);
+                out.writeInt(0);
+                out.writeLong(0);
+            } else {
+                long[] words = filter.toWords();
+                out.writeInt(words.length);
+                out.writeInt(filter.hashCount());
+                out.writeLong(filter.insertions());
+                for (long word : words) {
+                    out.writeLong(word);
+                }
+            }
+            out.writeLong(tokenCount);
+            out.flush();
+            out.writeInt((int) crc.getValue());
+            out.flush();
+            channel.force(true);
+            channel.close();
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            committed = true;
+        }
+
+        long getTokenCount() {
+            return tokenCount;
+        }
+
+        /**
+         * Discards the temporary file unless {@link #commit} succeeded.
+         */
+        @Override
+        public void close() throws IOException {
+            channel.close();
+            if (!committed) {
+                Files.deleteIfExists(temporary);
+            }
+        }
+    }
+
+    private static final class Entry implements TokenStateRow {
+        private final String tokenValue;
+        private final String userId;
+        private final LocalDateTime expiresAt;
+
+        Entry(String tokenValue, String userId, LocalDateTime expiresAt) {
+            this.tokenValue = tokenValue;
+            this.userId = userId;
+            this.expiresAt = expiresAt;
+        }
+
+        @Override
+        public String getTokenValue() {
+            return tokenValue;
+        }
+
+        @Override
+        public String getUserId() {
+            return userId;
+        }
+
+        @Override
+        public LocalDateTime getExpiresAt() {
+            return expiresAt;
+        }
+
+        @Override
+        public boolean isValidToken() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package org.example.tokenmanager.service;
+
+import org.example.tokenmanager.config.ConditionalOnJpaStore;
+import org.example.tokenmanager.repository.TokenRepository;
+import org.example.tokenmanager.repository.TokenStore.TokenStateRow;
+import org.example.tokenmanager.util.BloomFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Warm start for the {@link TokenIndex} and {@link IssuedTokenFilter}. Every
+ * {@code tokens.snapshot.interval-ms} the valid opaque tokens and a freshly sized filter over
+ * all opaque tokens are written to {@code tokens.snapshot.file} (see {@link TokenSnapshotFile}),
+ * together with the database time at which the scan started, the watermark.
+ * <p>
+ * At startup {@link #restore()} maps the snapshot and then reads only the rows whose
+ * {@code state_changed_at} is later than the watermark less {@code catch-up-overlap-ms}; the
+ * overlap covers transactions that were still open when the snapshot was taken. It runs
+ * before the full loads of the index and filter, which then find nothing left to do. Startup
+ * listeners finish before Spring Boot reports readiness, so {@code /actuator/health/readiness}
+ * turns UP only after the catch-up. Without a usable snapshot the full loads run as before.
+ * <p>
+ * Rows deleted after the snapshot are not seen by the catch-up. Only the expiry sweeper
+ * deletes tokens, and only expired ones, which the index treats as misses anyway.
+ */
+@Component
+@ConditionalOnJpaStore
+@ConditionalOnProperty(name = "tokens.snapshot.enabled", havingValue = "true", matchIfMissing = true)
+public class TokenSnapshots {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenSnapshots.class);
+
+    private final TokenRepository tokenRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TokenIndex tokenIndex;
+    private final IssuedTokenFilter issuedTokens;
+    private final Path file;
+    private final Duration catchUpOverlap;
+
+    public TokenSnapshots(TokenRepository tokenRepository,
+                          JdbcTemplate jdbcTemplate,
+                          TransactionTemplate transactionTemplate,
+                          TokenIndex tokenIndex,
+                          IssuedTokenFilter issuedTokens,
+                          @Value("${tokens.snapshot.file:data/token-state.snapshot}") Path file,
+                          @Value("${tokens.snapshot.catch-up-overlap-ms:60000}") long catchUpOverlapMs) {
+        this.tokenRepository = tokenRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.tokenIndex = tokenIndex;
+        this.issuedTokens = issuedTokens;
+        this.file = file;
+        this.catchUpOverlap = Duration.ofMillis(catchUpOverlapMs);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void restore() {
+        if (!Files.exists(file)) {
+            logger.info("No token snapshot at {}; loading token state from the database", file);
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            TokenSnapshotFile snapshot = TokenSnapshotFile.read(file);
+            LocalDateTime since = snapshot.getWatermark().minus(catchUpOverlap);
+            LongAdder changes = new LongAdder();
+            // Not read-only, so it runs on the primary: a lagging replica would miss the newest changes.
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<TokenStateRow> changed = tokenRepository.streamTokenStatesChangedSince(since)) {
+                    issuedTokens.restore(snapshot.getFilter(), () -> tokenIndex.restore(Stream.concat(
+                            snapshot.tokens(),
+                            changed.peek(row -> {
+                                changes.increment();
+                                issuedTokens.put(row.getTokenValue());
+                            }))));
+                }
+            });
+            logger.info("Token state restored from the snapshot of {} UTC ({} tokens) and {} changes since in {} ms",
+                    snapshot.getWatermark(), snapshot.getTokenCount(), changes.sum(), System.currentTimeMillis() - start);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not restore token state from {}; loading it from the database", file, e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${tokens.snapshot.interval-ms:900000}",
+            initialDelayString = "${tokens.snapshot.interval-ms:900000}")
+    public void write() {
+        try {
+            long start = System.currentTimeMillis();
+            long tokens = writeSnapshot();
+            logger.info("Token snapshot with {} valid tokens written to {} in {} ms",
+                    tokens, file, System.currentTimeMillis() - start);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Token snapshot failed; retrying next run", e);
+        }
+    }
+
+    /**
+     * Scans the table into a new snapshot and replaces the previous one.
+     *
+     * @return the number of valid tokens written
+     */
+    long writeSnapshot() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try {
+            // Not read-only, so it runs on the primary, whose clock the watermark and state_changed_at share.
+            Long written = transactionTemplate.execute(status -> {
+                LocalDateTime watermark = jdbcTemplate.queryForObject("SELECT now() AT TIME ZONE 'UTC'", LocalDateTime.class);
+                BloomFilter filter = issuedTokens.isEnabled() ? issuedTokens.newFilter(tokenRepository.count()) : null;
+                long now = System.currentTimeMillis();
+                try (TokenSnapshotFile.Writer writer = TokenSnapshotFile.create(file, watermark);
+                     Stream<TokenStateRow> rows = tokenRepository.streamTokenStates()) {
+                    rows.forEach(row -> {
+                        if (filter != null) {
+                            filter.put(row.getTokenValue());
+                        }
+                        long expiresAt = TokenIndex.toEpochMillis(row.getExpiresAt());
+                        if (row.isValidToken() && (expiresAt == 0 || expiresAt > now)) {
+                            try {
+                                writer.add(row.getTokenValue(), row.getUserId(), row.getExpiresAt());
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        }
+                    });
+                    writer.commit(filter);
+                    return writer.getTokenCount();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            return written == null ? 0 : written;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.example.tokenmanager.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Decides when a new token expires. A caller may ask for an explicit TTL or name a configured
+ * policy; otherwise the default TTL applies. An explicit TTL may not exceed the configured maximum.
+ * Durations use the {@link Duration#parse ISO-8601} form, e.g. {@code PT1H} or {@code P30D}.
+ */
+@Component
+public class TokenTtlPolicies {
+
+    private final Duration defaultTtl;
+    private final Duration max;
+    private final Map<String, Duration> policies = new HashMap<>();
+
+    public TokenTtlPolicies(@Value("${tokens.ttl.default:}") String defaultTtl,
+                            @Value("${tokens.ttl.max:}") String max,
+                            @Value("${tokens.ttl.policies:}") String policies) {
+        this.defaultTtl = parse(defaultTtl);
+        this.max = parse(max);
+        for (String policy : policies.split(",")) {
+            if (policy.isBlank()) {
+                continue;
+            }
+            int separator = policy.indexOf('=');
+            if (separator < 1) {
+                throw new IllegalArgumentException("Token policy must be name=duration: " + policy.trim());
+            }
+            this.policies.put(policy.substring(0, separator).trim(), parse(policy.substring(separator + 1)));
+        }
+    }
+
+    /**
+     * Returns the expiry for a token issued at {@code now}, or {@code null} if it never expires.
+     *
+     * @param ttlSeconds explicit TTL requested by the caller, or {@code null}
+     * @param policy     name of a configured policy, or {@code null}
+     */
+    public LocalDateTime expiresAt(LocalDateTime now, Long ttlSeconds, String policy) {
+        Duration ttl = resolve(ttlSeconds, policy);
+        return ttl == null ? null : now.plus(ttl);
+    }
+
+    Duration resolve(Long ttlSeconds, String policy) {
+        if (ttlSeconds != null) {
+            if (ttlSeconds < 1) {
+                throw new IllegalArgumentException("TTL must be at least 1 second.");
+            }
+            Duration ttl = Duration.ofSeconds(ttlSeconds);
+            if (max != null && ttl.compareTo(max) > 0) {
+                throw new IllegalArgumentException("TTL must not exceed " + max.toSeconds() + " seconds.");
+            }
+            return ttl;
+        }
+        if (policy != null) {
+            Duration ttl = policies.get(policy);
+            if (ttl == null) {
+                throw new IllegalArgumentException("Unknown token policy: " + policy);
+            }
+            return ttl;
+        }
+        return defaultTtl;
+    }
+
+    private static Duration parse(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        Duration duration = Duration.parse(value.trim());
+        if (duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("Token TTL must be positive: " + value.trim());
+        }
+        return duration;
+    }
+}
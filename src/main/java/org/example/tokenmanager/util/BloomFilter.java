@@ -0,0 +1,148 @@
+package org.example.tokenmanager.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size Bloom filter over SHA-256 digests, stored in a primitive {@link AtomicLongArray}
+ * (one bit per slot, no per-element objects). Inputs are already uniformly distributed, so
+ * bit positions come straight from the digest by double hashing instead of rehashing.
+ * Thread-safe: concurrent {@link #put} calls set bits with CAS and never lose each other's bits.
+ */
+public final class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final LongAdder insertions = new LongAdder();
+
+    /**
+     * Sizes the filter for {@code expectedInsertions} elements at the given false-positive rate.
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions < 1) {
+            throw new IllegalArgumentException("Expected insertions must be positive.");
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False-positive rate must be between 0 and 1.");
+        }
+        long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        long words = Math.max(1, (optimalBits + 63) >>> 6);
+        if (words > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Bloom filter too large.");
+        }
+        this.bits = new AtomicLongArray((int) words);
+        this.bitCount = words << 6;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+    }
+
+    private BloomFilter(long[] words, int hashCount, long insertions) {
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words.length << 6;
+        this.hashCount = hashCount;
+        this.insertions.add(insertions);
+    }
+
+    /**
+     * Recreates a filter from the {@link #toWords() words}, {@link #hashCount()} and
+     * {@link #insertions()} of a saved one.
+     */
+    public static BloomFilter fromWords(long[] words, int hashCount, long insertions) {
+        if (words.length == 0 || hashCount < 1 || insertions < 0) {
+            throw new IllegalArgumentException("Invalid Bloom filter state.");
+        }
+        return new BloomFilter(words, hashCount, insertions);
+    }
+
+    /**
+     * Adds a digest, given as its lowercase hex form (see {@link TokenHasher#hash(String)}).
+     */
+    public void put(CharSequence hexDigest) {
+        long h1 = parseHexLong(hexDigest, 0);
+        long h2 = parseHexLong(hexDigest, 16);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = index(h1, h2, i);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = bits.get(word);
+            while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+                current = bits.get(word);
+            }
+        }
+        insertions.increment();
+    }
+
+    /**
+     * Returns {@code false} if the digest was definitely never added; {@code true} if it may have been.
+     */
+    public boolean mightContain(CharSequence hexDigest) {
+        long h1 = parseHexLong(hexDigest, 0);
+        long h2 = parseHexLong(hexDigest, 16);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = index(h1, h2, i);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long bitCount() {
+        return bitCount;
+    }
+
+    public int hashCount() {
+        return hashCount;
+    }
+
+    /**
+     * Size of the bit array in bytes.
+     */
+    public long memoryBytes() {
+        return bitCount >>> 3;
+    }
+
+    /**
+     * Copy of the bit array, 64 bits per word. Bits set concurrently may or may not be included.
+     */
+    public long[] toWords() {
+        long[] words = new long[bits.length()];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = bits.get(i);
+        }
+        return words;
+    }
+
+    /**
+     * Number of {@link #put} calls so far; re-adding a digest counts again.
+     */
+    public long insertions() {
+        return insertions.sum();
+    }
+
+    /**
+     * False-positive rate expected at the current number of insertions.
+     */
+    public double expectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-(double) hashCount * insertions() / bitCount), hashCount);
+    }
+
+    private long index(long h1, long h2, int i) {
+        return Long.remainderUnsigned(h1 + i * h2, bitCount);
+    }
+
+    private static long parseHexLong(CharSequence hex, int offset) {
+        if (hex.length() < offset + 16) {
+            throw new IllegalArgumentException("Digest too short.");
+        }
+        long value = 0;
+        for (int i = offset; i < offset + 16; i++) {
+            int digit = Character.digit(hex.charAt(i), 16);
+            if (digit < 0) {
+                throw new IllegalArgumentException("Invalid hex character: " + hex.charAt(i));
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+}
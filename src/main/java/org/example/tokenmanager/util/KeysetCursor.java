@@ -0,0 +1,58 @@
+package org.example.tokenmanager.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Opaque pagination cursor holding the sort key of the last row of a page: the row id,
+ * optionally preceded by a timestamp for listings ordered by time. Clients pass it back
+ * unchanged to fetch the next page.
+ */
+public final class KeysetCursor {
+
+    private final LocalDateTime timestamp;
+    private final long id;
+
+    private KeysetCursor(LocalDateTime timestamp, long id) {
+        this.timestamp = timestamp;
+        this.id = id;
+    }
+
+    public static KeysetCursor of(long id) {
+        return new KeysetCursor(null, id);
+    }
+
+    public static KeysetCursor of(LocalDateTime timestamp, long id) {
+        return new KeysetCursor(timestamp, id);
+    }
+
+    public static KeysetCursor decode(String cursor) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.indexOf('|');
+            if (separator < 0) {
+                return of(Long.parseLong(value));
+            }
+            return of(LocalDateTime.parse(value.substring(0, separator)), Long.parseLong(value.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor.");
+        }
+    }
+
+    public String encode() {
+        String value = timestamp == null ? Long.toString(id) : timestamp + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public LocalDateTime getTimestamp() {
+        if (timestamp == null) {
+            throw new IllegalArgumentException("Invalid cursor.");
+        }
+        return timestamp;
+    }
+
+    public long getId() {
+        return id;
+    }
+}
@@ -0,0 +1,57 @@
+package org.example.tokenmanager.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes one JSON document per line (NDJSON) to a response stream. Output is flushed every
+ * {@code flushEvery} rows so clients see progress without a syscall per row.
+ */
+public class NdjsonWriter implements Closeable {
+
+    public static final String MEDIA_TYPE = "application/x-ndjson";
+
+    private final ObjectWriter objectWriter;
+    private final JsonGenerator generator;
+    private final int flushEvery;
+    private long rows;
+
+    public NdjsonWriter(ObjectMapper objectMapper, OutputStream out, int flushEvery) throws IOException {
+        this.objectWriter = objectMapper.writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .without(SerializationFeature.CLOSE_CLOSEABLE);
+        this.generator = objectMapper.getFactory().createGenerator(out);
+        this.generator.setRootValueSeparator(null);
+        // The servlet container owns the response stream.
+        this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.flushEvery = flushEvery;
+    }
+
+    public void write(Object value) {
+        try {
+            objectWriter.writeValue(generator, value);
+            generator.writeRaw('\n');
+            if (++rows % flushEvery == 0) {
+                generator.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+}
@@ -0,0 +1,65 @@
+package org.example.tokenmanager.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+/**
+ * Per-thread scratch state that stays cheap on virtual threads. Platform threads keep
+ * theirs in a {@link ThreadLocal}. A virtual thread usually serves a single request, so a
+ * thread-local would build a new instance (a fresh digest or DRBG seed) on every request;
+ * virtual threads borrow from a shared pool instead. Callers never block while holding an
+ * instance, so the pool stays around the number of carrier threads.
+ */
+final class ScratchPool<S> {
+
+    // Thread.isVirtual() exists from Java 21; on older runtimes every thread is a platform thread.
+    private static final MethodHandle IS_VIRTUAL = findIsVirtual();
+
+    private final Supplier<S> factory;
+    private final ThreadLocal<S> perThread;
+    private final ConcurrentLinkedQueue<S> shared = new ConcurrentLinkedQueue<>();
+
+    ScratchPool(Supplier<S> factory) {
+        this.factory = factory;
+        this.perThread = ThreadLocal.withInitial(factory);
+    }
+
+    /**
+     * Returns scratch state for the current thread. Must be handed back with {@link #release}.
+     */
+    S acquire() {
+        if (!isVirtual(Thread.currentThread())) {
+            return perThread.get();
+        }
+        S state = shared.poll();
+        return state != null ? state : factory.get();
+    }
+
+    void release(S state) {
+        if (isVirtual(Thread.currentThread())) {
+            shared.offer(state);
+        }
+    }
+
+    static boolean isVirtual(Thread thread) {
+        if (IS_VIRTUAL == null) {
+            return false;
+        }
+        try {
+            return (boolean) IS_VIRTUAL.invokeExact(thread);
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+
+    private static MethodHandle findIsVirtual() {
+        try {
+            return MethodHandles.publicLookup().findVirtual(Thread.class, "isVirtual", MethodType.methodType(boolean.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.example.tokenmanager.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Mints random URL-safe Base64 tokens from 32 bytes of entropy. Each thread owns its
+ * own {@link SecureRandom} and scratch buffers (see {@link ScratchPool}), so minting never
+ * contends on a shared generator lock and the byte-level methods allocate nothing.
+ */
+public final class TokenGenerator {
+
+    public static final int TOKEN_BYTES = 32;
+    /** Length of the unpadded URL-safe Base64 encoding of {@link #TOKEN_BYTES} bytes. */
+    public static final int TOKEN_LENGTH = 43;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final ScratchPool<State> STATES = new ScratchPool<>(State::new);
+
+    private TokenGenerator() {}
+
+    /**
+     * Returns a new random token.
+     */
+    public static String generate() {
+        State state = STATES.acquire();
+        try {
+            state.random.nextBytes(state.entropy);
+            ENCODER.encode(state.entropy, state.encoded);
+            return new String(state.encoded, 0, TOKEN_LENGTH, StandardCharsets.ISO_8859_1);
+        } finally {
+            STATES.release(state);
+        }
+    }
+
+    /**
+     * Writes a new random token as ASCII into {@code out} at {@code offset} and its SHA-256
+     * digest into {@code digestOut} at {@code digestOffset}, without creating any Strings.
+     *
+     * @return the number of token bytes written ({@link #TOKEN_LENGTH})
+     */
+    public static int generate(byte[] out, int offset, byte[] digestOut, int digestOffset) {
+        State state = STATES.acquire();
+        try {
+            state.random.nextBytes(state.entropy);
+            ENCODER.encode(state.entropy, state.encoded);
+            System.arraycopy(state.encoded, 0, out, offset, TOKEN_LENGTH);
+            TokenHasher.digest(state.encoded, 0, TOKEN_LENGTH, digestOut, digestOffset);
+            return TOKEN_LENGTH;
+        } finally {
+            STATES.release(state);
+        }
+    }
+
+    /**
+     * Fills {@code out} with random bytes from the current thread's generator.
+     */
+    public static void nextBytes(byte[] out) {
+        State state = STATES.acquire();
+        try {
+            state.random.nextBytes(out);
+        } finally {
+            STATES.release(state);
+        }
+    }
+
+    private static final class State {
+        final SecureRandom random = newRandom();
+        final byte[] entropy = new byte[TOKEN_BYTES];
+        final byte[] encoded = new byte[TOKEN_LENGTH];
+    }
+
+    private static SecureRandom newRandom() {
+        try {
+            // DRBG instances do not share the process-wide lock that NativePRNG does.
+            return SecureRandom.getInstance("DRBG");
+        } catch (NoSuchAlgorithmException e) {
+            return new SecureRandom();
+        }
+    }
+}
@@ -1,22 +1,174 @@
 package org.example.tokenmanager.util;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
-public class TokenHasher {
+/**
+ * SHA-256 token hashing. Digest instances and scratch buffers are kept per thread
+ * (see {@link ScratchPool}), and hex encoding uses a lookup table, so the byte-level methods allocate nothing
+ * and {@link #hash(String)} allocates only the resulting String.
+ */
+public final class TokenHasher {
 
+    public static final int DIGEST_LENGTH = 32;
+    public static final int HEX_LENGTH = DIGEST_LENGTH * 2;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final ScratchPool<State> STATES = new ScratchPool<>(State::new);
+
+    private TokenHasher() {}
+
+    /**
+     * Returns the lowercase hex SHA-256 digest of the UTF-8 bytes of {@code input}.
+     */
     public static String hash(String input) {
+        State state = STATES.acquire();
+        try {
+            digestInto(state, input, state.digest, 0);
+            toHex(state.digest, 0, DIGEST_LENGTH, state.hex, 0);
+            return new String(state.hex, 0, HEX_LENGTH);
+        } finally {
+            STATES.release(state);
+        }
+    }
+
+    /**
+     * Returns the raw 32-byte SHA-256 digest of the UTF-8 bytes of {@code input}.
+     */
+    public static byte[] digest(String input) {
+        byte[] out = new byte[DIGEST_LENGTH];
+        State state = STATES.acquire();
+        try {
+            digestInto(state, input, out, 0);
+        } finally {
+            STATES.release(state);
+        }
+        return out;
+    }
+
+    /**
+     * Digests {@code len} bytes of {@code input} into {@code out} starting at {@code outOffset}.
+     */
+    public static void digest(byte[] input, int offset, int len, byte[] out, int outOffset) {
+        State state = STATES.acquire();
+        try {
+            state.md.update(input, offset, len);
+            finish(state.md, out, outOffset);
+        } finally {
+            STATES.release(state);
+        }
+    }
+
+    /**
+     * Digests the remaining bytes of {@code input} into {@code out} starting at {@code outOffset}.
+     * The buffer's position is advanced to its limit.
+     */
+    public static void digest(ByteBuffer input, byte[] out, int outOffset) {
+        State state = STATES.acquire();
+        try {
+            state.md.update(input);
+            finish(state.md, out, outOffset);
+        } finally {
+            STATES.release(state);
+        }
+    }
+
+    /**
+     * Writes the lowercase hex form of {@code len} bytes of {@code bytes} into {@code out}.
+     */
+    public static void toHex(byte[] bytes, int offset, int len, char[] out, int outOffset) {
+        for (int i = 0; i < len; i++) {
+            int b = bytes[offset + i] & 0xff;
+            out[outOffset++] = HEX[b >>> 4];
+            out[outOffset++] = HEX[b & 0x0f];
+        }
+    }
+
+    public static String toHex(byte[] bytes) {
+        char[] out = new char[bytes.length * 2];
+        toHex(bytes, 0, bytes.length, out, 0);
+        return new String(out);
+    }
+
+    /**
+     * Short, log-safe identifier of a token: the first 12 hex characters of its digest.
+     * Enough to correlate log lines with audit entries, useless for presenting the token.
+     */
+    public static String fingerprint(String hexDigest) {
+        return hexDigest.length() <= 12 ? hexDigest : hexDigest.substring(0, 12);
+    }
+
+    /**
+     * Parses a hex string, as produced by {@link #hash(String)}, back into bytes.
+     */
+    public static byte[] fromHex(CharSequence hex) {
+        int len = hex.length();
+        if ((len & 1) != 0) {
+            throw new IllegalArgumentException("Hex string must have an even length.");
+        }
+        byte[] out = new byte[len / 2];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = (byte) ((hexValue(hex.charAt(2 * i)) << 4) | hexValue(hex.charAt(2 * i + 1)));
+        }
+        return out;
+    }
+
+    private static int hexValue(char c) {
+        int v = Character.digit(c, 16);
+        if (v < 0) {
+            throw new IllegalArgumentException("Invalid hex character: " + c);
+        }
+        return v;
+    }
+
+    private static void digestInto(State state, String input, byte[] out, int outOffset) {
+        int len = input.length();
+        byte[] scratch = state.input(len);
+        for (int i = 0; i < len; i++) {
+            char c = input.charAt(i);
+            if (c >= 0x80) {
+                // Tokens are URL-safe Base64; anything else takes the regular encoder.
+                state.md.update(input.getBytes(StandardCharsets.UTF_8));
+                finish(state.md, out, outOffset);
+                return;
+            }
+            scratch[i] = (byte) c;
+        }
+        state.md.update(scratch, 0, len);
+        finish(state.md, out, outOffset);
+    }
+
+    private static void finish(MessageDigest md, byte[] out, int outOffset) {
         try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(input.getBytes(StandardCharsets.UTF_8));
-            StringBuilder hexString = new StringBuilder();
-            for (byte b : hash) {
-                hexString.append(String.format("%02x", b));
+            md.digest(out, outOffset, DIGEST_LENGTH);
+        } catch (DigestException e) {
+            md.reset();
+            throw new IllegalArgumentException("Output buffer too small for SHA-256 digest", e);
+        }
+    }
+
+    private static final class State {
+        final MessageDigest md;
+        final byte[] digest = new byte[DIGEST_LENGTH];
+        final char[] hex = new char[HEX_LENGTH];
+        byte[] input = new byte[64];
+
+        State() {
+            try {
+                md = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException("SHA-256 not available", e);
+            }
+        }
+
+        byte[] input(int len) {
+            if (input.length < len) {
+                input = new byte[Math.max(len, input.length * 2)];
             }
-            return hexString.toString();
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("SHA-256 not available", e);
+            return input;
         }
     }
 }
@@ -0,0 +1,223 @@
+package org.example.tokenmanager.util;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Self-verifying tokens: {@code st1.<payload>.<signature>}, both parts unpadded URL-safe
+ * Base64. The payload holds the key ID, user ID, issue and expiry time (epoch millis) and a
+ * random nonce; the signature is HMAC-SHA256 over everything before the last dot, keyed by
+ * the key the payload names. Any configured key verifies, only the signing key signs, so keys
+ * can be rotated without invalidating tokens that are still in flight.
+ * <p>
+ * {@link Mac} instances are kept per thread and key (see {@link ScratchPool}).
+ */
+public final class TokenSigner {
+
+    public static final String PREFIX = "st1.";
+    public static final int MIN_KEY_BYTES = 32;
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int NONCE_BYTES = 16;
+    // Far above any real token; keeps junk input from costing more than a few microseconds
+    private static final int MAX_TOKEN_LENGTH = 1024;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final Map<String, SecretKeySpec> keys = new HashMap<>();
+    private final String signingKeyId;
+    private final ScratchPool<Map<String, Mac>> macs = new ScratchPool<>(HashMap::new);
+
+    /**
+     * @param keys         secrets by key ID; each at least {@link #MIN_KEY_BYTES} bytes
+     * @param signingKeyId the key new tokens are signed with, or {@code null} to only verify
+     */
+    public TokenSigner(Map<String, byte[]> keys, String signingKeyId) {
+        keys.forEach((id, secret) -> {
+            if (id.isEmpty() || id.getBytes(StandardCharsets.UTF_8).length > 255) {
+                throw new IllegalArgumentException("Signing key IDs must be 1 to 255 bytes long.");
+            }
+            if (secret.length < MIN_KEY_BYTES) {
+                throw new IllegalArgumentException("Signing key " + id + " must be at least " + MIN_KEY_BYTES + " bytes.");
+            }
+            this.keys.put(id, new SecretKeySpec(secret, ALGORITHM));
+        });
+        if (signingKeyId != null && !keys.containsKey(signingKeyId)) {
+            throw new IllegalArgumentException("Unknown signing key: " + signingKeyId);
+        }
+        this.signingKeyId = signingKeyId;
+    }
+
+    /**
+     * Parses {@code id:base64secret} pairs separated by commas.
+     */
+    public static Map<String, byte[]> parseKeys(String spec) {
+        Map<String, byte[]> keys = new LinkedHashMap<>();
+        for (String key : spec.split(",")) {
+            if (key.isBlank()) {
+                continue;
+            }
+            int separator = key.indexOf(':');
+            if (separator < 1) {
+                // Not echoing the entry: it may be a bare secret.
+                throw new IllegalArgumentException("Signing keys must be id:base64secret pairs.");
+            }
+            String id = key.substring(0, separator).trim();
+            try {
+                keys.put(id, Base64.getDecoder().decode(key.substring(separator + 1).trim()));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Signing key " + id + " is not valid Base64.");
+            }
+        }
+        return keys;
+    }
+
+    public static boolean isSigned(String token) {
+        return token != null && token.startsWith(PREFIX);
+    }
+
+    public String getSigningKeyId() {
+        return signingKeyId;
+    }
+
+    public Set<String> getKeyIds() {
+        return Collections.unmodifiableSet(keys.keySet());
+    }
+
+    /**
+     * Returns a new token for {@code userId}, signed with the signing key.
+     *
+     * @param expiresAt epoch millis; signed tokens always expire
+     */
+    public String sign(String userId, long issuedAt, long expiresAt) {
+        if (signingKeyId == null) {
+            throw new IllegalStateException("No signing key configured.");
+        }
+        if (expiresAt <= issuedAt) {
+            throw new IllegalArgumentException("A signed token must expire after it is issued.");
+        }
+        byte[] keyId = signingKeyId.getBytes(StandardCharsets.UTF_8);
+        byte[] user = userId.getBytes(StandardCharsets.UTF_8);
+        if (user.length > 0xFFFF) {
+            throw new IllegalArgumentException("User ID is too long for a signed token.");
+        }
+        byte[] nonce = new byte[NONCE_BYTES];
+        TokenGenerator.nextBytes(nonce);
+        ByteBuffer payload = ByteBuffer.allocate(1 + keyId.length + 2 + user.length + 16 + NONCE_BYTES)
+                .put((byte) keyId.length).put(keyId)
+                .putShort((short) user.length).put(user)
+                .putLong(issuedAt)
+                .putLong(expiresAt)
+                .put(nonce);
+        String signed = PREFIX + ENCODER.encodeToString(payload.array());
+        return signed + '.' + ENCODER.encodeToString(mac(signingKeyId, signed));
+    }
+
+    /**
+     * Returns the claims of a well-formed token whose signature matches one of the configured
+     * keys, or {@code null}. Expiry is left to the caller.
+     */
+    public Claims verify(String token) {
+        if (!isSigned(token) || token.length() > MAX_TOKEN_LENGTH) {
+            return null;
+        }
+        int dot = token.indexOf('.', PREFIX.length());
+        if (dot < 0 || token.indexOf('.', dot + 1) >= 0) {
+            return null;
+        }
+        try {
+            ByteBuffer payload = ByteBuffer.wrap(DECODER.decode(token.substring(PREFIX.length(), dot)));
+            byte[] signature = DECODER.decode(token.substring(dot + 1));
+            String keyId = readString(payload, payload.get() & 0xFF);
+            String userId = readString(payload, payload.getShort() & 0xFFFF);
+            long issuedAt = payload.getLong();
+            long expiresAt = payload.getLong();
+            if (payload.remaining() != NONCE_BYTES || !keys.containsKey(keyId)) {
+                return null;
+            }
+            if (!MessageDigest.isEqual(mac(keyId, token.substring(0, dot)), signature)) {
+                return null;
+            }
+            return new Claims(keyId, userId, issuedAt, expiresAt);
+        } catch (IllegalArgumentException | BufferUnderflowException e) {
+            // Not Base64, or a payload too short for its own length fields
+            return null;
+        }
+    }
+
+    private byte[] mac(String keyId, String signed) {
+        Map<String, Mac> state = macs.acquire();
+        try {
+            return state.computeIfAbsent(keyId, this::newMac).doFinal(signed.getBytes(StandardCharsets.ISO_8859_1));
+        } finally {
+            macs.release(state);
+        }
+    }
+
+    private Mac newMac(String keyId) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(keys.get(keyId));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static final class Claims {
+        private final String keyId;
+        private final String userId;
+        private final long issuedAt;
+        private final long expiresAt;
+
+        Claims(String keyId, String userId, long issuedAt, long expiresAt) {
+            this.keyId = keyId;
+            this.userId = userId;
+            this.issuedAt = issuedAt;
+            this.expiresAt = expiresAt;
+        }
+
+        public String getKeyId() {
+            return keyId;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        /**
+         * Epoch millis.
+         */
+        public long getIssuedAt() {
+            return issuedAt;
+        }
+
+        /**
+         * Epoch millis after which the token is no longer valid.
+         */
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+
+        public boolean isExpired(long now) {
+            return expiresAt <= now;
+        }
+    }
+}
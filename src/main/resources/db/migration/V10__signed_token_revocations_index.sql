@@ -0,0 +1,5 @@
+-- Revoked signed tokens that have not expired yet are loaded into every instance's revocation
+-- list at startup. Only a handful of rows qualify, so the index stays tiny.
+-- Built concurrently, so Flyway runs this script outside a transaction.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_tokens_revoked_signed
+    ON tokens (expires_at) WHERE signed AND NOT valid_token;
@@ -0,0 +1,21 @@
+-- When a token was created or last changed validity or expiry, in UTC. A snapshot of the
+-- in-memory token state records the time it was taken; on startup only rows changed since
+-- then are read to bring it up to date. Kept by a trigger so bulk SQL updates maintain it too.
+-- last_used_at writes leave it alone, so they remain HOT updates (see V7).
+ALTER TABLE tokens ADD COLUMN state_changed_at TIMESTAMP(6) NOT NULL DEFAULT (now() AT TIME ZONE 'UTC');
+
+CREATE FUNCTION tokens_set_state_changed_at() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'INSERT'
+            OR NEW.valid_token IS DISTINCT FROM OLD.valid_token
+            OR NEW.expires_at IS DISTINCT FROM OLD.expires_at
+            OR NEW.user_id IS DISTINCT FROM OLD.user_id THEN
+        NEW.state_changed_at := clock_timestamp() AT TIME ZONE 'UTC';
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER tokens_state_changed_at
+    BEFORE INSERT OR UPDATE ON tokens
+    FOR EACH ROW EXECUTE FUNCTION tokens_set_state_changed_at();
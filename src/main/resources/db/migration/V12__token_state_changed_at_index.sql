@@ -0,0 +1,4 @@
+-- Drives the startup catch-up after a snapshot load (rows changed after the snapshot).
+-- Built concurrently, so Flyway runs this script outside a transaction.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_tokens_state_changed_at
+    ON tokens (state_changed_at);
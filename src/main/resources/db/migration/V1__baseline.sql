@@ -0,0 +1,21 @@
+-- Schema as previously generated by spring.jpa.hibernate.ddl-auto=update.
+-- Existing databases are baselined at this version (spring.flyway.baseline-on-migrate),
+-- so this script only runs against empty databases.
+
+CREATE TABLE tokens (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id      VARCHAR(255),
+    token_value  VARCHAR(255) NOT NULL UNIQUE,
+    valid_token  BOOLEAN      NOT NULL,
+    created_at   TIMESTAMP(6),
+    last_used_at TIMESTAMP(6),
+    rotated_at   TIMESTAMP(6)
+);
+
+CREATE TABLE audit_logs (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    action      VARCHAR(255),
+    token_value VARCHAR(255),
+    user_id     VARCHAR(255),
+    timestamp   TIMESTAMP(6)
+);
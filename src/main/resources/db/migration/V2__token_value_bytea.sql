@@ -0,0 +1,13 @@
+-- Store SHA-256 digests as 32 raw bytes instead of 64 hex characters. This halves the
+-- row and unique-index footprint. The application keeps the hex form in Java via
+-- HexBytesConverter.
+-- Note: ALTER COLUMN TYPE rewrites the table under an exclusive lock; schedule accordingly.
+
+ALTER TABLE tokens
+    ALTER COLUMN token_value TYPE BYTEA USING decode(token_value, 'hex');
+
+ALTER TABLE tokens
+    ADD CONSTRAINT ck_tokens_token_value_length CHECK (octet_length(token_value) = 32);
+
+ALTER TABLE audit_logs
+    ALTER COLUMN token_value TYPE BYTEA USING decode(token_value, 'hex');
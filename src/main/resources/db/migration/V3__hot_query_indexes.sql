@@ -0,0 +1,14 @@
+-- Indexes for the per-user listing queries. They are built concurrently so large tables stay
+-- writable, which means Flyway runs this script outside a transaction.
+
+-- findByUserId / keyset pages ordered by id
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_tokens_user_id_id
+    ON tokens (user_id, id);
+
+-- findByUserIdAndValidTokenTrue: only valid tokens are indexed, which keeps the index small
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_tokens_valid_user_id_id
+    ON tokens (user_id, id) WHERE valid_token;
+
+-- AuditLogRepository.findByUserId and keyset pages ordered by (timestamp, id)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_audit_logs_user_id_timestamp
+    ON audit_logs (user_id, timestamp, id);
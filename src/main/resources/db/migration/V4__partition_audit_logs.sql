@@ -0,0 +1,46 @@
+-- Range-partition audit_logs by month on timestamp. Retention drops whole partitions, and
+-- queries with a time range only touch the partitions they need.
+-- Existing rows are copied into the new table once; on very large tables run this off-peak.
+-- Future partitions are created by AuditPartitionManager. The default partition only
+-- catches rows outside every monthly range and should stay empty.
+
+ALTER TABLE audit_logs RENAME TO audit_logs_legacy;
+ALTER INDEX idx_audit_logs_user_id_timestamp RENAME TO idx_audit_logs_legacy_user_id_timestamp;
+ALTER TABLE audit_logs_legacy RENAME CONSTRAINT audit_logs_pkey TO audit_logs_legacy_pkey;
+
+CREATE TABLE audit_logs (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    action      VARCHAR(255),
+    token_value BYTEA,
+    user_id     VARCHAR(255),
+    timestamp   TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+CREATE TABLE audit_logs_default PARTITION OF audit_logs DEFAULT;
+
+CREATE INDEX idx_audit_logs_user_id_timestamp ON audit_logs (user_id, timestamp, id);
+
+-- Monthly partitions from the oldest existing row up to three months ahead
+DO $$
+DECLARE
+    month_start DATE := date_trunc('month', coalesce((SELECT min(timestamp) FROM audit_logs_legacy), now()));
+    last_month  DATE := date_trunc('month', now() + INTERVAL '3 months');
+BEGIN
+    WHILE month_start <= last_month LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF audit_logs FOR VALUES FROM (%L) TO (%L)',
+                       'audit_logs_' || to_char(month_start, 'YYYY_MM'),
+                       month_start,
+                       month_start + INTERVAL '1 month');
+        month_start := month_start + INTERVAL '1 month';
+    END LOOP;
+END
+$$;
+
+INSERT INTO audit_logs (id, action, token_value, user_id, timestamp)
+SELECT id, action, token_value, user_id, coalesce(timestamp, TIMESTAMP '1970-01-01')
+FROM audit_logs_legacy;
+
+SELECT setval(pg_get_serial_sequence('audit_logs', 'id'), coalesce((SELECT max(id) FROM audit_logs), 0) + 1, false);
+
+DROP TABLE audit_logs_legacy;
@@ -0,0 +1,15 @@
+-- Optional per-token expiry; NULL means the token never expires.
+ALTER TABLE tokens ADD COLUMN expires_at TIMESTAMP(6);
+
+-- Expired tokens are moved here by the expiry sweeper, keeping the hot table and its indexes small.
+CREATE TABLE tokens_archive (
+    id           BIGINT       PRIMARY KEY,
+    user_id      VARCHAR(255),
+    token_value  BYTEA        NOT NULL,
+    valid_token  BOOLEAN      NOT NULL,
+    created_at   TIMESTAMP(6),
+    last_used_at TIMESTAMP(6),
+    rotated_at   TIMESTAMP(6),
+    expires_at   TIMESTAMP(6),
+    archived_at  TIMESTAMP(6) NOT NULL
+);
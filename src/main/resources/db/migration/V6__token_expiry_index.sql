@@ -0,0 +1,4 @@
+-- Drives the expiry sweeper (oldest expiry first); tokens without expiry are not indexed.
+-- Built concurrently, so Flyway runs this script outside a transaction.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_tokens_expires_at
+    ON tokens (expires_at) WHERE expires_at IS NOT NULL;
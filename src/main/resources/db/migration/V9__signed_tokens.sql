@@ -0,0 +1,4 @@
+-- Set for self-verifying HMAC-signed tokens (tokens.format=signed). Validation checks their
+-- signature instead of reading the row; the rows still back listing, rotation and revocation.
+ALTER TABLE tokens ADD COLUMN signed BOOLEAN NOT NULL DEFAULT false;
+ALTER TABLE tokens_archive ADD COLUMN signed BOOLEAN NOT NULL DEFAULT false;
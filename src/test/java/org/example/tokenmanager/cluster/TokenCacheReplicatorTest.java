@@ -0,0 +1,167 @@
+package org.example.tokenmanager.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.tokenmanager.repository.TokenRepository;
+import org.example.tokenmanager.service.ActiveTokenCache;
+import org.example.tokenmanager.service.IssuedTokenFilter;
+import org.example.tokenmanager.service.RevocationList;
+import org.example.tokenmanager.service.TokenIndex;
+import org.example.tokenmanager.util.TokenHasher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class TokenCacheReplicatorTest {
+
+    private InMemoryTokenEventBus bus;
+    private Node nodeA;
+    private Node nodeB;
+
+    @BeforeEach
+    public void setup() {
+        bus = new InMemoryTokenEventBus();
+        nodeA = new Node(bus);
+        nodeB = new Node(bus);
+    }
+
+    @Test
+    public void testInvalidationEvictsTokenOnPeer() {
+        String hashed = TokenHasher.hash("token1");
+        nodeA.index.put(hashed, "user1");
+        nodeB.index.put(hashed, "user1");
+
+        nodeA.replicator.tokenInvalidated(hashed);
+
+        assertNull(nodeB.index.get(hashed));
+        verify(nodeB.activeTokens).evictAll(Set.of("user1"));
+        assertEquals(1, nodeB.meterRegistry.get("token.events.received").counter().count());
+    }
+
+    @Test
+    public void testIssuedTokenReachesPeerIndexAndFilter() {
+        String hashed = TokenHasher.hash("token1");
+        assertFalse(nodeB.filter.mightBeIssued(hashed));
+
+        long expiresAt = System.currentTimeMillis() + 60_000;
+        nodeA.replicator.tokenIssued(hashed, "user1", expiresAt);
+
+        assertEquals("user1", nodeB.index.get(hashed).getUserId());
+        assertEquals(expiresAt, nodeB.index.get(hashed).getExpiresAt());
+        assertTrue(nodeB.filter.mightBeIssued(hashed));
+        verify(nodeB.activeTokens).evictAll(Set.of("user1"));
+    }
+
+    @Test
+    public void testSignedTokenEventsReachPeerRevocationListOnly() {
+        String hashed = TokenHasher.hash("st1.token");
+        long expiresAt = System.currentTimeMillis() + 60_000;
+
+        nodeA.replicator.signedTokenIssued(hashed, "user1", expiresAt);
+        assertNull(nodeB.index.get(hashed));
+        verify(nodeB.activeTokens).evictAll(Set.of("user1"));
+
+        nodeA.replicator.signedTokenRevoked(hashed, "user1", expiresAt);
+        assertTrue(nodeB.revocations.isRevoked(hashed));
+        verify(nodeB.activeTokens, times(2)).evictAll(Set.of("user1"));
+    }
+
+    @Test
+    public void testLateIssuedEventDoesNotResurrectInvalidatedToken() {
+        Node nodeC = new Node(bus);
+        String hashed = TokenHasher.hash("token1");
+
+        // Rotated on C before A's "issued" event went out
+        nodeC.replicator.tokenInvalidated(hashed);
+        nodeA.replicator.tokenIssued(hashed, "user1", 0);
+
+        assertNull(nodeB.index.get(hashed));
+        assertTrue(nodeB.filter.mightBeIssued(hashed));
+    }
+
+    @Test
+    public void testSequenceGapTriggersResync() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        bus.publish(objectMapper.writeValueAsString(message("peer", 1)));
+        clearInvocations(nodeB.repository);
+
+        bus.publish(objectMapper.writeValueAsString(message("peer", 3)));
+
+        verify(nodeB.repository).streamValidTokens();
+        verify(nodeB.repository).streamAllTokenValues();
+        verify(nodeB.repository).streamRevokedSignedTokens(any());
+        verify(nodeB.activeTokens).clear();
+        assertEquals(1, nodeB.meterRegistry.get("token.events.resyncs").counter().count());
+    }
+
+    @Test
+    public void testReconnectTriggersResync() {
+        clearInvocations(nodeB.repository);
+        bus.reconnect();
+        verify(nodeB.repository).streamValidTokens();
+        assertEquals(1, nodeB.meterRegistry.get("token.events.resyncs").counter().count());
+    }
+
+    @Test
+    public void testQueuedEventsAreCoalescedWithinMessageSizeLimit() {
+        List<String> messages = new ArrayList<>();
+        bus.subscribe(new TokenEventBus.Subscriber() {
+            @Override
+            public void onMessage(String message) {
+                messages.add(message);
+            }
+
+            @Override
+            public void onReconnect() {
+            }
+        });
+        TokenCacheReplicator asyncReplicator = new TokenCacheReplicator(bus, new TokenIndex(mock(TokenRepository.class)),
+                nodeA.filter, mock(RevocationList.class), mock(ActiveTokenCache.class), new ObjectMapper(), new SimpleMeterRegistry(), true, 5_000);
+        asyncReplicator.start();
+        List<String> hashes = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            String hashed = TokenHasher.hash("token" + i);
+            hashes.add(hashed);
+            nodeB.index.put(hashed, "user1");
+        }
+
+        hashes.forEach(asyncReplicator::tokenInvalidated);
+        asyncReplicator.stop();
+
+        hashes.forEach(hashed -> assertNull(nodeB.index.get(hashed)));
+        assertTrue(messages.size() > 1 && messages.size() < hashes.size(), "messages: " + messages.size());
+        assertTrue(messages.stream().allMatch(m -> m.length() <= bus.maxMessageBytes()));
+        assertEquals(0, nodeB.meterRegistry.get("token.events.resyncs").counter().count());
+    }
+
+    private static TokenEventMessage message(String node, long seq) {
+        TokenEventMessage message = new TokenEventMessage();
+        message.setNode(node);
+        message.setSeq(seq);
+        return message;
+    }
+
+    private static final class Node {
+        final TokenRepository repository = mock(TokenRepository.class);
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final TokenIndex index = new TokenIndex(repository);
+        final IssuedTokenFilter filter = new IssuedTokenFilter(repository, meterRegistry, true, 0.01, 1000, 2.0);
+        final RevocationList revocations = new RevocationList(repository, meterRegistry);
+        final ActiveTokenCache activeTokens = mock(ActiveTokenCache.class);
+        final TokenCacheReplicator replicator;
+
+        Node(InMemoryTokenEventBus bus) {
+            index.load();
+            filter.load();
+            revocations.load();
+            replicator = new TokenCacheReplicator(bus, index, filter, revocations, activeTokens, new ObjectMapper(), meterRegistry, false, 100);
+            replicator.start();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.example.tokenmanager.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class ReadReplicaConfigurationTest {
+
+    private DataSource primary;
+    private DataSource replica;
+    private Connection primaryConnection;
+    private Connection replicaConnection;
+    private DataSource routing;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        primary = mock(DataSource.class);
+        replica = mock(DataSource.class);
+        primaryConnection = mock(Connection.class);
+        replicaConnection = mock(Connection.class);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(replica.getConnection()).thenReturn(replicaConnection);
+        routing = ReadReplicaConfiguration.routingDataSource(primary, replica);
+    }
+
+    @Test
+    public void testReadOnlyTransactionUsesReplica() throws Exception {
+        transactionTemplate(true).executeWithoutResult(status -> query());
+
+        verify(replicaConnection).prepareStatement("SELECT 1");
+        verify(replicaConnection).commit();
+        verify(primaryConnection, never()).prepareStatement(anyString());
+    }
+
+    @Test
+    public void testReadWriteTransactionUsesPrimary() throws Exception {
+        transactionTemplate(false).executeWithoutResult(status -> query());
+
+        verify(primaryConnection).prepareStatement("SELECT 1");
+        verify(primaryConnection).commit();
+        verify(replicaConnection, never()).prepareStatement(anyString());
+    }
+
+    @Test
+    public void testNoTransactionUsesPrimary() throws Exception {
+        try (Connection connection = routing.getConnection()) {
+            connection.prepareStatement("SELECT 1");
+        }
+
+        verify(primaryConnection).prepareStatement("SELECT 1");
+        verify(replicaConnection, never()).prepareStatement(anyString());
+    }
+
+    private TransactionTemplate transactionTemplate(boolean readOnly) {
+        TransactionTemplate template = new TransactionTemplate(new DataSourceTransactionManager(routing));
+        template.setReadOnly(readOnly);
+        return template;
+    }
+
+    private void query() {
+        try {
+            DataSourceUtils.getConnection(routing).prepareStatement("SELECT 1");
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package org.example.tokenmanager.controller;
+
+import org.example.tokenmanager.controller.dto.ActiveTokenSummary;
+import org.example.tokenmanager.controller.dto.CursorPage;
+import org.example.tokenmanager.controller.dto.TokenResponse;
+import org.example.tokenmanager.controller.dto.TokenValidationResponse;
+import org.example.tokenmanager.model.Token;
+import org.example.tokenmanager.service.ActiveTokenCache.ActiveTokens;
+import org.example.tokenmanager.service.RateLimitExceededException;
+import org.example.tokenmanager.service.RateLimiter;
+import org.example.tokenmanager.service.ReactiveTokenService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@WebFluxTest(ReactiveTokenController.class)
+public class ReactiveTokenControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private ReactiveTokenService tokenService;
+
+    @MockBean
+    private RateLimiter rateLimiter;
+
+    @Test
+    public void testGenerateToken() {
+        when(tokenService.generateToken("user1", null, null)).thenReturn(Mono.just(new TokenResponse("someToken", "user1")));
+
+        webTestClient.post().uri("/tokens?userId=user1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.token").isEqualTo("someToken")
+                .jsonPath("$.userId").isEqualTo("user1")
+                .jsonPath("$.expiresAt").doesNotExist();
+    }
+
+    @Test
+    public void testGenerateTokenWithTtl() {
+        TokenResponse response = new TokenResponse("someToken", "user1", LocalDateTime.of(2030, 1, 1, 12, 0));
+        when(tokenService.generateToken("user1", 3600L, null)).thenReturn(Mono.just(response));
+
+        webTestClient.post().uri("/tokens?userId=user1&ttlSeconds=3600")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.expiresAt").isEqualTo("2030-01-01T12:00:00");
+    }
+
+    @Test
+    public void testGenerateTokenWithUnknownPolicyReturns400() {
+        when(tokenService.generateToken("user1", null, "nope"))
+                .thenReturn(Mono.error(new IllegalArgumentException("Unknown token policy: nope")));
+
+        webTestClient.post().uri("/tokens?userId=user1&policy=nope")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Unknown token policy: nope");
+    }
+
+    @Test
+    public void testRateLimitedGenerateReturns429WithRetryAfter() {
+        doThrow(new RateLimitExceededException(1_500_000_000L))
+                .when(rateLimiter).acquire(eq("user1"), any());
+
+        webTestClient.post().uri("/tokens?userId=user1")
+                .exchange()
+                .expectStatus().isEqualTo(429)
+                .expectHeader().valueEquals("Retry-After", "2")
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Too many requests. Please try again later.");
+        verify(tokenService, never()).generateToken(anyString(), any(), any());
+    }
+
+    @Test
+    public void testGenerateTokensBatchIsChargedPerToken() {
+        when(tokenService.generateTokens("user1", 2, null, null)).thenReturn(Mono.just(List.of(
+                new TokenResponse("a", "user1"), new TokenResponse("b", "user1"))));
+
+        webTestClient.post().uri("/tokens/batch?userId=user1&count=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[1].token").isEqualTo("b");
+        verify(rateLimiter).acquireBatch(eq("user1"), any(), eq(2));
+    }
+
+    @Test
+    public void testRotateToken() {
+        when(tokenService.rotateToken("oldToken")).thenReturn(Mono.just(new TokenResponse("newToken", "user1")));
+
+        webTestClient.post().uri("/tokens/rotate?oldToken=oldToken")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.token").isEqualTo("newToken")
+                .jsonPath("$.userId").isEqualTo("user1");
+        // The owner is unknown until the token is looked up
+        verify(rateLimiter).acquire(isNull(), any());
+    }
+
+    @Test
+    public void testRotateAlreadyInvalidTokenReturns409() {
+        when(tokenService.rotateToken("usedToken")).thenReturn(Mono.error(new IllegalStateException("Token is already invalid.")));
+
+        webTestClient.post().uri("/tokens/rotate?oldToken=usedToken")
+                .exchange()
+                .expectStatus().isEqualTo(409)
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Token is already invalid.");
+    }
+
+    @Test
+    public void testRotateUnknownTokenReturns400() {
+        when(tokenService.rotateToken("missingToken")).thenReturn(Mono.error(new IllegalArgumentException("Token not found.")));
+
+        webTestClient.post().uri("/tokens/rotate?oldToken=missingToken")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Token not found.");
+    }
+
+    @Test
+    public void testInvalidateToken() {
+        when(tokenService.invalidateToken("t123")).thenReturn(Mono.empty());
+
+        webTestClient.delete().uri("/tokens/t123")
+                .exchange()
+                .expectStatus().isNoContent();
+    }
+
+    @Test
+    public void testValidateToken() {
+        when(tokenService.validateToken("t123")).thenReturn(Mono.just(TokenValidationResponse.valid("user1")));
+
+        webTestClient.post().uri("/tokens/validate?token=t123")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.valid").isEqualTo(true)
+                .jsonPath("$.userId").isEqualTo("user1");
+    }
+
+    @Test
+    public void testInvalidateTokensBatch() {
+        when(tokenService.invalidateTokens(List.of("t1", "t2"))).thenReturn(Mono.just(2));
+
+        webTestClient.post().uri("/tokens/invalidate")
+                .bodyValue(List.of("t1", "t2"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.invalidated").isEqualTo(2);
+    }
+
+    @Test
+    public void testInvalidateAllTokensForUser() {
+        when(tokenService.invalidateAllTokens("user1")).thenReturn(Mono.just(3));
+
+        webTestClient.delete().uri("/tokens?userId=user1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.invalidated").isEqualTo(3);
+    }
+
+    @Test
+    public void testListTokens() {
+        when(tokenService.listTokens("user1")).thenReturn(Flux.just(new Token("user1", "token1"), new Token("user1", "token2")));
+
+        webTestClient.get().uri("/tokens?userId=user1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2);
+    }
+
+    @Test
+    public void testListActiveTokensReturnsSummariesWithEtag() {
+        ActiveTokens tokens = new ActiveTokens(List.of(
+                new ActiveTokenSummary(1L, "h1", LocalDateTime.of(2026, 1, 1, 12, 0), null)));
+        when(tokenService.listActiveTokens("user1")).thenReturn(Mono.just(tokens));
+
+        webTestClient.get().uri("/tokens/active?userId=user1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", tokens.getEtag())
+                .expectBody()
+                .jsonPath("$[0].tokenValue").isEqualTo("h1")
+                .jsonPath("$[0].expiresAt").doesNotExist()
+                .jsonPath("$[0].userId").doesNotExist();
+    }
+
+    @Test
+    public void testListActiveTokensUnchangedReturns304() {
+        ActiveTokens tokens = new ActiveTokens(List.of());
+        when(tokenService.listActiveTokens("user1")).thenReturn(Mono.just(tokens));
+
+        webTestClient.get().uri("/tokens/active?userId=user1")
+                .header("If-None-Match", tokens.getEtag())
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+    }
+
+    @Test
+    public void testListTokensPage() {
+        when(tokenService.listTokens("user1", null, 1))
+                .thenReturn(Mono.just(new CursorPage<>(List.of(new Token("user1", "token1")), "next")));
+
+        webTestClient.get().uri("/tokens?userId=user1&limit=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.items.length()").isEqualTo(1)
+                .jsonPath("$.nextCursor").isEqualTo("next");
+    }
+
+    @Test
+    public void testListActiveTokensPage() {
+        when(tokenService.listActiveTokens("user1", "c1", 10))
+                .thenReturn(Mono.just(new CursorPage<>(List.of(new Token("user1", "token1")), null)));
+
+        webTestClient.get().uri("/tokens/active?userId=user1&cursor=c1&limit=10")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.items[0].tokenValue").isEqualTo("token1")
+                .jsonPath("$.nextCursor").doesNotExist();
+    }
+
+    @Test
+    public void testStreamTokensWritesNdjson() {
+        when(tokenService.streamTokens("user1", false))
+                .thenReturn(Flux.just(new Token("user1", "token1"), new Token("user1", "token2")));
+
+        String body = webTestClient.get().uri("/tokens/stream?userId=user1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType("application/x-ndjson")
+                .expectBody(String.class)
+                .returnResult().getResponseBody();
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[1].contains("\"tokenValue\":\"token2\""));
+    }
+
+    @Test
+    public void testConnectionPoolExhaustionReturns503() {
+        when(tokenService.generateToken("user1", null, null))
+                .thenReturn(Mono.error(new TransientDataAccessResourceException("Connection acquisition timed out")));
+
+        webTestClient.post().uri("/tokens?userId=user1")
+                .exchange()
+                .expectStatus().isEqualTo(503)
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Service is busy. Please try again shortly.");
+    }
+}
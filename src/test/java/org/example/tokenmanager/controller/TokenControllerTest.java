@@ -1,8 +1,14 @@
 package org.example.tokenmanager.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.tokenmanager.controller.dto.ActiveTokenSummary;
+import org.example.tokenmanager.controller.dto.CursorPage;
 import org.example.tokenmanager.controller.dto.TokenResponse;
+import org.example.tokenmanager.controller.dto.TokenValidationResponse;
 import org.example.tokenmanager.model.Token;
+import org.example.tokenmanager.service.ActiveTokenCache.ActiveTokens;
+import org.example.tokenmanager.service.RateLimitExceededException;
+import org.example.tokenmanager.service.RateLimiter;
 import org.example.tokenmanager.service.TokenService;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -10,9 +16,16 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.CannotCreateTransactionException;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -27,19 +40,69 @@ public class TokenControllerTest {
     @MockBean
     private TokenService tokenService;
 
+    @MockBean
+    private RateLimiter rateLimiter;
+
     @Autowired
     private ObjectMapper objectMapper;
 
     @Test
     public void testGenerateToken() throws Exception {
         TokenResponse mockResponse = new TokenResponse("someToken", "user1");
-        when(tokenService.generateToken("user1")).thenReturn(mockResponse);
+        when(tokenService.generateToken("user1", null, null)).thenReturn(mockResponse);
 
         mockMvc.perform(post("/tokens")
                         .param("userId", "user1"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.token").value("someToken"))
-                .andExpect(jsonPath("$.userId").value("user1"));
+                .andExpect(jsonPath("$.userId").value("user1"))
+                .andExpect(jsonPath("$.expiresAt").doesNotExist());
+    }
+
+    @Test
+    public void testGenerateTokenWithTtl() throws Exception {
+        TokenResponse mockResponse = new TokenResponse("someToken", "user1", LocalDateTime.of(2030, 1, 1, 12, 0));
+        when(tokenService.generateToken("user1", 3600L, null)).thenReturn(mockResponse);
+
+        mockMvc.perform(post("/tokens")
+                        .param("userId", "user1")
+                        .param("ttlSeconds", "3600"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.expiresAt").value("2030-01-01T12:00:00"));
+    }
+
+    @Test
+    public void testGenerateTokenWithUnknownPolicyReturns400() throws Exception {
+        when(tokenService.generateToken("user1", null, "nope"))
+                .thenThrow(new IllegalArgumentException("Unknown token policy: nope"));
+
+        mockMvc.perform(post("/tokens")
+                        .param("userId", "user1")
+                        .param("policy", "nope"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Unknown token policy: nope"));
+    }
+
+    @Test
+    public void testRateLimitedGenerateReturns429WithRetryAfter() throws Exception {
+        doThrow(new RateLimitExceededException(1_500_000_000L))
+                .when(rateLimiter).acquire(eq("user1"), anyString());
+
+        mockMvc.perform(post("/tokens")
+                        .param("userId", "user1"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "2"))
+                .andExpect(jsonPath("$.message").value("Too many requests. Please try again later."));
+        verify(tokenService, never()).generateToken(anyString(), any(), any());
+    }
+
+    @Test
+    public void testBatchIsChargedPerToken() throws Exception {
+        mockMvc.perform(post("/tokens/batch")
+                        .param("userId", "user1")
+                        .param("count", "5"))
+                .andExpect(status().isOk());
+        verify(rateLimiter).acquireBatch("user1", "127.0.0.1", 5);
     }
 
     @Test
@@ -65,6 +128,51 @@ public class TokenControllerTest {
                 .andExpect(status().isNoContent());
     }
 
+    @Test
+    public void testValidateToken() throws Exception {
+        when(tokenService.validateToken("t123")).thenReturn(TokenValidationResponse.valid("user1"));
+
+        mockMvc.perform(post("/tokens/validate")
+                        .param("token", "t123"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.valid").value(true))
+                .andExpect(jsonPath("$.userId").value("user1"));
+    }
+
+    @Test
+    public void testGenerateTokensBatch() throws Exception {
+        when(tokenService.generateTokens("user1", 2, null, null)).thenReturn(List.of(
+                new TokenResponse("a", "user1"), new TokenResponse("b", "user1")));
+
+        mockMvc.perform(post("/tokens/batch")
+                        .param("userId", "user1")
+                        .param("count", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1].token").value("b"));
+    }
+
+    @Test
+    public void testInvalidateTokensBatch() throws Exception {
+        when(tokenService.invalidateTokens(List.of("t1", "t2"))).thenReturn(2);
+
+        mockMvc.perform(post("/tokens/invalidate")
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(List.of("t1", "t2"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.invalidated").value(2));
+    }
+
+    @Test
+    public void testInvalidateAllTokensForUser() throws Exception {
+        when(tokenService.invalidateAllTokens("user1")).thenReturn(3);
+
+        mockMvc.perform(delete("/tokens")
+                        .param("userId", "user1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.invalidated").value(3));
+    }
+
     @Test
     public void testListTokens() throws Exception {
         Token token1 = new Token("user1", "token1");
@@ -77,4 +185,78 @@ public class TokenControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.length()").value(2));
     }
+
+    @Test
+    public void testListActiveTokensReturnsSummariesWithEtag() throws Exception {
+        ActiveTokens tokens = new ActiveTokens(List.of(
+                new ActiveTokenSummary(1L, "h1", LocalDateTime.of(2026, 1, 1, 12, 0), null)));
+        when(tokenService.listActiveTokens("user1")).thenReturn(tokens);
+
+        mockMvc.perform(get("/tokens/active")
+                        .param("userId", "user1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", tokens.getEtag()))
+                .andExpect(jsonPath("$[0].tokenValue").value("h1"))
+                .andExpect(jsonPath("$[0].expiresAt").doesNotExist())
+                .andExpect(jsonPath("$[0].userId").doesNotExist());
+    }
+
+    @Test
+    public void testListActiveTokensUnchangedReturns304() throws Exception {
+        ActiveTokens tokens = new ActiveTokens(List.of());
+        when(tokenService.listActiveTokens("user1")).thenReturn(tokens);
+
+        mockMvc.perform(get("/tokens/active")
+                        .param("userId", "user1")
+                        .header("If-None-Match", tokens.getEtag()))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    public void testListTokensPage() throws Exception {
+        Token token1 = new Token("user1", "token1");
+        when(tokenService.listTokens("user1", null, 1)).thenReturn(new CursorPage<>(List.of(token1), "next"));
+
+        mockMvc.perform(get("/tokens")
+                        .param("userId", "user1")
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+    }
+
+    @Test
+    public void testStreamTokensWritesNdjson() throws Exception {
+        doAnswer(inv -> {
+            Consumer<Token> consumer = inv.getArgument(2);
+            consumer.accept(new Token("user1", "token1"));
+            consumer.accept(new Token("user1", "token2"));
+            return null;
+        }).when(tokenService).streamTokens(eq("user1"), eq(false), any());
+
+        MvcResult result = mockMvc.perform(get("/tokens/stream")
+                        .param("userId", "user1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("token2", objectMapper.readTree(lines[1]).get("tokenValue").asText());
+    }
+
+    @Test
+    public void testConnectionPoolExhaustionReturns503() throws Exception {
+        when(tokenService.generateToken("user1", null, null))
+                .thenThrow(new CannotCreateTransactionException("Connection is not available, request timed out"));
+
+        mockMvc.perform(post("/tokens")
+                        .param("userId", "user1"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.message").value("Service is busy. Please try again shortly."));
+    }
 }
@@ -0,0 +1,305 @@
+package org.example.tokenmanager.repository.mmap;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.tokenmanager.model.Token;
+import org.example.tokenmanager.repository.TokenBulkOperations.ExpiredToken;
+import org.example.tokenmanager.repository.TokenBulkOperations.InvalidatedToken;
+import org.example.tokenmanager.util.TokenHasher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MmapTokenStoreTest {
+
+    private static final int SEGMENT_BYTES = MmapLog.HEADER_BYTES + MmapLog.MAX_RECORD_BYTES;
+
+    @TempDir
+    Path dir;
+
+    private MmapTokenStore store;
+
+    @AfterEach
+    public void tearDown() {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    @Test
+    public void testSaveAndFind() {
+        store = open();
+        Token token = store.save(new Token("alice", TokenHasher.hash("t1")));
+
+        assertEquals(1L, token.getId());
+        // Stored to the microsecond, like a timestamp column.
+        assertEquals(token.getCreatedAt().truncatedTo(ChronoUnit.MICROS), store.findByTokenValue(TokenHasher.hash("t1")).orElseThrow().getCreatedAt());
+        Token found = store.findByTokenValue(TokenHasher.hash("t1")).orElseThrow();
+        assertEquals("alice", found.getUserId());
+        assertTrue(found.isValidToken());
+        assertTrue(store.existsByTokenValue(TokenHasher.hash("t1")));
+        assertFalse(store.existsByTokenValue(TokenHasher.hash("t2")));
+        assertEquals(1, store.count());
+    }
+
+    @Test
+    public void testDuplicateTokenValueIsRejected() {
+        store = open();
+        store.save(new Token("alice", TokenHasher.hash("t1")));
+
+        assertThrows(DataIntegrityViolationException.class,
+                () -> store.save(new Token("bob", TokenHasher.hash("t1"))));
+        assertThrows(DataIntegrityViolationException.class,
+                () -> store.insertAll(List.of(new Token("bob", TokenHasher.hash("t2")), new Token("bob", TokenHasher.hash("t2")))));
+        // Nothing of the rejected batch was written.
+        assertEquals(1, store.count());
+    }
+
+    @Test
+    public void testUserListingsAndPages() {
+        store = open();
+        LocalDateTime now = LocalDateTime.now();
+        store.insertAll(List.of(
+                new Token("alice", TokenHasher.hash("a1")),
+                new Token("alice", TokenHasher.hash("a2"), now.minusMinutes(1)),
+                new Token("bob", TokenHasher.hash("b1")),
+                new Token("alice", TokenHasher.hash("a3"))));
+        store.invalidateAll(List.of(TokenHasher.hash("a3")));
+
+        assertEquals(List.of(1L, 2L, 4L), ids(store.findByUserId("alice").stream()));
+        assertEquals(List.of(2L), ids(store.findByUserIdAndIdGreaterThanOrderByIdAsc("alice", 1, Limit.of(1)).stream()));
+        assertEquals(List.of(1L), ids(store.findActivePageByUserId("alice", 0, now, Limit.of(10)).stream()));
+        assertEquals(List.of(1L), ids(store.streamActiveByUserId("alice", now)));
+        assertEquals(List.of(1L, 2L, 4L), ids(store.streamByUserIdOrderByIdAsc("alice")));
+        assertEquals(1, store.findActiveRowsByUserId("alice", now).size());
+        assertEquals(Map.of("alice", 1L, "bob", 1L), store.countActiveByUser(List.of("alice", "bob", "carol"), now));
+        assertTrue(store.findByUserId("carol").isEmpty());
+    }
+
+    @Test
+    public void testInvalidateIfValid() {
+        store = open();
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        Token token = new Token("alice", TokenHasher.hash("t1"), now.plusHours(1));
+        token.setCreatedAt(now);
+        store.save(token);
+
+        Optional<InvalidatedToken> invalidated = store.invalidateIfValid(TokenHasher.hash("t1"), now, now);
+
+        assertTrue(invalidated.isPresent());
+        assertEquals("alice", invalidated.get().getUserId());
+        assertEquals(3600, invalidated.get().getTtl().getSeconds());
+        assertEquals(now, store.findByTokenValue(TokenHasher.hash("t1")).orElseThrow().getRotatedAt());
+        assertTrue(store.invalidateIfValid(TokenHasher.hash("t1"), now, now).isEmpty());
+        assertTrue(store.invalidateIfValid(TokenHasher.hash("missing"), now, now).isEmpty());
+    }
+
+    @Test
+    public void testInvalidateAllByUserIdSkipsInvalidTokens() {
+        store = open();
+        store.insertAll(List.of(
+                new Token("alice", TokenHasher.hash("a1")),
+                new Token("alice", TokenHasher.hash("a2")),
+                new Token("bob", TokenHasher.hash("b1"))));
+        store.invalidateAll(List.of(TokenHasher.hash("a1")));
+
+        List<InvalidatedToken> invalidated = store.invalidateAllByUserId("alice");
+
+        assertEquals(List.of(TokenHasher.hash("a2")), invalidated.stream().map(InvalidatedToken::getTokenValue).toList());
+        assertTrue(store.findByTokenValue(TokenHasher.hash("b1")).orElseThrow().isValidToken());
+    }
+
+    @Test
+    public void testUpdateLastUsedKeepsTheLaterTime() {
+        store = open();
+        store.save(new Token("alice", TokenHasher.hash("t1")));
+        long later = System.currentTimeMillis();
+
+        assertEquals(1, store.updateLastUsed(Map.of(TokenHasher.hash("t1"), later)));
+        assertEquals(0, store.updateLastUsed(Map.of(TokenHasher.hash("t1"), later - 60_000)));
+        assertEquals(0, store.updateLastUsed(Map.of(TokenHasher.hash("missing"), later)));
+        assertNotNull(store.findByTokenValue(TokenHasher.hash("t1")).orElseThrow().getLastUsedAt());
+    }
+
+    @Test
+    public void testArchiveExpiredRemovesOldestFirst() {
+        store = open();
+        LocalDateTime now = LocalDateTime.now();
+        store.insertAll(List.of(
+                new Token("alice", TokenHasher.hash("later"), now.minusMinutes(1)),
+                new Token("alice", TokenHasher.hash("earlier"), now.minusMinutes(2)),
+                new Token("alice", TokenHasher.hash("future"), now.plusMinutes(1)),
+                new Token("alice", TokenHasher.hash("forever"))));
+
+        List<ExpiredToken> first = store.archiveExpired(now, 1);
+        List<ExpiredToken> rest = store.archiveExpired(now, 10);
+
+        assertEquals(List.of(TokenHasher.hash("earlier")), first.stream().map(ExpiredToken::getTokenValue).toList());
+        assertEquals(List.of(TokenHasher.hash("later")), rest.stream().map(ExpiredToken::getTokenValue).toList());
+        assertEquals(2, store.count());
+        assertEquals(List.of(3L, 4L), ids(store.findByUserId("alice").stream()));
+    }
+
+    @Test
+    public void testReopenRestoresStateAcrossSegments() {
+        store = open();
+        for (int i = 0; i < 1000; i++) {
+            store.save(new Token("user-" + i % 5, TokenHasher.hash("t" + i)));
+        }
+        store.invalidateAllByUserId("user-0");
+        store.archiveExpired(LocalDateTime.now(), 10);
+        store.close();
+        assertTrue(fileCount() > 1, "expected the log to span several segments");
+
+        store = open();
+
+        assertEquals(1000, store.count());
+        assertFalse(store.findByTokenValue(TokenHasher.hash("t0")).orElseThrow().isValidToken());
+        assertTrue(store.findByTokenValue(TokenHasher.hash("t1")).orElseThrow().isValidToken());
+        assertEquals(200, store.findByUserId("user-3").size());
+        assertEquals(1001L, store.save(new Token("alice", TokenHasher.hash("new"))).getId());
+    }
+
+    @Test
+    public void testReopenAfterArchiveForgetsRemovedTokens() {
+        store = open();
+        LocalDateTime now = LocalDateTime.now();
+        store.save(new Token("alice", TokenHasher.hash("t1"), now.minusMinutes(1)));
+        store.save(new Token("alice", TokenHasher.hash("t2")));
+        store.archiveExpired(now, 10);
+        store.close();
+
+        store = open();
+
+        assertFalse(store.existsByTokenValue(TokenHasher.hash("t1")));
+        assertEquals(List.of(2L), ids(store.findByUserId("alice").stream()));
+        assertTrue(store.archiveExpired(now, 10).isEmpty());
+    }
+
+    @Test
+    public void testTornTailIsDiscardedOnReopen() throws IOException {
+        store = open(1 << 20);
+        store.save(new Token("alice", TokenHasher.hash("t1")));
+        store.save(new Token("alice", TokenHasher.hash("t2")));
+        store.close();
+        // A header whose body never made it to disk, as after a crash mid-append.
+        Path segment;
+        try (Stream<Path> files = Files.list(dir)) {
+            segment = files.filter(file -> file.getFileName().toString().startsWith("tokens-")).findFirst().orElseThrow();
+        }
+        long end = endOfRecords(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(8).putInt(100).putInt(12345).flip(), end);
+        }
+
+        store = open(1 << 20);
+        assertEquals(2, store.count());
+        store.save(new Token("alice", TokenHasher.hash("t3")));
+        store.close();
+
+        store = open(1 << 20);
+        assertEquals(3, store.count());
+        assertTrue(store.existsByTokenValue(TokenHasher.hash("t3")));
+    }
+
+    @Test
+    public void testCompactionKeepsCurrentStateAndIds() {
+        store = open();
+        for (int i = 0; i < 50; i++) {
+            store.save(new Token("alice", TokenHasher.hash("t" + i)));
+        }
+        for (int round = 0; round < 5; round++) {
+            store.updateLastUsed(Map.of(TokenHasher.hash("t1"), System.currentTimeMillis() + round * 1000L));
+        }
+        store.invalidateAllByUserId("alice");
+        store.archiveExpired(LocalDateTime.now(), 10);
+        // The newest tokens can be archived away entirely; ids must still not be reused.
+        store.save(new Token("bob", TokenHasher.hash("b1"), LocalDateTime.now().minusSeconds(1)));
+        store.archiveExpired(LocalDateTime.now(), 10);
+        assertTrue(store.needsCompaction());
+
+        store.compact();
+
+        assertFalse(store.needsCompaction());
+        assertEquals(50, store.count());
+        assertFalse(store.findByTokenValue(TokenHasher.hash("t1")).orElseThrow().isValidToken());
+        assertNotNull(store.findByTokenValue(TokenHasher.hash("t1")).orElseThrow().getLastUsedAt());
+        store.close();
+
+        store = open();
+        assertEquals(50, store.count());
+        assertEquals(0, fileCount(name -> name.startsWith("tokens-0-")));
+        assertEquals(52L, store.save(new Token("bob", TokenHasher.hash("b2"))).getId());
+    }
+
+    @Test
+    public void testStreamsStayReadableAcrossCompaction() {
+        store = open();
+        for (int i = 0; i < 20; i++) {
+            store.save(new Token("alice", TokenHasher.hash("t" + i)));
+        }
+        store.invalidateAllByUserId("alice");
+        try (Stream<String> values = store.streamAllTokenValues()) {
+            store.compact();
+            assertEquals(20, values.count());
+        }
+    }
+
+    private MmapTokenStore open() {
+        return open(SEGMENT_BYTES);
+    }
+
+    private MmapTokenStore open(int segmentBytes) {
+        return new MmapTokenStore(dir, segmentBytes, false, 0, 0.3, new SimpleMeterRegistry());
+    }
+
+    private static List<Long> ids(Stream<Token> tokens) {
+        return tokens.map(Token::getId).collect(Collectors.toList());
+    }
+
+    private long fileCount() {
+        return fileCount(name -> name.endsWith(".log"));
+    }
+
+    private long fileCount(Predicate<String> name) {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> name.test(file.getFileName().toString())).count();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long endOfRecords(Path segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            ByteBuffer length = ByteBuffer.allocate(4);
+            long position = 0;
+            while (true) {
+                length.clear();
+                channel.read(length, position);
+                int bytes = length.flip().getInt();
+                if (bytes == 0) {
+                    return position;
+                }
+                position += 8 + bytes;
+            }
+        }
+    }
+}
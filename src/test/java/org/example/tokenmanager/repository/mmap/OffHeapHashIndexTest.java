@@ -0,0 +1,90 @@
+package org.example.tokenmanager.repository.mmap;
+
+import org.example.tokenmanager.util.TokenHasher;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OffHeapHashIndexTest {
+
+    @Test
+    public void testPutGetRemove() {
+        OffHeapHashIndex index = new OffHeapHashIndex(0);
+        byte[] key = TokenHasher.digest("a");
+
+        assertEquals(-1, index.get(key));
+        assertEquals(-1, index.put(key, 0));
+        assertEquals(0, index.get(key));
+        assertEquals(0, index.put(key, 42));
+        assertEquals(42, index.get(key));
+        assertEquals(1, index.size());
+
+        assertEquals(42, index.remove(key));
+        assertEquals(-1, index.remove(key));
+        assertEquals(-1, index.get(key));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void testMatchesHashMapThroughGrowthAndRemovals() {
+        OffHeapHashIndex index = new OffHeapHashIndex(0);
+        Map<String, Long> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 50_000; i++) {
+            String key = "k" + random.nextInt(20_000);
+            if (random.nextInt(3) == 0) {
+                Long removed = expected.remove(key);
+                assertEquals(removed == null ? -1 : removed, index.remove(TokenHasher.digest(key)));
+            } else {
+                long value = random.nextInt(1_000_000);
+                Long previous = expected.put(key, value);
+                assertEquals(previous == null ? -1 : previous, index.put(TokenHasher.digest(key), value));
+            }
+        }
+        assertEquals(expected.size(), index.size());
+        for (int i = 0; i < 20_000; i++) {
+            String key = "k" + i;
+            assertEquals(expected.getOrDefault(key, -1L), index.get(TokenHasher.digest(key)));
+        }
+        long[] sum = {0};
+        index.forEachValue(value -> sum[0] += value);
+        assertEquals(expected.values().stream().mapToLong(Long::longValue).sum(), sum[0]);
+    }
+
+    @Test
+    public void testCollidingKeysSurviveRemovalOfEarlierEntries() {
+        // Same first eight bytes, so all three share a home slot and probe run.
+        byte[] first = new byte[32];
+        byte[] second = new byte[32];
+        byte[] third = new byte[32];
+        second[31] = 1;
+        third[31] = 2;
+        OffHeapHashIndex index = new OffHeapHashIndex(0);
+        index.put(first, 1);
+        index.put(second, 2);
+        index.put(third, 3);
+
+        index.remove(first);
+
+        assertEquals(-1, index.get(first));
+        assertEquals(2, index.get(second));
+        assertEquals(3, index.get(third));
+    }
+
+    @Test
+    public void testSizing() {
+        assertEquals(1024 * 40, new OffHeapHashIndex(0).memoryBytes());
+        assertEquals(2048 * 40, new OffHeapHashIndex(1000).memoryBytes());
+    }
+
+    @Test
+    public void testRejectsBadInput() {
+        OffHeapHashIndex index = new OffHeapHashIndex(0);
+        assertThrows(IllegalArgumentException.class, () -> index.put(new byte[16], 1));
+        assertThrows(IllegalArgumentException.class, () -> index.put(new byte[32], -1));
+    }
+}
@@ -0,0 +1,68 @@
+package org.example.tokenmanager.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class AuditPartitionManagerTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    public void setup() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        when(jdbcTemplate.queryForObject(startsWith("SELECT pg_try_advisory_xact_lock"), eq(Boolean.class), anyLong()))
+                .thenReturn(true);
+    }
+
+    @Test
+    public void testCreatesMissingFuturePartitions() {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class)))
+                .thenReturn(List.of("audit_logs_default", "audit_logs_2026_10", "audit_logs_2026_11"));
+        new AuditPartitionManager(jdbcTemplate, transactionTemplate, 2, 0).maintainPartitions(YearMonth.of(2026, 10));
+
+        verify(jdbcTemplate).execute("CREATE TABLE audit_logs_2026_12 PARTITION OF audit_logs " +
+                "FOR VALUES FROM ('2026-12-01') TO ('2027-01-01')");
+        verify(jdbcTemplate, times(1)).execute(anyString());
+    }
+
+    @Test
+    public void testDropsPartitionsOlderThanRetention() {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class)))
+                .thenReturn(List.of("audit_logs_default", "audit_logs_2025_08", "audit_logs_2025_09", "audit_logs_2025_10",
+                        "audit_logs_2026_10"));
+        new AuditPartitionManager(jdbcTemplate, transactionTemplate, 0, 12).maintainPartitions(YearMonth.of(2026, 10));
+
+        verify(jdbcTemplate).execute("ALTER TABLE audit_logs DETACH PARTITION audit_logs_2025_08");
+        verify(jdbcTemplate).execute("DROP TABLE audit_logs_2025_08");
+        verify(jdbcTemplate).execute("DROP TABLE audit_logs_2025_09");
+        verify(jdbcTemplate, never()).execute("DROP TABLE audit_logs_2025_10");
+        verify(jdbcTemplate, never()).execute("DROP TABLE audit_logs_default");
+    }
+
+    @Test
+    public void testSkipsWhenAnotherReplicaHoldsTheLock() {
+        when(jdbcTemplate.queryForObject(startsWith("SELECT pg_try_advisory_xact_lock"), eq(Boolean.class), anyLong()))
+                .thenReturn(false);
+        new AuditPartitionManager(jdbcTemplate, transactionTemplate, 3, 1).maintainPartitions(YearMonth.of(2026, 10));
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    public void testPartitionNameRoundTrip() {
+        assertEquals("audit_logs_2026_03", AuditPartitionManager.partitionName(YearMonth.of(2026, 3)));
+        assertEquals(YearMonth.of(2026, 3), AuditPartitionManager.partitionMonth("audit_logs_2026_03"));
+        assertNull(AuditPartitionManager.partitionMonth("audit_logs_default"));
+    }
+}
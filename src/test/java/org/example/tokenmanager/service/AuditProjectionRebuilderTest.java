@@ -0,0 +1,110 @@
+package org.example.tokenmanager.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.tokenmanager.repository.AuditCounterRepository;
+import org.example.tokenmanager.repository.AuditCounterRepository.Checkpoint;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class AuditProjectionRebuilderTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 10, 18, 10, 0);
+
+    private AuditCounterRepository counters;
+    private JdbcTemplate jdbcTemplate;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setup() {
+        counters = mock(AuditCounterRepository.class);
+        jdbcTemplate = mock(JdbcTemplate.class);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    public void testRebuildsHourByHourAndAdvancesCheckpoint() {
+        when(counters.lockCheckpoint())
+                .thenReturn(Optional.of(checkpoint(T0, T0.plusHours(2))))
+                .thenReturn(Optional.of(checkpoint(T0.plusHours(1), T0.plusHours(2))));
+
+        assertEquals(2, rebuilder(10).runSteps());
+
+        InOrder inOrder = inOrder(counters);
+        inOrder.verify(counters).rebuild(T0, T0.plusHours(1));
+        inOrder.verify(counters).advanceCheckpoint(T0.plusHours(1));
+        inOrder.verify(counters).rebuild(T0.plusHours(1), T0.plusHours(2));
+        inOrder.verify(counters).advanceCheckpoint(T0.plusHours(2));
+        // Complete after the second step: no further lock attempt
+        verify(counters, times(2)).lockCheckpoint();
+        assertEquals(2, meterRegistry.get("audit.projection.rebuilt.hours").counter().count());
+    }
+
+    @Test
+    public void testResumesFromCheckpointAndStopsAfterMaxSteps() {
+        when(counters.lockCheckpoint()).thenReturn(Optional.of(checkpoint(T0.plusHours(5), T0.plusHours(100))));
+
+        assertEquals(3, rebuilder(3).runSteps());
+
+        verify(counters, times(3)).rebuild(T0.plusHours(5), T0.plusHours(6));
+    }
+
+    @Test
+    public void testNothingToDoWhenCompleteOrLockedElsewhere() {
+        when(counters.lockCheckpoint())
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(checkpoint(T0, T0)));
+        AuditProjectionRebuilder rebuilder = rebuilder(10);
+
+        assertEquals(0, rebuilder.runSteps());
+        assertEquals(0, rebuilder.runSteps());
+
+        verify(counters, never()).rebuild(any(), any());
+    }
+
+    @Test
+    public void testRequestRoundsToWholeHours() {
+        when(counters.findCheckpoint()).thenReturn(Optional.of(checkpoint(T0, T0.plusHours(2))));
+
+        rebuilder(10).requestRebuild(T0.plusMinutes(30), T0.plusHours(1).plusSeconds(1));
+
+        verify(counters).saveCheckpoint(T0, T0.plusHours(2));
+    }
+
+    @Test
+    public void testRequestDefaultsToOldestPartition() {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class)))
+                .thenReturn(List.of("audit_logs_default", "audit_logs_2026_09", "audit_logs_2026_08"));
+        when(counters.findCheckpoint()).thenReturn(Optional.of(checkpoint(T0, T0.plusHours(1))));
+
+        rebuilder(10).requestRebuild(null, T0);
+
+        verify(counters).saveCheckpoint(LocalDateTime.of(2026, 8, 1, 0, 0), T0);
+    }
+
+    @Test
+    public void testRequestRejectsEmptyRange() {
+        assertThrows(IllegalArgumentException.class, () -> rebuilder(10).requestRebuild(T0, T0));
+        verify(counters, never()).saveCheckpoint(any(), any());
+    }
+
+    private AuditProjectionRebuilder rebuilder(int maxSteps) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        return new AuditProjectionRebuilder(counters, jdbcTemplate, transactionTemplate, meterRegistry, true, true, maxSteps);
+    }
+
+    private static Checkpoint checkpoint(LocalDateTime position, LocalDateTime until) {
+        return new Checkpoint(position, until, T0, T0);
+    }
+}
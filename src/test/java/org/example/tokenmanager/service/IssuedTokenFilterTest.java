@@ -0,0 +1,76 @@
+package org.example.tokenmanager.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.tokenmanager.repository.TokenRepository;
+import org.example.tokenmanager.util.TokenHasher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class IssuedTokenFilterTest {
+
+    // Rows are committed before their hash is put, as TokenService does after commit.
+    private final Queue<String> table = new ConcurrentLinkedQueue<>();
+    private IssuedTokenFilter filter;
+
+    @BeforeEach
+    public void setUp() {
+        TokenRepository tokenRepository = mock(TokenRepository.class);
+        when(tokenRepository.count()).thenAnswer(invocation -> (long) table.size());
+        when(tokenRepository.streamAllTokenValues()).thenAnswer(invocation -> new ArrayList<>(table).stream());
+        filter = new IssuedTokenFilter(tokenRepository, new SimpleMeterRegistry(), true, 0.01, 1000, 2.0);
+        filter.load();
+    }
+
+    @Test
+    public void testPutDuringLoadIsNotLost() throws InterruptedException {
+        whileIssuing(() -> filter.load());
+
+        for (String hash : table) {
+            assertTrue(filter.mightBeIssued(hash), hash);
+        }
+    }
+
+    @Test
+    public void testPutDuringRestoreIsNotLost() throws InterruptedException {
+        whileIssuing(() -> filter.restore(filter.newFilter(table.size()),
+                () -> new ArrayList<>(table).forEach(filter::put)));
+
+        for (String hash : table) {
+            assertTrue(filter.mightBeIssued(hash), hash);
+        }
+    }
+
+    private void whileIssuing(Runnable reload) throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Thread> issuers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            issuers.add(new Thread(() -> {
+                for (int i = 0; i < 100_000 && running.get(); i++) {
+                    String hash = TokenHasher.hash("token-" + thread + "-" + i);
+                    table.add(hash);
+                    filter.put(hash);
+                }
+            }));
+        }
+        issuers.forEach(Thread::start);
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (System.nanoTime() < end && issuers.stream().anyMatch(Thread::isAlive)) {
+            reload.run();
+        }
+        running.set(false);
+        for (Thread issuer : issuers) {
+            issuer.join();
+        }
+    }
+}
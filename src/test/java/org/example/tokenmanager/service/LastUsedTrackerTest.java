@@ -0,0 +1,113 @@
+package org.example.tokenmanager.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.tokenmanager.repository.TokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class LastUsedTrackerTest {
+
+    private TokenRepository tokenRepository;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setup() {
+        tokenRepository = mock(TokenRepository.class);
+        when(tokenRepository.updateLastUsed(anyMap())).thenAnswer(inv -> ((Map<?, ?>) inv.getArgument(0)).size());
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRepeatedUsesCoalesceIntoOneUpdateWithLatestTime() {
+        LastUsedTracker tracker = new LastUsedTracker(tokenRepository, meterRegistry, true, 100, 1000);
+        for (int i = 0; i < 1000; i++) {
+            tracker.record("aa", 1_000 + i);
+        }
+        tracker.record("aa", 500);
+        tracker.record("bb", 2_000);
+
+        assertEquals(2, tracker.flush());
+
+        ArgumentCaptor<Map<String, Long>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(tokenRepository, times(1)).updateLastUsed(captor.capture());
+        assertEquals(Map.of("aa", 1_999L, "bb", 2_000L), captor.getValue());
+        assertNull(tracker.pendingLastUsed("aa"));
+        assertEquals(2, meterRegistry.get("tokens.last.used.flushed").counter().count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFlushSplitsIntoBatches() {
+        LastUsedTracker tracker = new LastUsedTracker(tokenRepository, meterRegistry, true, 2, 1000);
+        for (int i = 0; i < 5; i++) {
+            tracker.record("t" + i, i + 1);
+        }
+
+        assertEquals(5, tracker.flush());
+
+        ArgumentCaptor<Map<String, Long>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(tokenRepository, times(3)).updateLastUsed(captor.capture());
+        Map<String, Long> written = new HashMap<>();
+        captor.getAllValues().forEach(written::putAll);
+        assertEquals(5, written.size());
+    }
+
+    @Test
+    public void testFailedFlushKeepsUsesForNextAttempt() {
+        LastUsedTracker tracker = new LastUsedTracker(tokenRepository, meterRegistry, true, 100, 1000);
+        tracker.record("aa", 1_000);
+        doThrow(new DataAccessResourceFailureException("down")).when(tokenRepository).updateLastUsed(anyMap());
+
+        assertThrows(DataAccessResourceFailureException.class, tracker::flush);
+        assertEquals(1_000L, tracker.pendingLastUsed("aa"));
+
+        tracker.record("aa", 1_500);
+        doReturn(1).when(tokenRepository).updateLastUsed(anyMap());
+        assertEquals(1, tracker.flush());
+        verify(tokenRepository).updateLastUsed(Map.of("aa", 1_500L));
+    }
+
+    @Test
+    public void testPendingIsCappedWhileFlushesFail() {
+        LastUsedTracker tracker = new LastUsedTracker(tokenRepository, meterRegistry, true, 100, 2);
+        doThrow(new DataAccessResourceFailureException("down")).when(tokenRepository).updateLastUsed(anyMap());
+        tracker.record("aa", 1_000);
+        tracker.record("bb", 1_000);
+        assertThrows(DataAccessResourceFailureException.class, tracker::flush);
+
+        tracker.record("cc", 1_500);
+        // Tokens already pending still take newer uses
+        tracker.record("aa", 1_500);
+
+        assertNull(tracker.pendingLastUsed("cc"));
+        assertEquals(1_500L, tracker.pendingLastUsed("aa"));
+        assertEquals(2, meterRegistry.get("tokens.last.used.pending").gauge().value());
+        assertEquals(1, meterRegistry.get("tokens.last.used.dropped").counter().count());
+    }
+
+    @Test
+    public void testStopFlushesPendingUses() {
+        LastUsedTracker tracker = new LastUsedTracker(tokenRepository, meterRegistry, true, 100, 1000);
+        tracker.record("aa", 1_000);
+        tracker.stop();
+        verify(tokenRepository).updateLastUsed(Map.of("aa", 1_000L));
+    }
+
+    @Test
+    public void testDisabledTrackerRecordsNothing() {
+        LastUsedTracker tracker = new LastUsedTracker(tokenRepository, meterRegistry, false, 100, 1000);
+        tracker.record("aa", 1_000);
+        assertEquals(0, tracker.flush());
+        verify(tokenRepository, never()).updateLastUsed(anyMap());
+    }
+}
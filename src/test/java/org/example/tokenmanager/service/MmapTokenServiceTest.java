@@ -0,0 +1,408 @@
+package org.example.tokenmanager.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.tokenmanager.cluster.TokenEventPublisher;
+import org.example.tokenmanager.config.MmapStoreConfiguration;
+import org.example.tokenmanager.controller.dto.CursorPage;
+import org.example.tokenmanager.controller.dto.TokenResponse;
+import org.example.tokenmanager.controller.dto.TokenValidationResponse;
+import org.example.tokenmanager.model.Token;
+import org.example.tokenmanager.repository.mmap.MmapTokenStore;
+import org.example.tokenmanager.util.KeysetCursor;
+import org.example.tokenmanager.util.TokenHasher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * The {@link TokenServiceTest} flows against a real {@link MmapTokenStore}, with the service
+ * behind the same {@code @Transactional} proxy and transaction manager as under
+ * {@code tokens.store=mmap}, so the after-commit index and cache updates run as in production.
+ */
+public class MmapTokenServiceTest {
+
+    private static final String SIGNING_KEYS = "k1:" + "a".repeat(44);
+
+    @TempDir
+    Path dir;
+
+    private MmapTokenStore store;
+    private PlatformTransactionManager transactionManager;
+    private AuditService auditService;
+    private TokenIndex tokenIndex;
+    private IssuedTokenFilter issuedTokens;
+    private RevocationList revocations;
+    private TokenEventPublisher events;
+    private ActiveTokenCache activeTokens;
+    private TokenService tokenService;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        store = new MmapTokenStore(dir, 1 << 20, false, 0, 0.3, meterRegistry);
+        transactionManager = new MmapStoreConfiguration().transactionManager();
+        auditService = mock(AuditService.class);
+        tokenIndex = new TokenIndex(store);
+        tokenIndex.load();
+        issuedTokens = new IssuedTokenFilter(store, meterRegistry, true, 0.01, 1000, 2.0);
+        issuedTokens.load();
+        revocations = new RevocationList(store, meterRegistry);
+        revocations.load();
+        events = mock(TokenEventPublisher.class);
+        activeTokens = new ActiveTokenCache(store, new TransactionTemplate(transactionManager), meterRegistry, true, 100, 60_000);
+        tokenService = service(new SignedTokens("opaque", SIGNING_KEYS, "", "PT1H"));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        store.close();
+    }
+
+    @Test
+    public void testGenerateTokenStoresHashedTokenAndReturnsRaw() {
+        String rawToken = tokenService.generateToken("testUser").getToken();
+
+        Token saved = store.findByTokenValue(TokenHasher.hash(rawToken)).orElseThrow();
+        assertEquals("testUser", saved.getUserId());
+        assertTrue(saved.isValidToken());
+        assertNotEquals(rawToken, saved.getTokenValue());
+        verify(auditService).logAction(eq("GENERATE"), eq(saved.getTokenValue()), eq("testUser"));
+    }
+
+    @Test
+    public void testRotateTokenSuccess() {
+        String oldRaw = tokenService.generateToken("user1").getToken();
+        String oldHashed = TokenHasher.hash(oldRaw);
+
+        String newRaw = tokenService.rotateToken(oldRaw).getToken();
+        String newHashed = TokenHasher.hash(newRaw);
+
+        assertFalse(store.findByTokenValue(oldHashed).orElseThrow().isValidToken());
+        assertEquals("user1", store.findByTokenValue(newHashed).orElseThrow().getUserId());
+        assertFalse(tokenService.validateToken(oldRaw).isValid());
+        assertTrue(tokenService.validateToken(newRaw).isValid());
+        verify(events).tokenInvalidated(oldHashed);
+        verify(events).tokenIssued(newHashed, "user1", 0L);
+        verify(auditService).logAction("ROTATE_OLD", oldHashed, "user1");
+        verify(auditService).logAction("ROTATE_NEW", newHashed, "user1");
+    }
+
+    @Test
+    public void testRotateTokenFailsIfNotFound() {
+        // Past the filter, so the store has to answer
+        issuedTokens.put(TokenHasher.hash("missingToken"));
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> tokenService.rotateToken("missingToken"));
+
+        assertEquals("Token not found.", ex.getMessage());
+        assertEquals(0, store.count());
+        assertEquals(1, outcomeCount("rotate", "not_found"));
+    }
+
+    @Test
+    public void testRotateTokenFailsIfAlreadyInvalid() {
+        String raw = tokenService.generateToken("user1").getToken();
+        tokenService.rotateToken(raw);
+
+        IllegalStateException ex = assertThrows(IllegalStateException.class, () -> tokenService.rotateToken(raw));
+
+        assertEquals("Token is already invalid.", ex.getMessage());
+        assertEquals(2, store.count());
+        assertEquals(1, outcomeCount("rotate", "already_invalid"));
+    }
+
+    @Test
+    public void testRotatedTokenKeepsTtl() {
+        String oldRaw = tokenService.generateToken("user1", 1800L, null).getToken();
+        LocalDateTime before = LocalDateTime.now();
+
+        TokenResponse response = tokenService.rotateToken(oldRaw);
+
+        LocalDateTime expiresAt = store.findByTokenValue(TokenHasher.hash(response.getToken())).orElseThrow().getExpiresAt();
+        assertFalse(expiresAt.isBefore(before.plusMinutes(30).minusNanos(1_000)));
+        assertTrue(expiresAt.isBefore(before.plusMinutes(31)));
+    }
+
+    @Test
+    public void testInvalidateTokenSuccess() {
+        String raw = tokenService.generateToken("user1").getToken();
+        String hashed = TokenHasher.hash(raw);
+
+        tokenService.invalidateToken(raw);
+
+        assertFalse(store.findByTokenValue(hashed).orElseThrow().isValidToken());
+        assertFalse(tokenService.validateToken(raw).isValid());
+        verify(events).tokenInvalidated(hashed);
+        verify(auditService).logAction("INVALIDATE", hashed, "user1");
+    }
+
+    @Test
+    public void testInvalidateTokenFailsIfNotFound() {
+        issuedTokens.put(TokenHasher.hash("missingToken"));
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> tokenService.invalidateToken("missingToken"));
+
+        assertEquals("Token not found.", ex.getMessage());
+    }
+
+    @Test
+    public void testInvalidateAlreadyInvalidTokenIsNoOp() {
+        String raw = tokenService.generateToken("user1").getToken();
+        tokenService.invalidateToken(raw);
+
+        tokenService.invalidateToken(raw);
+
+        verify(auditService, times(1)).logAction(eq("INVALIDATE"), anyString(), anyString());
+        assertEquals(1, outcomeCount("invalidate", "already_invalid"));
+    }
+
+    @Test
+    public void testValidateFallsBackToStoreBeforeIndexLoaded() {
+        String raw = tokenService.generateToken("user1").getToken();
+        TokenService coldService = new TokenService(store, auditService, new TokenIndex(store),
+                new IssuedTokenFilter(store, meterRegistry, true, 0.01, 1000, 2.0),
+                new SignedTokens("opaque", SIGNING_KEYS, "", "PT1H"), revocations, new TokenTtlPolicies("", "P1D", "session=PT1H"),
+                new LastUsedTracker(store, meterRegistry, true, 100, 1000), activeTokens, events, new TokenMetrics(meterRegistry));
+
+        TokenValidationResponse response = coldService.validateToken(raw);
+
+        assertTrue(response.isValid());
+        assertEquals("user1", response.getUserId());
+        assertFalse(coldService.validateToken("unknownToken").isValid());
+    }
+
+    @Test
+    public void testGenerateTokensInsertsBatchAndAuditsEachToken() {
+        List<TokenResponse> responses = tokenService.generateTokens("bulkUser", 5);
+
+        assertEquals(5, responses.size());
+        assertEquals(5, store.count());
+        for (TokenResponse response : responses) {
+            assertTrue(store.existsByTokenValue(TokenHasher.hash(response.getToken())));
+            assertTrue(tokenService.validateToken(response.getToken()).isValid());
+        }
+        verify(auditService).logAll(argThat(logs -> logs.size() == 5
+                && logs.stream().allMatch(log -> log.getAction().equals("GENERATE"))));
+    }
+
+    @Test
+    public void testGenerateTokensRejectsCountOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> tokenService.generateTokens("user1", 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> tokenService.generateTokens("user1", TokenService.MAX_BATCH_SIZE + 1));
+        assertEquals(0, store.count());
+    }
+
+    @Test
+    public void testIssuedTokensAreIndexedOnlyAfterCommit() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        String raw = transaction.execute(status -> {
+            String token = tokenService.generateTokens("user1", 1).get(0).getToken();
+            // The outer transaction owns the commit, so the index has not been told yet
+            assertNull(tokenIndex.get(TokenHasher.hash(token)));
+            return token;
+        });
+
+        assertEquals("user1", tokenIndex.get(TokenHasher.hash(raw)).getUserId());
+        assertTrue(tokenService.validateToken(raw).isValid());
+    }
+
+    @Test
+    public void testInvalidateTokensInvalidatesOnlyTheGivenTokens() {
+        String raw1 = tokenService.generateToken("user1").getToken();
+        String raw2 = tokenService.generateToken("user2").getToken();
+
+        int invalidated = tokenService.invalidateTokens(List.of(raw1, raw1, "unknown"));
+
+        assertEquals(1, invalidated);
+        assertFalse(tokenService.validateToken(raw1).isValid());
+        assertTrue(tokenService.validateToken(raw2).isValid());
+        assertFalse(store.findByTokenValue(TokenHasher.hash(raw1)).orElseThrow().isValidToken());
+        verify(events).tokenInvalidated(TokenHasher.hash(raw1));
+        verify(auditService).logAll(argThat(logs -> logs.size() == 1
+                && logs.get(0).getTokenValue().equals(TokenHasher.hash(raw1))));
+    }
+
+    @Test
+    public void testInvalidateAllTokensForUser() {
+        String raw1 = tokenService.generateToken("user1").getToken();
+        String raw2 = tokenService.generateToken("user1").getToken();
+        String other = tokenService.generateToken("user2").getToken();
+
+        assertEquals(2, tokenService.invalidateAllTokens("user1"));
+
+        assertFalse(tokenService.validateToken(raw1).isValid());
+        assertFalse(tokenService.validateToken(raw2).isValid());
+        assertTrue(tokenService.validateToken(other).isValid());
+        assertEquals(0, tokenService.invalidateAllTokens("user1"));
+    }
+
+    @Test
+    public void testListTokensPagesWithCursor() {
+        tokenService.generateTokens("user1", 3);
+        tokenService.generateToken("user2");
+
+        CursorPage<Token> first = tokenService.listTokens("user1", null, 2);
+        CursorPage<Token> last = tokenService.listTokens("user1", first.getNextCursor(), 2);
+
+        assertEquals(2, first.getItems().size());
+        assertEquals(first.getItems().get(1).getId(), KeysetCursor.decode(first.getNextCursor()).getId());
+        assertEquals(1, last.getItems().size());
+        assertNull(last.getNextCursor());
+        assertEquals(3, tokenService.listTokens("user1").size());
+        assertTrue(tokenService.listTokens("noUser").isEmpty());
+    }
+
+    @Test
+    public void testListActiveTokensPageSkipsInvalidAndExpired() {
+        String invalid = tokenService.generateToken("user1").getToken();
+        String active = tokenService.generateToken("user1").getToken();
+        tokenService.invalidateToken(invalid);
+        store.insertAll(List.of(new Token("user1", TokenHasher.hash("expired"), LocalDateTime.now().minusMinutes(1))));
+
+        CursorPage<Token> page = tokenService.listActiveTokens("user1", null, 10);
+
+        assertEquals(1, page.getItems().size());
+        assertEquals(TokenHasher.hash(active), page.getItems().get(0).getTokenValue());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    public void testActiveTokensAreCachedUntilTheUserChanges() {
+        String raw = tokenService.generateToken("user1").getToken();
+
+        ActiveTokenCache.ActiveTokens first = tokenService.listActiveTokens("user1");
+        ActiveTokenCache.ActiveTokens second = tokenService.listActiveTokens("user1");
+
+        assertEquals(1, first.getTokens().size());
+        assertEquals(TokenHasher.hash(raw), first.getTokens().get(0).getTokenValue());
+        assertSame(first, second);
+
+        tokenService.generateTokens("user1", 2);
+        ActiveTokenCache.ActiveTokens afterBatch = tokenService.listActiveTokens("user1");
+        assertEquals(3, afterBatch.getTokens().size());
+        assertNotEquals(first.getEtag(), afterBatch.getEtag());
+
+        tokenService.rotateToken(raw);
+        ActiveTokenCache.ActiveTokens afterRotate = tokenService.listActiveTokens("user1");
+        assertEquals(3, afterRotate.getTokens().size());
+        assertTrue(afterRotate.getTokens().stream().noneMatch(token -> token.getTokenValue().equals(TokenHasher.hash(raw))));
+
+        tokenService.invalidateAllTokens("user1");
+        assertTrue(tokenService.listActiveTokens("user1").getTokens().isEmpty());
+    }
+
+    @Test
+    public void testGenerateTokenWithPolicySetsExpiry() {
+        LocalDateTime before = LocalDateTime.now();
+
+        TokenResponse response = tokenService.generateToken("user1", null, "session");
+
+        Token saved = store.findByTokenValue(TokenHasher.hash(response.getToken())).orElseThrow();
+        assertNotNull(saved.getExpiresAt());
+        assertFalse(saved.getExpiresAt().isBefore(before.plusHours(1).minusNanos(1_000)));
+        assertEquals(TokenIndex.toEpochMillis(response.getExpiresAt()),
+                tokenIndex.get(TokenHasher.hash(response.getToken())).getExpiresAt());
+    }
+
+    @Test
+    public void testGenerateTokenRejectsTtlAboveMaximum() {
+        assertThrows(IllegalArgumentException.class, () -> tokenService.generateToken("user1", 2 * 86400L, null));
+        assertThrows(IllegalArgumentException.class, () -> tokenService.generateToken("user1", null, "unknown"));
+        assertEquals(0, store.count());
+    }
+
+    @Test
+    public void testExpiredTokenIsInvalidAndCannotBeRotated() {
+        String hashed = TokenHasher.hash("expiringToken");
+        store.insertAll(List.of(new Token("user1", hashed, LocalDateTime.now().minusSeconds(1))));
+        tokenIndex.load();
+        issuedTokens.load();
+
+        // Expired rows are left out of the index, so the lookup never reaches the store
+        assertFalse(tokenService.validateToken("expiringToken").isValid());
+        assertNull(tokenIndex.get(hashed));
+        assertThrows(IllegalStateException.class, () -> tokenService.rotateToken("expiringToken"));
+    }
+
+    @Test
+    public void testInvalidatedSignedTokenIsRevoked() {
+        TokenService signedService = service(new SignedTokens("signed", SIGNING_KEYS, "k1", "PT1H"));
+        TokenResponse response = signedService.generateToken("user1");
+        String hashed = TokenHasher.hash(response.getToken());
+        assertTrue(store.findByTokenValue(hashed).orElseThrow().isSigned());
+        assertTrue(signedService.validateToken(response.getToken()).isValid());
+
+        signedService.invalidateToken(response.getToken());
+
+        assertTrue(revocations.isRevoked(hashed));
+        assertFalse(signedService.validateToken(response.getToken()).isValid());
+        verify(events).signedTokenRevoked(hashed, "user1", TokenIndex.toEpochMillis(response.getExpiresAt()));
+    }
+
+    @Test
+    public void testRotatedSignedTokenIsRevokedAndSuccessorIsSigned() {
+        TokenService signedService = service(new SignedTokens("signed", SIGNING_KEYS, "k1", "PT1H"));
+        TokenResponse old = signedService.generateToken("user1", 600L, null);
+
+        TokenResponse successor = signedService.rotateToken(old.getToken());
+
+        assertTrue(successor.getToken().startsWith("st1."));
+        assertFalse(signedService.validateToken(old.getToken()).isValid());
+        assertTrue(signedService.validateToken(successor.getToken()).isValid());
+    }
+
+    @Test
+    public void testTokensSurviveReopeningTheStore() {
+        String raw = tokenService.generateToken("user1").getToken();
+        String rotated = tokenService.rotateToken(tokenService.generateToken("user1").getToken()).getToken();
+        store.close();
+
+        store = new MmapTokenStore(dir, 1 << 20, false, 0, 0.3, meterRegistry);
+        tokenIndex = new TokenIndex(store);
+        tokenIndex.load();
+        issuedTokens = new IssuedTokenFilter(store, meterRegistry, true, 0.01, 1000, 2.0);
+        issuedTokens.load();
+        activeTokens = new ActiveTokenCache(store, new TransactionTemplate(transactionManager), meterRegistry, true, 100, 60_000);
+        TokenService reopened = service(new SignedTokens("opaque", SIGNING_KEYS, "", "PT1H"));
+
+        assertTrue(reopened.validateToken(raw).isValid());
+        assertTrue(reopened.validateToken(rotated).isValid());
+        assertEquals(2, reopened.listActiveTokens("user1").getTokens().size());
+    }
+
+    /**
+     * A {@link TokenService} behind a {@code @Transactional} proxy, as the application context builds it.
+     */
+    private TokenService service(SignedTokens signedTokens) {
+        TokenService target = new TokenService(store, auditService, tokenIndex, issuedTokens, signedTokens, revocations,
+                new TokenTtlPolicies("", "P1D", "session=PT1H"), new LastUsedTracker(store, meterRegistry, true, 100, 1000),
+                activeTokens, events, new TokenMetrics(meterRegistry));
+        ProxyFactory proxy = new ProxyFactory(target);
+        proxy.setProxyTargetClass(true);
+        proxy.addAdvice(new TransactionInterceptor(transactionManager, new AnnotationTransactionAttributeSource()));
+        return (TokenService) proxy.getProxy();
+    }
+
+    private double outcomeCount(String operation, String outcome) {
+        return meterRegistry.get("token.operation.outcome").tag("operation", operation).tag("outcome", outcome)
+                .counter().count();
+    }
+}
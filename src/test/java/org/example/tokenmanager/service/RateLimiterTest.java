@@ -0,0 +1,138 @@
+package org.example.tokenmanager.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    public void testBurstThenRefillAtConfiguredRate() {
+        // 60/min = one per second, burst of 3
+        RateLimiter limiter = new RateLimiter(meterRegistry, true, 60, 3, 1000, 1000, 1000, 1000, 100);
+        long now = 1_000 * SECOND;
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire("user1", "10.0.0.1", now);
+        }
+        RateLimitExceededException ex = assertThrows(RateLimitExceededException.class,
+                () -> limiter.acquire("user1", "10.0.0.1", now));
+        assertEquals(1, ex.getRetryAfterSeconds());
+
+        limiter.acquire("user1", "10.0.0.1", now + SECOND);
+        // Other users are not affected
+        limiter.acquire("user2", "10.0.0.1", now);
+        assertEquals(1, meterRegistry.get("rate.limit.rejections").tag("scope", "user").counter().count());
+    }
+
+    @Test
+    public void testClientLimitAppliesAcrossUsers() {
+        RateLimiter limiter = new RateLimiter(meterRegistry, true, 1000, 1000, 60, 2, 1000, 1000, 100);
+        long now = 1_000 * SECOND;
+        limiter.acquire("user1", "10.0.0.1", now);
+        limiter.acquire("user2", "10.0.0.1", now);
+        assertThrows(RateLimitExceededException.class, () -> limiter.acquire("user3", "10.0.0.1", now));
+        limiter.acquire("user3", "10.0.0.2", now);
+        assertEquals(1, meterRegistry.get("rate.limit.rejections").tag("scope", "client").counter().count());
+    }
+
+    @Test
+    public void testBatchIsChargedPerTokenToItsOwnBuckets() {
+        // Batches: 60 tokens/min, at most 10 at once
+        RateLimiter limiter = new RateLimiter(meterRegistry, true, 60, 1, 1000, 1000, 60, 10, 100);
+        long now = 1_000 * SECOND;
+        limiter.acquireBatch("user1", "10.0.0.1", 6, now);
+        RateLimitExceededException ex = assertThrows(RateLimitExceededException.class,
+                () -> limiter.acquireBatch("user1", "10.0.0.1", 5, now));
+        assertEquals(1, ex.getRetryAfterSeconds());
+        limiter.acquireBatch("user1", "10.0.0.1", 4, now);
+        limiter.acquireBatch("user1", "10.0.0.1", 5, now + 5 * SECOND);
+        // Single requests keep their own budget
+        limiter.acquire("user1", "10.0.0.1", now);
+    }
+
+    @Test
+    public void testBatchLargerThanBurstIsRejectedUncharged() {
+        RateLimiter limiter = new RateLimiter(meterRegistry, true, 60, 10, 1000, 1000, 60, 10, 100);
+        long now = 1_000 * SECOND;
+        assertThrows(IllegalArgumentException.class, () -> limiter.acquireBatch("user1", "10.0.0.1", 11, now));
+        limiter.acquireBatch("user1", "10.0.0.1", 10, now);
+    }
+
+    @Test
+    public void testRejectedUserDoesNotUseUpClientBudget() {
+        RateLimiter limiter = new RateLimiter(meterRegistry, true, 60, 1, 60, 2, 1000, 1000, 100);
+        long now = 1_000 * SECOND;
+        limiter.acquire("user1", "10.0.0.1", now);
+        assertThrows(RateLimitExceededException.class, () -> limiter.acquire("user1", "10.0.0.1", now));
+        // The rejected request was refunded, so the client still has one left
+        limiter.acquire("user2", "10.0.0.1", now);
+    }
+
+    @Test
+    public void testKeysAreBoundedAndIdleOnesEvicted() {
+        RateLimiter limiter = new RateLimiter(meterRegistry, true, 60, 50, 60, 50, 1000, 1000, 10);
+        long now = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            limiter.acquire("user" + i, "10.0.0." + i, now);
+        }
+        assertEquals(10, limiter.size());
+        limiter.evictIdle(now);
+        assertEquals(10, limiter.size());
+        // Every bucket has refilled a second later
+        limiter.evictIdle(now + SECOND);
+        assertEquals(0, limiter.size());
+    }
+
+    @Test
+    public void testConcurrentCallersNeverExceedBurst() throws Exception {
+        RateLimiter limiter = new RateLimiter(meterRegistry, true, 1, 50, 1_000_000, 1_000_000, 1000, 1000, 100);
+        long now = 1_000 * SECOND;
+        AtomicInteger admitted = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < 8; t++) {
+            pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < 100; i++) {
+                    try {
+                        limiter.acquire("user1", "10.0.0.1", now);
+                        admitted.incrementAndGet();
+                    } catch (RateLimitExceededException e) {
+                        // expected once the bucket is empty
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(50, admitted.get());
+    }
+
+    @Test
+    public void testDisabledLimiterAdmitsEverything() {
+        RateLimiter limiter = new RateLimiter(meterRegistry, false, 1, 1, 1, 1, 1000, 1000, 100);
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire("user1", "10.0.0.1");
+        }
+        assertEquals(0, limiter.size());
+    }
+}
@@ -0,0 +1,112 @@
+package org.example.tokenmanager.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.tokenmanager.model.AuditLog;
+import org.example.tokenmanager.repository.ReactiveAuditLogRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+public class ReactiveAuditServiceTest {
+
+    private ReactiveAuditLogRepository auditLogRepository;
+    private List<AuditLog> written;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setup() {
+        auditLogRepository = mock(ReactiveAuditLogRepository.class);
+        written = new CopyOnWriteArrayList<>();
+        when(auditLogRepository.insertAll(anyList())).thenAnswer(inv -> write(inv.getArgument(0)));
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    public void testBufferedEntriesAreWrittenInBatchesOnStop() {
+        ReactiveAuditService auditService = new ReactiveAuditService(auditLogRepository, meterRegistry, 100, 10, 60_000, 4);
+        auditService.start();
+        for (int i = 0; i < 25; i++) {
+            auditService.logAction("GENERATE", "hash" + i, "user1");
+        }
+        auditService.stop();
+        assertEquals(25, written.size());
+        assertEquals("hash0", written.get(0).getTokenValue());
+        assertEquals("hash24", written.get(24).getTokenValue());
+        verify(auditLogRepository, times(3)).insertAll(anyList());
+        assertEquals(0, auditService.pendingCount());
+    }
+
+    @Test
+    public void testPartialBatchIsWrittenAfterFlushInterval() throws Exception {
+        ReactiveAuditService auditService = new ReactiveAuditService(auditLogRepository, meterRegistry, 100, 10, 20, 4);
+        auditService.start();
+        auditService.logAll(List.of(new AuditLog("ROTATE_OLD", "old", "user1"), new AuditLog("ROTATE_NEW", "new", "user1")));
+        for (int i = 0; i < 50 && written.size() < 2; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(2, written.size());
+        auditService.stop();
+    }
+
+    @Test
+    public void testEntriesAreWrittenSeparatelyWhenBufferIsFull() {
+        Sinks.Empty<Void> release = Sinks.empty();
+        when(auditLogRepository.insertAll(anyList()))
+                .thenAnswer(inv -> release.asMono().then(write(inv.getArgument(0))))
+                .thenAnswer(inv -> write(inv.getArgument(0)));
+        ReactiveAuditService auditService = new ReactiveAuditService(auditLogRepository, meterRegistry, 4, 2, 60_000, 4);
+        auditService.start();
+        // The first batch waits on the database; the buffer behind it fills up.
+        for (int i = 0; i < 50; i++) {
+            auditService.logAction("GENERATE", "hash" + i, "user1");
+        }
+        double separate = meterRegistry.get("audit.queue.full").counter().count();
+        assertTrue(separate > 0);
+        assertEquals(separate, written.size());
+        release.tryEmitEmpty();
+        auditService.stop();
+        assertEquals(50, written.size());
+    }
+
+    @Test
+    public void testSeparateWritesAreLimitedAndTheRestDropped() {
+        Sinks.Empty<Void> release = Sinks.empty();
+        when(auditLogRepository.insertAll(anyList())).thenAnswer(inv -> release.asMono().then(write(inv.getArgument(0))));
+        ReactiveAuditService auditService = new ReactiveAuditService(auditLogRepository, meterRegistry, 4, 2, 60_000, 2);
+        auditService.start();
+        // Every write waits on the database, so separate writes pile up once the buffer is full.
+        for (int i = 0; i < 50; i++) {
+            auditService.logAction("GENERATE", "hash" + i, "user1");
+        }
+        double dropped = meterRegistry.get("audit.reactive.overflow.dropped").counter().count();
+        assertEquals(2.0, meterRegistry.get("audit.queue.full").counter().count());
+        assertTrue(dropped > 0);
+        release.tryEmitEmpty();
+        auditService.stop();
+        assertEquals(50 - dropped, written.size());
+        assertEquals(0.0, meterRegistry.get("audit.write.dropped").counter().count());
+    }
+
+    @Test
+    public void testFailedBatchIsRetriedThenCountedAsLost() {
+        when(auditLogRepository.insertAll(anyList())).thenReturn(Mono.error(new IllegalStateException("connection refused")));
+        ReactiveAuditService auditService = new ReactiveAuditService(auditLogRepository, meterRegistry, 100, 10, 60_000, 4);
+        auditService.start();
+        auditService.logAction("INVALIDATE", "hash", "user1");
+        auditService.stop();
+        assertEquals(1.0, meterRegistry.get("audit.write.dropped").counter().count());
+        assertTrue(written.isEmpty());
+    }
+
+    private Mono<Void> write(List<AuditLog> batch) {
+        return Mono.fromRunnable(() -> written.addAll(batch));
+    }
+}
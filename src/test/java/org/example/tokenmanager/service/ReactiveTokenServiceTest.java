@@ -0,0 +1,480 @@
+package org.example.tokenmanager.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.tokenmanager.cluster.TokenEventPublisher;
+import org.example.tokenmanager.controller.dto.ActiveTokenSummary;
+import org.example.tokenmanager.controller.dto.TokenResponse;
+import org.example.tokenmanager.model.AuditLog;
+import org.example.tokenmanager.model.Token;
+import org.example.tokenmanager.repository.ReactiveTokenRepository;
+import org.example.tokenmanager.repository.TokenBulkOperations.InvalidatedToken;
+import org.example.tokenmanager.repository.TokenRepository;
+import org.example.tokenmanager.util.KeysetCursor;
+import org.example.tokenmanager.util.TokenHasher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ReactiveTokenServiceTest {
+
+    private static final String SIGNING_KEYS = "k1:" + "a".repeat(44);
+
+    private TokenRepository tokenRepository;
+    private ReactiveTokenRepository reactiveRepository;
+    private ReactiveAuditService auditService;
+    private TransactionalOperator transactionalOperator;
+    private TokenIndex tokenIndex;
+    private IssuedTokenFilter issuedTokens;
+    private RevocationList revocations;
+    private TokenEventPublisher events;
+    private TokenTtlPolicies ttlPolicies;
+    private LastUsedTracker lastUsed;
+    private ActiveTokenCache activeTokens;
+    private TokenMetrics metrics;
+    private ReactiveTokenService tokenService;
+    private SimpleMeterRegistry meterRegistry;
+
+    @Captor
+    private ArgumentCaptor<List<Token>> tokensCaptor;
+    @Captor
+    private ArgumentCaptor<List<AuditLog>> auditCaptor;
+    @Captor
+    private ArgumentCaptor<List<String>> hashesCaptor;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        tokenRepository = mock(TokenRepository.class);
+        reactiveRepository = mock(ReactiveTokenRepository.class);
+        when(reactiveRepository.insertAll(anyList())).thenReturn(Mono.empty());
+        auditService = mock(ReactiveAuditService.class);
+        transactionalOperator = mock(TransactionalOperator.class);
+        when(transactionalOperator.transactional(any(Mono.class))).thenAnswer(inv -> inv.getArgument(0));
+        meterRegistry = new SimpleMeterRegistry();
+        tokenIndex = new TokenIndex(tokenRepository);
+        tokenIndex.load();
+        issuedTokens = new IssuedTokenFilter(tokenRepository, meterRegistry, true, 0.01, 1000, 2.0);
+        issuedTokens.load();
+        revocations = new RevocationList(tokenRepository, meterRegistry);
+        revocations.load();
+        events = mock(TokenEventPublisher.class);
+        ttlPolicies = new TokenTtlPolicies("", "P1D", "session=PT1H");
+        lastUsed = new LastUsedTracker(tokenRepository, meterRegistry, true, 100, 1000);
+        activeTokens = new ActiveTokenCache(tokenRepository, new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                meterRegistry, true, 100, 60_000);
+        metrics = new TokenMetrics(meterRegistry);
+        tokenService = service(new SignedTokens("opaque", SIGNING_KEYS, "", "PT1H"));
+    }
+
+    @Test
+    public void testGenerateTokenStoresHashedTokenAndReturnsRaw() {
+        StepVerifier.create(tokenService.generateToken("testUser", null, null))
+                .assertNext(response -> {
+                    verify(reactiveRepository).insertAll(tokensCaptor.capture());
+                    Token saved = tokensCaptor.getValue().get(0);
+                    assertEquals(TokenHasher.hash(response.getToken()), saved.getTokenValue());
+                    assertEquals("testUser", saved.getUserId());
+                    assertEquals("testUser", tokenIndex.get(saved.getTokenValue()).getUserId());
+                    verify(auditService).logAction("GENERATE", saved.getTokenValue(), "testUser");
+                    verify(events).tokenIssued(saved.getTokenValue(), "testUser", 0L);
+                })
+                .verifyComplete();
+        assertEquals(1, outcomeCount("generate", "success"));
+    }
+
+    @Test
+    public void testGenerateTokenIsNotIndexedIfInsertFails() {
+        when(reactiveRepository.insertAll(anyList())).thenReturn(Mono.error(new IllegalStateException("insert failed")));
+
+        StepVerifier.create(tokenService.generateToken("user1", null, null))
+                .verifyError(IllegalStateException.class);
+
+        assertEquals(0, tokenIndex.size());
+        verify(auditService, never()).logAction(anyString(), anyString(), anyString());
+        assertEquals(1, outcomeCount("generate", "error"));
+    }
+
+    @Test
+    public void testGenerateTokenWithPolicySetsExpiry() {
+        LocalDateTime before = LocalDateTime.now();
+
+        TokenResponse response = tokenService.generateToken("user1", null, "session").block();
+
+        verify(reactiveRepository).insertAll(tokensCaptor.capture());
+        LocalDateTime expiresAt = tokensCaptor.getValue().get(0).getExpiresAt();
+        assertFalse(expiresAt.isBefore(before.plusHours(1)));
+        assertEquals(expiresAt, response.getExpiresAt());
+        assertEquals(TokenIndex.toEpochMillis(expiresAt), tokenIndex.get(TokenHasher.hash(response.getToken())).getExpiresAt());
+    }
+
+    @Test
+    public void testGenerateTokenRejectsTtlAboveMaximum() {
+        StepVerifier.create(tokenService.generateToken("user1", 2 * 86400L, null))
+                .verifyError(IllegalArgumentException.class);
+        StepVerifier.create(tokenService.generateToken("user1", null, "unknown"))
+                .verifyError(IllegalArgumentException.class);
+        verify(reactiveRepository, never()).insertAll(anyList());
+    }
+
+    @Test
+    public void testRotateTokenSuccess() {
+        String oldRaw = tokenService.generateToken("user1", null, null).block().getToken();
+        String oldHashed = TokenHasher.hash(oldRaw);
+        when(reactiveRepository.invalidateIfValid(eq(oldHashed), any(), any()))
+                .thenReturn(Mono.just(new InvalidatedToken(oldHashed, "user1")));
+
+        TokenResponse response = tokenService.rotateToken(oldRaw).block();
+
+        String newHashed = TokenHasher.hash(response.getToken());
+        verify(reactiveRepository, times(2)).insertAll(tokensCaptor.capture());
+        assertEquals(newHashed, tokensCaptor.getValue().get(0).getTokenValue());
+        verify(transactionalOperator).transactional(any(Mono.class));
+        verify(reactiveRepository, never()).existsByTokenValue(anyString());
+        assertNull(tokenIndex.get(oldHashed));
+        assertEquals("user1", tokenIndex.get(newHashed).getUserId());
+        verify(events).tokenInvalidated(oldHashed);
+        verify(events).tokenIssued(newHashed, "user1", 0L);
+        verify(auditService).logAction("ROTATE_OLD", oldHashed, "user1");
+        verify(auditService).logAction("ROTATE_NEW", newHashed, "user1");
+        assertEquals(1, outcomeCount("rotate", "success"));
+    }
+
+    @Test
+    public void testRotateTokenFailsIfNotFound() {
+        String hashed = TokenHasher.hash("missingToken");
+        // Filter false positive: the database still has the final word
+        issuedTokens.put(hashed);
+        when(reactiveRepository.invalidateIfValid(eq(hashed), any(), any())).thenReturn(Mono.empty());
+        when(reactiveRepository.existsByTokenValue(hashed)).thenReturn(Mono.just(false));
+
+        StepVerifier.create(tokenService.rotateToken("missingToken"))
+                .expectErrorSatisfies(e -> {
+                    assertInstanceOf(IllegalArgumentException.class, e);
+                    assertEquals("Token not found.", e.getMessage());
+                })
+                .verify();
+
+        verify(reactiveRepository, never()).insertAll(anyList());
+        assertEquals(1, outcomeCount("rotate", "not_found"));
+    }
+
+    @Test
+    public void testRotateNeverIssuedTokenIsRejectedWithoutQuery() {
+        StepVerifier.create(tokenService.rotateToken("unknownToken"))
+                .verifyError(IllegalArgumentException.class);
+
+        verifyNoInteractions(reactiveRepository);
+        assertEquals(1, outcomeCount("rotate", "not_found"));
+    }
+
+    @Test
+    public void testRotateTokenFailsIfAlreadyInvalid() {
+        String hashed = TokenHasher.hash("usedToken");
+        issuedTokens.put(hashed);
+        when(reactiveRepository.invalidateIfValid(eq(hashed), any(), any())).thenReturn(Mono.empty());
+        when(reactiveRepository.existsByTokenValue(hashed)).thenReturn(Mono.just(true));
+
+        StepVerifier.create(tokenService.rotateToken("usedToken"))
+                .expectErrorSatisfies(e -> {
+                    assertInstanceOf(IllegalStateException.class, e);
+                    assertEquals("Token is already invalid.", e.getMessage());
+                })
+                .verify();
+
+        assertEquals(1, outcomeCount("rotate", "already_invalid"));
+        assertEquals(0, outcomeCount("rotate", "not_found"));
+        verify(auditService, never()).logAction(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    public void testRotatedTokenKeepsTtl() {
+        String oldHashed = TokenHasher.hash("ttlToken");
+        issuedTokens.put(oldHashed);
+        when(reactiveRepository.invalidateIfValid(eq(oldHashed), any(), any()))
+                .thenReturn(Mono.just(new InvalidatedToken(oldHashed, "user1", Duration.ofMinutes(30))));
+        LocalDateTime before = LocalDateTime.now();
+
+        TokenResponse response = tokenService.rotateToken("ttlToken").block();
+
+        verify(reactiveRepository).insertAll(tokensCaptor.capture());
+        LocalDateTime expiresAt = tokensCaptor.getValue().get(0).getExpiresAt();
+        assertFalse(expiresAt.isBefore(before.plusMinutes(30)));
+        assertTrue(expiresAt.isBefore(before.plusMinutes(31)));
+        assertEquals(expiresAt, response.getExpiresAt());
+    }
+
+    @Test
+    public void testRotatedSignedTokenIsRevokedAndSuccessorIsSigned() {
+        ReactiveTokenService signedService = service(new SignedTokens("signed", SIGNING_KEYS, "k1", "PT1H"));
+        TokenResponse old = signedService.generateToken("user1", 600L, null).block();
+        String hashedOld = TokenHasher.hash(old.getToken());
+        when(reactiveRepository.invalidateIfValid(eq(hashedOld), any(), any())).thenReturn(Mono.just(
+                new InvalidatedToken(hashedOld, "user1", Duration.ofMinutes(10), true, old.getExpiresAt())));
+
+        TokenResponse successor = signedService.rotateToken(old.getToken()).block();
+
+        assertTrue(successor.getToken().startsWith("st1."));
+        assertTrue(revocations.isRevoked(hashedOld));
+        assertFalse(signedService.validateToken(old.getToken()).block().isValid());
+        assertTrue(signedService.validateToken(successor.getToken()).block().isValid());
+        verify(events).signedTokenRevoked(hashedOld, "user1", TokenIndex.toEpochMillis(old.getExpiresAt()));
+    }
+
+    @Test
+    public void testInvalidateTokenSuccess() {
+        String raw = tokenService.generateToken("user1", null, null).block().getToken();
+        String hashed = TokenHasher.hash(raw);
+        when(reactiveRepository.invalidateIfValid(eq(hashed), any(), isNull()))
+                .thenReturn(Mono.just(new InvalidatedToken(hashed, "user1")));
+
+        StepVerifier.create(tokenService.invalidateToken(raw)).verifyComplete();
+
+        assertFalse(tokenService.validateToken(raw).block().isValid());
+        verify(events).tokenInvalidated(hashed);
+        verify(auditService).logAction("INVALIDATE", hashed, "user1");
+        verify(reactiveRepository, never()).existsByTokenValue(anyString());
+        assertEquals(1, outcomeCount("invalidate", "success"));
+    }
+
+    @Test
+    public void testInvalidateTokenFailsIfNotFound() {
+        String hashed = TokenHasher.hash("missingToken");
+        issuedTokens.put(hashed);
+        when(reactiveRepository.invalidateIfValid(eq(hashed), any(), isNull())).thenReturn(Mono.empty());
+        when(reactiveRepository.existsByTokenValue(hashed)).thenReturn(Mono.just(false));
+
+        StepVerifier.create(tokenService.invalidateToken("missingToken"))
+                .expectErrorMessage("Token not found.")
+                .verify();
+
+        assertEquals(1, outcomeCount("invalidate", "not_found"));
+    }
+
+    @Test
+    public void testInvalidateAlreadyInvalidTokenIsNoOp() {
+        String hashed = TokenHasher.hash("usedToken");
+        issuedTokens.put(hashed);
+        tokenIndex.put(hashed, "user1");
+        when(reactiveRepository.invalidateIfValid(eq(hashed), any(), isNull())).thenReturn(Mono.empty());
+        when(reactiveRepository.existsByTokenValue(hashed)).thenReturn(Mono.just(true));
+
+        StepVerifier.create(tokenService.invalidateToken("usedToken")).verifyComplete();
+
+        // A stale index entry is dropped all the same
+        assertNull(tokenIndex.get(hashed));
+        verify(auditService, never()).logAction(anyString(), anyString(), anyString());
+        assertEquals(1, outcomeCount("invalidate", "already_invalid"));
+    }
+
+    @Test
+    public void testGenerateTokensInsertsBatchAndAuditsEachToken() {
+        List<TokenResponse> responses = tokenService.generateTokens("bulkUser", 5, null, null).block();
+
+        assertEquals(5, responses.size());
+        verify(reactiveRepository).insertAll(tokensCaptor.capture());
+        List<Token> saved = tokensCaptor.getValue();
+        assertEquals(5, saved.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(TokenHasher.hash(responses.get(i).getToken()), saved.get(i).getTokenValue());
+            assertTrue(tokenService.validateToken(responses.get(i).getToken()).block().isValid());
+        }
+        verify(auditService).logAll(auditCaptor.capture());
+        assertEquals(5, auditCaptor.getValue().size());
+        assertTrue(auditCaptor.getValue().stream().allMatch(log -> log.getAction().equals("GENERATE")));
+    }
+
+    @Test
+    public void testGenerateTokensRejectsCountOutOfRange() {
+        StepVerifier.create(tokenService.generateTokens("user1", 0, null, null))
+                .verifyError(IllegalArgumentException.class);
+        StepVerifier.create(tokenService.generateTokens("user1", TokenService.MAX_BATCH_SIZE + 1, null, null))
+                .verifyError(IllegalArgumentException.class);
+        verify(reactiveRepository, never()).insertAll(anyList());
+    }
+
+    @Test
+    public void testInvalidateTokensUsesSingleSetBasedUpdate() {
+        String raw1 = tokenService.generateToken("user1", null, null).block().getToken();
+        String raw2 = tokenService.generateToken("user2", null, null).block().getToken();
+        String hashed1 = TokenHasher.hash(raw1);
+        when(reactiveRepository.invalidateAll(anyList())).thenReturn(Flux.just(new InvalidatedToken(hashed1, "user1")));
+
+        StepVerifier.create(tokenService.invalidateTokens(List.of(raw1, raw1, "unknown")))
+                .expectNext(1)
+                .verifyComplete();
+
+        verify(reactiveRepository).invalidateAll(hashesCaptor.capture());
+        // Duplicates are collapsed and the never-issued token is filtered out before the query
+        assertEquals(List.of(hashed1), hashesCaptor.getValue());
+        assertFalse(tokenService.validateToken(raw1).block().isValid());
+        assertTrue(tokenService.validateToken(raw2).block().isValid());
+        verify(events).tokenInvalidated(hashed1);
+        verify(auditService).logAll(argThat(logs -> logs.size() == 1 && logs.get(0).getTokenValue().equals(hashed1)));
+    }
+
+    @Test
+    public void testInvalidateTokensRejectsTooManyTokens() {
+        List<String> tokens = Collections.nCopies(TokenService.MAX_BATCH_SIZE + 1, "t");
+
+        StepVerifier.create(tokenService.invalidateTokens(tokens))
+                .verifyError(IllegalArgumentException.class);
+
+        verify(reactiveRepository, never()).invalidateAll(anyList());
+    }
+
+    @Test
+    public void testInvalidateAllTokensForUser() {
+        String raw = tokenService.generateToken("user1", null, null).block().getToken();
+        String hashed = TokenHasher.hash(raw);
+        when(reactiveRepository.invalidateAllByUserId("user1")).thenReturn(Flux.just(new InvalidatedToken(hashed, "user1")));
+
+        StepVerifier.create(tokenService.invalidateAllTokens("user1"))
+                .expectNext(1)
+                .verifyComplete();
+
+        assertFalse(tokenService.validateToken(raw).block().isValid());
+        verify(auditService).logAll(argThat(logs -> logs.size() == 1
+                && logs.get(0).getAction().equals("INVALIDATE") && logs.get(0).getUserId().equals("user1")));
+    }
+
+    @Test
+    public void testValidateFallsBackToDatabaseBeforeIndexLoaded() {
+        TokenService coldTokenService = new TokenService(tokenRepository, mock(AuditService.class), new TokenIndex(tokenRepository),
+                new IssuedTokenFilter(tokenRepository, meterRegistry, true, 0.01, 1000, 2.0),
+                new SignedTokens("opaque", SIGNING_KEYS, "", "PT1H"), revocations, ttlPolicies, lastUsed, activeTokens, events, metrics);
+        ReactiveTokenService coldService = new ReactiveTokenService(coldTokenService, reactiveRepository, auditService,
+                transactionalOperator, new TokenIndex(tokenRepository), revocations, ttlPolicies, activeTokens, metrics);
+        String hashed = TokenHasher.hash("coldToken");
+        when(tokenRepository.findByTokenValue(hashed)).thenReturn(Optional.of(new Token("user1", hashed)));
+
+        StepVerifier.create(coldService.validateToken("coldToken"))
+                .assertNext(response -> {
+                    assertTrue(response.isValid());
+                    assertEquals("user1", response.getUserId());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    public void testActiveTokensAreCachedUntilTheUserChanges() {
+        ActiveTokenSummary h1 = new ActiveTokenSummary(1L, "h1", LocalDateTime.now(), null);
+        ActiveTokenSummary h2 = new ActiveTokenSummary(2L, "h2", LocalDateTime.now(), null);
+        when(reactiveRepository.findActiveSummariesByUserId(eq("user1"), any())).thenReturn(Flux.just(h1));
+
+        ActiveTokenCache.ActiveTokens first = tokenService.listActiveTokens("user1").block();
+        ActiveTokenCache.ActiveTokens second = tokenService.listActiveTokens("user1").block();
+
+        assertEquals(List.of(h1), first.getTokens());
+        assertSame(first, second);
+        verify(reactiveRepository, times(1)).findActiveSummariesByUserId(eq("user1"), any());
+
+        when(reactiveRepository.findActiveSummariesByUserId(eq("user1"), any())).thenReturn(Flux.just(h1, h2));
+        tokenService.generateToken("user1", null, null).block();
+        ActiveTokenCache.ActiveTokens third = tokenService.listActiveTokens("user1").block();
+
+        assertEquals(2, third.getTokens().size());
+        assertNotEquals(first.getEtag(), third.getEtag());
+        verify(reactiveRepository, times(2)).findActiveSummariesByUserId(eq("user1"), any());
+    }
+
+    @Test
+    public void testActiveTokensEvictedOnlyForAffectedUsers() {
+        when(reactiveRepository.findActiveSummariesByUserId(any(), any())).thenReturn(Flux.empty());
+        tokenService.listActiveTokens("user1").block();
+        tokenService.listActiveTokens("user2").block();
+        when(reactiveRepository.invalidateAll(anyList())).thenReturn(Flux.just(new InvalidatedToken("h1", "user1")));
+        issuedTokens.put(TokenHasher.hash("t1"));
+
+        tokenService.invalidateTokens(List.of("t1")).block();
+        tokenService.listActiveTokens("user1").block();
+        tokenService.listActiveTokens("user2").block();
+
+        verify(reactiveRepository, times(2)).findActiveSummariesByUserId(eq("user1"), any());
+        verify(reactiveRepository, times(1)).findActiveSummariesByUserId(eq("user2"), any());
+    }
+
+    @Test
+    public void testListTokensPageFetchesOneExtraRowForNextCursor() {
+        Token t1 = token(41L);
+        Token t2 = token(42L);
+        Token t3 = token(43L);
+        when(reactiveRepository.findPageByUserId("user1", 0, 3)).thenReturn(Flux.just(t1, t2, t3));
+
+        StepVerifier.create(tokenService.listTokens("user1", null, 2))
+                .assertNext(page -> {
+                    assertEquals(List.of(t1, t2), page.getItems());
+                    assertEquals(42L, KeysetCursor.decode(page.getNextCursor()).getId());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    public void testListActiveTokensLastPageHasNoCursor() {
+        Token t1 = token(50L);
+        when(reactiveRepository.findActivePageByUserId(eq("user1"), eq(42L), any(), eq(11))).thenReturn(Flux.just(t1));
+
+        StepVerifier.create(tokenService.listActiveTokens("user1", KeysetCursor.of(42L).encode(), 10))
+                .assertNext(page -> {
+                    assertEquals(List.of(t1), page.getItems());
+                    assertNull(page.getNextCursor());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    public void testListTokensRejectsInvalidLimitAndCursor() {
+        StepVerifier.create(tokenService.listTokens("user1", null, 0)).verifyError(IllegalArgumentException.class);
+        StepVerifier.create(tokenService.listTokens("user1", "%%%", 10)).verifyError(IllegalArgumentException.class);
+        verifyNoInteractions(reactiveRepository);
+    }
+
+    @Test
+    public void testStreamTokensReadsActiveOrAllRows() {
+        Token active = token(1L);
+        Token inactive = token(2L);
+        when(reactiveRepository.findActiveByUserId(eq("user1"), any())).thenReturn(Flux.just(active));
+        when(reactiveRepository.findByUserId("user1")).thenReturn(Flux.just(active, inactive));
+
+        StepVerifier.create(tokenService.streamTokens("user1", true)).expectNext(active).verifyComplete();
+        StepVerifier.create(tokenService.streamTokens("user1", false)).expectNext(active, inactive).verifyComplete();
+        StepVerifier.create(tokenService.listTokens("user1")).expectNextCount(2).verifyComplete();
+        assertEquals(2, meterRegistry.get("token.operation.outcome").tag("operation", "stream").tag("outcome", "success")
+                .counter().count());
+    }
+
+    private ReactiveTokenService service(SignedTokens signedTokens) {
+        TokenService blocking = new TokenService(tokenRepository, mock(AuditService.class), tokenIndex, issuedTokens, signedTokens,
+                revocations, ttlPolicies, lastUsed, activeTokens, events, metrics);
+        return new ReactiveTokenService(blocking, reactiveRepository, auditService, transactionalOperator, tokenIndex,
+                revocations, ttlPolicies, activeTokens, metrics);
+    }
+
+    private static Token token(long id) {
+        Token token = new Token("user1", "h" + id);
+        token.setId(id);
+        return token;
+    }
+
+    private double outcomeCount(String operation, String outcome) {
+        return meterRegistry.get("token.operation.outcome").tag("operation", operation).tag("outcome", outcome)
+                .counter().count();
+    }
+}
@@ -0,0 +1,94 @@
+package org.example.tokenmanager.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.tokenmanager.cluster.TokenEventPublisher;
+import org.example.tokenmanager.model.AuditLog;
+import org.example.tokenmanager.repository.TokenBulkOperations.ExpiredToken;
+import org.example.tokenmanager.repository.TokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class TokenExpirySweeperTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 10, 18, 12, 0);
+
+    private TokenRepository tokenRepository;
+    private TokenIndex tokenIndex;
+    private ActiveTokenCache activeTokens;
+    private TokenEventPublisher events;
+    private AuditService auditService;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setup() {
+        tokenRepository = mock(TokenRepository.class);
+        tokenIndex = new TokenIndex(tokenRepository);
+        activeTokens = mock(ActiveTokenCache.class);
+        events = mock(TokenEventPublisher.class);
+        auditService = mock(AuditService.class);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testArchivesInBatchesUntilShortBatch() {
+        tokenIndex.put("aa", "user1", 1);
+        when(tokenRepository.archiveExpired(NOW, 2))
+                .thenReturn(List.of(new ExpiredToken("aa", "user1", true), new ExpiredToken("bb", "user1", false)))
+                .thenReturn(List.of(new ExpiredToken("cc", "user2", true)));
+
+        assertEquals(3, sweeper(2, 10).sweep(NOW));
+
+        verify(tokenRepository, times(2)).archiveExpired(NOW, 2);
+        assertNull(tokenIndex.get("aa"));
+        verify(events).tokenInvalidated("aa");
+        verify(events).tokenInvalidated("cc");
+        verify(events, never()).tokenInvalidated("bb");
+        verify(activeTokens).evictAll(Set.of("user1"));
+        verify(activeTokens).evictAll(Set.of("user2"));
+        // One audit batch per sweep batch; already-invalid tokens did not expire, so no entry for them
+        ArgumentCaptor<List<AuditLog>> audits = ArgumentCaptor.forClass(List.class);
+        verify(auditService, times(2)).logAll(audits.capture());
+        assertEquals(List.of("aa", "cc"), audits.getAllValues().stream().flatMap(List::stream)
+                .peek(log -> assertEquals("EXPIRE", log.getAction()))
+                .map(AuditLog::getTokenValue).toList());
+        assertEquals(3, meterRegistry.get("tokens.expired.archived").counter().count());
+    }
+
+    @Test
+    public void testStopsAfterMaxBatches() {
+        when(tokenRepository.archiveExpired(NOW, 1)).thenReturn(List.of(new ExpiredToken("aa", "user1", false)));
+
+        assertEquals(3, sweeper(1, 3).sweep(NOW));
+
+        verify(tokenRepository, times(3)).archiveExpired(NOW, 1);
+        verify(auditService, never()).logAll(any());
+    }
+
+    @Test
+    public void testNothingDue() {
+        when(tokenRepository.archiveExpired(any(), anyInt())).thenReturn(List.of());
+
+        assertEquals(0, sweeper(100, 10).sweep(NOW));
+
+        verify(tokenRepository, times(1)).archiveExpired(NOW, 100);
+        verifyNoInteractions(events, auditService);
+    }
+
+    private TokenExpirySweeper sweeper(int batchSize, int maxBatches) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        return new TokenExpirySweeper(tokenRepository, transactionTemplate, tokenIndex, activeTokens, events, auditService,
+                meterRegistry, batchSize, maxBatches);
+    }
+}
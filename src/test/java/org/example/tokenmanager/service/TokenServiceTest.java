@@ -1,11 +1,28 @@
 package org.example.tokenmanager.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.tokenmanager.cluster.TokenEventPublisher;
+import org.example.tokenmanager.controller.dto.ActiveTokenSummary;
+import org.example.tokenmanager.controller.dto.CursorPage;
+import org.example.tokenmanager.controller.dto.TokenResponse;
+import org.example.tokenmanager.controller.dto.TokenValidationResponse;
+import org.example.tokenmanager.model.AuditLog;
 import org.example.tokenmanager.model.Token;
+import org.example.tokenmanager.repository.TokenBulkOperations.InvalidatedToken;
 import org.example.tokenmanager.repository.TokenRepository;
+import org.example.tokenmanager.repository.TokenStore.ActiveTokenRow;
+import org.example.tokenmanager.util.KeysetCursor;
 import org.example.tokenmanager.util.TokenHasher;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.*;
@@ -13,15 +30,48 @@ import static org.mockito.Mockito.*;
 
 public class TokenServiceTest {
 
+    private static final String SIGNING_KEYS = "k1:" + "a".repeat(44);
+
     private TokenRepository tokenRepository;
     private AuditService auditService;
+    private TokenIndex tokenIndex;
+    private IssuedTokenFilter issuedTokens;
+    private SignedTokens signedTokens;
+    private RevocationList revocations;
+    private TokenEventPublisher events;
+    private TokenTtlPolicies ttlPolicies;
+    private LastUsedTracker lastUsed;
+    private ActiveTokenCache activeTokens;
     private TokenService tokenService;
+    private SimpleMeterRegistry meterRegistry;
+
+    @Captor
+    private ArgumentCaptor<List<Token>> tokensCaptor;
+    @Captor
+    private ArgumentCaptor<List<AuditLog>> auditCaptor;
+    @Captor
+    private ArgumentCaptor<List<String>> hashesCaptor;
 
     @BeforeEach
     public void setup() {
+        MockitoAnnotations.openMocks(this);
         tokenRepository = mock(TokenRepository.class);
         auditService = mock(AuditService.class);
-        tokenService = new TokenService(tokenRepository, auditService);
+        tokenIndex = new TokenIndex(tokenRepository);
+        tokenIndex.load();
+        meterRegistry = new SimpleMeterRegistry();
+        issuedTokens = new IssuedTokenFilter(tokenRepository, meterRegistry, true, 0.01, 1000, 2.0);
+        issuedTokens.load();
+        signedTokens = new SignedTokens("opaque", SIGNING_KEYS, "", "PT1H");
+        revocations = new RevocationList(tokenRepository, meterRegistry);
+        revocations.load();
+        events = mock(TokenEventPublisher.class);
+        ttlPolicies = new TokenTtlPolicies("", "P1D", "session=PT1H");
+        lastUsed = new LastUsedTracker(tokenRepository, meterRegistry, true, 100, 1000);
+        activeTokens = new ActiveTokenCache(tokenRepository, new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                meterRegistry, true, 100, 60_000);
+        tokenService = new TokenService(tokenRepository, auditService, tokenIndex, issuedTokens, signedTokens, revocations,
+                ttlPolicies, lastUsed, activeTokens, events, new TokenMetrics(meterRegistry));
     }
 
     @Test
@@ -43,12 +93,19 @@ public class TokenServiceTest {
         String userId = "testUser";
         String oldRaw = "oldRawToken";
         String oldHashed = TokenHasher.hash(oldRaw);
-        Token oldToken = new Token(userId, oldHashed);
-        when(tokenRepository.findByTokenValue(oldHashed)).thenReturn(Optional.of(oldToken));
+        issuedTokens.put(oldHashed);
+        when(tokenRepository.invalidateIfValid(eq(oldHashed), any(), any())).thenReturn(Optional.of(new InvalidatedToken(oldHashed, userId)));
         String newRawToken = tokenService.rotateToken(oldRaw).getToken();
         assertNotNull(newRawToken);
         assertNotEquals(oldRaw, newRawToken);
-        verify(tokenRepository, times(2)).save(any()); // one for old, one for new
+        // One conditional UPDATE plus one INSERT; no entity is loaded
+        verify(tokenRepository).insertAll(tokensCaptor.capture());
+        assertEquals(TokenHasher.hash(newRawToken), tokensCaptor.getValue().get(0).getTokenValue());
+        assertEquals(userId, tokensCaptor.getValue().get(0).getUserId());
+        verify(tokenRepository, never()).findByTokenValue(anyString());
+        verify(tokenRepository, never()).existsByTokenValue(anyString());
+        verify(events).tokenInvalidated(oldHashed);
+        verify(events).tokenIssued(TokenHasher.hash(newRawToken), userId, 0L);
         verify(auditService).logAction(eq("ROTATE_OLD"), eq(oldHashed), eq(userId));
         verify(auditService).logAction(eq("ROTATE_NEW"), anyString(), eq(userId));
     }
@@ -57,22 +114,24 @@ public class TokenServiceTest {
     public void testRotateTokenFailsIfNotFound() {
         String rawToken = "invalidToken";
         String hashed = TokenHasher.hash(rawToken);
-        when(tokenRepository.findByTokenValue(hashed)).thenReturn(Optional.empty());
+        when(tokenRepository.invalidateIfValid(eq(hashed), any(), any())).thenReturn(Optional.empty());
+        when(tokenRepository.existsByTokenValue(hashed)).thenReturn(false);
         IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () ->
                 tokenService.rotateToken(rawToken)
         );
         assertEquals("Token not found.", ex.getMessage());
+        verify(tokenRepository, never()).insertAll(any());
     }
 
     @Test
     public void testInvalidateTokenSuccess() {
         String raw = "rawToken";
         String hashed = TokenHasher.hash(raw);
-        Token token = new Token("user1", hashed);
-        when(tokenRepository.findByTokenValue(hashed)).thenReturn(Optional.of(token));
+        issuedTokens.put(hashed);
+        when(tokenRepository.invalidateIfValid(eq(hashed), any(), isNull())).thenReturn(Optional.of(new InvalidatedToken(hashed, "user1")));
         tokenService.invalidateToken(raw);
-        assertFalse(token.isValidToken());
-        verify(tokenRepository).save(token);
+        verify(events).tokenInvalidated(hashed);
+        verify(tokenRepository, never()).save(any());
         verify(auditService).logAction(eq("INVALIDATE"), eq(hashed), eq("user1"));
     }
 
@@ -80,8 +139,9 @@ public class TokenServiceTest {
     public void testInvalidateTokenFailsIfNotFound() {
         String raw = "missingToken";
         String hashed = TokenHasher.hash(raw);
-
-        when(tokenRepository.findByTokenValue(hashed)).thenReturn(Optional.empty());
+        // Filter false positive: the database still has the final word
+        issuedTokens.put(hashed);
+        when(tokenRepository.invalidateIfValid(eq(hashed), any(), isNull())).thenReturn(Optional.empty());
 
         IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () ->
                 tokenService.invalidateToken(raw)
@@ -102,9 +162,9 @@ public class TokenServiceTest {
         String userId = "user1";
         String raw = "rawOld";
         String hashed = TokenHasher.hash(raw);
-        Token oldToken = new Token(userId, hashed);
-        oldToken.setValidToken(false);
-        when(tokenRepository.findByTokenValue(hashed)).thenReturn(Optional.of(oldToken));
+        issuedTokens.put(hashed);
+        when(tokenRepository.invalidateIfValid(eq(hashed), any(), any())).thenReturn(Optional.empty());
+        when(tokenRepository.existsByTokenValue(hashed)).thenReturn(true);
         IllegalStateException ex = assertThrows(IllegalStateException.class, () ->
                 tokenService.rotateToken(raw)
         );
@@ -122,12 +182,416 @@ public class TokenServiceTest {
     public void testInvalidateTokenLogsErrorWhenNotFound() {
         String raw = "notFoundToken";
         String hashed = TokenHasher.hash(raw);
-        when(tokenRepository.findByTokenValue(hashed)).thenReturn(Optional.empty());
         IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () ->
                 tokenService.invalidateToken(raw)
         );
         assertEquals("Token not found.", ex.getMessage());
-        verify(tokenRepository).findByTokenValue(hashed);
+        // Never issued, so the filter answers without a query
+        verify(tokenRepository, never()).invalidateIfValid(anyString(), any(), any());
+        verify(tokenRepository, never()).existsByTokenValue(hashed);
+        verify(auditService, never()).logAction(anyString(), anyString(), anyString());
+        assertEquals(1, meterRegistry.get("token.filter.rejections").counter().count());
+    }
+
+    @Test
+    public void testValidateGeneratedTokenAnsweredFromIndex() {
+        String rawToken = tokenService.generateToken("user1").getToken();
+        TokenValidationResponse response = tokenService.validateToken(rawToken);
+        assertTrue(response.isValid());
+        assertEquals("user1", response.getUserId());
+        assertNotNull(lastUsed.pendingLastUsed(TokenHasher.hash(rawToken)));
+        verify(tokenRepository, never()).findByTokenValue(anyString());
+    }
+
+    @Test
+    public void testValidateUnknownTokenIsInvalid() {
+        TokenValidationResponse response = tokenService.validateToken("unknownToken");
+        assertFalse(response.isValid());
+        assertNull(response.getUserId());
+        verify(tokenRepository, never()).findByTokenValue(anyString());
+    }
+
+    @Test
+    public void testValidateFailsAfterInvalidate() {
+        String raw = tokenService.generateToken("user1").getToken();
+        String hashed = TokenHasher.hash(raw);
+        when(tokenRepository.invalidateIfValid(eq(hashed), any(), isNull())).thenReturn(Optional.of(new InvalidatedToken(hashed, "user1")));
+        tokenService.invalidateToken(raw);
+        assertFalse(tokenService.validateToken(raw).isValid());
+    }
+
+    @Test
+    public void testValidateAfterRotateOnlyAcceptsNewToken() {
+        String oldRaw = tokenService.generateToken("user1").getToken();
+        String oldHashed = TokenHasher.hash(oldRaw);
+        when(tokenRepository.invalidateIfValid(eq(oldHashed), any(), any())).thenReturn(Optional.of(new InvalidatedToken(oldHashed, "user1")));
+        String newRaw = tokenService.rotateToken(oldRaw).getToken();
+        assertFalse(tokenService.validateToken(oldRaw).isValid());
+        assertTrue(tokenService.validateToken(newRaw).isValid());
+    }
+
+    @Test
+    public void testValidateFallsBackToDatabaseBeforeIndexLoaded() {
+        TokenService coldService = new TokenService(tokenRepository, auditService, new TokenIndex(tokenRepository),
+                new IssuedTokenFilter(tokenRepository, meterRegistry, true, 0.01, 1000, 2.0), signedTokens, revocations,
+                ttlPolicies, lastUsed, activeTokens, events, new TokenMetrics(meterRegistry));
+        String hashed = TokenHasher.hash("coldToken");
+        when(tokenRepository.findByTokenValue(hashed)).thenReturn(Optional.of(new Token("user1", hashed)));
+        TokenValidationResponse response = coldService.validateToken("coldToken");
+        assertTrue(response.isValid());
+        assertEquals("user1", response.getUserId());
+    }
+
+    @Test
+    public void testGenerateTokensInsertsBatchAndAuditsEachToken() {
+        List<TokenResponse> responses = tokenService.generateTokens("bulkUser", 5);
+        assertEquals(5, responses.size());
+        verify(tokenRepository).insertAll(tokensCaptor.capture());
+        verify(tokenRepository, never()).save(any());
+        List<Token> saved = tokensCaptor.getValue();
+        assertEquals(5, saved.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(TokenHasher.hash(responses.get(i).getToken()), saved.get(i).getTokenValue());
+            assertTrue(tokenService.validateToken(responses.get(i).getToken()).isValid());
+        }
+        verify(auditService).logAll(auditCaptor.capture());
+        assertEquals(5, auditCaptor.getValue().size());
+        assertTrue(auditCaptor.getValue().stream().allMatch(log -> log.getAction().equals("GENERATE")));
+    }
+
+    @Test
+    public void testGenerateTokensRejectsCountOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> tokenService.generateTokens("user1", 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> tokenService.generateTokens("user1", TokenService.MAX_BATCH_SIZE + 1));
+        verify(tokenRepository, never()).insertAll(any());
+    }
+
+    @Test
+    public void testInvalidateTokensUsesSingleSetBasedUpdate() {
+        String raw1 = tokenService.generateToken("user1").getToken();
+        String raw2 = tokenService.generateToken("user2").getToken();
+        String hashed1 = TokenHasher.hash(raw1);
+        when(tokenRepository.invalidateAll(any())).thenReturn(List.of(new InvalidatedToken(hashed1, "user1")));
+
+        int invalidated = tokenService.invalidateTokens(List.of(raw1, raw1, "unknown"));
+
+        assertEquals(1, invalidated);
+        verify(tokenRepository).invalidateAll(hashesCaptor.capture());
+        // Duplicates are collapsed and the never-issued token is filtered out before the query
+        assertEquals(List.of(hashed1), hashesCaptor.getValue());
+        assertFalse(tokenService.validateToken(raw1).isValid());
+        assertTrue(tokenService.validateToken(raw2).isValid());
+        verify(auditService).logAll(argThat(logs -> logs.size() == 1 && logs.get(0).getTokenValue().equals(hashed1)));
+    }
+
+    @Test
+    public void testInvalidateAllTokensForUser() {
+        String raw = tokenService.generateToken("user1").getToken();
+        String hashed = TokenHasher.hash(raw);
+        when(tokenRepository.invalidateAllByUserId("user1")).thenReturn(List.of(new InvalidatedToken(hashed, "user1")));
+
+        assertEquals(1, tokenService.invalidateAllTokens("user1"));
+        assertFalse(tokenService.validateToken(raw).isValid());
+        verify(auditService).logAll(argThat(logs -> logs.size() == 1
+                && logs.get(0).getAction().equals("INVALIDATE") && logs.get(0).getUserId().equals("user1")));
+    }
+
+    @Test
+    public void testListTokensPageFetchesOneExtraRowForNextCursor() {
+        Token t1 = mock(Token.class);
+        Token t2 = mock(Token.class);
+        Token t3 = mock(Token.class);
+        when(t2.getId()).thenReturn(42L);
+        when(tokenRepository.findByUserIdAndIdGreaterThanOrderByIdAsc("user1", 0, Limit.of(3)))
+                .thenReturn(List.of(t1, t2, t3));
+
+        CursorPage<Token> page = tokenService.listTokens("user1", null, 2);
+
+        assertEquals(List.of(t1, t2), page.getItems());
+        assertEquals(42L, KeysetCursor.decode(page.getNextCursor()).getId());
+    }
+
+    @Test
+    public void testListTokensLastPageHasNoCursor() {
+        String cursor = KeysetCursor.of(42L).encode();
+        Token t1 = new Token("user1", "h1");
+        when(tokenRepository.findActivePageByUserId(eq("user1"), eq(42L), any(), eq(Limit.of(11))))
+                .thenReturn(List.of(t1));
+
+        CursorPage<Token> page = tokenService.listActiveTokens("user1", cursor, 10);
+
+        assertEquals(List.of(t1), page.getItems());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    public void testActiveTokensAreCachedUntilTheUserChanges() {
+        ActiveTokenRow h1 = row(1L, "h1", null);
+        ActiveTokenRow h2 = row(2L, "h2", null);
+        when(tokenRepository.findActiveRowsByUserId(eq("user1"), any())).thenReturn(List.of(h1));
+
+        ActiveTokenCache.ActiveTokens first = tokenService.listActiveTokens("user1");
+        ActiveTokenCache.ActiveTokens second = tokenService.listActiveTokens("user1");
+
+        assertEquals(1, first.getTokens().size());
+        assertEquals("h1", first.getTokens().get(0).getTokenValue());
+        assertSame(first, second);
+        verify(tokenRepository, times(1)).findActiveRowsByUserId(eq("user1"), any());
+
+        when(tokenRepository.findActiveRowsByUserId(eq("user1"), any()))
+                .thenReturn(List.of(h1, h2));
+        tokenService.generateToken("user1");
+        ActiveTokenCache.ActiveTokens third = tokenService.listActiveTokens("user1");
+
+        assertEquals(2, third.getTokens().size());
+        assertNotEquals(first.getEtag(), third.getEtag());
+        verify(tokenRepository, times(2)).findActiveRowsByUserId(eq("user1"), any());
+    }
+
+    @Test
+    public void testActiveTokensEvictedOnlyForAffectedUsers() {
+        when(tokenRepository.findActiveRowsByUserId(any(), any())).thenReturn(List.of());
+        tokenService.listActiveTokens("user1");
+        tokenService.listActiveTokens("user2");
+        String hashed = TokenHasher.hash("t1");
+        issuedTokens.put(hashed);
+        when(tokenRepository.invalidateIfValid(eq(hashed), any(), isNull()))
+                .thenReturn(Optional.of(new InvalidatedToken(hashed, "user1")));
+
+        tokenService.invalidateToken("t1");
+        tokenService.listActiveTokens("user1");
+        tokenService.listActiveTokens("user2");
+
+        verify(tokenRepository, times(2)).findActiveRowsByUserId(eq("user1"), any());
+        verify(tokenRepository, times(1)).findActiveRowsByUserId(eq("user2"), any());
+    }
+
+    @Test
+    public void testActiveTokensReloadedOnceATokenExpires() {
+        ActiveTokenRow expired = row(1L, "h1", LocalDateTime.now().minusSeconds(1));
+        when(tokenRepository.findActiveRowsByUserId(eq("user1"), any()))
+                .thenReturn(List.of(expired))
+                .thenReturn(List.of());
+
+        tokenService.listActiveTokens("user1");
+        ActiveTokenCache.ActiveTokens reloaded = tokenService.listActiveTokens("user1");
+
+        assertTrue(reloaded.getTokens().isEmpty());
+    }
+
+    @Test
+    public void testEtagDependsOnlyOnContent() {
+        ActiveTokenSummary token = new ActiveTokenSummary(1L, "h1", LocalDateTime.of(2026, 1, 1, 0, 0), null);
+        assertEquals(new ActiveTokenCache.ActiveTokens(List.of(token)).getEtag(),
+                new ActiveTokenCache.ActiveTokens(List.of(token)).getEtag());
+        assertNotEquals(new ActiveTokenCache.ActiveTokens(List.of(token)).getEtag(),
+                new ActiveTokenCache.ActiveTokens(List.of()).getEtag());
     }
 
+    private static ActiveTokenRow row(long id, String tokenValue, LocalDateTime expiresAt) {
+        ActiveTokenRow row = mock(ActiveTokenRow.class);
+        when(row.getId()).thenReturn(id);
+        when(row.getTokenValue()).thenReturn(tokenValue);
+        when(row.getExpiresAt()).thenReturn(expiresAt);
+        return row;
+    }
+
+    @Test
+    public void testListTokensRejectsInvalidLimitAndCursor() {
+        assertThrows(IllegalArgumentException.class, () -> tokenService.listTokens("user1", null, 0));
+        assertThrows(IllegalArgumentException.class, () -> tokenService.listTokens("user1", "%%%", 10));
+    }
+
+
+    @Test
+    public void testOperationsRecordLatencyAndOutcome() {
+        String rawToken = tokenService.generateToken("testUser").getToken();
+        tokenService.validateToken(rawToken);
+        tokenService.validateToken("unknownToken");
+        assertThrows(IllegalArgumentException.class, () -> tokenService.rotateToken("missingToken"));
+
+        assertEquals(1, outcomeCount("generate", "success"));
+        assertEquals(1, outcomeCount("validate", "success"));
+        assertEquals(1, outcomeCount("validate", "invalid"));
+        assertEquals(1, outcomeCount("rotate", "not_found"));
+        assertEquals(2, meterRegistry.get("token.operation").tag("operation", "validate").timer().count());
+        assertEquals(4, meterRegistry.get("token.hash").timer().count());
+    }
+
+    @Test
+    public void testRotateAlreadyInvalidIsCountedSeparately() {
+        issuedTokens.put(TokenHasher.hash("usedToken"));
+        when(tokenRepository.existsByTokenValue(TokenHasher.hash("usedToken"))).thenReturn(true);
+        assertThrows(IllegalStateException.class, () -> tokenService.rotateToken("usedToken"));
+        assertEquals(1, outcomeCount("rotate", "already_invalid"));
+        assertEquals(0, outcomeCount("rotate", "not_found"));
+    }
+
+    @Test
+    public void testInvalidateAlreadyInvalidTokenIsNoOp() {
+        String hashed = TokenHasher.hash("usedToken");
+        issuedTokens.put(hashed);
+        when(tokenRepository.existsByTokenValue(hashed)).thenReturn(true);
+        tokenService.invalidateToken("usedToken");
+        verify(auditService, never()).logAction(anyString(), anyString(), anyString());
+        assertEquals(1, outcomeCount("invalidate", "already_invalid"));
+    }
+
+    @Test
+    public void testGenerateTokenWithPolicySetsExpiry() {
+        LocalDateTime before = LocalDateTime.now();
+        TokenResponse response = tokenService.generateToken("user1", null, "session");
+        ArgumentCaptor<Token> tokenCaptor = ArgumentCaptor.forClass(Token.class);
+        verify(tokenRepository).save(tokenCaptor.capture());
+        LocalDateTime expiresAt = tokenCaptor.getValue().getExpiresAt();
+        assertNotNull(expiresAt);
+        assertFalse(expiresAt.isBefore(before.plusHours(1)));
+        assertEquals(expiresAt, response.getExpiresAt());
+        assertEquals(TokenIndex.toEpochMillis(expiresAt), tokenIndex.get(TokenHasher.hash(response.getToken())).getExpiresAt());
+        verify(events).tokenIssued(TokenHasher.hash(response.getToken()), "user1", TokenIndex.toEpochMillis(expiresAt));
+    }
+
+    @Test
+    public void testGenerateTokenRejectsTtlAboveMaximum() {
+        assertThrows(IllegalArgumentException.class, () -> tokenService.generateToken("user1", 2 * 86400L, null));
+        assertThrows(IllegalArgumentException.class, () -> tokenService.generateToken("user1", null, "unknown"));
+        verify(tokenRepository, never()).save(any());
+    }
+
+    @Test
+    public void testRotatedTokenKeepsTtl() {
+        String oldHashed = TokenHasher.hash("ttlToken");
+        issuedTokens.put(oldHashed);
+        when(tokenRepository.invalidateIfValid(eq(oldHashed), any(), any()))
+                .thenReturn(Optional.of(new InvalidatedToken(oldHashed, "user1", Duration.ofMinutes(30))));
+        LocalDateTime before = LocalDateTime.now();
+
+        TokenResponse response = tokenService.rotateToken("ttlToken");
+
+        verify(tokenRepository).insertAll(tokensCaptor.capture());
+        LocalDateTime expiresAt = tokensCaptor.getValue().get(0).getExpiresAt();
+        assertFalse(expiresAt.isBefore(before.plusMinutes(30)));
+        assertTrue(expiresAt.isBefore(before.plusMinutes(31)));
+        assertEquals(expiresAt, response.getExpiresAt());
+    }
+
+    @Test
+    public void testExpiredTokenIsInvalidOnLookup() {
+        String hashed = TokenHasher.hash("expiringToken");
+        tokenIndex.put(hashed, "user1", System.currentTimeMillis() - 1);
+
+        TokenValidationResponse response = tokenService.validateToken("expiringToken");
+
+        assertFalse(response.isValid());
+        assertNull(response.getUserId());
+        // Evicted right away, without waiting for the sweeper
+        assertNull(tokenIndex.get(hashed));
+        assertEquals(1, outcomeCount("validate", "expired"));
+        verify(tokenRepository, never()).findByTokenValue(anyString());
+    }
+
+    @Test
+    public void testValidateFallbackRejectsExpiredToken() {
+        IssuedTokenFilter coldFilter = new IssuedTokenFilter(tokenRepository, meterRegistry, true, 0.01, 1000, 2.0);
+        TokenService coldService = new TokenService(tokenRepository, auditService, new TokenIndex(tokenRepository),
+                coldFilter, signedTokens, revocations, ttlPolicies, lastUsed, activeTokens, events,
+                new TokenMetrics(meterRegistry));
+        String hashed = TokenHasher.hash("coldToken");
+        Token expired = new Token("user1", hashed, LocalDateTime.now().minusSeconds(1));
+        when(tokenRepository.findByTokenValue(hashed)).thenReturn(Optional.of(expired));
+
+        assertFalse(coldService.validateToken("coldToken").isValid());
+    }
+
+    @Test
+    public void testSignedTokenValidatesWithoutDatabase() {
+        TokenService signedService = signedService();
+        TokenResponse response = signedService.generateToken("user1");
+        assertTrue(response.getToken().startsWith("st1."));
+        // Signed tokens always expire
+        assertNotNull(response.getExpiresAt());
+        ArgumentCaptor<Token> tokenCaptor = ArgumentCaptor.forClass(Token.class);
+        verify(tokenRepository).save(tokenCaptor.capture());
+        assertTrue(tokenCaptor.getValue().isSigned());
+        String hashed = TokenHasher.hash(response.getToken());
+        assertNull(tokenIndex.get(hashed));
+        verify(events).signedTokenIssued(eq(hashed), eq("user1"), anyLong());
+        verify(events, never()).tokenIssued(anyString(), anyString(), anyLong());
+
+        TokenValidationResponse validation = signedService.validateToken(response.getToken());
+
+        assertTrue(validation.isValid());
+        assertEquals("user1", validation.getUserId());
+        verify(tokenRepository, never()).findByTokenValue(anyString());
+    }
+
+    @Test
+    public void testTamperedSignedTokenIsRejectedWithoutDatabase() {
+        TokenService signedService = signedService();
+        String raw = signedService.generateToken("user1").getToken();
+        String tampered = raw.substring(0, raw.length() - 2) + (raw.endsWith("AA") ? "BB" : "AA");
+
+        assertFalse(signedService.validateToken(tampered).isValid());
+        assertThrows(IllegalArgumentException.class, () -> signedService.invalidateToken(tampered));
+        verify(tokenRepository, never()).invalidateIfValid(anyString(), any(), any());
+        verify(tokenRepository, never()).findByTokenValue(anyString());
+    }
+
+    @Test
+    public void testInvalidatedSignedTokenIsRevoked() {
+        TokenService signedService = signedService();
+        TokenResponse response = signedService.generateToken("user1");
+        String hashed = TokenHasher.hash(response.getToken());
+        when(tokenRepository.invalidateIfValid(eq(hashed), any(), isNull())).thenReturn(Optional.of(
+                new InvalidatedToken(hashed, "user1", Duration.ofHours(1), true, response.getExpiresAt())));
+
+        signedService.invalidateToken(response.getToken());
+
+        assertTrue(revocations.isRevoked(hashed));
+        assertFalse(signedService.validateToken(response.getToken()).isValid());
+        verify(events).signedTokenRevoked(hashed, "user1", TokenIndex.toEpochMillis(response.getExpiresAt()));
+        verify(events, never()).tokenInvalidated(anyString());
+    }
+
+    @Test
+    public void testRotatedSignedTokenIsRevokedAndSuccessorIsSigned() {
+        TokenService signedService = signedService();
+        TokenResponse old = signedService.generateToken("user1", 600L, null);
+        String hashedOld = TokenHasher.hash(old.getToken());
+        when(tokenRepository.invalidateIfValid(eq(hashedOld), any(), any())).thenReturn(Optional.of(
+                new InvalidatedToken(hashedOld, "user1", Duration.ofMinutes(10), true, old.getExpiresAt())));
+
+        TokenResponse successor = signedService.rotateToken(old.getToken());
+
+        assertTrue(successor.getToken().startsWith("st1."));
+        assertFalse(signedService.validateToken(old.getToken()).isValid());
+        assertTrue(signedService.validateToken(successor.getToken()).isValid());
+    }
+
+    @Test
+    public void testSignedTokenFallsBackToDatabaseBeforeRevocationsLoaded() {
+        TokenService signedService = signedService();
+        String raw = signedService.generateToken("user1").getToken();
+        String hashed = TokenHasher.hash(raw);
+        Token revoked = new Token("user1", hashed);
+        revoked.setValidToken(false);
+        when(tokenRepository.findByTokenValue(hashed)).thenReturn(Optional.of(revoked));
+        TokenService coldService = new TokenService(tokenRepository, auditService, tokenIndex, issuedTokens,
+                new SignedTokens("signed", SIGNING_KEYS, "k1", "PT1H"), new RevocationList(tokenRepository, meterRegistry),
+                ttlPolicies, lastUsed, activeTokens, events, new TokenMetrics(meterRegistry));
+
+        assertFalse(coldService.validateToken(raw).isValid());
+    }
+
+    private TokenService signedService() {
+        return new TokenService(tokenRepository, auditService, tokenIndex, issuedTokens,
+                new SignedTokens("signed", SIGNING_KEYS, "k1", "PT1H"), revocations, ttlPolicies, lastUsed, activeTokens,
+                events, new TokenMetrics(meterRegistry));
+    }
+
+    private double outcomeCount(String operation, String outcome) {
+        return meterRegistry.get("token.operation.outcome").tag("operation", operation).tag("outcome", outcome)
+                .counter().count();
+    }
 }
@@ -0,0 +1,188 @@
+package org.example.tokenmanager.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.tokenmanager.repository.TokenRepository;
+import org.example.tokenmanager.repository.TokenStore.TokenStateRow;
+import org.example.tokenmanager.util.TokenHasher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class TokenSnapshotsTest {
+
+    private static final LocalDateTime WATERMARK = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    @TempDir
+    Path dir;
+
+    private TokenRepository tokenRepository;
+    private JdbcTemplate jdbcTemplate;
+    private Path file;
+
+    @BeforeEach
+    public void setUp() {
+        tokenRepository = mock(TokenRepository.class);
+        jdbcTemplate = mock(JdbcTemplate.class);
+        file = dir.resolve("snapshots").resolve("token-state.snapshot");
+        when(jdbcTemplate.queryForObject(anyString(), eq(LocalDateTime.class))).thenReturn(WATERMARK);
+    }
+
+    @Test
+    public void testRestoreAppliesSnapshotThenChanges() throws IOException {
+        when(tokenRepository.count()).thenReturn(4L);
+        when(tokenRepository.streamTokenStates()).thenReturn(Stream.of(
+                row("a", "alice", true, null),
+                row("b", "alice", false, null),
+                row("c", "bob", true, LocalDateTime.now().minusMinutes(1)),
+                row("d", "bob", true, LocalDateTime.now().plusHours(1))));
+        assertEquals(2, snapshots(new TokenIndex(tokenRepository), filter()).writeSnapshot());
+
+        when(tokenRepository.streamTokenStatesChangedSince(WATERMARK.minusMinutes(1))).thenReturn(Stream.of(
+                row("a", "alice", false, null),
+                row("e", "carol", true, null)));
+        TokenIndex index = new TokenIndex(tokenRepository);
+        IssuedTokenFilter filter = filter();
+        snapshots(index, filter).restore();
+
+        assertTrue(index.isLoaded());
+        assertNull(index.get(hash("a")));
+        assertEquals("bob", index.get(hash("d")).getUserId());
+        assertEquals(TokenIndex.toEpochMillis(LocalDateTime.now().plusHours(1)), index.get(hash("d")).getExpiresAt(), 5_000);
+        assertEquals("carol", index.get(hash("e")).getUserId());
+        assertEquals(2, index.size());
+        for (String token : new String[]{"a", "b", "c", "d", "e"}) {
+            assertTrue(filter.mightBeIssued(hash(token)), token);
+        }
+        assertFalse(filter.mightBeIssued(hash("never issued")));
+        verify(tokenRepository, never()).streamValidTokens();
+        verify(tokenRepository, never()).streamAllTokenValues();
+    }
+
+    @Test
+    public void testTokensRemovedDuringRestoreStayRemoved() throws IOException {
+        when(tokenRepository.count()).thenReturn(1L);
+        when(tokenRepository.streamTokenStates()).thenReturn(Stream.of(row("a", "alice", true, null)));
+        snapshots(new TokenIndex(tokenRepository), filter()).writeSnapshot();
+
+        TokenIndex index = new TokenIndex(tokenRepository);
+        // Invalidated by a request while the catch-up query is still running.
+        when(tokenRepository.streamTokenStatesChangedSince(any())).thenAnswer(invocation -> Stream.of(row("b", "bob", true, null))
+                .peek(row -> index.remove(hash("a"))));
+        snapshots(index, filter()).restore();
+
+        assertNull(index.get(hash("a")));
+        assertNotNull(index.get(hash("b")));
+    }
+
+    @Test
+    public void testCorruptSnapshotFallsBackToFullLoad() throws IOException {
+        when(tokenRepository.count()).thenReturn(1L);
+        when(tokenRepository.streamTokenStates()).thenReturn(Stream.of(row("a", "alice", true, null)));
+        snapshots(new TokenIndex(tokenRepository), filter()).writeSnapshot();
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[20] ^= 1;
+        Files.write(file, bytes);
+
+        TokenIndex index = new TokenIndex(tokenRepository);
+        IssuedTokenFilter filter = filter();
+        snapshots(index, filter).restore();
+
+        assertFalse(index.isLoaded());
+        // No filter installed, so nothing is rejected until the full load has run.
+        assertTrue(filter.mightBeIssued(hash("never issued")));
+        verify(tokenRepository, never()).streamTokenStatesChangedSince(any());
+    }
+
+    @Test
+    public void testFailedCatchUpInstallsNothing() throws IOException {
+        when(tokenRepository.count()).thenReturn(1L);
+        when(tokenRepository.streamTokenStates()).thenReturn(Stream.of(row("a", "alice", true, null)));
+        snapshots(new TokenIndex(tokenRepository), filter()).writeSnapshot();
+        when(tokenRepository.streamTokenStatesChangedSince(any())).thenThrow(new IllegalStateException("connection lost"));
+
+        TokenIndex index = new TokenIndex(tokenRepository);
+        IssuedTokenFilter filter = filter();
+        snapshots(index, filter).restore();
+
+        assertFalse(index.isLoaded());
+        assertTrue(filter.mightBeIssued(hash("never issued")));
+    }
+
+    @Test
+    public void testMissingSnapshotIsNotAnError() {
+        TokenIndex index = new TokenIndex(tokenRepository);
+        snapshots(index, filter()).restore();
+
+        assertFalse(index.isLoaded());
+        verifyNoInteractions(tokenRepository);
+    }
+
+    @Test
+    public void testSnapshotWithoutFilter() throws IOException {
+        when(tokenRepository.streamTokenStates()).thenReturn(Stream.of(row("a", "alice", true, null)));
+        IssuedTokenFilter disabled = new IssuedTokenFilter(tokenRepository, new SimpleMeterRegistry(), false, 0.01, 1000, 2.0);
+        snapshots(new TokenIndex(tokenRepository), disabled).writeSnapshot();
+
+        TokenSnapshotFile snapshot = TokenSnapshotFile.read(file);
+
+        assertNull(snapshot.getFilter());
+        assertEquals(WATERMARK, snapshot.getWatermark());
+        assertEquals(1, snapshot.getTokenCount());
+        TokenStateRow restored = snapshot.tokens().findFirst().orElseThrow();
+        assertEquals(hash("a"), restored.getTokenValue());
+        assertEquals("alice", restored.getUserId());
+        assertNull(restored.getExpiresAt());
+    }
+
+    private TokenSnapshots snapshots(TokenIndex index, IssuedTokenFilter filter) {
+        return new TokenSnapshots(tokenRepository, jdbcTemplate, new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                index, filter, file, 60_000);
+    }
+
+    private IssuedTokenFilter filter() {
+        return new IssuedTokenFilter(tokenRepository, new SimpleMeterRegistry(), true, 0.01, 1000, 2.0);
+    }
+
+    private static String hash(String token) {
+        return TokenHasher.hash(token);
+    }
+
+    private static TokenStateRow row(String token, String userId, boolean valid, LocalDateTime expiresAt) {
+        return new TokenStateRow() {
+            @Override
+            public boolean isValidToken() {
+                return valid;
+            }
+
+            @Override
+            public String getTokenValue() {
+                return hash(token);
+            }
+
+            @Override
+            public String getUserId() {
+                return userId;
+            }
+
+            @Override
+            public LocalDateTime getExpiresAt() {
+                return expiresAt;
+            }
+        };
+    }
+}
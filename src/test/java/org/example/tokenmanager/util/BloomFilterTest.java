@@ -0,0 +1,77 @@
+package org.example.tokenmanager.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BloomFilterTest {
+
+    @Test
+    public void testAddedDigestsAreAlwaysFound() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        List<String> added = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            String digest = TokenHasher.hash("token-" + i);
+            filter.put(digest);
+            added.add(digest);
+        }
+        added.forEach(digest -> assertTrue(filter.mightContain(digest)));
+        assertEquals(10_000, filter.insertions());
+    }
+
+    @Test
+    public void testFalsePositiveRateStaysNearConfiguredRate() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(TokenHasher.hash("token-" + i));
+        }
+        long falsePositives = IntStream.range(0, 100_000)
+                .filter(i -> filter.mightContain(TokenHasher.hash("other-" + i)))
+                .count();
+        assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+        assertEquals(0.01, filter.expectedFalsePositiveRate(), 0.005);
+    }
+
+    @Test
+    public void testSizing() {
+        BloomFilter filter = new BloomFilter(1_000_000, 0.01);
+        // ~9.6 bits per element and 7 hash functions at 1%
+        assertEquals(1_198_132, filter.memoryBytes(), 8);
+        assertEquals(7, filter.hashCount());
+        assertFalse(filter.mightContain(TokenHasher.hash("anything")));
+    }
+
+    @Test
+    public void testConcurrentPutsLoseNoBits() throws Exception {
+        BloomFilter filter = new BloomFilter(40_000, 0.01);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int offset = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    filter.put(TokenHasher.hash(offset + "-" + i));
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int t = 0; t < threads.length; t++) {
+            for (int i = 0; i < 10_000; i++) {
+                assertTrue(filter.mightContain(TokenHasher.hash(t + "-" + i)));
+            }
+        }
+    }
+
+    @Test
+    public void testRejectsInvalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 1.0));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 0.01).put("abc"));
+    }
+}
@@ -0,0 +1,76 @@
+package org.example.tokenmanager.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenHasherTest {
+
+    @Test
+    public void testHashMatchesKnownSha256Vector() {
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", TokenHasher.hash("abc"));
+    }
+
+    @Test
+    public void testHashOfNonAsciiInputMatchesJdkDigest() throws Exception {
+        String input = "tökén-€";
+        byte[] expected = MessageDigest.getInstance("SHA-256").digest(input.getBytes(StandardCharsets.UTF_8));
+        assertEquals(TokenHasher.toHex(expected), TokenHasher.hash(input));
+        assertArrayEquals(expected, TokenHasher.digest(input));
+    }
+
+    @Test
+    public void testByteApisAgreeWithStringApi() {
+        String token = TokenGenerator.generate();
+        byte[] ascii = token.getBytes(StandardCharsets.US_ASCII);
+
+        byte[] fromArray = new byte[TokenHasher.DIGEST_LENGTH + 4];
+        TokenHasher.digest(ascii, 0, ascii.length, fromArray, 4);
+        byte[] fromBuffer = new byte[TokenHasher.DIGEST_LENGTH];
+        TokenHasher.digest(ByteBuffer.wrap(ascii), fromBuffer, 0);
+
+        assertEquals(TokenHasher.hash(token), TokenHasher.toHex(fromBuffer));
+        assertArrayEquals(fromBuffer, Arrays.copyOfRange(fromArray, 4, 4 + TokenHasher.DIGEST_LENGTH));
+    }
+
+    @Test
+    public void testFromHexRoundTrip() {
+        String hex = TokenHasher.hash("roundTrip");
+        assertEquals(hex, TokenHasher.toHex(TokenHasher.fromHex(hex)));
+        assertThrows(IllegalArgumentException.class, () -> TokenHasher.fromHex("abc"));
+        assertThrows(IllegalArgumentException.class, () -> TokenHasher.fromHex("zz"));
+    }
+
+    @Test
+    public void testGeneratedTokensAreUniqueAndUrlSafe() {
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            String token = TokenGenerator.generate();
+            assertEquals(TokenGenerator.TOKEN_LENGTH, token.length());
+            assertTrue(token.matches("[A-Za-z0-9_-]+"));
+            assertTrue(seen.add(token));
+        }
+    }
+
+    @Test
+    public void testGenerateIntoBuffersWritesTokenAndItsDigest() {
+        byte[] token = new byte[TokenGenerator.TOKEN_LENGTH];
+        byte[] digest = new byte[TokenHasher.DIGEST_LENGTH];
+        int written = TokenGenerator.generate(token, 0, digest, 0);
+        assertEquals(TokenGenerator.TOKEN_LENGTH, written);
+        assertEquals(TokenHasher.hash(new String(token, StandardCharsets.US_ASCII)), TokenHasher.toHex(digest));
+    }
+
+    @Test
+    public void testFingerprintIsDigestPrefix() {
+        String hashed = TokenHasher.hash("abc");
+        assertEquals("ba7816bf8f01", TokenHasher.fingerprint(hashed));
+    }
+}
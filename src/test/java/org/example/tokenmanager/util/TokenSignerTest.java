@@ -0,0 +1,73 @@
+package org.example.tokenmanager.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenSignerTest {
+
+    private static final byte[] KEY1 = "0123456789abcdef0123456789abcdef".getBytes();
+    private static final byte[] KEY2 = "fedcba9876543210fedcba9876543210".getBytes();
+
+    @Test
+    public void testSignedTokenVerifiesWithItsClaims() {
+        TokenSigner signer = new TokenSigner(Map.of("k1", KEY1), "k1");
+
+        String token = signer.sign("user-ü", 1_000L, 61_000L);
+        TokenSigner.Claims claims = signer.verify(token);
+
+        assertTrue(TokenSigner.isSigned(token));
+        assertEquals("k1", claims.getKeyId());
+        assertEquals("user-ü", claims.getUserId());
+        assertEquals(1_000L, claims.getIssuedAt());
+        assertEquals(61_000L, claims.getExpiresAt());
+        assertFalse(claims.isExpired(60_999L));
+        assertTrue(claims.isExpired(61_000L));
+        // The nonce keeps tokens for the same user and instant apart
+        assertNotEquals(token, signer.sign("user-ü", 1_000L, 61_000L));
+    }
+
+    @Test
+    public void testTamperedOrMalformedTokensDoNotVerify() {
+        TokenSigner signer = new TokenSigner(Map.of("k1", KEY1), "k1");
+        String token = signer.sign("user1", 1_000L, 61_000L);
+        int dot = token.lastIndexOf('.');
+        // Same signature over a payload naming a different user
+        byte[] payload = Base64.getUrlDecoder().decode(token.substring(TokenSigner.PREFIX.length(), dot));
+        payload[5] ^= 1;
+        String forged = TokenSigner.PREFIX + Base64.getUrlEncoder().withoutPadding().encodeToString(payload)
+                + token.substring(dot);
+
+        assertNull(signer.verify(forged));
+        assertNull(signer.verify(token.substring(0, dot) + ".AAAA"));
+        assertNull(signer.verify(token + ".x"));
+        assertNull(signer.verify("st1.!!!.???"));
+        assertNull(signer.verify("st1."));
+        assertNull(signer.verify(TokenGenerator.generate()));
+    }
+
+    @Test
+    public void testRotatedKeyStillVerifiesTokensInFlight() {
+        String oldToken = new TokenSigner(Map.of("k1", KEY1), "k1").sign("user1", 1_000L, 61_000L);
+        TokenSigner rotated = new TokenSigner(Map.of("k1", KEY1, "k2", KEY2), "k2");
+
+        assertEquals("k1", rotated.verify(oldToken).getKeyId());
+        assertEquals("k2", rotated.verify(rotated.sign("user1", 1_000L, 61_000L)).getKeyId());
+        // Once k1 is retired, its tokens no longer verify
+        assertNull(new TokenSigner(Map.of("k2", KEY2), "k2").verify(oldToken));
+    }
+
+    @Test
+    public void testKeyConfigurationIsChecked() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenSigner(Map.of("k1", new byte[16]), "k1"));
+        assertThrows(IllegalArgumentException.class, () -> new TokenSigner(Map.of("k1", KEY1), "k2"));
+        assertThrows(IllegalStateException.class, () -> new TokenSigner(Map.of("k1", KEY1), null).sign("user1", 1L, 2L));
+        assertThrows(IllegalArgumentException.class, () -> TokenSigner.parseKeys("no-separator"));
+
+        Map<String, byte[]> keys = TokenSigner.parseKeys(" k1:" + Base64.getEncoder().encodeToString(KEY1) + " ,");
+        assertArrayEquals(KEY1, keys.get("k1"));
+    }
+}